@@ -73,6 +73,9 @@ public class ConfigurationTask extends Task
         configuration.assumeNoExternalReturnValues = extendClassSpecifications(configuration.assumeNoExternalReturnValues,
                                                                                this.configuration.assumeNoExternalReturnValues);
 
+        configuration.assumeValues                 = extendClassSpecifications(configuration.assumeValues,
+                                                                               this.configuration.assumeValues);
+
         configuration.keepPackageNames             = extendList(configuration.keepPackageNames,
                                                                 this.configuration.keepPackageNames);
 
@@ -234,6 +237,13 @@ public class ConfigurationTask extends Task
     }
 
 
+    public void addConfiguredAssumevalues(ClassSpecificationElement classSpecificationElement)
+    {
+        configuration.assumeValues = extendClassSpecifications(configuration.assumeValues,
+                                                               classSpecificationElement);
+    }
+
+
     public void addConfiguredOptimizations(FilterElement filterElement)
     {
         addConfiguredOptimization(filterElement);
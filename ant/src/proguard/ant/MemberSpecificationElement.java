@@ -22,7 +22,7 @@ package proguard.ant;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.types.DataType;
-import proguard.MemberSpecification;
+import proguard.*;
 import proguard.classfile.*;
 import proguard.classfile.util.ClassUtil;
 import proguard.util.ListUtil;
@@ -36,11 +36,17 @@ import java.util.*;
  */
 public class MemberSpecificationElement extends DataType
 {
+    // Keywords of the class member values.
+    private static final String RANGE_KEYWORD = "..";
+    private static final String FALSE_KEYWORD = "false";
+    private static final String TRUE_KEYWORD  = "true";
+
     private String access;
     private String annotation;
     private String type;
     private String name;
     private String parameters;
+    private String values;
 
 
     /**
@@ -69,6 +75,7 @@ public class MemberSpecificationElement extends DataType
         String annotation = memberSpecificationElement.annotation;
         String name       = memberSpecificationElement.name;
         String parameters = memberSpecificationElement.parameters;
+        String values     = memberSpecificationElement.values;
 
         // Perform some basic conversions and checks on the attributes.
         if (annotation != null)
@@ -112,7 +119,13 @@ public class MemberSpecificationElement extends DataType
             type       != null ? ClassUtil.internalType(type)                            :
                                  null;
 
-        MemberSpecification memberSpecification =
+        MemberSpecification memberSpecification = values != null ?
+            new MemberValueSpecification(requiredAccessFlags(true,  access),
+                                         requiredAccessFlags(false, access),
+                                         annotation,
+                                         name,
+                                         descriptor,
+                                         parseValues(values)) :
             new MemberSpecification(requiredAccessFlags(true,  access),
                                     requiredAccessFlags(false, access),
                                     annotation,
@@ -165,6 +178,12 @@ public class MemberSpecificationElement extends DataType
     }
 
 
+    public void setValues(String values)
+    {
+        this.values = values;
+    }
+
+
     // Small utility methods.
 
     private int requiredAccessFlags(boolean set,
@@ -215,4 +234,37 @@ public class MemberSpecificationElement extends DataType
 
         return accessFlags;
     }
+
+
+    /**
+     * Parses the given value or value range, like "true", "42", or "21..100".
+     */
+    private Number[] parseValues(String values)
+    throws BuildException
+    {
+        try
+        {
+            int rangeIndex = values.indexOf(RANGE_KEYWORD);
+            if (rangeIndex >= 0)
+            {
+                return new Number[]
+                {
+                    Integer.valueOf(values.substring(0, rangeIndex)),
+                    Integer.valueOf(values.substring(rangeIndex + RANGE_KEYWORD.length()))
+                };
+            }
+
+            return new Number[]
+            {
+                values.equals(FALSE_KEYWORD) ? Integer.valueOf(0) :
+                values.equals(TRUE_KEYWORD)  ? Integer.valueOf(1) :
+                values.indexOf('.') >= 0     ? (Number)Double.valueOf(values) :
+                                               (Number)Long.valueOf(values)
+            };
+        }
+        catch (NumberFormatException e)
+        {
+            throw new BuildException("Incorrect class member values ["+values+"]");
+        }
+    }
 }
@@ -110,6 +110,30 @@ public class ProGuardTask extends ConfigurationTask
     }
 
 
+    public void setStartupprofile(File startupProfile)
+    {
+        configuration.startupProfile = resolvedFile(startupProfile);
+    }
+
+
+    public void setStartupjar(File startupJar)
+    {
+        configuration.startupJar = resolvedFile(startupJar);
+    }
+
+
+    public void setLibrarycache(File libraryCache)
+    {
+        configuration.libraryCache = resolvedFile(libraryCache);
+    }
+
+
+    public void setContenthashes(File contentHashes)
+    {
+        configuration.contentHashes = resolvedFile(contentHashes);
+    }
+
+
     public void setPrintseeds(File printSeeds)
     {
         configuration.printSeeds = optionalFile(printSeeds);
@@ -152,6 +176,18 @@ public class ProGuardTask extends ConfigurationTask
     }
 
 
+    public void setApplyprofile(File applyProfile)
+    {
+        configuration.applyProfile = resolvedFile(applyProfile);
+    }
+
+
+    public void setEncodeprimitivearrays(boolean encodePrimitiveArrays)
+    {
+        configuration.encodePrimitiveArrays = encodePrimitiveArrays;
+    }
+
+
     public void setObfuscate(boolean obfuscate)
     {
         configuration.obfuscate = obfuscate;
@@ -318,6 +354,18 @@ public class ProGuardTask extends ConfigurationTask
     }
 
 
+    public void setPrintperformance(File printPerformance)
+    {
+        configuration.printPerformance = optionalFile(printPerformance);
+    }
+
+
+    public void setPrintmemory(File printMemory)
+    {
+        configuration.printMemory = optionalFile(printMemory);
+    }
+
+
     public void setAddConfigurationDebugging(boolean addConfigurationDebugging)
     {
         configuration.addConfigurationDebugging = addConfigurationDebugging;
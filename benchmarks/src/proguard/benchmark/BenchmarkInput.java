@@ -0,0 +1,274 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import proguard.ProGuard;
+import proguard.classfile.ClassPool;
+import proguard.classfile.util.*;
+import proguard.classfile.visitor.ClassPoolFiller;
+import proguard.io.*;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.util.*;
+
+/**
+ * This utility class provides the input class pools for the benchmarks.
+ * <p>
+ * The program classes are read from the jars or directories in the system
+ * property <code>benchmark.injars</code> (separated by the path separator),
+ * or, by default, from the jar that contains ProGuard itself. Similarly,
+ * the library classes are read from the system property
+ * <code>benchmark.libraryjars</code>, or, by default, from the run-time
+ * jar of the Java runtime, if it has one.
+ *
+ * @author Eric Lafortune
+ */
+public class BenchmarkInput
+{
+    public static final String INJARS_PROPERTY      = "benchmark.injars";
+    public static final String LIBRARYJARS_PROPERTY = "benchmark.libraryjars";
+
+
+    /**
+     * Returns the input files for the benchmarks.
+     */
+    public static File[] inputFiles() throws IOException
+    {
+        String injars = System.getProperty(INJARS_PROPERTY);
+        if (injars != null)
+        {
+            return files(injars);
+        }
+
+        try
+        {
+            return new File[]
+            {
+                new File(ProGuard.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+            };
+        }
+        catch (URISyntaxException e)
+        {
+            throw new IOException("Can't find the ProGuard jar ("+e.getMessage()+")");
+        }
+    }
+
+
+    /**
+     * Returns the library files for the benchmarks.
+     */
+    public static File[] libraryFiles()
+    {
+        String libraryjars = System.getProperty(LIBRARYJARS_PROPERTY);
+        if (libraryjars != null)
+        {
+            return files(libraryjars);
+        }
+
+        File runtimeJar = new File(System.getProperty("java.home"), "lib/rt.jar");
+
+        return runtimeJar.isFile() ?
+            new File[] { runtimeJar } :
+            new File[0];
+    }
+
+
+    /**
+     * Reads the program classes from the input files into a new class pool.
+     */
+    public static ClassPool readProgramClassPool() throws IOException
+    {
+        ClassPool programClassPool = new ClassPool();
+
+        File[] inputFiles = inputFiles();
+        for (int index = 0; index < inputFiles.length; index++)
+        {
+            readClasses(inputFiles[index], false, programClassPool);
+        }
+
+        return programClassPool;
+    }
+
+
+    /**
+     * Reads the library classes from the library files into a new class pool.
+     */
+    public static ClassPool readLibraryClassPool() throws IOException
+    {
+        ClassPool libraryClassPool = new ClassPool();
+
+        File[] libraryFiles = libraryFiles();
+        for (int index = 0; index < libraryFiles.length; index++)
+        {
+            readClasses(libraryFiles[index], true, libraryClassPool);
+        }
+
+        return libraryClassPool;
+    }
+
+
+    /**
+     * Reads the program classes from the input files and initializes their
+     * references, with the library classes from the library files.
+     */
+    public static ClassPool readInitializedProgramClassPool() throws IOException
+    {
+        return readInitializedProgramClassPool(readLibraryClassPool());
+    }
+
+
+    /**
+     * Reads the program classes from the input files and initializes their
+     * references and class hierarchy, with the given library classes.
+     */
+    public static ClassPool readInitializedProgramClassPool(ClassPool libraryClassPool)
+    throws IOException
+    {
+        ClassPool programClassPool = readProgramClassPool();
+
+        // Initialize the class hierarchy and the references, like the
+        // initializer of ProGuard itself.
+        ClassSuperHierarchyInitializer classSuperHierarchyInitializer =
+            new ClassSuperHierarchyInitializer(programClassPool, libraryClassPool);
+
+        programClassPool.classesAccept(classSuperHierarchyInitializer);
+        libraryClassPool.classesAccept(classSuperHierarchyInitializer);
+
+        programClassPool.classesAccept(
+            new ClassReferenceInitializer(programClassPool, libraryClassPool));
+
+        programClassPool.classesAccept(new ClassSubHierarchyInitializer());
+        libraryClassPool.classesAccept(new ClassSubHierarchyInitializer());
+
+        return programClassPool;
+    }
+
+
+    /**
+     * Reads the classes from the given jar or directory into the given class
+     * pool.
+     */
+    public static void readClasses(File      file,
+                                   boolean   isLibrary,
+                                   ClassPool classPool) throws IOException
+    {
+        DataEntryReader classReader =
+            new ClassFilter(
+            new ClassReader(isLibrary, false, false, null,
+            new ClassPoolFiller(classPool)));
+
+        pumpDataEntries(file, classReader);
+    }
+
+
+    /**
+     * Reads the contents of all entries in the input files, including
+     * resource files, into a new map, from the entry names to their
+     * contents. The map preserves the order of the entries.
+     */
+    public static Map readDataEntries() throws IOException
+    {
+        Map dataEntries = new LinkedHashMap();
+
+        File[] inputFiles = inputFiles();
+        for (int index = 0; index < inputFiles.length; index++)
+        {
+            pumpDataEntries(inputFiles[index],
+                            new MyDataEntryCollector(dataEntries));
+        }
+
+        return dataEntries;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the files in the given path.
+     */
+    private static File[] files(String path)
+    {
+        String[] names = path.split(File.pathSeparator);
+        File[]   files = new File[names.length];
+        for (int index = 0; index < names.length; index++)
+        {
+            files[index] = new File(names[index]);
+        }
+
+        return files;
+    }
+
+
+    /**
+     * Pumps the entries of the given jar or directory to the given reader.
+     */
+    private static void pumpDataEntries(File            file,
+                                        DataEntryReader dataEntryReader)
+    throws IOException
+    {
+        new DirectoryPump(file).pumpDataEntries(
+            file.isDirectory() ?
+                dataEntryReader :
+                new JarReader(dataEntryReader));
+    }
+
+
+    /**
+     * This DataEntryReader collects the contents of the data entries that it
+     * reads in a given map.
+     */
+    private static class MyDataEntryCollector
+    implements           DataEntryReader
+    {
+        private final Map dataEntries;
+
+
+        public MyDataEntryCollector(Map dataEntries)
+        {
+            this.dataEntries = dataEntries;
+        }
+
+
+        // Implementations for DataEntryReader.
+
+        public void read(DataEntry dataEntry) throws IOException
+        {
+            if (!dataEntry.isDirectory())
+            {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+                InputStream inputStream = dataEntry.getInputStream();
+
+                byte[] buffer = new byte[4096];
+                int    count;
+                while ((count = inputStream.read(buffer)) >= 0)
+                {
+                    outputStream.write(buffer, 0, count);
+                }
+
+                dataEntry.closeInputStream();
+
+                dataEntries.put(dataEntry.getName(), outputStream.toByteArray());
+            }
+        }
+    }
+}
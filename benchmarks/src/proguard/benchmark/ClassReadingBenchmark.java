@@ -0,0 +1,116 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.classfile.*;
+import proguard.classfile.io.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the parsing of class files by
+ * {@link ProgramClassReader} and {@link LibraryClassReader}. The class
+ * files are read into memory beforehand, so the benchmark doesn't include
+ * any file access or decompression. Program classes are read with and
+ * without decoding their StackMapTable attributes, and library classes with
+ * and without packing their members.
+ * <p>
+ * Run it with <code>-prof gc</code> to compare the allocation rates.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClassReadingBenchmark
+{
+    @Param({"program", "programWithoutStackMapTables", "library", "packedLibrary"})
+    public String reader;
+
+    private byte[][] classFiles;
+
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        Map  dataEntries = BenchmarkInput.readDataEntries();
+        List classFiles  = new ArrayList();
+
+        Iterator iterator = dataEntries.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry entry = (Map.Entry)iterator.next();
+            String    name  = (String)entry.getKey();
+
+            if (name.endsWith(ClassConstants.CLASS_FILE_EXTENSION))
+            {
+                classFiles.add(entry.getValue());
+            }
+        }
+
+        this.classFiles = (byte[][])classFiles.toArray(new byte[classFiles.size()][]);
+    }
+
+
+    @Benchmark
+    public int classReading()
+    {
+        int count = 0;
+
+        Map sharedStrings = reader.equals("packedLibrary") ?
+            new HashMap() :
+            null;
+
+        for (int index = 0; index < classFiles.length; index++)
+        {
+            DataInput dataInput =
+                new DataInputStream(
+                new ByteArrayInputStream(classFiles[index]));
+
+            Clazz clazz;
+            if (reader.equals("library") ||
+                reader.equals("packedLibrary"))
+            {
+                clazz = new LibraryClass();
+                clazz.accept(new LibraryClassReader(dataInput, true, true, sharedStrings));
+            }
+            else
+            {
+                clazz = new ProgramClass();
+                clazz.accept(new ProgramClassReader(dataInput,
+                                                    reader.equals("programWithoutStackMapTables")));
+            }
+
+            if (clazz.getName() != null)
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,829 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.editor.*;
+import proguard.classfile.io.ProgramClassWriter;
+import proguard.classfile.util.SimplifiedVisitor;
+import proguard.classfile.visitor.ClassVisitor;
+import proguard.io.ZipOutput;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This utility generates a synthetic corpus of classes, for measuring how
+ * ProGuard scales with large inputs. The corpus is fully determined by a
+ * random seed and a few parameters: the number of classes, the depth and
+ * width of the class hierarchies, the number and size of the methods,
+ * and the density of lambda expressions and string concatenations in the
+ * code. The generated code is valid, but it isn't meant to be executed.
+ * <p>
+ * The generator can write the classes to a jar, with a file of keep
+ * options for the selected set of keep rules:
+ * <pre>
+ *     java proguard.benchmark.CorpusGenerator -outjar corpus.jar -keepfile corpus.pro -classes 100000
+ * </pre>
+ *
+ * @author Eric Lafortune
+ */
+public class CorpusGenerator
+{
+    /**
+     * The set of keep rules that keeps the main methods of the entry
+     * classes, like for an application.
+     */
+    public static final String KEEP_APPLICATION = "application";
+
+    /**
+     * The set of keep rules that keeps all public classes and their public
+     * methods, like for a library.
+     */
+    public static final String KEEP_LIBRARY     = "library";
+
+    /**
+     * The set of keep rules that keeps all classes and class members, so
+     * the processing doesn't remove or rename anything.
+     */
+    public static final String KEEP_ALL         = "all";
+
+    private static final String PACKAGE_NAME        = "corpus";
+    private static final int    CLASSES_PER_PACKAGE = 100;
+    private static final int    ENTRY_CLASS_STRIDE  = 100;
+    private static final int    FIELD_COUNT         = 4;
+    private static final double PUBLIC_RATIO        = 0.8;
+    private static final double ROOT_RATIO          = 0.1;
+
+    // The DOS time of January 1st, 1980, for reproducible jars.
+    private static final int MODIFICATION_TIME = (1 << 21) | (1 << 16);
+
+    private static final String METHOD_NAME_MAIN = "main";
+    private static final String METHOD_TYPE_MAIN = "([Ljava/lang/String;)V";
+    private static final String METHOD_TYPE_CODE = "(I)I";
+
+    private static final String NAME_JAVA_UTIL_FUNCTION_INT_UNARY_OPERATOR = "java/util/function/IntUnaryOperator";
+    private static final String METHOD_NAME_APPLY_AS_INT                   = "applyAsInt";
+    private static final String METHOD_TYPE_LAMBDA_FACTORY                 = "()Ljava/util/function/IntUnaryOperator;";
+
+    private static final String NAME_JAVA_LANG_INVOKE_LAMBDA_METAFACTORY = "java/lang/invoke/LambdaMetafactory";
+    private static final String METHOD_NAME_METAFACTORY                  = "metafactory";
+    private static final String METHOD_TYPE_METAFACTORY                  = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;";
+
+    private static final String METHOD_NAME_HASH_CODE = "hashCode";
+    private static final String METHOD_TYPE_HASH_CODE = "()I";
+
+    private final long   seed;
+    private final int    classCount;
+    private final int    hierarchyDepth;
+    private final int    hierarchyWidth;
+    private final int    methodCount;
+    private final int    methodSize;
+    private final double lambdaDensity;
+    private final double stringConcatDensity;
+
+    // Fields acting as parameters while generating the classes.
+    private Random    random;
+    private boolean[] isPublic;
+    private int[]     superClassIndices;
+
+
+    /**
+     * Creates a new CorpusGenerator.
+     * @param seed                the seed for the random generator, which
+     *                            determines the generated classes.
+     * @param classCount          the number of classes.
+     * @param hierarchyDepth      the maximum depth of the class hierarchies,
+     *                            not counting java.lang.Object.
+     * @param hierarchyWidth      the maximum number of direct subclasses of
+     *                            any class.
+     * @param methodCount         the number of methods in each class, not
+     *                            counting constructors and main methods.
+     * @param methodSize          the number of statements in each method.
+     * @param lambdaDensity       the fraction of statements that invoke
+     *                            lambda expressions.
+     * @param stringConcatDensity the fraction of statements that concatenate
+     *                            strings.
+     */
+    public CorpusGenerator(long   seed,
+                           int    classCount,
+                           int    hierarchyDepth,
+                           int    hierarchyWidth,
+                           int    methodCount,
+                           int    methodSize,
+                           double lambdaDensity,
+                           double stringConcatDensity)
+    {
+        if (methodCount < 1)
+        {
+            throw new IllegalArgumentException("The method count must be at least 1 ["+methodCount+"]");
+        }
+
+        this.seed                = seed;
+        this.classCount          = classCount;
+        this.hierarchyDepth      = hierarchyDepth;
+        this.hierarchyWidth      = hierarchyWidth;
+        this.methodCount         = methodCount;
+        this.methodSize          = methodSize;
+        this.lambdaDensity       = lambdaDensity;
+        this.stringConcatDensity = stringConcatDensity;
+    }
+
+
+    /**
+     * Generates the classes, passing them to the given class visitor one by
+     * one, so the caller doesn't have to keep all of them in memory.
+     */
+    public void generate(ClassVisitor classVisitor)
+    {
+        random = new Random(seed);
+
+        createHierarchy();
+
+        for (int index = 0; index < classCount; index++)
+        {
+            createClass(index).accept(classVisitor);
+        }
+
+        random            = null;
+        isPublic          = null;
+        superClassIndices = null;
+    }
+
+
+    /**
+     * Generates the classes and writes them to the given jar file.
+     */
+    public void writeJar(File jarFile) throws IOException
+    {
+        ZipOutput zipOutput =
+            new ZipOutput(
+            new BufferedOutputStream(
+            new FileOutputStream(jarFile)));
+
+        try
+        {
+            MyJarEntryWriter jarEntryWriter = new MyJarEntryWriter(zipOutput);
+
+            generate(jarEntryWriter);
+
+            if (jarEntryWriter.ioException != null)
+            {
+                throw jarEntryWriter.ioException;
+            }
+        }
+        finally
+        {
+            zipOutput.close();
+        }
+    }
+
+
+    /**
+     * Returns the keep options of the given set of keep rules for the
+     * generated classes.
+     * @param keepRules {@link #KEEP_APPLICATION}, {@link #KEEP_LIBRARY}, or
+     *                  {@link #KEEP_ALL}.
+     */
+    public static String keepOptions(String keepRules)
+    {
+        if (KEEP_APPLICATION.equals(keepRules))
+        {
+            return "-keep public class " + PACKAGE_NAME + ".** {\n" +
+                   "    public static void main(java.lang.String[]);\n" +
+                   "}\n";
+        }
+        else if (KEEP_LIBRARY.equals(keepRules))
+        {
+            return "-keep public class " + PACKAGE_NAME + ".** {\n" +
+                   "    public *;\n" +
+                   "}\n";
+        }
+        else if (KEEP_ALL.equals(keepRules))
+        {
+            return "-keep class " + PACKAGE_NAME + ".** {\n" +
+                   "    *;\n" +
+                   "}\n";
+        }
+
+        throw new IllegalArgumentException("Unknown set of keep rules ["+keepRules+"]");
+    }
+
+
+    /**
+     * Writes a corpus, based on the given command-line arguments.
+     */
+    public static void main(String[] args)
+    {
+        File   jarFile             = null;
+        File   keepFile            = null;
+        String keepRules           = KEEP_APPLICATION;
+        long   seed                = 0L;
+        int    classCount          = 1000;
+        int    hierarchyDepth      = 5;
+        int    hierarchyWidth      = 4;
+        int    methodCount         = 8;
+        int    methodSize          = 20;
+        double lambdaDensity       = 0.02;
+        double stringConcatDensity = 0.05;
+
+        try
+        {
+            for (int index = 0; index < args.length; index += 2)
+            {
+                String option = args[index];
+                if (index + 1 >= args.length)
+                {
+                    throw new IllegalArgumentException("Missing value for option ["+option+"]");
+                }
+
+                String value = args[index + 1];
+
+                if      (option.equals("-outjar"))   jarFile             = new File(value);
+                else if (option.equals("-keepfile")) keepFile            = new File(value);
+                else if (option.equals("-keep"))     keepRules           = value;
+                else if (option.equals("-seed"))     seed                = Long.parseLong(value);
+                else if (option.equals("-classes"))  classCount          = Integer.parseInt(value);
+                else if (option.equals("-depth"))    hierarchyDepth      = Integer.parseInt(value);
+                else if (option.equals("-width"))    hierarchyWidth      = Integer.parseInt(value);
+                else if (option.equals("-methods"))  methodCount         = Integer.parseInt(value);
+                else if (option.equals("-size"))     methodSize          = Integer.parseInt(value);
+                else if (option.equals("-lambdas"))  lambdaDensity       = Double.parseDouble(value);
+                else if (option.equals("-concats"))  stringConcatDensity = Double.parseDouble(value);
+                else throw new IllegalArgumentException("Unknown option ["+option+"]");
+            }
+
+            if (jarFile == null)
+            {
+                throw new IllegalArgumentException("Missing option [-outjar]");
+            }
+
+            new CorpusGenerator(seed,
+                                classCount,
+                                hierarchyDepth,
+                                hierarchyWidth,
+                                methodCount,
+                                methodSize,
+                                lambdaDensity,
+                                stringConcatDensity).writeJar(jarFile);
+
+            if (keepFile != null)
+            {
+                Writer writer = new FileWriter(keepFile);
+                try
+                {
+                    writer.write(keepOptions(keepRules));
+                }
+                finally
+                {
+                    writer.close();
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            System.err.println("Usage: java proguard.benchmark.CorpusGenerator -outjar <file> [-keepfile <file>] [-keep application|library|all]");
+            System.err.println("           [-seed <n>] [-classes <n>] [-depth <n>] [-width <n>] [-methods <n>] [-size <n>]");
+            System.err.println("           [-lambdas <fraction>] [-concats <fraction>]");
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Randomly determines the access flags and the super classes of all
+     * classes. Only public classes can be extended, so subclasses in other
+     * packages can access them.
+     */
+    private void createHierarchy()
+    {
+        isPublic          = new boolean[classCount];
+        superClassIndices = new int[classCount];
+
+        int[] depths         = new int[classCount];
+        int[] subclassCounts = new int[classCount];
+
+        // Collect the classes that can still get subclasses.
+        List openClassIndices = new ArrayList();
+
+        for (int index = 0; index < classCount; index++)
+        {
+            isPublic[index] = index % ENTRY_CLASS_STRIDE == 0 ||
+                              random.nextDouble() < PUBLIC_RATIO;
+
+            if (openClassIndices.isEmpty() ||
+                random.nextDouble() < ROOT_RATIO)
+            {
+                superClassIndices[index] = -1;
+            }
+            else
+            {
+                int openIndex  = random.nextInt(openClassIndices.size());
+                int superIndex = ((Integer)openClassIndices.get(openIndex)).intValue();
+
+                superClassIndices[index] = superIndex;
+                depths[index]            = depths[superIndex] + 1;
+
+                // Close the super class if it is full, replacing it by the
+                // last open class.
+                if (++subclassCounts[superIndex] >= hierarchyWidth)
+                {
+                    Object lastOpenClassIndex =
+                        openClassIndices.remove(openClassIndices.size() - 1);
+
+                    if (openIndex < openClassIndices.size())
+                    {
+                        openClassIndices.set(openIndex, lastOpenClassIndex);
+                    }
+                }
+            }
+
+            if (isPublic[index] &&
+                depths[index] + 1 < hierarchyDepth &&
+                hierarchyWidth > 0)
+            {
+                openClassIndices.add(new Integer(index));
+            }
+        }
+    }
+
+
+    /**
+     * Creates the class with the given index.
+     */
+    private ProgramClass createClass(int index)
+    {
+        String className = className(index);
+
+        int superClassIndex = superClassIndices[index];
+        String superClassName = superClassIndex < 0 ?
+            ClassConstants.NAME_JAVA_LANG_OBJECT :
+            className(superClassIndex);
+
+        SimplifiedClassEditor classEditor =
+            new SimplifiedClassEditor(isPublic[index] ?
+                                          ClassConstants.ACC_PUBLIC :
+                                          0,
+                                      className,
+                                      superClassName);
+
+        MyClassComposer classComposer =
+            new MyClassComposer(classEditor, index);
+
+        for (int fieldIndex = 0; fieldIndex < FIELD_COUNT; fieldIndex++)
+        {
+            classEditor.addField(ClassConstants.ACC_PRIVATE,
+                                 fieldName(fieldIndex),
+                                 String.valueOf(ClassConstants.TYPE_INT));
+        }
+
+        classComposer.addConstructor(superClassName);
+
+        if (index % ENTRY_CLASS_STRIDE == 0)
+        {
+            classComposer.addMainMethod();
+        }
+
+        for (int methodIndex = 0; methodIndex < methodCount; methodIndex++)
+        {
+            classComposer.addMethod(methodIndex);
+        }
+
+        classEditor.finishEditing();
+
+        ProgramClass programClass = classEditor.getProgramClass();
+
+        // Lambda expressions require at least Java 7; we use Java 8, like
+        // most current code.
+        programClass.u4version = ClassConstants.CLASS_VERSION_1_8;
+
+        return programClass;
+    }
+
+
+    /**
+     * Returns the internal name of the class with the given index.
+     */
+    private static String className(int index)
+    {
+        return PACKAGE_NAME +
+               ClassConstants.PACKAGE_SEPARATOR + "p" + (index / CLASSES_PER_PACKAGE) +
+               ClassConstants.PACKAGE_SEPARATOR + "C" + index;
+    }
+
+
+    /**
+     * Returns the name of the field with the given index.
+     */
+    private static String fieldName(int index)
+    {
+        return "f" + index;
+    }
+
+
+    /**
+     * Returns the name of the method with the given index.
+     */
+    private static String methodName(int index)
+    {
+        return "m" + index;
+    }
+
+
+    /**
+     * This utility class adds the members of a single generated class.
+     */
+    private class MyClassComposer
+    {
+        private final SimplifiedClassEditor classEditor;
+        private final ProgramClass          programClass;
+        private final ConstantPoolEditor    constantPoolEditor;
+        private final int                   classIndex;
+        private final String                className;
+
+        private BootstrapMethodsAttributeEditor bootstrapMethodsAttributeEditor;
+        private int                             lambdaCount;
+
+
+        public MyClassComposer(SimplifiedClassEditor classEditor,
+                               int                   classIndex)
+        {
+            this.classEditor        = classEditor;
+            this.programClass       = classEditor.getProgramClass();
+            this.constantPoolEditor = new ConstantPoolEditor(programClass);
+            this.classIndex         = classIndex;
+            this.className          = className(classIndex);
+        }
+
+
+        /**
+         * Adds a public constructor without parameters.
+         */
+        public void addConstructor(String superClassName)
+        {
+            classEditor.addMethod(ClassConstants.ACC_PUBLIC,
+                                  ClassConstants.METHOD_NAME_INIT,
+                                  ClassConstants.METHOD_TYPE_INIT,
+                                  1)
+                .aload_0()
+                .invokespecial(superClassName,
+                               ClassConstants.METHOD_NAME_INIT,
+                               ClassConstants.METHOD_TYPE_INIT)
+                .return_();
+        }
+
+
+        /**
+         * Adds a main method that invokes the first method on a new
+         * instance.
+         */
+        public void addMainMethod()
+        {
+            classEditor.addMethod(ClassConstants.ACC_PUBLIC |
+                                  ClassConstants.ACC_STATIC,
+                                  METHOD_NAME_MAIN,
+                                  METHOD_TYPE_MAIN,
+                                  1)
+                .new_(className)
+                .dup()
+                .invokespecial(className,
+                               ClassConstants.METHOD_NAME_INIT,
+                               ClassConstants.METHOD_TYPE_INIT)
+                .aload_0()
+                .arraylength()
+                .invokevirtual(className,
+                               methodName(0),
+                               METHOD_TYPE_CODE)
+                .pop()
+                .return_();
+        }
+
+
+        /**
+         * Adds a public method 'int mX(int)' with a random sequence of
+         * statements on its parameter.
+         */
+        public void addMethod(int methodIndex)
+        {
+            // Each statement may use two labels.
+            CompactCodeAttributeComposer composer =
+                classEditor.addMethod(ClassConstants.ACC_PUBLIC,
+                                      methodName(methodIndex),
+                                      METHOD_TYPE_CODE,
+                                      2 * methodSize + 1);
+
+            for (int statementIndex = 0; statementIndex < methodSize; statementIndex++)
+            {
+                double statementKind = random.nextDouble();
+                if (statementKind < lambdaDensity)
+                {
+                    appendLambdaInvocation(composer, methodIndex);
+                }
+                else if (statementKind < lambdaDensity + stringConcatDensity)
+                {
+                    appendStringConcatenation(composer);
+                }
+                else
+                {
+                    switch (random.nextInt(4))
+                    {
+                        case 0: appendArithmetic(composer);                 break;
+                        case 1: appendFieldUpdate(composer);                break;
+                        case 2: appendBranch(composer, 2 * statementIndex); break;
+                        case 3: appendInvocation(composer);                 break;
+                    }
+                }
+            }
+
+            composer
+                .iload_1()
+                .ireturn();
+        }
+
+
+        /**
+         * Appends 'x = x op c'.
+         */
+        private void appendArithmetic(CompactCodeAttributeComposer composer)
+        {
+            composer
+                .iload_1()
+                .bipush(random.nextInt(100));
+
+            switch (random.nextInt(3))
+            {
+                case 0: composer.iadd(); break;
+                case 1: composer.imul(); break;
+                case 2: composer.ixor(); break;
+            }
+
+            composer
+                .istore_1();
+        }
+
+
+        /**
+         * Appends 'fX += x'.
+         */
+        private void appendFieldUpdate(CompactCodeAttributeComposer composer)
+        {
+            String fieldName = fieldName(random.nextInt(FIELD_COUNT));
+            String fieldType = String.valueOf(ClassConstants.TYPE_INT);
+
+            composer
+                .aload_0()
+                .aload_0()
+                .getfield(className, fieldName, fieldType)
+                .iload_1()
+                .iadd()
+                .putfield(className, fieldName, fieldType);
+        }
+
+
+        /**
+         * Appends 'if (x < 0) x = -x'.
+         */
+        private void appendBranch(CompactCodeAttributeComposer composer,
+                                  int                          label)
+        {
+            final int BRANCH = label;
+            final int END    = label + 1;
+
+            composer
+                .iload_1()
+                .appendLabel(BRANCH)
+                .ifge(END - BRANCH)
+                .iload_1()
+                .ineg()
+                .istore_1()
+                .appendLabel(END);
+        }
+
+
+        /**
+         * Appends 'x = new C().mY(x)' for a random accessible class with a
+         * lower index, or 'x = x op c' for the first class.
+         */
+        private void appendInvocation(CompactCodeAttributeComposer composer)
+        {
+            if (classIndex == 0)
+            {
+                appendArithmetic(composer);
+                return;
+            }
+
+            String targetClassName = className(randomAccessibleClassIndex());
+
+            composer
+                .new_(targetClassName)
+                .dup()
+                .invokespecial(targetClassName,
+                               ClassConstants.METHOD_NAME_INIT,
+                               ClassConstants.METHOD_TYPE_INIT)
+                .iload_1()
+                .invokevirtual(targetClassName,
+                               methodName(random.nextInt(methodCount)),
+                               METHOD_TYPE_CODE)
+                .istore_1();
+        }
+
+
+        /**
+         * Appends 'x += ("s" + x).hashCode()'.
+         */
+        private void appendStringConcatenation(CompactCodeAttributeComposer composer)
+        {
+            composer
+                .new_(ClassConstants.NAME_JAVA_LANG_STRING_BUILDER)
+                .dup()
+                .invokespecial(ClassConstants.NAME_JAVA_LANG_STRING_BUILDER,
+                               ClassConstants.METHOD_NAME_INIT,
+                               ClassConstants.METHOD_TYPE_INIT)
+                .ldc("s" + random.nextInt(1000))
+                .invokevirtual(ClassConstants.NAME_JAVA_LANG_STRING_BUILDER,
+                               ClassConstants.METHOD_NAME_APPEND,
+                               ClassConstants.METHOD_TYPE_STRING_STRING_BUILDER)
+                .iload_1()
+                .invokevirtual(ClassConstants.NAME_JAVA_LANG_STRING_BUILDER,
+                               ClassConstants.METHOD_NAME_APPEND,
+                               ClassConstants.METHOD_TYPE_INT_STRING_BUILDER)
+                .invokevirtual(ClassConstants.NAME_JAVA_LANG_STRING_BUILDER,
+                               ClassConstants.METHOD_NAME_TOSTRING,
+                               ClassConstants.METHOD_TYPE_TOSTRING)
+                .invokevirtual(ClassConstants.NAME_JAVA_LANG_STRING,
+                               METHOD_NAME_HASH_CODE,
+                               METHOD_TYPE_HASH_CODE)
+                .iload_1()
+                .iadd()
+                .istore_1();
+        }
+
+
+        /**
+         * Appends 'x = ((IntUnaryOperator)y -> y + c).applyAsInt(x)', with
+         * a new private static lambda method.
+         */
+        private void appendLambdaInvocation(CompactCodeAttributeComposer composer,
+                                            int                          methodIndex)
+        {
+            String lambdaMethodName =
+                "lambda$" + methodName(methodIndex) + "$" + lambdaCount++;
+
+            classEditor.addMethod(ClassConstants.ACC_PRIVATE |
+                                  ClassConstants.ACC_STATIC  |
+                                  ClassConstants.ACC_SYNTHETIC,
+                                  lambdaMethodName,
+                                  METHOD_TYPE_CODE,
+                                  1)
+                .iload_0()
+                .bipush(random.nextInt(100))
+                .iadd()
+                .ireturn();
+
+            composer
+                .invokedynamic(addBootstrapMethod(lambdaMethodName),
+                               METHOD_NAME_APPLY_AS_INT,
+                               METHOD_TYPE_LAMBDA_FACTORY,
+                               null)
+                .iload_1()
+                .invokeinterface(NAME_JAVA_UTIL_FUNCTION_INT_UNARY_OPERATOR,
+                                 METHOD_NAME_APPLY_AS_INT,
+                                 METHOD_TYPE_CODE)
+                .istore_1();
+        }
+
+
+        /**
+         * Adds a bootstrap method for a lambda expression with the given
+         * static lambda method, returning its index.
+         */
+        private int addBootstrapMethod(String lambdaMethodName)
+        {
+            if (bootstrapMethodsAttributeEditor == null)
+            {
+                BootstrapMethodsAttribute bootstrapMethodsAttribute =
+                    new BootstrapMethodsAttribute(constantPoolEditor.addUtf8Constant(ClassConstants.ATTR_BootstrapMethods),
+                                                  0,
+                                                  new BootstrapMethodInfo[0]);
+
+                new AttributesEditor(programClass, false).addAttribute(bootstrapMethodsAttribute);
+
+                bootstrapMethodsAttributeEditor =
+                    new BootstrapMethodsAttributeEditor(bootstrapMethodsAttribute);
+            }
+
+            int metafactoryIndex =
+                constantPoolEditor.addMethodHandleConstant(ClassConstants.REF_invokeStatic,
+                                                           constantPoolEditor.addMethodrefConstant(NAME_JAVA_LANG_INVOKE_LAMBDA_METAFACTORY,
+                                                                                                   METHOD_NAME_METAFACTORY,
+                                                                                                   METHOD_TYPE_METAFACTORY,
+                                                                                                   null,
+                                                                                                   null));
+
+            int methodTypeIndex =
+                constantPoolEditor.addMethodTypeConstant(METHOD_TYPE_CODE, null);
+
+            int lambdaMethodIndex =
+                constantPoolEditor.addMethodHandleConstant(ClassConstants.REF_invokeStatic,
+                                                           constantPoolEditor.addMethodrefConstant(className,
+                                                                                                   lambdaMethodName,
+                                                                                                   METHOD_TYPE_CODE,
+                                                                                                   null,
+                                                                                                   null));
+
+            return bootstrapMethodsAttributeEditor.addBootstrapMethodInfo(
+                new BootstrapMethodInfo(metafactoryIndex,
+                                        3,
+                                        new int[] { methodTypeIndex, lambdaMethodIndex, methodTypeIndex }));
+        }
+
+
+        /**
+         * Returns the index of a random class with a lower index that is
+         * accessible from the current class. The invocations thus form
+         * layers, like in most applications, without long cycles that
+         * would make the call chains unrealistically deep.
+         */
+        private int randomAccessibleClassIndex()
+        {
+            while (true)
+            {
+                int index = random.nextInt(classIndex);
+                if (isPublic[index] ||
+                    index / CLASSES_PER_PACKAGE == classIndex / CLASSES_PER_PACKAGE)
+                {
+                    return index;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * This ClassVisitor writes the program classes that it visits to a jar.
+     */
+    private static class MyJarEntryWriter
+    extends              SimplifiedVisitor
+    implements           ClassVisitor
+    {
+        private final ZipOutput zipOutput;
+
+        private IOException ioException;
+
+
+        public MyJarEntryWriter(ZipOutput zipOutput)
+        {
+            this.zipOutput = zipOutput;
+        }
+
+
+        // Implementations for ClassVisitor.
+
+        public void visitProgramClass(ProgramClass programClass)
+        {
+            if (ioException == null)
+            {
+                try
+                {
+                    OutputStream outputStream =
+                        zipOutput.createOutputStream(programClass.getName() + ClassConstants.CLASS_FILE_EXTENSION,
+                                                     true,
+                                                     MODIFICATION_TIME);
+
+                    DataOutputStream dataOutputStream =
+                        new DataOutputStream(outputStream);
+
+                    programClass.accept(new ProgramClassWriter(dataOutputStream));
+
+                    dataOutputStream.close();
+                }
+                catch (IOException e)
+                {
+                    ioException = e;
+                }
+            }
+        }
+    }
+}
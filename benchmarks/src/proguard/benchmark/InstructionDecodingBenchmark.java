@@ -0,0 +1,218 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.attribute.visitor.*;
+import proguard.classfile.editor.CodeAttributeEditor;
+import proguard.classfile.instruction.*;
+import proguard.classfile.instruction.visitor.*;
+import proguard.classfile.util.SimplifiedVisitor;
+import proguard.classfile.visitor.*;
+import proguard.optimize.peephole.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the decoding of instructions by
+ * {@link CodeAttribute#instructionsAccept(Clazz, Method, InstructionVisitor)},
+ * with and without reused instruction instances, for a visitor chain like
+ * the peephole optimizations: instruction sequence matchers, goto
+ * replacers, and an instruction counter. The code attribute editor only
+ * collects the replacements, without applying them, so every invocation
+ * processes the same code.
+ * <p>
+ * Run it with <code>-prof gc</code> to compare the allocation rates.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InstructionDecodingBenchmark
+{
+    @Param({"false", "true"})
+    public boolean reuseInstructions;
+
+    private ClassPool programClassPool;
+
+    // Fields acting as the visitor chain.
+    private BranchTargetFinder  branchTargetFinder;
+    private CodeAttributeEditor codeAttributeEditor;
+    private InstructionCounter  instructionCounter;
+    private MemberVisitor       peepholeMatcher;
+
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        programClassPool = BenchmarkInput.readInitializedProgramClassPool();
+
+        branchTargetFinder  = new BranchTargetFinder();
+        codeAttributeEditor = new CodeAttributeEditor();
+        instructionCounter  = new InstructionCounter();
+
+        InstructionSequenceConstants sequences =
+            new InstructionSequenceConstants(programClassPool,
+                                             new ClassPool());
+
+        InstructionVisitor instructionVisitor =
+            new MultiInstructionVisitor(
+                new InstructionSequencesReplacer(sequences.CONSTANTS,
+                                                 sequences.VARIABLE_SEQUENCES,
+                                                 branchTargetFinder,
+                                                 codeAttributeEditor,
+                                                 instructionCounter),
+                new InstructionSequencesReplacer(sequences.CONSTANTS,
+                                                 sequences.ARITHMETIC_SEQUENCES,
+                                                 branchTargetFinder,
+                                                 codeAttributeEditor,
+                                                 instructionCounter),
+                new InstructionSequencesReplacer(sequences.CONSTANTS,
+                                                 sequences.BRANCH_SEQUENCES,
+                                                 branchTargetFinder,
+                                                 codeAttributeEditor,
+                                                 instructionCounter),
+                new GotoGotoReplacer(codeAttributeEditor, instructionCounter),
+                new GotoReturnReplacer(codeAttributeEditor, instructionCounter),
+                instructionCounter);
+
+        peepholeMatcher =
+            new AllAttributeVisitor(
+            new MyPeepholeMatcher(
+            new MyTransientInstructionVisitor(instructionVisitor, reuseInstructions)));
+    }
+
+
+    @Benchmark
+    public int peepholeMatching()
+    {
+        programClassPool.classesAccept(
+            new AllMethodVisitor(peepholeMatcher));
+
+        return instructionCounter.getCount();
+    }
+
+
+    /**
+     * This AttributeVisitor sets up the branch target finder and the code
+     * attribute editor for each code attribute, and then applies the given
+     * instruction visitor, without applying any changes.
+     */
+    private class MyPeepholeMatcher
+    extends       SimplifiedVisitor
+    implements    AttributeVisitor
+    {
+        private final InstructionVisitor instructionVisitor;
+
+
+        public MyPeepholeMatcher(InstructionVisitor instructionVisitor)
+        {
+            this.instructionVisitor = instructionVisitor;
+        }
+
+
+        // Implementations for AttributeVisitor.
+
+        public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+        public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+        {
+            branchTargetFinder.visitCodeAttribute(clazz, method, codeAttribute);
+            codeAttributeEditor.reset(codeAttribute.u4codeLength);
+
+            codeAttribute.instructionsAccept(clazz, method, instructionVisitor);
+        }
+    }
+
+
+    /**
+     * This InstructionVisitor delegates to another visitor, while declaring
+     * whether the instructions can be transient.
+     */
+    private static class MyTransientInstructionVisitor
+    implements           TransientInstructionVisitor
+    {
+        private final InstructionVisitor instructionVisitor;
+        private final boolean            acceptsTransientInstructions;
+
+
+        public MyTransientInstructionVisitor(InstructionVisitor instructionVisitor,
+                                             boolean            acceptsTransientInstructions)
+        {
+            this.instructionVisitor           = instructionVisitor;
+            this.acceptsTransientInstructions = acceptsTransientInstructions;
+        }
+
+
+        // Implementations for TransientInstructionVisitor.
+
+        public boolean acceptsTransientInstructions()
+        {
+            return acceptsTransientInstructions;
+        }
+
+
+        // Implementations for InstructionVisitor.
+
+        public void visitSimpleInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, SimpleInstruction simpleInstruction)
+        {
+            instructionVisitor.visitSimpleInstruction(clazz, method, codeAttribute, offset, simpleInstruction);
+        }
+
+
+        public void visitVariableInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, VariableInstruction variableInstruction)
+        {
+            instructionVisitor.visitVariableInstruction(clazz, method, codeAttribute, offset, variableInstruction);
+        }
+
+
+        public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
+        {
+            instructionVisitor.visitConstantInstruction(clazz, method, codeAttribute, offset, constantInstruction);
+        }
+
+
+        public void visitBranchInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, BranchInstruction branchInstruction)
+        {
+            instructionVisitor.visitBranchInstruction(clazz, method, codeAttribute, offset, branchInstruction);
+        }
+
+
+        public void visitTableSwitchInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, TableSwitchInstruction tableSwitchInstruction)
+        {
+            instructionVisitor.visitTableSwitchInstruction(clazz, method, codeAttribute, offset, tableSwitchInstruction);
+        }
+
+
+        public void visitLookUpSwitchInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, LookUpSwitchInstruction lookUpSwitchInstruction)
+        {
+            instructionVisitor.visitLookUpSwitchInstruction(clazz, method, codeAttribute, offset, lookUpSwitchInstruction);
+        }
+    }
+}
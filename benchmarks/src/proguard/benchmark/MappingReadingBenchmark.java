@@ -0,0 +1,158 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.classfile.*;
+import proguard.classfile.visitor.ClassVisitor;
+import proguard.classfile.util.SimplifiedVisitor;
+import proguard.obfuscate.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the parsing of mapping files by the
+ * {@link MappingReader}, like for the <code>-applymapping</code> option.
+ * The benchmark first prints a mapping file for the program classes,
+ * mapping all names onto themselves.
+ * <p>
+ * Run it with <code>-prof gc</code> to compare the allocation rates.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MappingReadingBenchmark
+{
+    private File mappingFile;
+
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        ClassPool programClassPool = BenchmarkInput.readProgramClassPool();
+
+        // The mapping printer expects a new name for each class.
+        programClassPool.classesAccept(new MyIdentityClassNamer());
+
+        mappingFile = File.createTempFile("benchmark", ".map");
+
+        PrintStream printStream =
+            new PrintStream(
+            new BufferedOutputStream(
+            new FileOutputStream(mappingFile)));
+        try
+        {
+            programClassPool.classesAcceptAlphabetically(
+                new MappingPrinter(printStream));
+        }
+        finally
+        {
+            printStream.close();
+        }
+    }
+
+
+    @TearDown
+    public void tearDown()
+    {
+        mappingFile.delete();
+    }
+
+
+    @Benchmark
+    public int mappingReading() throws IOException
+    {
+        MyMappingCounter mappingCounter = new MyMappingCounter();
+
+        new MappingReader(mappingFile).pump(mappingCounter);
+
+        return mappingCounter.count;
+    }
+
+
+    /**
+     * This ClassVisitor sets the new name of the classes that it visits to
+     * their current names.
+     */
+    private static class MyIdentityClassNamer
+    extends              SimplifiedVisitor
+    implements           ClassVisitor
+    {
+        // Implementations for ClassVisitor.
+
+        public void visitAnyClass(Clazz clazz)
+        {
+            clazz.setVisitorInfo(clazz.getName());
+        }
+    }
+
+
+    /**
+     * This MappingProcessor counts the mappings that it processes.
+     */
+    private static class MyMappingCounter
+    implements           MappingProcessor
+    {
+        private int count;
+
+
+        // Implementations for MappingProcessor.
+
+        public boolean processClassMapping(String className,
+                                           String newClassName)
+        {
+            count++;
+
+            return true;
+        }
+
+
+        public void processFieldMapping(String className,
+                                        String fieldType,
+                                        String fieldName,
+                                        String newClassName,
+                                        String newFieldName)
+        {
+            count++;
+        }
+
+
+        public void processMethodMapping(String className,
+                                         int    firstLineNumber,
+                                         int    lastLineNumber,
+                                         String methodReturnType,
+                                         String methodName,
+                                         String methodArguments,
+                                         String newClassName,
+                                         int    newFirstLineNumber,
+                                         int    newLastLineNumber,
+                                         String newMethodName)
+        {
+            count++;
+        }
+    }
+}
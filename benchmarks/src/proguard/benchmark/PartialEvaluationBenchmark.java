@@ -0,0 +1,81 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.classfile.ClassPool;
+import proguard.classfile.attribute.visitor.AllAttributeVisitor;
+import proguard.classfile.visitor.AllMethodVisitor;
+import proguard.evaluation.value.*;
+import proguard.optimize.evaluation.PartialEvaluator;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the partial evaluation of all code by the
+ * {@link PartialEvaluator}, with the value factories of the preverifier
+ * (typed references) and of the optimizer (particular values).
+ * <p>
+ * Run it with <code>-prof gc</code> to compare the allocation rates.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PartialEvaluationBenchmark
+{
+    @Param({"typed", "particular"})
+    public String valueFactory;
+
+    private ClassPool        programClassPool;
+    private PartialEvaluator partialEvaluator;
+    private AllMethodVisitor partialEvaluatorApplier;
+
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        programClassPool = BenchmarkInput.readInitializedProgramClassPool();
+
+        partialEvaluator =
+            new PartialEvaluator("particular".equals(valueFactory) ?
+                                     new ParticularValueFactory() :
+                                     new TypedReferenceValueFactory());
+
+        partialEvaluatorApplier =
+            new AllMethodVisitor(
+            new AllAttributeVisitor(partialEvaluator));
+    }
+
+
+    @Benchmark
+    public ClassPool partialEvaluation()
+    {
+        programClassPool.classesAccept(partialEvaluatorApplier);
+
+        return programClassPool;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures complete runs of ProGuard on synthetic corpora
+ * from the {@link CorpusGenerator}, so you can plot how the processing
+ * time scales with the size of the input. The library classes are read
+ * from the library files of the {@link BenchmarkInput}.
+ * <p>
+ * Run it with <code>-p classCount=...</code> to select the corpus sizes.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ProGuardScalingBenchmark
+{
+    @Param({"1000", "2000", "5000"})
+    public int classCount;
+
+    @Param({CorpusGenerator.KEEP_APPLICATION})
+    public String keepRules;
+
+    @Param({"0"})
+    public long seed;
+
+    private File          inputJar;
+    private File          outputJar;
+    private Configuration configuration;
+
+
+    @Setup(Level.Trial)
+    public void setUpCorpus() throws IOException
+    {
+        inputJar  = File.createTempFile("corpus", ".jar");
+        outputJar = File.createTempFile("corpus-out", ".jar");
+
+        new CorpusGenerator(seed,
+                            classCount,
+                            5,
+                            4,
+                            8,
+                            20,
+                            0.02,
+                            0.05).writeJar(inputJar);
+    }
+
+
+    @Setup(Level.Invocation)
+    public void setUpConfiguration() throws IOException, ParseException
+    {
+        StringBuffer options = new StringBuffer();
+
+        options.append("-injars '").append(inputJar.getPath()).append("'\n");
+        options.append("-outjars '").append(outputJar.getPath()).append("'\n");
+
+        File[] libraryFiles = BenchmarkInput.libraryFiles();
+        for (int index = 0; index < libraryFiles.length; index++)
+        {
+            options.append("-libraryjars '").append(libraryFiles[index].getPath()).append("'\n");
+        }
+
+        options.append(CorpusGenerator.keepOptions(keepRules));
+
+        configuration = new Configuration();
+
+        ConfigurationParser parser =
+            new ConfigurationParser(options.toString(),
+                                    "benchmark options",
+                                    null,
+                                    System.getProperties());
+        try
+        {
+            parser.parse(configuration);
+        }
+        finally
+        {
+            parser.close();
+        }
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        inputJar.delete();
+        outputJar.delete();
+    }
+
+
+    @Benchmark
+    public File proGuard() throws IOException
+    {
+        new ProGuard(configuration).execute();
+
+        return outputJar;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.io.ZipOutput;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the writing of jar files by {@link ZipOutput},
+ * with and without compression. The entries are read into memory
+ * beforehand and the output is discarded, so the benchmark doesn't include
+ * any file access.
+ * <p>
+ * Run it with <code>-prof gc</code> to compare the allocation rates.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ZipWritingBenchmark
+{
+    @Param({"false", "true"})
+    public boolean compress;
+
+    private String[] names;
+    private byte[][] contents;
+
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        Map dataEntries = BenchmarkInput.readDataEntries();
+
+        names    = new String[dataEntries.size()];
+        contents = new byte[dataEntries.size()][];
+
+        int index = 0;
+
+        Iterator iterator = dataEntries.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry entry = (Map.Entry)iterator.next();
+
+            names[index]    = (String)entry.getKey();
+            contents[index] = (byte[])entry.getValue();
+
+            index++;
+        }
+    }
+
+
+    @Benchmark
+    public long zipWriting() throws IOException
+    {
+        MyCountingOutputStream outputStream = new MyCountingOutputStream();
+
+        ZipOutput zipOutput = new ZipOutput(outputStream);
+
+        for (int index = 0; index < names.length; index++)
+        {
+            OutputStream entryOutputStream =
+                zipOutput.createOutputStream(names[index], compress, 0);
+
+            entryOutputStream.write(contents[index]);
+            entryOutputStream.close();
+        }
+
+        zipOutput.close();
+
+        return outputStream.count;
+    }
+
+
+    /**
+     * This OutputStream discards all data, only counting the number of
+     * bytes.
+     */
+    private static class MyCountingOutputStream
+    extends              OutputStream
+    {
+        private long count;
+
+
+        // Implementations for OutputStream.
+
+        public void write(int b)
+        {
+            count++;
+        }
+
+
+        public void write(byte[] b, int off, int len)
+        {
+            count += len;
+        }
+    }
+}
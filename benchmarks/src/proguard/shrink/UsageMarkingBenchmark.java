@@ -0,0 +1,138 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.shrink;
+
+import org.openjdk.jmh.annotations.*;
+import proguard.*;
+import proguard.benchmark.BenchmarkInput;
+import proguard.classfile.*;
+import proguard.classfile.attribute.visitor.*;
+import proguard.classfile.visitor.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the marking of used classes and class members by
+ * the {@link UsageMarker}, like in the shrinking step, starting from the
+ * seeds of a library-style configuration that keeps all public API.
+ * The benchmark is in the shrinking package, since the usage marker is
+ * package-private.
+ * <p>
+ * Run it with <code>-prof gc</code> to compare the allocation rates.
+ *
+ * @author Eric Lafortune
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UsageMarkingBenchmark
+{
+    private static final String KEEP_OPTIONS =
+        "-keep public class * { public protected *; }\n" +
+        "-keepclassmembers enum * { public static **[] values(); public static ** valueOf(java.lang.String); }";
+
+    private ClassPool        programClassPool;
+    private ClassPool        libraryClassPool;
+    private ClassPoolVisitor seedMarker;
+    private ClassVisitor     cleaner;
+    private ClassVisitor     libraryUsageMarker;
+    private ClassVisitor     interfaceUsageMarker;
+    private ClassVisitor     attributeUsageMarker;
+
+
+    @Setup
+    public void setUp() throws IOException, ParseException
+    {
+        libraryClassPool = BenchmarkInput.readLibraryClassPool();
+        programClassPool = BenchmarkInput.readInitializedProgramClassPool(libraryClassPool);
+
+        Configuration configuration = new Configuration();
+
+        ConfigurationParser parser =
+            new ConfigurationParser(KEEP_OPTIONS,
+                                    "benchmark keep options",
+                                    null,
+                                    System.getProperties());
+        try
+        {
+            parser.parse(configuration);
+        }
+        finally
+        {
+            parser.close();
+        }
+
+        UsageMarker usageMarker = new UsageMarker();
+
+        ClassVisitor classUsageMarker =
+            new MultiClassVisitor(new ClassVisitor[]
+            {
+                usageMarker,
+                new NamedMethodVisitor(ClassConstants.METHOD_NAME_INIT,
+                                       ClassConstants.METHOD_TYPE_INIT,
+                                       usageMarker)
+            });
+
+        seedMarker =
+            new KeepClassSpecificationVisitorFactory(true, false, false)
+                .createClassPoolVisitor(configuration.keep,
+                                        classUsageMarker,
+                                        usageMarker,
+                                        usageMarker,
+                                        usageMarker);
+
+        cleaner              = new ClassCleaner();
+        libraryUsageMarker   = usageMarker;
+        interfaceUsageMarker = new InterfaceUsageMarker(usageMarker);
+        attributeUsageMarker =
+            new UsedClassFilter(usageMarker,
+            new AllAttributeVisitor(true,
+            new MultiAttributeVisitor(new AttributeVisitor[]
+            {
+                new InnerUsageMarker(usageMarker),
+                new AnnotationUsageMarker(usageMarker),
+                new LocalVariableTypeUsageMarker(usageMarker)
+            })));
+    }
+
+
+    @Benchmark
+    public ClassPool usageMarking()
+    {
+        // Clean up the marks of the previous invocation, like the shrinker.
+        programClassPool.classesAccept(cleaner);
+        libraryClassPool.classesAccept(cleaner);
+
+        // Mark the seeds and everything they use.
+        programClassPool.accept(seedMarker);
+        libraryClassPool.accept(seedMarker);
+        libraryClassPool.classesAccept(libraryUsageMarker);
+
+        programClassPool.classesAccept(interfaceUsageMarker);
+        programClassPool.classesAccept(attributeUsageMarker);
+
+        return programClassPool;
+    }
+}
@@ -145,16 +145,16 @@ public class ClassSpecificationVisitorFactory
         // make sure the list of variable string matchers is filled out in the
         // right order.
         StringMatcher annotationTypeMatcher = annotationType == null ? null :
-            new ListParser(new ClassNameParser(variableStringMatchers)).parse(annotationType);
+            new CompiledListParser(new ClassNameParser(variableStringMatchers), variableStringMatchers).parse(annotationType);
 
         StringMatcher classNameMatcher =
-            new ListParser(new ClassNameParser(variableStringMatchers)).parse(className);
+            new CompiledListParser(new ClassNameParser(variableStringMatchers), variableStringMatchers).parse(className);
 
         StringMatcher extendsAnnotationTypeMatcher = extendsAnnotationType == null ? null :
-            new ListParser(new ClassNameParser(variableStringMatchers)).parse(extendsAnnotationType);
+            new CompiledListParser(new ClassNameParser(variableStringMatchers), variableStringMatchers).parse(extendsAnnotationType);
 
         StringMatcher extendsClassNameMatcher = extendsClassName == null ? null :
-            new ListParser(new ClassNameParser(variableStringMatchers)).parse(extendsClassName);
+            new CompiledListParser(new ClassNameParser(variableStringMatchers), variableStringMatchers).parse(extendsClassName);
 
         // Combine both visitors.
         ClassVisitor combinedClassVisitor =
@@ -540,16 +540,16 @@ public class ClassSpecificationVisitorFactory
         // We need to parse the names before the descriptors, to make sure the
         // list of variable string matchers is filled out in the right order.
         StringMatcher annotationTypeMatcher = annotationType == null ? null :
-            new ListParser(new ClassNameParser(variableStringMatchers)).parse(annotationType);
+            new CompiledListParser(new ClassNameParser(variableStringMatchers), variableStringMatchers).parse(annotationType);
 
         StringMatcher nameMatcher = name == null ? null :
-            new ListParser(new NameParser(variableStringMatchers)).parse(name);
+            new CompiledListParser(new NameParser(variableStringMatchers), variableStringMatchers).parse(name);
 
         StringMatcher descriptorMatcher = descriptor == null ? null :
-            new ListParser(new ClassNameParser(variableStringMatchers)).parse(descriptor);
+            new CompiledListParser(new ClassNameParser(variableStringMatchers), variableStringMatchers).parse(descriptor);
 
         StringMatcher attributesMatcher = attributeNames == null ? null :
-            new ListParser(new NameParser(variableStringMatchers)).parse(attributeNames);
+            new CompiledListParser(new NameParser(variableStringMatchers), variableStringMatchers).parse(attributeNames);
 
         // If specified, let the attribute visitor visit the class member
         // attributes.
@@ -77,6 +77,32 @@ public class Configuration
      */
     public int       targetClassVersion;
 
+    /**
+     * An optional input file with the names of the program classes in the
+     * order in which the application loads them at startup. The listed
+     * classes are then written out first, in that order.
+     */
+    public File      startupProfile;
+
+    /**
+     * An optional output jar for the classes listed in the startup profile,
+     * instead of the regular output jars.
+     */
+    public File      startupJar;
+
+    /**
+     * An optional directory in which snapshots of the library class pools
+     * are cached, keyed by the contents of the library jars.
+     */
+    public File      libraryCache;
+
+    /**
+     * An optional file in which content hashes of the input and output are
+     * recorded, to check whether the output is up to date based on the
+     * contents of the input, instead of on modification times.
+     */
+    public File      contentHashes;
+
     /**
      * Specifies the last modification time of this configuration. This time
      * is necessary to check whether the input has to be processed. Setting it
@@ -171,6 +197,13 @@ public class Configuration
      */
     public List      assumeNoExternalReturnValues;
 
+    /**
+     * A list of {@link ClassSpecification} instances, with fields and methods
+     * that have specified fixed primitive values or value ranges, as
+     * {@link MemberValueSpecification} instances.
+     */
+    public List      assumeValues;
+
     /**
      * Specifies whether the access of class members can be modified.
      */
@@ -181,6 +214,18 @@ public class Configuration
      */
     public boolean   mergeInterfacesAggressively      = false;
 
+    /**
+     * An optional input file with a run-time profile of the invocation counts
+     * of methods, to guide the optimization.
+     */
+    public File      applyProfile;
+
+    /**
+     * Specifies whether large primitive array initializers should be encoded
+     * as string constants that are decoded at run-time.
+     */
+    public boolean   encodePrimitiveArrays            = false;
+
     ///////////////////////////////////////////////////////////////////////////
     // Obfuscation options.
     ///////////////////////////////////////////////////////////////////////////
@@ -354,6 +399,19 @@ public class Configuration
      */
     public File      dump;
 
+    /**
+     * An optional output file for printing out performance metrics of the
+     * processing phases, in JSON format. An empty file name means the
+     * standard output.
+     */
+    public File      printPerformance;
+
+    /**
+     * An optional output file for printing out the memory usage after the
+     * processing phases. An empty file name means the standard output.
+     */
+    public File      printMemory;
+
     /**
      * Specifies whether to add logging to reflection code, providing suggestions
      * on the ProGuard configuration.
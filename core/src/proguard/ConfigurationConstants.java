@@ -62,8 +62,11 @@ class ConfigurationConstants
     public static final String ASSUME_NO_EXTERNAL_SIDE_EFFECTS_OPTION  = "-assumenoexternalsideeffects";
     public static final String ASSUME_NO_ESCAPING_PARAMETERS_OPTION    = "-assumenoescapingparameters";
     public static final String ASSUME_NO_EXTERNAL_RETURN_VALUES_OPTION = "-assumenoexternalreturnvalues";
+    public static final String ASSUME_VALUES_OPTION                    = "-assumevalues";
     public static final String ALLOW_ACCESS_MODIFICATION_OPTION        = "-allowaccessmodification";
     public static final String MERGE_INTERFACES_AGGRESSIVELY_OPTION    = "-mergeinterfacesaggressively";
+    public static final String APPLY_PROFILE_OPTION                    = "-applyprofile";
+    public static final String ENCODE_PRIMITIVE_ARRAYS_OPTION          = "-encodeprimitivearrays";
 
     public static final String DONT_OBFUSCATE_OPTION                  = "-dontobfuscate";
     public static final String PRINT_MAPPING_OPTION                   = "-printmapping";
@@ -95,6 +98,8 @@ class ConfigurationConstants
     public static final String IGNORE_WARNINGS_OPTION                            = "-ignorewarnings";
     public static final String PRINT_CONFIGURATION_OPTION                        = "-printconfiguration";
     public static final String DUMP_OPTION                                       = "-dump";
+    public static final String PRINT_PERFORMANCE_OPTION                          = "-printperformance";
+    public static final String PRINT_MEMORY_OPTION                               = "-printmemory";
     public static final String ADD_CONFIGURATION_DEBUGGING_OPTION                = "-addconfigurationdebugging";
     public static final String SKIP_NON_PUBLIC_LIBRARY_CLASSES_OPTION            = "-skipnonpubliclibraryclasses";
     public static final String DONT_SKIP_NON_PUBLIC_LIBRARY_CLASSES_OPTION       = "-dontskipnonpubliclibraryclasses";
@@ -102,6 +107,10 @@ class ConfigurationConstants
     public static final String TARGET_OPTION                                     = "-target";
     public static final String KEEP_DIRECTORIES_OPTION                           = "-keepdirectories";
     public static final String FORCE_PROCESSING_OPTION                           = "-forceprocessing";
+    public static final String STARTUP_PROFILE_OPTION                            = "-startupprofile";
+    public static final String STARTUP_JAR_OPTION                                = "-startupjar";
+    public static final String LIBRARY_CACHE_OPTION                              = "-librarycache";
+    public static final String CONTENT_HASHES_OPTION                             = "-contenthashes";
 
 
     public static final String ANY_FILE_KEYWORD            = "**";
@@ -130,5 +139,9 @@ class ConfigurationConstants
     public static final String ANY_ARGUMENTS_KEYWORD      = "...";
     public static final String CLOSE_ARGUMENTS_KEYWORD    = ")";
     public static final String SEPARATOR_KEYWORD          = ";";
+    public static final String RETURN_KEYWORD             = "return";
+    public static final String RANGE_KEYWORD              = "..";
+    public static final String FALSE_KEYWORD              = "false";
+    public static final String TRUE_KEYWORD               = "true";
     public static final String CLOSE_KEYWORD              = "}";
 }
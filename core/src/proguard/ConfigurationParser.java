@@ -160,6 +160,10 @@ public class ConfigurationParser
             else if (ConfigurationConstants.DONT_SKIP_NON_PUBLIC_LIBRARY_CLASS_MEMBERS_OPTION.startsWith(nextWord)) configuration.skipNonPublicLibraryClassMembers      = parseNoArgument(false);
             else if (ConfigurationConstants.TARGET_OPTION                                    .startsWith(nextWord)) configuration.targetClassVersion                    = parseClassVersion();
             else if (ConfigurationConstants.FORCE_PROCESSING_OPTION                          .startsWith(nextWord)) configuration.lastModified                          = parseNoArgument(Long.MAX_VALUE);
+            else if (ConfigurationConstants.STARTUP_PROFILE_OPTION                           .startsWith(nextWord)) configuration.startupProfile                        = parseFile();
+            else if (ConfigurationConstants.STARTUP_JAR_OPTION                               .startsWith(nextWord)) configuration.startupJar                            = parseFile();
+            else if (ConfigurationConstants.LIBRARY_CACHE_OPTION                             .startsWith(nextWord)) configuration.libraryCache                          = parseFile();
+            else if (ConfigurationConstants.CONTENT_HASHES_OPTION                            .startsWith(nextWord)) configuration.contentHashes                         = parseFile();
 
             else if (ConfigurationConstants.IF_OPTION                                        .startsWith(nextWord)) configuration.keep                                  = parseIfCondition(configuration.keep);
             else if (ConfigurationConstants.KEEP_OPTION                                      .startsWith(nextWord)) configuration.keep                                  = parseKeepClassSpecificationArguments(configuration.keep, true,  false, false, null);
@@ -184,8 +188,11 @@ public class ConfigurationParser
             else if (ConfigurationConstants.ASSUME_NO_EXTERNAL_SIDE_EFFECTS_OPTION           .startsWith(nextWord)) configuration.assumeNoExternalSideEffects           = parseClassSpecificationArguments(true, configuration.assumeNoExternalSideEffects);
             else if (ConfigurationConstants.ASSUME_NO_ESCAPING_PARAMETERS_OPTION             .startsWith(nextWord)) configuration.assumeNoEscapingParameters            = parseClassSpecificationArguments(true, configuration.assumeNoEscapingParameters);
             else if (ConfigurationConstants.ASSUME_NO_EXTERNAL_RETURN_VALUES_OPTION          .startsWith(nextWord)) configuration.assumeNoExternalReturnValues          = parseClassSpecificationArguments(true, configuration.assumeNoExternalReturnValues);
+            else if (ConfigurationConstants.ASSUME_VALUES_OPTION                             .startsWith(nextWord)) configuration.assumeValues                          = parseClassSpecificationArguments(true, true, configuration.assumeValues);
             else if (ConfigurationConstants.ALLOW_ACCESS_MODIFICATION_OPTION                 .startsWith(nextWord)) configuration.allowAccessModification               = parseNoArgument(true);
             else if (ConfigurationConstants.MERGE_INTERFACES_AGGRESSIVELY_OPTION             .startsWith(nextWord)) configuration.mergeInterfacesAggressively           = parseNoArgument(true);
+            else if (ConfigurationConstants.APPLY_PROFILE_OPTION                             .startsWith(nextWord)) configuration.applyProfile                          = parseFile();
+            else if (ConfigurationConstants.ENCODE_PRIMITIVE_ARRAYS_OPTION                   .startsWith(nextWord)) configuration.encodePrimitiveArrays                 = parseNoArgument(true);
 
             else if (ConfigurationConstants.DONT_OBFUSCATE_OPTION                            .startsWith(nextWord)) configuration.obfuscate                             = parseNoArgument(false);
             else if (ConfigurationConstants.PRINT_MAPPING_OPTION                             .startsWith(nextWord)) configuration.printMapping                          = parseOptionalFile();
@@ -217,6 +224,8 @@ public class ConfigurationParser
             else if (ConfigurationConstants.IGNORE_WARNINGS_OPTION                           .startsWith(nextWord)) configuration.ignoreWarnings                        = parseNoArgument(true);
             else if (ConfigurationConstants.PRINT_CONFIGURATION_OPTION                       .startsWith(nextWord)) configuration.printConfiguration                    = parseOptionalFile();
             else if (ConfigurationConstants.DUMP_OPTION                                      .startsWith(nextWord)) configuration.dump                                  = parseOptionalFile();
+            else if (ConfigurationConstants.PRINT_PERFORMANCE_OPTION                         .startsWith(nextWord)) configuration.printPerformance                      = parseOptionalFile();
+            else if (ConfigurationConstants.PRINT_MEMORY_OPTION                              .startsWith(nextWord)) configuration.printMemory                           = parseOptionalFile();
             else if (ConfigurationConstants.ADD_CONFIGURATION_DEBUGGING_OPTION               .startsWith(nextWord)) configuration.addConfigurationDebugging             = parseNoArgument(true);
             else
             {
@@ -674,6 +683,17 @@ public class ConfigurationParser
     private List parseClassSpecificationArguments(boolean readFirstWord,
                                                   List    classSpecifications)
     throws ParseException, IOException
+    {
+        return parseClassSpecificationArguments(readFirstWord,
+                                                false,
+                                                classSpecifications);
+    }
+
+
+    private List parseClassSpecificationArguments(boolean readFirstWord,
+                                                  boolean allowValues,
+                                                  List    classSpecifications)
+    throws ParseException, IOException
     {
         // Create a new List if necessary.
         if (classSpecifications == null)
@@ -690,7 +710,7 @@ public class ConfigurationParser
         }
 
         // Read and add the class configuration.
-        classSpecifications.add(parseClassSpecificationArguments());
+        classSpecifications.add(parseClassSpecificationArguments(allowValues));
 
         return classSpecifications;
     }
@@ -704,6 +724,22 @@ public class ConfigurationParser
      */
     public ClassSpecification parseClassSpecificationArguments()
     throws ParseException, IOException
+    {
+        return parseClassSpecificationArguments(false);
+    }
+
+
+    /**
+     * Parses and returns a class specification.
+     * @param allowValues specifies whether the class members may have
+     *                    assigned values, as in
+     *                    <code>int SDK_INT return 21..100;</code>
+     * @throws ParseException if the class specification contains a syntax error.
+     * @throws IOException    if an IO error occurs while reading the class
+     *                        specification.
+     */
+    public ClassSpecification parseClassSpecificationArguments(boolean allowValues)
+    throws ParseException, IOException
     {
         // Clear the annotation type.
         String annotationType = null;
@@ -874,6 +910,7 @@ public class ConfigurationParser
                 }
 
                 parseMemberSpecificationArguments(externalClassName,
+                                                  allowValues,
                                                   classSpecification);
             }
         }
@@ -883,6 +920,7 @@ public class ConfigurationParser
 
 
     private void parseMemberSpecificationArguments(String             externalClassName,
+                                                   boolean            allowValues,
                                                    ClassSpecification classSpecification)
     throws ParseException, IOException
     {
@@ -1055,7 +1093,9 @@ public class ConfigurationParser
             }
 
             // Are we looking at a field, a method, or something else?
-            if (ConfigurationConstants.SEPARATOR_KEYWORD.equals(nextWord))
+            if (ConfigurationConstants.SEPARATOR_KEYWORD.equals(nextWord) ||
+                allowValues &&
+                ConfigurationConstants.RETURN_KEYWORD.equals(nextWord))
             {
                 // It's a field.
                 checkFieldAccessFlags(requiredSetMemberAccessFlags,
@@ -1066,11 +1106,18 @@ public class ConfigurationParser
 
                 // Add the field.
                 classSpecification.addField(
-                    new MemberSpecification(requiredSetMemberAccessFlags,
-                                            requiredUnsetMemberAccessFlags,
-                                            annotationType,
-                                            name,
-                                            descriptor));
+                    ConfigurationConstants.RETURN_KEYWORD.equals(nextWord) ?
+                        new MemberValueSpecification(requiredSetMemberAccessFlags,
+                                                     requiredUnsetMemberAccessFlags,
+                                                     annotationType,
+                                                     name,
+                                                     descriptor,
+                                                     parseValues()) :
+                        new MemberSpecification(requiredSetMemberAccessFlags,
+                                                requiredUnsetMemberAccessFlags,
+                                                annotationType,
+                                                name,
+                                                descriptor));
             }
             else if (ConfigurationConstants.OPEN_ARGUMENTS_KEYWORD.equals(nextWord))
             {
@@ -1093,7 +1140,14 @@ public class ConfigurationParser
                 // Read the separator after the closing parenthesis.
                 readNextWord("separator '" + ConfigurationConstants.SEPARATOR_KEYWORD + "'");
 
-                if (!ConfigurationConstants.SEPARATOR_KEYWORD.equals(nextWord))
+                // Parse the return values, if any.
+                Number[] values = null;
+                if (allowValues &&
+                    ConfigurationConstants.RETURN_KEYWORD.equals(nextWord))
+                {
+                    values = parseValues();
+                }
+                else if (!ConfigurationConstants.SEPARATOR_KEYWORD.equals(nextWord))
                 {
                     throw new ParseException("Expecting separator '" + ConfigurationConstants.SEPARATOR_KEYWORD +
                                              "' before " + reader.locationDescription());
@@ -1101,11 +1155,18 @@ public class ConfigurationParser
 
                 // Add the method.
                 classSpecification.addMethod(
-                    new MemberSpecification(requiredSetMemberAccessFlags,
-                                            requiredUnsetMemberAccessFlags,
-                                            annotationType,
-                                            name,
-                                            descriptor));
+                    values != null ?
+                        new MemberValueSpecification(requiredSetMemberAccessFlags,
+                                                     requiredUnsetMemberAccessFlags,
+                                                     annotationType,
+                                                     name,
+                                                     descriptor,
+                                                     values) :
+                        new MemberSpecification(requiredSetMemberAccessFlags,
+                                                requiredUnsetMemberAccessFlags,
+                                                annotationType,
+                                                name,
+                                                descriptor));
             }
             else
             {
@@ -1118,6 +1179,119 @@ public class ConfigurationParser
     }
 
 
+    /**
+     * Parses the value or value range of a class member specification,
+     * following the 'return' keyword, up to and including the separator.
+     */
+    private Number[] parseValues()
+    throws ParseException, IOException
+    {
+        // Read the value or the value range. Negative values start with the
+        // option prefix, so we can't check for the end of the configuration.
+        readNextWord();
+
+        if (nextWord == null)
+        {
+            throw new ParseException("Expecting value or value range before " +
+                                     reader.locationDescription());
+        }
+
+        Number[] values;
+
+        int rangeIndex = nextWord.indexOf(ConfigurationConstants.RANGE_KEYWORD);
+        if (rangeIndex >= 0)
+        {
+            // Parse the minimum value and the maximum value of the range.
+            int min = parseIntegerValue(nextWord.substring(0, rangeIndex));
+            int max = parseIntegerValue(nextWord.substring(rangeIndex + ConfigurationConstants.RANGE_KEYWORD.length()));
+
+            if (min > max)
+            {
+                throw new ParseException("Expecting minimum value smaller than or equal to maximum value in '" + nextWord +
+                                         "' before " + reader.locationDescription());
+            }
+
+            values = new Number[] { new Integer(min), new Integer(max) };
+        }
+        else
+        {
+            // Parse the single value.
+            values = new Number[] { parseValue(nextWord) };
+        }
+
+        // Read the separator after the values.
+        readNextWord("separator '" + ConfigurationConstants.SEPARATOR_KEYWORD + "'");
+
+        if (!ConfigurationConstants.SEPARATOR_KEYWORD.equals(nextWord))
+        {
+            throw new ParseException("Expecting separator '" + ConfigurationConstants.SEPARATOR_KEYWORD +
+                                     "' before " + reader.locationDescription());
+        }
+
+        return values;
+    }
+
+
+    /**
+     * Parses the given boolean, integer, long, or floating point value.
+     */
+    private Number parseValue(String word)
+    throws ParseException
+    {
+        if (ConfigurationConstants.FALSE_KEYWORD.equals(word))
+        {
+            return new Integer(0);
+        }
+
+        if (ConfigurationConstants.TRUE_KEYWORD.equals(word))
+        {
+            return new Integer(1);
+        }
+
+        try
+        {
+            return new Integer(word);
+        }
+        catch (NumberFormatException e)
+        {
+            try
+            {
+                return new Long(word);
+            }
+            catch (NumberFormatException e2)
+            {
+                try
+                {
+                    return new Double(word);
+                }
+                catch (NumberFormatException e3)
+                {
+                    throw new ParseException("Expecting primitive value instead of '" + word +
+                                             "' before " + reader.locationDescription());
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Parses the given integer value of a value range.
+     */
+    private int parseIntegerValue(String word)
+    throws ParseException
+    {
+        try
+        {
+            return Integer.parseInt(word);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ParseException("Expecting integer value instead of '" + word +
+                                     "' before " + reader.locationDescription());
+        }
+    }
+
+
     /**
      * Reads a comma-separated list of Lists of java identifiers or of file
      * names.
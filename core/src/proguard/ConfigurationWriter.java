@@ -112,6 +112,10 @@ public class ConfigurationWriter
         writeOption(ConfigurationConstants.KEEP_DIRECTORIES_OPTION,                           configuration.keepDirectories);
         writeOption(ConfigurationConstants.TARGET_OPTION,                                     ClassUtil.externalClassVersion(configuration.targetClassVersion));
         writeOption(ConfigurationConstants.FORCE_PROCESSING_OPTION,                           configuration.lastModified == Long.MAX_VALUE);
+        writeOption(ConfigurationConstants.STARTUP_PROFILE_OPTION,                            configuration.startupProfile);
+        writeOption(ConfigurationConstants.STARTUP_JAR_OPTION,                                configuration.startupJar);
+        writeOption(ConfigurationConstants.LIBRARY_CACHE_OPTION,                              configuration.libraryCache);
+        writeOption(ConfigurationConstants.CONTENT_HASHES_OPTION,                             configuration.contentHashes);
 
         writeOption(ConfigurationConstants.DONT_SHRINK_OPTION, !configuration.shrink);
         writeOption(ConfigurationConstants.PRINT_USAGE_OPTION, configuration.printUsage);
@@ -121,6 +125,8 @@ public class ConfigurationWriter
         writeOption(ConfigurationConstants.OPTIMIZATION_PASSES,                  configuration.optimizationPasses);
         writeOption(ConfigurationConstants.ALLOW_ACCESS_MODIFICATION_OPTION,     configuration.allowAccessModification);
         writeOption(ConfigurationConstants.MERGE_INTERFACES_AGGRESSIVELY_OPTION, configuration.mergeInterfacesAggressively);
+        writeOption(ConfigurationConstants.APPLY_PROFILE_OPTION,                 configuration.applyProfile);
+        writeOption(ConfigurationConstants.ENCODE_PRIMITIVE_ARRAYS_OPTION,       configuration.encodePrimitiveArrays);
 
         writeOption(ConfigurationConstants.DONT_OBFUSCATE_OPTION,                            !configuration.obfuscate);
         writeOption(ConfigurationConstants.PRINT_MAPPING_OPTION,                             configuration.printMapping);
@@ -151,6 +157,8 @@ public class ConfigurationWriter
         writeOption(ConfigurationConstants.IGNORE_WARNINGS_OPTION,             configuration.ignoreWarnings);
         writeOption(ConfigurationConstants.PRINT_CONFIGURATION_OPTION,         configuration.printConfiguration);
         writeOption(ConfigurationConstants.DUMP_OPTION,                        configuration.dump);
+        writeOption(ConfigurationConstants.PRINT_PERFORMANCE_OPTION,           configuration.printPerformance);
+        writeOption(ConfigurationConstants.PRINT_MEMORY_OPTION,                configuration.printMemory);
         writeOption(ConfigurationConstants.ADD_CONFIGURATION_DEBUGGING_OPTION, configuration.addConfigurationDebugging);
 
         writeOption(ConfigurationConstants.PRINT_SEEDS_OPTION, configuration.printSeeds);
@@ -168,6 +176,7 @@ public class ConfigurationWriter
         writeOptions(ConfigurationConstants.ASSUME_NO_EXTERNAL_SIDE_EFFECTS_OPTION,  configuration.assumeNoExternalSideEffects);
         writeOptions(ConfigurationConstants.ASSUME_NO_ESCAPING_PARAMETERS_OPTION,    configuration.assumeNoEscapingParameters);
         writeOptions(ConfigurationConstants.ASSUME_NO_EXTERNAL_RETURN_VALUES_OPTION, configuration.assumeNoExternalReturnValues);
+        writeOptions(ConfigurationConstants.ASSUME_VALUES_OPTION,                    configuration.assumeValues);
 
 
         if (writer.checkError())
@@ -589,6 +598,9 @@ public class ConfigurationWriter
                                                            name == null ? ConfigurationConstants.ANY_CLASS_MEMBER_KEYWORD : name,
                                                            descriptor));
 
+                // Write out the field value, if any.
+                writeValues(memberSpecification);
+
                 writer.println(ConfigurationConstants.SEPARATOR_KEYWORD);
             }
         }
@@ -632,12 +644,38 @@ public class ConfigurationWriter
                                                             name == null ? ConfigurationConstants.ANY_CLASS_MEMBER_KEYWORD : name,
                                                             descriptor));
 
+                // Write out the return value, if any.
+                writeValues(memberSpecification);
+
                 writer.println(ConfigurationConstants.SEPARATOR_KEYWORD);
             }
         }
     }
 
 
+    private void writeValues(MemberSpecification memberSpecification)
+    {
+        if (memberSpecification instanceof MemberValueSpecification)
+        {
+            Number[] values = ((MemberValueSpecification)memberSpecification).values;
+            if (values != null)
+            {
+                writer.print(' ');
+                writer.print(ConfigurationConstants.RETURN_KEYWORD);
+                writer.print(' ');
+                writer.print(values[0]);
+
+                // Write out the range, if any.
+                if (values.length > 1)
+                {
+                    writer.print(ConfigurationConstants.RANGE_KEYWORD);
+                    writer.print(values[1]);
+                }
+            }
+        }
+    }
+
+
     /**
      * Returns a list with external versions of the given list of internal
      * class names.
@@ -0,0 +1,386 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import proguard.util.PrintWriterUtil;
+
+import java.io.*;
+import java.net.*;
+import java.security.*;
+import java.util.Arrays;
+
+/**
+ * This class checks whether the output is up to date, based on the contents
+ * of the input, instead of on modification times. It compares content
+ * hashes of the program jars, library jars, auxiliary files, and the
+ * normalized configuration with the hashes that were recorded after the
+ * previous run. The output is considered up to date if none of them have
+ * changed, even if their modification times have, e.g. after a fresh
+ * checkout.
+ *
+ * @see UpToDateChecker
+ * @author Eric Lafortune
+ */
+public class ContentHashChecker
+{
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+    private static final String MISSING_HASH     = "-";
+
+
+    private final Configuration configuration;
+
+    // The recorded state of the configuration and the inputs, computed
+    // before any processing, since processing changes the configuration.
+    private final String inputState;
+
+
+    /**
+     * Creates a new ContentHashChecker with the given configuration.
+     */
+    public ContentHashChecker(Configuration configuration) throws IOException
+    {
+        this.configuration = configuration;
+        this.inputState    = inputState();
+    }
+
+
+    /**
+     * Returns whether the output is up to date, based on the hashes of the
+     * inputs and outputs, compared to the hashes that were recorded in the
+     * content hashes file.
+     */
+    public boolean check() throws IOException
+    {
+        // Is processing forced?
+        if (configuration.lastModified == Long.MAX_VALUE)
+        {
+            return false;
+        }
+
+        File contentHashes = configuration.contentHashes;
+        if (!contentHashes.isFile())
+        {
+            return false;
+        }
+
+        // Compare the recorded state with the current state.
+        String recordedState = readState(contentHashes);
+        String currentState  = inputState + outputState();
+
+        if (!recordedState.equals(currentState))
+        {
+            return false;
+        }
+
+        System.out.println("The output is up to date, based on its contents");
+
+        return true;
+    }
+
+
+    /**
+     * Records the hashes of the inputs and the outputs in the content hashes
+     * file, for the next run.
+     */
+    public void writeState() throws IOException
+    {
+        if (configuration.verbose)
+        {
+            System.out.println("Writing content hashes to [" +
+                               PrintWriterUtil.fileName(configuration.contentHashes) +
+                               "]...");
+        }
+
+        Writer writer =
+            new OutputStreamWriter(
+            new FileOutputStream(configuration.contentHashes), "UTF-8");
+
+        try
+        {
+            writer.write(inputState);
+            writer.write(outputState());
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+
+    /**
+     * Updates the given digest with the contents of the given file or
+     * directory (recursively, in a fixed order).
+     */
+    static void updateDigest(MessageDigest digest, File file) throws IOException
+    {
+        if (file.isDirectory())
+        {
+            File[] files = file.listFiles();
+            Arrays.sort(files);
+
+            for (int index = 0; index < files.length; index++)
+            {
+                digest.update(files[index].getName().getBytes("UTF-8"));
+
+                updateDigest(digest, files[index]);
+            }
+        }
+        else
+        {
+            updateDigest(digest, new FileInputStream(file));
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the state of the configuration and all inputs, as a list of
+     * lines with hashes.
+     */
+    private String inputState() throws IOException
+    {
+        StringBuffer state = new StringBuffer();
+
+        state.append(ProGuard.VERSION).append('\n');
+
+        // Hash the normalized configuration, which also covers any included
+        // configuration files.
+        StringWriter configurationText = new StringWriter();
+        ConfigurationWriter configurationWriter =
+            new ConfigurationWriter(new PrintWriter(configurationText));
+        configurationWriter.write(configuration);
+        configurationWriter.close();
+
+        MessageDigest digest = newDigest();
+        digest.update(configurationText.toString().getBytes("UTF-8"));
+        appendLine(state, "configuration", "", hexString(digest.digest()));
+
+        // Hash the program jars and library jars.
+        appendClassPathState(state, configuration.programJars, false, "input");
+        appendClassPathState(state, configuration.libraryJars, false, "library");
+
+        // Hash the auxiliary input files.
+        appendFileState(state, "input", configuration.startupProfile);
+        appendFileState(state, "input", configuration.applyProfile);
+        appendFileState(state, "input", configuration.applyMapping);
+        appendUrlState(state, "input", configuration.obfuscationDictionary);
+        appendUrlState(state, "input", configuration.classObfuscationDictionary);
+        appendUrlState(state, "input", configuration.packageObfuscationDictionary);
+
+        return state.toString();
+    }
+
+
+    /**
+     * Returns the state of all outputs, as a list of lines with hashes.
+     */
+    private String outputState() throws IOException
+    {
+        StringBuffer state = new StringBuffer();
+
+        // Hash the output jars.
+        appendClassPathState(state, configuration.programJars, true, "output");
+
+        // Hash the auxiliary output files.
+        appendFileState(state, "output", configuration.startupJar);
+        appendFileState(state, "output", configuration.printSeeds);
+        appendFileState(state, "output", configuration.printUsage);
+        appendFileState(state, "output", configuration.printMapping);
+        appendFileState(state, "output", configuration.printConfiguration);
+        appendFileState(state, "output", configuration.dump);
+        appendFileState(state, "output", configuration.printPerformance);
+        appendFileState(state, "output", configuration.printMemory);
+
+        return state.toString();
+    }
+
+
+    /**
+     * Appends the hashes of the input or output entries of the given class
+     * path.
+     */
+    private void appendClassPathState(StringBuffer state,
+                                      ClassPath    classPath,
+                                      boolean      output,
+                                      String       kind)
+    throws IOException
+    {
+        if (classPath != null)
+        {
+            for (int index = 0; index < classPath.size(); index++)
+            {
+                ClassPathEntry entry = classPath.get(index);
+                if (entry.isOutput() == output)
+                {
+                    appendFileState(state, kind, entry.getFile());
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Appends the hash of the given file, if it is specified. Standard output
+     * is represented by an empty file name, and is ignored.
+     */
+    private void appendFileState(StringBuffer state,
+                                 String       kind,
+                                 File         file)
+    throws IOException
+    {
+        if (file != null &&
+            file.getName().length() > 0)
+        {
+            String hash = MISSING_HASH;
+            if (file.exists())
+            {
+                MessageDigest digest = newDigest();
+                updateDigest(digest, file);
+                hash = hexString(digest.digest());
+            }
+
+            appendLine(state, kind, file.getPath(), hash);
+        }
+    }
+
+
+    /**
+     * Appends the hash of the given URL, if it is specified.
+     */
+    private void appendUrlState(StringBuffer state,
+                                String       kind,
+                                URL          url)
+    throws IOException
+    {
+        if (url != null)
+        {
+            MessageDigest digest = newDigest();
+            updateDigest(digest, url.openStream());
+
+            appendLine(state, kind, url.toString(), hexString(digest.digest()));
+        }
+    }
+
+
+    private void appendLine(StringBuffer state,
+                            String       kind,
+                            String       name,
+                            String       hash)
+    {
+        state.append(kind).append(' ')
+             .append(hash).append(' ')
+             .append(name).append('\n');
+    }
+
+
+    /**
+     * Reads the recorded state from the given file.
+     */
+    private String readState(File file) throws IOException
+    {
+        Reader reader =
+            new InputStreamReader(
+            new FileInputStream(file), "UTF-8");
+
+        try
+        {
+            StringBuffer state  = new StringBuffer();
+            char[]       buffer = new char[1024];
+            while (true)
+            {
+                int count = reader.read(buffer);
+                if (count < 0)
+                {
+                    break;
+                }
+
+                state.append(buffer, 0, count);
+            }
+
+            return state.toString();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+
+    /**
+     * Updates the given digest with the contents of the given input stream,
+     * and closes the stream.
+     */
+    private static void updateDigest(MessageDigest digest, InputStream inputStream)
+    throws IOException
+    {
+        try
+        {
+            byte[] buffer = new byte[16 * 1024];
+            while (true)
+            {
+                int count = inputStream.read(buffer);
+                if (count < 0)
+                {
+                    break;
+                }
+
+                digest.update(buffer, 0, count);
+            }
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+
+    /**
+     * Creates a new message digest for computing content hashes.
+     */
+    static MessageDigest newDigest() throws IOException
+    {
+        try
+        {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+
+    /**
+     * Returns the hexadecimal representation of the given hash.
+     */
+    static String hexString(byte[] hash)
+    {
+        StringBuffer buffer = new StringBuffer(hash.length * 2);
+        for (int index = 0; index < hash.length; index++)
+        {
+            buffer.append(Character.forDigit((hash[index] >> 4) & 0xf, 16))
+                  .append(Character.forDigit( hash[index]       & 0xf, 16));
+        }
+
+        return buffer.toString();
+    }
+}
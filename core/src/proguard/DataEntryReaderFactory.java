@@ -90,7 +90,7 @@ public class DataEntryReaderFactory
         {
             reader = new FilteredDataEntryReader(
                      new DataEntryNameFilter(
-                     new ListParser(new FileNameParser()).parse(filter)),
+                     new CompiledListParser(new FileNameParser()).parse(filter)),
                          reader);
         }
 
@@ -179,7 +179,7 @@ public class DataEntryReaderFactory
             {
                 jarReader = new FilteredDataEntryReader(
                             new DataEntryNameFilter(
-                            new ListParser(new FileNameParser()).parse(jarFilter)),
+                            new CompiledListParser(new FileNameParser()).parse(jarFilter)),
                                 jarReader);
             }
 
@@ -156,7 +156,7 @@ public class DataEntryWriterFactory
         writer = filter != null ?
             new FilteredDataEntryWriter(
                 new DataEntryNameFilter(
-                    new ListParser(new FileNameParser()).parse(filter)),
+                    new CompiledListParser(new FileNameParser()).parse(filter)),
                 writer) :
             writer;
 
@@ -223,7 +223,7 @@ public class DataEntryWriterFactory
                     new FilteredDataEntryWriter(
                     new DataEntryParentFilter(
                     new DataEntryNameFilter(
-                    new ListParser(new FileNameParser()).parse(jarFilter))),
+                    new CompiledListParser(new FileNameParser()).parse(jarFilter))),
                     jarWriter) :
                     jarWriter,
 
@@ -27,6 +27,7 @@ import proguard.classfile.constant.visitor.AllConstantVisitor;
 import proguard.classfile.instruction.visitor.AllInstructionVisitor;
 import proguard.classfile.util.*;
 import proguard.classfile.visitor.*;
+import proguard.optimize.evaluation.SynchronizedClassReplacer;
 import proguard.util.*;
 
 import java.io.*;
@@ -79,6 +80,7 @@ public class Initializer
         fullyQualifiedClassNameChecker.checkClassSpecifications(configuration.assumeNoExternalSideEffects);
         fullyQualifiedClassNameChecker.checkClassSpecifications(configuration.assumeNoEscapingParameters);
         fullyQualifiedClassNameChecker.checkClassSpecifications(configuration.assumeNoExternalReturnValues);
+        fullyQualifiedClassNameChecker.checkClassSpecifications(configuration.assumeValues);
 
         StringMatcher keepAttributesMatcher = configuration.keepAttributes != null ?
             new ListParser(new NameParser()).parse(configuration.keepAttributes) :
@@ -235,6 +237,14 @@ public class Initializer
                 new LibraryClassFilter(
                 new ClassPoolFiller(reducedLibraryClassPool))))));
 
+            // Collect the unsynchronized replacements of referenced
+            // synchronized library classes, for the optimization step.
+            if (configuration.optimize)
+            {
+                SynchronizedClassReplacer.addReplacementClasses(libraryClassPool,
+                                                                reducedLibraryClassPool);
+            }
+
             // Initialize the class references of referenced library
             // classes, without warnings.
             reducedLibraryClassPool.classesAccept(
@@ -296,6 +306,7 @@ public class Initializer
         classMemberChecker.checkClassSpecifications(configuration.assumeNoExternalSideEffects);
         classMemberChecker.checkClassSpecifications(configuration.assumeNoEscapingParameters);
         classMemberChecker.checkClassSpecifications(configuration.assumeNoExternalReturnValues);
+        classMemberChecker.checkClassSpecifications(configuration.assumeValues);
 
         // Check for unkept descriptor classes of kept class members.
         WarningPrinter descriptorKeepNotePrinter = new WarningPrinter(System.out, configuration.note);
@@ -25,7 +25,9 @@ import proguard.classfile.util.WarningPrinter;
 import proguard.classfile.visitor.*;
 import proguard.io.*;
 
-import java.io.IOException;
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.*;
 
 /**
  * This class reads the input class files.
@@ -39,8 +41,11 @@ public class InputReader
     // https://sourceforge.net/p/proguard/discussion/182455/thread/76430d9e
     private static final boolean FAVOR_LIBRARY_CLASSES = System.getProperty("favor.library.classes") != null;
 
+    private static final String LIBRARY_SNAPSHOT_EXTENSION = ".snapshot";
 
-    private final Configuration configuration;
+
+    private final Configuration         configuration;
+    private final LibraryClassPoolCache libraryClassPoolCache;
 
 
     /**
@@ -49,7 +54,22 @@ public class InputReader
      */
     public InputReader(Configuration configuration)
     {
-        this.configuration = configuration;
+        this(configuration, null);
+    }
+
+
+    /**
+     * Creates a new InputReader to read input class files as specified by the
+     * given configuration, reusing library classes from the given cache.
+     * @param configuration         the configuration.
+     * @param libraryClassPoolCache an optional cache of library classes,
+     *                              which is shared between runs.
+     */
+    public InputReader(Configuration         configuration,
+                       LibraryClassPoolCache libraryClassPoolCache)
+    {
+        this.configuration         = configuration;
+        this.libraryClassPoolCache = libraryClassPoolCache;
     }
 
 
@@ -72,27 +92,31 @@ public class InputReader
             // Prepare a data entry reader to filter all classes,
             // which are then decoded to classes by a class reader,
             // which are then put in the class pool by a class pool filler.
-            readInput("Reading library ",
-                      configuration.libraryJars,
-                      new ClassFilter(
-                      new ClassReader(true,
-                                      configuration.skipNonPublicLibraryClasses,
-                                      configuration.skipNonPublicLibraryClassMembers,
-                                      warningPrinter,
-                      new ClassPresenceFilter(libraryClassPool, duplicateClassPrinter,
-                      new ClassPoolFiller(libraryClassPool)))));
+            readLibraryInput(configuration.libraryJars,
+                             warningPrinter,
+                             new ClassPresenceFilter(libraryClassPool, duplicateClassPrinter,
+                             new ClassPoolFiller(libraryClassPool)));
         }
 
         // Read the program class files.
         // Prepare a data entry reader to filter all classes,
         // which are then decoded to classes by a class reader,
         // which are then put in the class pool by a class pool filler.
+        // The class reader doesn't need to decode any StackMapTable
+        // attributes that ProGuard is going to clear anyway.
+        boolean ignoreStackMapTableAttributes =
+            configuration.shrink    ||
+            configuration.optimize  ||
+            configuration.obfuscate ||
+            configuration.preverify;
+
         readInput("Reading program ",
                   configuration.programJars,
                   new ClassFilter(
                   new ClassReader(false,
                                   configuration.skipNonPublicLibraryClasses,
                                   configuration.skipNonPublicLibraryClassMembers,
+                                  ignoreStackMapTableAttributes,
                                   warningPrinter,
                   new ClassPresenceFilter(programClassPool, duplicateClassPrinter,
                   new ClassPresenceFilter(libraryClassPool, duplicateClassPrinter,
@@ -111,16 +135,11 @@ public class InputReader
             // Prepare a data entry reader to filter all classes,
             // which are then decoded to classes by a class reader,
             // which are then put in the class pool by a class pool filler.
-            readInput("Reading library ",
-                      configuration.libraryJars,
-                      new ClassFilter(
-                      new ClassReader(true,
-                                      configuration.skipNonPublicLibraryClasses,
-                                      configuration.skipNonPublicLibraryClassMembers,
-                                      warningPrinter,
-                      new ClassPresenceFilter(programClassPool, duplicateClassPrinter,
-                      new ClassPresenceFilter(libraryClassPool, duplicateClassPrinter,
-                      new ClassPoolFiller(libraryClassPool))))));
+            readLibraryInput(configuration.libraryJars,
+                             warningPrinter,
+                             new ClassPresenceFilter(programClassPool, duplicateClassPrinter,
+                             new ClassPresenceFilter(libraryClassPool, duplicateClassPrinter,
+                             new ClassPoolFiller(libraryClassPool))));
         }
 
         // Print out a summary of the notes, if necessary.
@@ -152,6 +171,210 @@ public class InputReader
     }
 
 
+    /**
+     * Reads all library classes from the given class path, possibly from
+     * the library class pool cache or from snapshots in the library cache,
+     * and applies the given visitor to them.
+     */
+    private void readLibraryInput(ClassPath      classPath,
+                                  WarningPrinter warningPrinter,
+                                  ClassVisitor   classVisitor)
+    throws IOException
+    {
+        for (int index = 0; index < classPath.size(); index++)
+        {
+            ClassPathEntry entry = classPath.get(index);
+            if (!entry.isOutput())
+            {
+                // Only cache libraries that are files, such as jars.
+                if ((configuration.libraryCache != null ||
+                     libraryClassPoolCache      != null) &&
+                    entry.getFile().isFile())
+                {
+                    readCachedLibraryInput(entry, warningPrinter, classVisitor);
+                }
+                else
+                {
+                    readInput("Reading library ",
+                              entry,
+                              new ClassFilter(
+                              new ClassReader(true,
+                                              configuration.skipNonPublicLibraryClasses,
+                                              configuration.skipNonPublicLibraryClassMembers,
+                                              warningPrinter,
+                                              classVisitor)));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Reads the library classes from the given class path entry, from the
+     * library class pool cache or from its snapshot in the library cache, if
+     * possible, and applies the given visitor to them. Otherwise, reads the
+     * entry and fills out the caches.
+     */
+    private void readCachedLibraryInput(ClassPathEntry classPathEntry,
+                                        WarningPrinter warningPrinter,
+                                        ClassVisitor   classVisitor)
+    throws IOException
+    {
+        String libraryKey = libraryKey(classPathEntry);
+
+        // Can we reuse the library classes from a previous run?
+        if (libraryClassPoolCache != null &&
+            libraryClassPoolCache.classesAccept(libraryKey, classVisitor))
+        {
+            System.out.println("Reusing library classes for [" + classPathEntry.getName() + "]");
+
+            return;
+        }
+
+        // Collect the library classes for the library class pool cache,
+        // if any.
+        Set libraryClasses = null;
+        if (libraryClassPoolCache != null)
+        {
+            libraryClasses = new LinkedHashSet();
+            classVisitor   =
+                new MultiClassVisitor(
+                    new ClassCollector(libraryClasses),
+                    classVisitor);
+        }
+
+        if (configuration.libraryCache != null)
+        {
+            readSnapshotLibraryInput(classPathEntry,
+                                     libraryKey,
+                                     warningPrinter,
+                                     classVisitor);
+        }
+        else
+        {
+            readInput("Reading library ",
+                      classPathEntry,
+                      new ClassFilter(
+                      new ClassReader(true,
+                                      configuration.skipNonPublicLibraryClasses,
+                                      configuration.skipNonPublicLibraryClassMembers,
+                                      warningPrinter,
+                                      classVisitor)));
+        }
+
+        if (libraryClassPoolCache != null)
+        {
+            libraryClassPoolCache.put(libraryKey, libraryClasses);
+        }
+    }
+
+
+    /**
+     * Reads the library classes from the given class path entry, from its
+     * snapshot in the library cache, if possible, and applies the given
+     * visitor to them. Otherwise, reads the entry and writes a snapshot.
+     */
+    private void readSnapshotLibraryInput(ClassPathEntry classPathEntry,
+                                          String         libraryKey,
+                                          WarningPrinter warningPrinter,
+                                          ClassVisitor   classVisitor)
+    throws IOException
+    {
+        File snapshotFile =
+            new File(configuration.libraryCache,
+                     "library-" + libraryKey + LIBRARY_SNAPSHOT_EXTENSION);
+
+        if (snapshotFile.isFile())
+        {
+            try
+            {
+                LibraryClassSnapshotReader snapshotReader =
+                    new LibraryClassSnapshotReader(snapshotFile);
+
+                System.out.println("Reading library snapshot [" + snapshotFile.getName() + "] for [" + classPathEntry.getName() + "]");
+
+                snapshotReader.classesAccept(classVisitor);
+
+                return;
+            }
+            catch (IOException e)
+            {
+                // Fall back on reading the library itself.
+                System.err.println("Warning: can't read library snapshot [" + snapshotFile.getPath() + "] (" + e.getMessage() + ")");
+            }
+        }
+
+        // Read the library, collecting its classes in a snapshot.
+        LibraryClassSnapshotWriter snapshotWriter =
+            new LibraryClassSnapshotWriter();
+
+        readInput("Reading library ",
+                  classPathEntry,
+                  new ClassFilter(
+                  new ClassReader(true,
+                                  configuration.skipNonPublicLibraryClasses,
+                                  configuration.skipNonPublicLibraryClassMembers,
+                                  warningPrinter,
+                  new MultiClassVisitor(
+                      snapshotWriter,
+                      classVisitor))));
+
+        // Write the snapshot to a temporary file first, so concurrent
+        // processes never see incomplete snapshots.
+        File libraryCache = snapshotFile.getParentFile();
+        libraryCache.mkdirs();
+
+        File temporaryFile = File.createTempFile("library", ".tmp", libraryCache);
+        try
+        {
+            snapshotWriter.write(temporaryFile);
+
+            if (!temporaryFile.renameTo(snapshotFile))
+            {
+                // Replace any invalid snapshot explicitly, since some
+                // platforms can't rename files over existing files.
+                snapshotFile.delete();
+
+                if (!temporaryFile.renameTo(snapshotFile))
+                {
+                    throw new IOException("Can't create library snapshot [" + snapshotFile.getPath() + "]");
+                }
+            }
+        }
+        finally
+        {
+            temporaryFile.delete();
+        }
+    }
+
+
+    /**
+     * Returns the key for caching the classes of the given class path entry,
+     * based on a hash of its contents, its filters, and the settings for
+     * reading it.
+     */
+    private String libraryKey(ClassPathEntry classPathEntry)
+    throws IOException
+    {
+        MessageDigest digest = ContentHashChecker.newDigest();
+
+        // Hash the settings, the type of the file, and the filters.
+        String name = classPathEntry.getName();
+        String key  =
+            configuration.skipNonPublicLibraryClasses        + " " +
+            configuration.skipNonPublicLibraryClassMembers   + " " +
+            classPathEntry.getFile().getName().toLowerCase() + " " +
+            classPathEntry.toString().substring(name.length());
+
+        digest.update(key.getBytes("UTF-8"));
+
+        // Hash the contents of the file.
+        ContentHashChecker.updateDigest(digest, classPathEntry.getFile());
+
+        return ContentHashChecker.hexString(digest.digest());
+    }
+
+
     /**
      * Reads all input entries from the given class path.
      */
@@ -0,0 +1,214 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import proguard.classfile.*;
+import proguard.classfile.visitor.ClassVisitor;
+
+import java.util.*;
+
+/**
+ * This class caches the library classes that have been read from library
+ * jars, so subsequent runs in the same process, for instance in a build
+ * daemon, can reuse them without parsing the jars again. The classes are
+ * keyed by the content hashes of the jars, as computed by the InputReader.
+ * <p>
+ * The cache keeps pristine copies of the classes, as they are read, before
+ * they are linked to any program classes. Since processing modifies library
+ * classes, for instance by linking and renaming them, each run gets its own
+ * copies, which share their strings and their packed members with the cached
+ * classes. The cache is
+ * thread-safe, so concurrent runs can share it. It is bounded by the total
+ * number of cached classes, evicting the least recently used jars first.
+ *
+ * @author Eric Lafortune
+ */
+public class LibraryClassPoolCache
+{
+    private static final LibraryField[]  EMPTY_LIBRARY_FIELDS  = new LibraryField[0];
+    private static final LibraryMethod[] EMPTY_LIBRARY_METHODS = new LibraryMethod[0];
+
+
+    private final int maximumClassCount;
+
+    // The cached classes, in order of access.
+    private final LinkedHashMap cachedClasses = new LinkedHashMap(16, 0.75f, true);
+    private       int           classCount;
+
+
+    /**
+     * Creates a new LibraryClassPoolCache.
+     * @param maximumClassCount the maximum total number of library classes
+     *                          to be kept in the cache.
+     */
+    public LibraryClassPoolCache(int maximumClassCount)
+    {
+        this.maximumClassCount = maximumClassCount;
+    }
+
+
+    /**
+     * Applies the given visitor to fresh copies of the library classes that
+     * are cached with the given key.
+     * @return whether the cache contained classes for the key.
+     */
+    public boolean classesAccept(String key, ClassVisitor classVisitor)
+    {
+        LibraryClass[] libraryClasses;
+        synchronized (this)
+        {
+            libraryClasses = (LibraryClass[])cachedClasses.get(key);
+        }
+
+        if (libraryClasses == null)
+        {
+            return false;
+        }
+
+        // The cached classes themselves are never modified, so we can copy
+        // them outside of the lock.
+        for (int index = 0; index < libraryClasses.length; index++)
+        {
+            copy(libraryClasses[index]).accept(classVisitor);
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Caches copies of the given library classes with the given key. The
+     * classes must not have been linked or otherwise modified yet.
+     */
+    public void put(String key, Collection libraryClasses)
+    {
+        LibraryClass[] copies = new LibraryClass[libraryClasses.size()];
+
+        Iterator iterator = libraryClasses.iterator();
+        for (int index = 0; index < copies.length; index++)
+        {
+            copies[index] = copy((LibraryClass)iterator.next());
+        }
+
+        synchronized (this)
+        {
+            LibraryClass[] previousClasses =
+                (LibraryClass[])cachedClasses.put(key, copies);
+
+            if (previousClasses != null)
+            {
+                classCount -= previousClasses.length;
+            }
+
+            classCount += copies.length;
+
+            // Evict the least recently used entries, except the new one,
+            // as long as the cache is too large.
+            Iterator entries = cachedClasses.entrySet().iterator();
+            while (classCount > maximumClassCount &&
+                   cachedClasses.size() > 1)
+            {
+                Map.Entry entry = (Map.Entry)entries.next();
+
+                classCount -= ((LibraryClass[])entry.getValue()).length;
+                entries.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Clears the cache.
+     */
+    public synchronized void clear()
+    {
+        cachedClasses.clear();
+        classCount = 0;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns an unlinked copy of the given library class, sharing its
+     * strings and its packed members, if any.
+     */
+    private static LibraryClass copy(LibraryClass libraryClass)
+    {
+        LibraryClass copy = new LibraryClass();
+
+        copy.u2accessFlags  = libraryClass.u2accessFlags;
+        copy.thisClassName  = libraryClass.thisClassName;
+        copy.superClassName = libraryClass.superClassName;
+        copy.interfaceNames = libraryClass.interfaceNames == null ? null :
+            libraryClass.interfaceNames.clone();
+
+        int[]    packedMembers       = libraryClass.packedMembers;
+        String[] packedMemberStrings = libraryClass.packedMemberStrings;
+        if (packedMembers       != null &&
+            packedMemberStrings != null)
+        {
+            // Packed members are never modified, so the copy can share them.
+            copy.packedMemberStrings = packedMemberStrings;
+            copy.packedMembers       = packedMembers;
+        }
+        else
+        {
+            libraryClass.unpackMembers();
+
+            LibraryField[] fields = libraryClass.fields;
+            if (fields == null || fields.length == 0)
+            {
+                copy.fields = EMPTY_LIBRARY_FIELDS;
+            }
+            else
+            {
+                copy.fields = new LibraryField[fields.length];
+                for (int index = 0; index < fields.length; index++)
+                {
+                    LibraryField field = fields[index];
+                    copy.fields[index] = new LibraryField(field.u2accessFlags,
+                                                          field.name,
+                                                          field.descriptor);
+                }
+            }
+
+            LibraryMethod[] methods = libraryClass.methods;
+            if (methods == null || methods.length == 0)
+            {
+                copy.methods = EMPTY_LIBRARY_METHODS;
+            }
+            else
+            {
+                copy.methods = new LibraryMethod[methods.length];
+                for (int index = 0; index < methods.length; index++)
+                {
+                    LibraryMethod method = methods[index];
+                    copy.methods[index] = new LibraryMethod(method.u2accessFlags,
+                                                            method.name,
+                                                            method.descriptor);
+                }
+            }
+        }
+
+        return copy;
+    }
+}
@@ -0,0 +1,660 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.constant.*;
+import proguard.classfile.visitor.ClassVisitor;
+import proguard.optimize.info.*;
+import proguard.util.PrintWriterUtil;
+
+import java.io.*;
+import java.lang.management.*;
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * This class tracks the memory usage after the processing phases: the used
+ * heap memory after garbage collection, and the estimated retained sizes of
+ * the main data structures. These are the program classes with their fields
+ * and methods, their constant pools, their code, their other attributes,
+ * the optimization info and the other visitor info that is attached to
+ * them, the cached analysis results of the code, and the library classes.
+ * The memory usage can be written out as a table.
+ * <p>
+ * The sizes are estimated from the fields of the objects, for a 64-bit JVM
+ * with compressed object pointers. Shared objects, like the strings of
+ * library classes, are only counted once.
+ *
+ * @author Eric Lafortune
+ */
+public class MemoryUsageTracker
+{
+    private static final int OBJECT_HEADER_SIZE = 12;
+    private static final int ARRAY_HEADER_SIZE  = 16;
+    private static final int REFERENCE_SIZE     = 4;
+    private static final int ALIGNMENT          = 8;
+
+    private static final String[] COLUMN_NAMES = new String[]
+    {
+        "Heap used",
+        "Program classes",
+        "Constant pools",
+        "Code",
+        "Attributes",
+        "Optimization info",
+        "Visitor info",
+        "Analysis info",
+        "Library classes",
+    };
+
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+
+    private final List  phases     = new ArrayList();
+    private final Stack openPhases = new Stack();
+
+    // Cached information about the fields of the classes of the objects.
+    private final Map instanceSizes = new HashMap();
+    private final Map ownedFields   = new HashMap();
+
+
+    /**
+     * Starts a new phase with the given name. If another phase is still
+     * open, the new phase is nested inside it, but only the memory usage at
+     * the end of the phase is recorded.
+     */
+    public void beginPhase(String name)
+    {
+        openPhases.push(name);
+    }
+
+
+    /**
+     * Ends the most recently started phase, recording the memory usage of
+     * the given class pools.
+     */
+    public void endPhase(ClassPool programClassPool,
+                         ClassPool libraryClassPool)
+    {
+        Phase phase = new Phase((String)openPhases.pop());
+
+        // Clean up the heap, to get a meaningful heap size.
+        System.gc();
+
+        phase.sizes[0] = memoryMXBean.getHeapMemoryUsage().getUsed();
+
+        // Estimate the sizes of the data structures.
+        MyMemoryUsageEstimator estimator = new MyMemoryUsageEstimator(phase.sizes);
+
+        programClassPool.classesAccept(estimator);
+        libraryClassPool.classesAccept(estimator);
+
+        phase.programClassCount = programClassPool.size();
+        phase.libraryClassCount = libraryClassPool.size();
+
+        phases.add(phase);
+    }
+
+
+    /**
+     * Writes out the memory usage after all completed phases as a table, to
+     * the given file, or to the standard output if the file is empty.
+     */
+    public void write(File file) throws IOException
+    {
+        PrintWriter pw = PrintWriterUtil.createPrintWriterOut(file);
+
+        try
+        {
+            // Compute the width of the phase column.
+            String phaseHeader = "Phase";
+            int    phaseWidth  = phaseHeader.length();
+            for (int index = 0; index < phases.size(); index++)
+            {
+                phaseWidth = Math.max(phaseWidth, ((Phase)phases.get(index)).name.length());
+            }
+
+            pw.println("Memory usage after the processing phases, in kilobytes (estimated sizes of");
+            pw.println("the data structures, with the numbers of program classes and library classes):");
+            pw.println();
+
+            // Write the header.
+            StringBuffer buffer = new StringBuffer();
+            appendLeftAligned(buffer, phaseHeader, phaseWidth);
+            for (int column = 0; column < COLUMN_NAMES.length; column++)
+            {
+                buffer.append("  ");
+                appendRightAligned(buffer, COLUMN_NAMES[column], COLUMN_NAMES[column].length());
+            }
+            buffer.append("  Program count  Library count");
+            pw.println(buffer.toString());
+
+            // Write the rows.
+            for (int index = 0; index < phases.size(); index++)
+            {
+                Phase phase = (Phase)phases.get(index);
+
+                buffer.setLength(0);
+                appendLeftAligned(buffer, phase.name, phaseWidth);
+                for (int column = 0; column < COLUMN_NAMES.length; column++)
+                {
+                    buffer.append("  ");
+                    appendRightAligned(buffer,
+                                       Long.toString(phase.sizes[column] / 1024L),
+                                       COLUMN_NAMES[column].length());
+                }
+                buffer.append("  ");
+                appendRightAligned(buffer, Integer.toString(phase.programClassCount), 13);
+                buffer.append("  ");
+                appendRightAligned(buffer, Integer.toString(phase.libraryClassCount), 13);
+                pw.println(buffer.toString());
+            }
+        }
+        finally
+        {
+            PrintWriterUtil.closePrintWriter(file, pw);
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Appends the given string to the given buffer, padded to the given
+     * width at the right.
+     */
+    private static void appendLeftAligned(StringBuffer buffer, String string, int width)
+    {
+        buffer.append(string);
+        for (int count = string.length(); count < width; count++)
+        {
+            buffer.append(' ');
+        }
+    }
+
+
+    /**
+     * Appends the given string to the given buffer, padded to the given
+     * width at the left.
+     */
+    private static void appendRightAligned(StringBuffer buffer, String string, int width)
+    {
+        for (int count = string.length(); count < width; count++)
+        {
+            buffer.append(' ');
+        }
+        buffer.append(string);
+    }
+
+
+    /**
+     * Returns the estimated size of the given object itself, without any
+     * objects that it refers to.
+     */
+    private long shallowSize(Object object)
+    {
+        Class clazz = object.getClass();
+        if (clazz.isArray())
+        {
+            int length = Array.getLength(object);
+            Class componentType = clazz.getComponentType();
+
+            return align(ARRAY_HEADER_SIZE + (long)length * typeSize(componentType));
+        }
+
+        Long instanceSize = (Long)instanceSizes.get(clazz);
+        if (instanceSize == null)
+        {
+            long size = OBJECT_HEADER_SIZE;
+            for (Class c = clazz; c != null; c = c.getSuperclass())
+            {
+                java.lang.reflect.Field[] fields = c.getDeclaredFields();
+                for (int index = 0; index < fields.length; index++)
+                {
+                    if (!Modifier.isStatic(fields[index].getModifiers()))
+                    {
+                        size += typeSize(fields[index].getType());
+                    }
+                }
+            }
+
+            instanceSize = new Long(align(size));
+            instanceSizes.put(clazz, instanceSize);
+        }
+
+        return instanceSize.longValue();
+    }
+
+
+    /**
+     * Returns the estimated size of the given object, including the strings
+     * and arrays that it owns, recursively, and the objects in those arrays,
+     * except for classes and class members.
+     */
+    private long ownedSize(Object object)
+    {
+        if (object instanceof String)
+        {
+            return stringSize((String)object);
+        }
+
+        long size = shallowSize(object);
+
+        if (object instanceof Object[])
+        {
+            Object[] array = (Object[])object;
+            for (int index = 0; index < array.length; index++)
+            {
+                Object element = array[index];
+                if (element != null &&
+                    !(element instanceof Clazz) &&
+                    !(element instanceof Member))
+                {
+                    size += ownedSize(element);
+                }
+            }
+        }
+        else if (!object.getClass().isArray())
+        {
+            java.lang.reflect.Field[] fields = ownedFields(object.getClass());
+            for (int index = 0; index < fields.length; index++)
+            {
+                try
+                {
+                    Object value = fields[index].get(object);
+                    if (value != null)
+                    {
+                        size += ownedSize(value);
+                    }
+                }
+                catch (IllegalAccessException e)
+                {
+                    // We can't estimate the size of this field.
+                }
+            }
+        }
+
+        return size;
+    }
+
+
+    /**
+     * Returns the accessible instance fields of the given class that
+     * contain owned strings or arrays.
+     */
+    private java.lang.reflect.Field[] ownedFields(Class clazz)
+    {
+        java.lang.reflect.Field[] fields =
+            (java.lang.reflect.Field[])ownedFields.get(clazz);
+
+        if (fields == null)
+        {
+            List fieldList = new ArrayList();
+            for (Class c = clazz; c != null; c = c.getSuperclass())
+            {
+                java.lang.reflect.Field[] declaredFields = c.getDeclaredFields();
+                for (int index = 0; index < declaredFields.length; index++)
+                {
+                    java.lang.reflect.Field field = declaredFields[index];
+                    Class                   type  = field.getType();
+                    if (!Modifier.isStatic(field.getModifiers()) &&
+                        (type.isArray() || type == String.class))
+                    {
+                        try
+                        {
+                            field.setAccessible(true);
+                            fieldList.add(field);
+                        }
+                        catch (RuntimeException e)
+                        {
+                            // The runtime doesn't allow access to the field,
+                            // for instance in a system class.
+                        }
+                    }
+                }
+            }
+
+            fields = (java.lang.reflect.Field[])fieldList.toArray(new java.lang.reflect.Field[fieldList.size()]);
+            ownedFields.put(clazz, fields);
+        }
+
+        return fields;
+    }
+
+
+    /**
+     * Returns the estimated size of the given string, including its
+     * characters.
+     */
+    private static long stringSize(String string)
+    {
+        return align(OBJECT_HEADER_SIZE + REFERENCE_SIZE + 4) +
+               align(ARRAY_HEADER_SIZE + 2L * string.length());
+    }
+
+
+    /**
+     * Returns the estimated size of a field or array element of the given
+     * type.
+     */
+    private static int typeSize(Class type)
+    {
+        return type == Long.TYPE   ||
+               type == Double.TYPE    ? 8 :
+               type == Integer.TYPE   ||
+               type == Float.TYPE     ? 4 :
+               type == Short.TYPE     ||
+               type == Character.TYPE ? 2 :
+               type == Byte.TYPE      ||
+               type == Boolean.TYPE   ? 1 :
+                                        REFERENCE_SIZE;
+    }
+
+
+    /**
+     * Returns the given size, rounded up to the object alignment.
+     */
+    private static long align(long size)
+    {
+        return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+
+
+    /**
+     * This ClassVisitor adds the estimated sizes of the data structures of
+     * the classes that it visits to the given array of sizes, one for each
+     * column of the report.
+     */
+    private class MyMemoryUsageEstimator
+    implements    ClassVisitor
+    {
+        private final long[] sizes;
+
+        // Shared objects that have already been counted.
+        private final Map countedObjects = new IdentityHashMap();
+
+
+        public MyMemoryUsageEstimator(long[] sizes)
+        {
+            this.sizes = sizes;
+        }
+
+
+        // Implementations for ClassVisitor.
+
+        public void visitProgramClass(ProgramClass programClass)
+        {
+            sizes[1] += shallowSize(programClass)               +
+                        arraySize(programClass.u2interfaces)    +
+                        arraySize(programClass.fields)          +
+                        arraySize(programClass.methods)         +
+                        arraySize(programClass.attributes)      +
+                        arraySize(programClass.subClasses);
+            addVisitorInfo(programClass.visitorInfo);
+
+            // The constant pool.
+            Constant[] constantPool = programClass.constantPool;
+            sizes[2] += arraySize(constantPool);
+            for (int index = 1; index < programClass.u2constantPoolCount; index++)
+            {
+                Constant constant = constantPool[index];
+                if (constant != null)
+                {
+                    sizes[2] += ownedSize(constant);
+                    addVisitorInfo(constant.visitorInfo);
+                }
+            }
+
+            // The class members.
+            addMembers(programClass.fields,  programClass.u2fieldsCount);
+            addMembers(programClass.methods, programClass.u2methodsCount);
+
+            // The class attributes.
+            addAttributes(programClass.attributes, programClass.u2attributesCount);
+        }
+
+
+        public void visitLibraryClass(LibraryClass libraryClass)
+        {
+            long size = shallowSize(libraryClass)                +
+                        arraySize(libraryClass.interfaceNames)   +
+                        arraySize(libraryClass.interfaceClasses) +
+                        arraySize(libraryClass.subClasses)       +
+                        sharedSize(libraryClass.thisClassName)   +
+                        sharedSize(libraryClass.superClassName);
+
+            String[] interfaceNames = libraryClass.interfaceNames;
+            if (interfaceNames != null)
+            {
+                for (int index = 0; index < interfaceNames.length; index++)
+                {
+                    size += sharedSize(interfaceNames[index]);
+                }
+            }
+
+            addVisitorInfo(libraryClass.visitorInfo);
+
+            // The class members, which may still be packed.
+            int[]    packedMembers       = libraryClass.packedMembers;
+            String[] packedMemberStrings = libraryClass.packedMemberStrings;
+            if (packedMembers       != null &&
+                packedMemberStrings != null)
+            {
+                size += arraySize(packedMembers) +
+                        sharedSize(packedMemberStrings);
+
+                for (int offset = 1; offset < packedMembers.length; offset += 3)
+                {
+                    size += sharedSize(packedMemberStrings[packedMembers[offset + 1]]) +
+                            sharedSize(packedMemberStrings[packedMembers[offset + 2]]);
+                }
+            }
+            else
+            {
+                size += arraySize(libraryClass.fields) +
+                        arraySize(libraryClass.methods);
+
+                size += libraryMembersSize(libraryClass.fields) +
+                        libraryMembersSize(libraryClass.methods);
+            }
+
+            sizes[8] += size;
+        }
+
+
+        // Small utility methods.
+
+        /**
+         * Adds the sizes of the given program class members and of their
+         * attributes.
+         */
+        private void addMembers(ProgramMember[] members, int memberCount)
+        {
+            for (int index = 0; index < memberCount; index++)
+            {
+                ProgramMember member = members[index];
+
+                sizes[1] += shallowSize(member) +
+                            arraySize(member.attributes);
+                addVisitorInfo(member.visitorInfo);
+
+                addAttributes(member.attributes, member.u2attributesCount);
+            }
+        }
+
+
+        /**
+         * Adds the sizes of the given attributes, as code or as other
+         * attributes.
+         */
+        private void addAttributes(Attribute[] attributes, int attributeCount)
+        {
+            for (int index = 0; index < attributeCount; index++)
+            {
+                Attribute attribute = attributes[index];
+
+                // Code attributes include their nested attributes.
+                sizes[attribute instanceof CodeAttribute ? 3 : 4] += ownedSize(attribute);
+                addVisitorInfo(attribute.visitorInfo);
+
+                if (attribute instanceof CodeAttribute)
+                {
+                    addAnalysisInfo((CodeAttribute)attribute);
+                }
+            }
+        }
+
+
+        /**
+         * Adds the size of the cached analysis results of the given code
+         * attribute, if any, without the code and the exception table that
+         * they refer to.
+         */
+        private void addAnalysisInfo(CodeAttribute codeAttribute)
+        {
+            Object analysisInfo = codeAttribute.analysisInfo;
+            if (analysisInfo != null &&
+                countedObjects.put(analysisInfo, analysisInfo) == null)
+            {
+                long size = shallowSize(analysisInfo);
+
+                java.lang.reflect.Field[] fields = ownedFields(analysisInfo.getClass());
+                for (int index = 0; index < fields.length; index++)
+                {
+                    try
+                    {
+                        Object value = fields[index].get(analysisInfo);
+                        if (value != null                     &&
+                            value != codeAttribute.code       &&
+                            value != codeAttribute.exceptionTable)
+                        {
+                            size += ownedSize(value);
+                        }
+                    }
+                    catch (IllegalAccessException e)
+                    {
+                        // We can't estimate the size of this field.
+                    }
+                }
+
+                sizes[7] += size;
+            }
+        }
+
+
+        /**
+         * Returns the sizes of the given library class members, with their
+         * strings.
+         */
+        private long libraryMembersSize(LibraryMember[] members)
+        {
+            long size = 0L;
+
+            if (members != null)
+            {
+                for (int index = 0; index < members.length; index++)
+                {
+                    LibraryMember member = members[index];
+
+                    size += shallowSize(member)            +
+                            sharedSize(member.name)        +
+                            sharedSize(member.descriptor);
+
+                    if (member instanceof LibraryMethod)
+                    {
+                        size += arraySize(((LibraryMethod)member).referencedClasses);
+                    }
+
+                    addVisitorInfo(member.visitorInfo);
+                }
+            }
+
+            return size;
+        }
+
+
+        /**
+         * Adds the size of the given visitor info, as optimization info or
+         * as other visitor info, if it hasn't been counted yet. Links to
+         * other classes or class members are not counted.
+         */
+        private void addVisitorInfo(Object visitorInfo)
+        {
+            if (visitorInfo != null                     &&
+                !(visitorInfo instanceof VisitorAccepter) &&
+                countedObjects.put(visitorInfo, visitorInfo) == null)
+            {
+                boolean optimizationInfo =
+                    visitorInfo instanceof ClassOptimizationInfo  ||
+                    visitorInfo instanceof FieldOptimizationInfo  ||
+                    visitorInfo instanceof MethodOptimizationInfo ||
+                    visitorInfo instanceof CodeAttributeOptimizationInfo;
+
+                sizes[optimizationInfo ? 5 : 6] += ownedSize(visitorInfo);
+            }
+        }
+
+
+        /**
+         * Returns the size of the given string or array, if it hasn't been
+         * counted yet.
+         */
+        private long sharedSize(Object object)
+        {
+            return object == null ||
+                   countedObjects.put(object, object) != null ? 0L :
+                object instanceof String ?
+                   stringSize((String)object) :
+                   shallowSize(object);
+        }
+
+
+        /**
+         * Returns the size of the given array itself, if any.
+         */
+        private long arraySize(Object array)
+        {
+            return array == null ? 0L : shallowSize(array);
+        }
+    }
+
+
+    /**
+     * The memory usage after a single phase.
+     */
+    private static class Phase
+    {
+        private final String name;
+        private final long[] sizes = new long[COLUMN_NAMES.length];
+
+        private int programClassCount;
+        private int libraryClassCount;
+
+
+        public Phase(String name)
+        {
+            this.name = name;
+        }
+    }
+}
@@ -37,6 +37,9 @@ import java.util.*;
  */
 public class OutputWriter
 {
+    private static final String MANIFEST_FILE_NAME = "META-INF/MANIFEST.MF";
+
+
     private final Configuration configuration;
 
 
@@ -64,6 +67,26 @@ public class OutputWriter
             new DataEntryWriterFactory(programClassPool,
                                        injectedClassNameMap);
 
+        // Read the startup profile, if any.
+        List            startupClassFileNames = null;
+        DataEntryWriter startupWriter         = null;
+        if (configuration.startupProfile != null)
+        {
+            startupClassFileNames = readStartupProfile(programClassPool);
+
+            // Create a separate writer for the startup classes, if specified.
+            if (configuration.startupJar != null)
+            {
+                ClassPath startupClassPath = new ClassPath();
+                startupClassPath.add(new ClassPathEntry(configuration.startupJar, true));
+
+                startupWriter =
+                    dataEntryWriterFactory.createDataEntryWriter(startupClassPath,
+                                                                 0,
+                                                                 1);
+            }
+        }
+
         int firstInputIndex = 0;
         int lastInputIndex  = 0;
 
@@ -88,6 +111,8 @@ public class OutputWriter
                     // Write the processed input entries to the output entries.
                     writeOutput(dataEntryWriterFactory,
                                 programClassPool,
+                                startupClassFileNames,
+                                startupWriter,
                                 programJars,
                                 firstInputIndex,
                                 lastInputIndex + 1,
@@ -98,6 +123,49 @@ public class OutputWriter
                 }
             }
         }
+
+        // Close the separate output jar for the startup classes, if any.
+        if (startupWriter != null)
+        {
+            startupWriter.close();
+        }
+    }
+
+
+    /**
+     * Reads the startup profile and returns the file names of the listed
+     * program classes, in their startup order.
+     */
+    private List readStartupProfile(ClassPool programClassPool)
+    throws IOException
+    {
+        if (configuration.verbose)
+        {
+            System.out.println("Reading startup profile [" + PrintWriterUtil.fileName(configuration.startupProfile) + "]...");
+        }
+
+        // Resolve any obfuscated names in the profile with the mapping that
+        // we're applying, if any.
+        StartupProfileReader startupProfileReader =
+            new StartupProfileReader(configuration.startupProfile,
+                                     configuration.applyMapping);
+
+        List startupClassNames = startupProfileReader.read(programClassPool);
+
+        if (configuration.verbose)
+        {
+            System.out.println("  Number of startup classes:                     " + startupClassNames.size());
+            System.out.println("  Number of unresolved profile entries:          " + startupProfileReader.getUnresolvedCount());
+        }
+
+        List startupClassFileNames = new ArrayList(startupClassNames.size());
+        for (int index = 0; index < startupClassNames.size(); index++)
+        {
+            startupClassFileNames.add(startupClassNames.get(index) +
+                                      ClassConstants.CLASS_FILE_EXTENSION);
+        }
+
+        return startupClassFileNames;
     }
 
 
@@ -106,6 +174,8 @@ public class OutputWriter
      */
     private void writeOutput(DataEntryWriterFactory dataEntryWriterFactory,
                              ClassPool              programClassPool,
+                             List                   startupClassFileNames,
+                             DataEntryWriter        startupWriter,
                              ClassPath              classPath,
                              int                    fromInputIndex,
                              int                    fromOutputIndex,
@@ -186,6 +256,41 @@ public class OutputWriter
                 new ClassFilter(new IdleRewriter(writer),
                                 reader);
 
+            // Write the startup classes first, if any.
+            if (startupClassFileNames != null)
+            {
+                // Collect the input entries of the startup classes. Already
+                // write any manifest files, so they remain the first entries.
+                OrderedDataEntryPump startupClassPump =
+                    new OrderedDataEntryPump(startupClassFileNames);
+
+                new InputReader(configuration).readInput("  Collecting startup classes from program ",
+                                                         classPath,
+                                                         fromInputIndex,
+                                                         fromOutputIndex,
+                                                         new NameFilter(MANIFEST_FILE_NAME,
+                                                                        reader,
+                                                                        new ClassFilter(startupClassPump)));
+
+                // Write them contiguously, in their startup order, to the
+                // output entries or to the separate startup jar.
+                startupClassPump.pumpDataEntries(
+                    new IdleRewriter(startupWriter != null ?
+                                         startupWriter :
+                                         writer));
+
+                // Skip them and the manifest files when copying the input
+                // entries.
+                reader =
+                    new NameFilter(MANIFEST_FILE_NAME,
+                        null,
+                    new FilteredDataEntryReader(
+                    new DataEntryNameFilter(
+                    new CollectionMatcher(new HashSet(startupClassFileNames))),
+                        null,
+                        reader));
+            }
+
             // Go over the specified input entries and write their processed
             // versions.
             new InputReader(configuration).readInput("  Copying resources from program ",
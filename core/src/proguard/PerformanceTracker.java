@@ -0,0 +1,344 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import proguard.classfile.ClassPool;
+import proguard.classfile.attribute.visitor.AllAttributeVisitor;
+import proguard.classfile.instruction.visitor.*;
+import proguard.classfile.visitor.*;
+import proguard.util.PrintWriterUtil;
+
+import java.io.*;
+import java.lang.management.*;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * This class tracks performance metrics of the processing phases, like the
+ * wall time, the CPU time, the allocated memory, the used heap memory, and
+ * the sizes of the program class pool. Phases can be nested, for instance
+ * for the individual steps of an optimization pass. The metrics can be
+ * written out in JSON format.
+ * <p>
+ * The CPU time is the CPU time of the entire process, if the JVM can
+ * provide it, including any parallel threads. The allocated memory only
+ * covers the thread that runs the phases. Metrics that the JVM can't
+ * provide are reported as -1.
+ *
+ * @author Eric Lafortune
+ */
+public class PerformanceTracker
+{
+    private static final Method PROCESS_CPU_TIME_METHOD =
+        method("com.sun.management.OperatingSystemMXBean", "getProcessCpuTime", new Class[0]);
+
+    private static final Method THREAD_ALLOCATED_BYTES_METHOD =
+        method("com.sun.management.ThreadMXBean", "getThreadAllocatedBytes", new Class[] { Long.TYPE });
+
+
+    private final OperatingSystemMXBean operatingSystemMXBean = ManagementFactory.getOperatingSystemMXBean();
+    private final ThreadMXBean          threadMXBean          = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean          memoryMXBean          = ManagementFactory.getMemoryMXBean();
+
+    private final long startTime      = System.currentTimeMillis();
+    private final long startNanoTime  = System.nanoTime();
+
+    private final List  phases     = new ArrayList();
+    private final Stack openPhases = new Stack();
+
+
+    /**
+     * Starts a new phase with the given name. If another phase is still
+     * open, the new phase becomes one of its subphases.
+     */
+    public void beginPhase(String name)
+    {
+        Phase phase = new Phase(name);
+
+        phase.startNanoTime       = System.nanoTime();
+        phase.startCpuTime        = cpuTime();
+        phase.startAllocatedBytes = allocatedBytes();
+
+        openPhases.push(phase);
+    }
+
+
+    /**
+     * Ends the most recently started phase, recording the sizes of the
+     * given program class pool.
+     */
+    public void endPhase(ClassPool programClassPool)
+    {
+        long endNanoTime       = System.nanoTime();
+        long endCpuTime        = cpuTime();
+        long endAllocatedBytes = allocatedBytes();
+
+        Phase phase = (Phase)openPhases.pop();
+
+        phase.wallTime       = endNanoTime - phase.startNanoTime;
+        phase.cpuTime        = difference(phase.startCpuTime,        endCpuTime);
+        phase.allocatedBytes = difference(phase.startAllocatedBytes, endAllocatedBytes);
+        phase.heapUsed       = memoryMXBean.getHeapMemoryUsage().getUsed();
+
+        // Count the classes, methods, and instructions. The instruction
+        // counter accepts reused instructions, so this is relatively cheap.
+        MemberCounter      methodCounter      = new MemberCounter();
+        InstructionCounter instructionCounter = new InstructionCounter();
+
+        programClassPool.classesAccept(
+            new AllMethodVisitor(
+            new MultiMemberVisitor(new MemberVisitor[]
+            {
+                methodCounter,
+                new AllAttributeVisitor(
+                new AllInstructionVisitor(instructionCounter))
+            })));
+
+        phase.classCount       = programClassPool.size();
+        phase.methodCount      = methodCounter.getCount();
+        phase.instructionCount = instructionCounter.getCount();
+
+        // Add the phase to its parent, if any.
+        List parentPhases = openPhases.isEmpty() ?
+            phases :
+            ((Phase)openPhases.peek()).subphases;
+
+        parentPhases.add(phase);
+    }
+
+
+    /**
+     * Writes out the metrics of all completed phases in JSON format, to the
+     * given file, or to the standard output if the file is empty.
+     */
+    public void write(File file) throws IOException
+    {
+        PrintWriter pw = PrintWriterUtil.createPrintWriterOut(file);
+
+        try
+        {
+            pw.println("{");
+            pw.println("  \"version\": " + quoted(ProGuard.VERSION) + ",");
+            pw.println("  \"startTime\": " + startTime + ",");
+            pw.println("  \"wallTime\": " + millis(System.nanoTime() - startNanoTime) + ",");
+            pw.print  ("  \"phases\": ");
+            writePhases(pw, phases, "  ");
+            pw.println();
+            pw.println("}");
+        }
+        finally
+        {
+            PrintWriterUtil.closePrintWriter(file, pw);
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Writes out the given list of phases as a JSON array.
+     */
+    private void writePhases(PrintWriter pw, List phases, String indentation)
+    {
+        pw.print("[");
+
+        for (int index = 0; index < phases.size(); index++)
+        {
+            Phase  phase             = (Phase)phases.get(index);
+            String phaseIndentation = indentation + "  ";
+
+            pw.println(index == 0 ? "" : ",");
+            pw.println(phaseIndentation + "{");
+            pw.println(phaseIndentation + "  \"name\": "             + quoted(phase.name) + ",");
+            pw.println(phaseIndentation + "  \"startTime\": "        + millis(phase.startNanoTime - startNanoTime) + ",");
+            pw.println(phaseIndentation + "  \"wallTime\": "         + millis(phase.wallTime) + ",");
+            pw.println(phaseIndentation + "  \"cpuTime\": "          + millis(phase.cpuTime) + ",");
+            pw.println(phaseIndentation + "  \"allocatedBytes\": "   + phase.allocatedBytes + ",");
+            pw.println(phaseIndentation + "  \"heapUsedBytes\": "    + phase.heapUsed + ",");
+            pw.println(phaseIndentation + "  \"classCount\": "       + phase.classCount + ",");
+            pw.println(phaseIndentation + "  \"methodCount\": "      + phase.methodCount + ",");
+            pw.print  (phaseIndentation + "  \"instructionCount\": " + phase.instructionCount);
+
+            if (!phase.subphases.isEmpty())
+            {
+                pw.println(",");
+                pw.print(phaseIndentation + "  \"phases\": ");
+                writePhases(pw, phase.subphases, phaseIndentation + "  ");
+            }
+
+            pw.println();
+            pw.print(phaseIndentation + "}");
+        }
+
+        pw.println();
+        pw.print(indentation + "]");
+    }
+
+
+    /**
+     * Returns the CPU time of the process, or of the current thread, in
+     * nanoseconds, or -1 if it isn't available.
+     */
+    private long cpuTime()
+    {
+        if (PROCESS_CPU_TIME_METHOD != null &&
+            PROCESS_CPU_TIME_METHOD.getDeclaringClass().isInstance(operatingSystemMXBean))
+        {
+            long cpuTime = invoke(PROCESS_CPU_TIME_METHOD, operatingSystemMXBean, new Object[0]);
+            if (cpuTime >= 0L)
+            {
+                return cpuTime;
+            }
+        }
+
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ?
+            threadMXBean.getCurrentThreadCpuTime() :
+            -1L;
+    }
+
+
+    /**
+     * Returns the number of bytes that the current thread has allocated so
+     * far, or -1 if it isn't available.
+     */
+    private long allocatedBytes()
+    {
+        return THREAD_ALLOCATED_BYTES_METHOD != null &&
+               THREAD_ALLOCATED_BYTES_METHOD.getDeclaringClass().isInstance(threadMXBean) ?
+            invoke(THREAD_ALLOCATED_BYTES_METHOD,
+                   threadMXBean,
+                   new Object[] { new Long(Thread.currentThread().getId()) }) :
+            -1L;
+    }
+
+
+    /**
+     * Returns the difference between the given values, or -1 if either one
+     * isn't available.
+     */
+    private static long difference(long start, long end)
+    {
+        return start < 0L || end < 0L ? -1L : end - start;
+    }
+
+
+    /**
+     * Converts the given number of nanoseconds to milliseconds, preserving
+     * -1 for unavailable values.
+     */
+    private static long millis(long nanos)
+    {
+        return nanos < 0L ? -1L : nanos / 1000000L;
+    }
+
+
+    /**
+     * Returns the given string as a quoted JSON string.
+     */
+    private static String quoted(String string)
+    {
+        StringBuffer buffer = new StringBuffer(string.length() + 2);
+
+        buffer.append('"');
+        for (int index = 0; index < string.length(); index++)
+        {
+            char c = string.charAt(index);
+            if (c == '"' || c == '\\')
+            {
+                buffer.append('\\').append(c);
+            }
+            else if (c < ' ')
+            {
+                String hex = Integer.toHexString(c);
+                buffer.append("\\u0000", 0, 6 - hex.length()).append(hex);
+            }
+            else
+            {
+                buffer.append(c);
+            }
+        }
+        buffer.append('"');
+
+        return buffer.toString();
+    }
+
+
+    /**
+     * Returns the specified public method of an optional, JVM-specific
+     * management interface, or null if it isn't available.
+     */
+    private static Method method(String className, String methodName, Class[] parameterTypes)
+    {
+        try
+        {
+            return Class.forName(className).getMethod(methodName, parameterTypes);
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Invokes the given method that returns a long, returning -1 if it
+     * fails, for instance because the metric isn't supported.
+     */
+    private static long invoke(Method method, Object object, Object[] arguments)
+    {
+        try
+        {
+            return ((Long)method.invoke(object, arguments)).longValue();
+        }
+        catch (Exception e)
+        {
+            return -1L;
+        }
+    }
+
+
+    /**
+     * The metrics of a single phase.
+     */
+    private static class Phase
+    {
+        private final String name;
+        private final List   subphases = new ArrayList();
+
+        private long startNanoTime;
+        private long startCpuTime;
+        private long startAllocatedBytes;
+
+        private long wallTime;
+        private long cpuTime;
+        private long allocatedBytes;
+        private long heapUsed;
+        private int  classCount;
+        private int  methodCount;
+        private int  instructionCount;
+
+
+        public Phase(String name)
+        {
+            this.name = name;
+        }
+    }
+}
@@ -22,13 +22,13 @@ package proguard;
 
 import proguard.backport.Backporter;
 import proguard.classfile.*;
-import proguard.classfile.attribute.visitor.AllAttributeVisitor;
+import proguard.classfile.attribute.visitor.*;
 import proguard.classfile.editor.*;
 import proguard.classfile.util.*;
 import proguard.classfile.visitor.*;
 import proguard.configuration.ConfigurationLoggingAdder;
 import proguard.obfuscate.Obfuscator;
-import proguard.optimize.Optimizer;
+import proguard.optimize.*;
 import proguard.optimize.peephole.LineNumberLinearizer;
 import proguard.preverify.*;
 import proguard.shrink.Shrinker;
@@ -45,15 +45,25 @@ public class ProGuard
 {
     public static final String VERSION = "ProGuard, version 6.0.3";
 
-    private final Configuration configuration;
-    private       ClassPool     programClassPool = new ClassPool();
-    private final ClassPool     libraryClassPool = new ClassPool();
+    private final Configuration         configuration;
+    private final LibraryClassPoolCache libraryClassPoolCache;
+    private       ClassPool             programClassPool = new ClassPool();
+    private final ClassPool             libraryClassPool = new ClassPool();
 
     // Map with class names as keys, and the names of all injected classes that are
     // referenced from these key classes as values.
     // All names are the original, non-obfuscated class names.
     private final MultiValueMap<String, String> injectedClassNameMap = new MultiValueMap<String, String>();
 
+    // The optional run-time profile that guides the optimization.
+    private MethodProfile methodProfile;
+
+    // The optional tracker of performance metrics of the processing phases.
+    private PerformanceTracker performanceTracker;
+
+    // The optional tracker of the memory usage after the processing phases.
+    private MemoryUsageTracker memoryUsageTracker;
+
 
     /**
      * Creates a new ProGuard object to process jars as specified by the given
@@ -61,7 +71,20 @@ public class ProGuard
      */
     public ProGuard(Configuration configuration)
     {
-        this.configuration = configuration;
+        this(configuration, null);
+    }
+
+
+    /**
+     * Creates a new ProGuard object to process jars as specified by the given
+     * configuration, reusing library classes from the given cache, which
+     * can be shared by subsequent or concurrent runs in the same process.
+     */
+    public ProGuard(Configuration         configuration,
+                    LibraryClassPoolCache libraryClassPoolCache)
+    {
+        this.configuration         = configuration;
+        this.libraryClassPoolCache = libraryClassPoolCache;
     }
 
 
@@ -81,11 +104,26 @@ public class ProGuard
 
         new ConfigurationChecker(configuration).check();
 
-        if (configuration.programJars != null     &&
-            configuration.programJars.hasOutput() &&
-            new UpToDateChecker(configuration).check())
+        // Check whether the output is up to date, based on the contents of
+        // the input, if specified, or on its modification times.
+        ContentHashChecker contentHashChecker = null;
+
+        if (configuration.programJars != null &&
+            configuration.programJars.hasOutput())
         {
-            return;
+            if (configuration.contentHashes != null)
+            {
+                contentHashChecker = new ContentHashChecker(configuration);
+
+                if (contentHashChecker.check())
+                {
+                    return;
+                }
+            }
+            else if (new UpToDateChecker(configuration).check())
+            {
+                return;
+            }
         }
 
         if (configuration.targetClassVersion != 0)
@@ -93,14 +131,28 @@ public class ProGuard
             configuration.backport = true;
         }
 
+        if (configuration.printPerformance != null)
+        {
+            performanceTracker = new PerformanceTracker();
+        }
+
+        if (configuration.printMemory != null)
+        {
+            memoryUsageTracker = new MemoryUsageTracker();
+        }
+
+        beginPhase("Reading input");
         readInput();
+        endPhase();
 
         if (configuration.shrink    ||
             configuration.optimize  ||
             configuration.obfuscate ||
             configuration.preverify)
         {
+            beginPhase("Clearing preverification");
             clearPreverification();
+            endPhase();
         }
 
         if (configuration.printSeeds != null ||
@@ -110,48 +162,73 @@ public class ProGuard
             configuration.preverify ||
             configuration.backport)
         {
+            beginPhase("Initializing");
             initialize();
+            endPhase();
         }
 
         if (configuration.obfuscate ||
             configuration.optimize)
         {
+            beginPhase("Introducing primitive array constants");
             introducePrimitiveArrayConstants();
+            endPhase();
         }
 
         if (configuration.backport)
         {
+            beginPhase("Backporting");
             backport();
+            endPhase();
         }
 
         if (configuration.addConfigurationDebugging)
         {
+            beginPhase("Adding configuration logging");
             addConfigurationLogging();
+            endPhase();
         }
 
         if (configuration.printSeeds != null)
         {
+            beginPhase("Printing seeds");
             printSeeds();
+            endPhase();
         }
 
         if (configuration.preverify ||
             configuration.android)
         {
+            beginPhase("Inlining subroutines");
             inlineSubroutines();
+            endPhase();
         }
 
         if (configuration.shrink)
         {
+            beginPhase("Shrinking");
             shrink();
+            endPhase();
         }
 
         if (configuration.optimize)
         {
+            if (configuration.applyProfile != null)
+            {
+                beginPhase("Reading profile");
+                readProfile();
+                endPhase();
+            }
+
             for (int optimizationPass = 0;
                  optimizationPass < configuration.optimizationPasses;
                  optimizationPass++)
             {
-                if (!optimize(optimizationPass+1, configuration.optimizationPasses))
+                beginPhase("Optimizing (pass " + (optimizationPass+1) + "/" + configuration.optimizationPasses + ")");
+                boolean improved = optimize(optimizationPass+1, configuration.optimizationPasses);
+                endPhase();
+
+                if (!improved)
                 {
                     // Stop optimizing if the code doesn't improve any further.
                     break;
@@ -164,37 +241,58 @@ public class ProGuard
                     configuration.printUsage       = null;
                     configuration.whyAreYouKeeping = null;
 
+                    beginPhase("Shrinking");
                     shrink();
+                    endPhase();
                 }
             }
 
+            beginPhase("Linearizing line numbers");
             linearizeLineNumbers();
+            endPhase();
+
+            // The optimization info isn't needed anymore.
+            clearVisitorInfo();
         }
 
         if (configuration.obfuscate)
         {
+            beginPhase("Obfuscating");
             obfuscate();
+
+            // The new names and the links between class members aren't
+            // needed anymore.
+            clearVisitorInfo();
+            endPhase();
         }
 
         if (configuration.optimize ||
             configuration.obfuscate)
         {
+            beginPhase("Expanding primitive array constants");
             expandPrimitiveArrayConstants();
+            endPhase();
         }
 
         if (configuration.optimize)
         {
+            beginPhase("Trimming line numbers");
             trimLineNumbers();
+            endPhase();
         }
 
         if (configuration.targetClassVersion != 0)
         {
+            beginPhase("Targeting");
             target();
+            endPhase();
         }
 
         if (configuration.preverify)
         {
+            beginPhase("Preverifying");
             preverify();
+            endPhase();
         }
 
         if (configuration.shrink    ||
@@ -202,17 +300,38 @@ public class ProGuard
             configuration.obfuscate ||
             configuration.preverify)
         {
+            beginPhase("Sorting class elements");
             sortClassElements();
+            endPhase();
         }
 
         if (configuration.programJars.hasOutput())
         {
+            beginPhase("Writing output");
             writeOutput();
+            endPhase();
         }
 
         if (configuration.dump != null)
         {
+            beginPhase("Dumping");
             dump();
+            endPhase();
+        }
+
+        if (contentHashChecker != null)
+        {
+            contentHashChecker.writeState();
+        }
+
+        if (performanceTracker != null)
+        {
+            printPerformance();
+        }
+
+        if (memoryUsageTracker != null)
+        {
+            printMemory();
         }
     }
 
@@ -252,8 +371,9 @@ public class ProGuard
         }
 
         // Fill the program class pool and the library class pool.
-        new InputReader(configuration).execute(programClassPool,
-                                               libraryClassPool);
+        new InputReader(configuration,
+                        libraryClassPoolCache).execute(programClassPool,
+                                                       libraryClassPool);
     }
 
 
@@ -284,11 +404,12 @@ public class ProGuard
 
     /**
      * Expands primitive array constants back to traditional primitive array
-     * initialization code.
+     * initialization code, or to encoded strings, if specified.
      */
     private void expandPrimitiveArrayConstants()
     {
-        programClassPool.classesAccept(new PrimitiveArrayConstantReplacer());
+        programClassPool.classesAccept(
+            new PrimitiveArrayConstantReplacer(configuration.encodePrimitiveArrays));
     }
 
 
@@ -398,6 +519,32 @@ public class ProGuard
     }
 
 
+    /**
+     * Reads the run-time profile for the optimization step.
+     */
+    private void readProfile() throws IOException
+    {
+        if (configuration.verbose)
+        {
+            System.out.println("Reading profile [" + PrintWriterUtil.fileName(configuration.applyProfile) + "]...");
+        }
+
+        // Resolve any obfuscated names in the profile with the mapping that
+        // we're applying, if any.
+        MethodProfileReader methodProfileReader =
+            new MethodProfileReader(configuration.applyProfile,
+                                    configuration.applyMapping);
+
+        methodProfile = methodProfileReader.read(programClassPool);
+
+        if (configuration.verbose)
+        {
+            System.out.println("  Number of profiled methods:                    " + methodProfile.getMethodCount());
+            System.out.println("  Number of unresolved profile entries:          " + methodProfileReader.getUnresolvedCount());
+        }
+    }
+
+
     /**
      * Performs the optimization step.
      */
@@ -410,9 +557,11 @@ public class ProGuard
         }
 
         // Perform the actual optimization.
-        return new Optimizer(configuration).execute(programClassPool,
-                                                    libraryClassPool,
-                                                    injectedClassNameMap);
+        return new Optimizer(configuration,
+                             methodProfile,
+                             performanceTracker).execute(programClassPool,
+                                                         libraryClassPool,
+                                                         injectedClassNameMap);
     }
 
 
@@ -539,6 +688,87 @@ public class ProGuard
     }
 
 
+    /**
+     * Prints out the performance metrics of the processing phases.
+     */
+    private void printPerformance() throws IOException
+    {
+        if (configuration.verbose)
+        {
+            System.out.println("Printing performance metrics to [" + PrintWriterUtil.fileName(configuration.printPerformance) + "]...");
+        }
+
+        performanceTracker.write(configuration.printPerformance);
+    }
+
+
+    /**
+     * Prints out the memory usage after the processing phases.
+     */
+    private void printMemory() throws IOException
+    {
+        if (configuration.verbose)
+        {
+            System.out.println("Printing memory usage to [" + PrintWriterUtil.fileName(configuration.printMemory) + "]...");
+        }
+
+        memoryUsageTracker.write(configuration.printMemory);
+    }
+
+
+    /**
+     * Clears any visitor info and cached analysis results that the
+     * processing phases have attached to the classes, so they can be
+     * garbage collected.
+     */
+    private void clearVisitorInfo()
+    {
+        programClassPool.classesAccept(new ClassCleaner());
+        libraryClassPool.classesAccept(new ClassCleaner());
+
+        programClassPool.classesAccept(
+            new AllMethodVisitor(
+            new AllAttributeVisitor(
+            new AnalysisInfoCleaner())));
+    }
+
+
+    /**
+     * Starts tracking the performance metrics and the memory usage of a
+     * processing phase with the given name, if necessary.
+     */
+    private void beginPhase(String name)
+    {
+        if (performanceTracker != null)
+        {
+            performanceTracker.beginPhase(name);
+        }
+
+        if (memoryUsageTracker != null)
+        {
+            memoryUsageTracker.beginPhase(name);
+        }
+    }
+
+
+    /**
+     * Stops tracking the performance metrics and the memory usage of the
+     * current processing phase, if necessary.
+     */
+    private void endPhase()
+    {
+        if (performanceTracker != null)
+        {
+            performanceTracker.endPhase(programClassPool);
+        }
+
+        if (memoryUsageTracker != null)
+        {
+            memoryUsageTracker.endPhase(programClassPool, libraryClassPool);
+        }
+    }
+
+
     /**
      * The main method for ProGuard.
      */
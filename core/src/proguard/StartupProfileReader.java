@@ -0,0 +1,264 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import proguard.classfile.ClassPool;
+import proguard.classfile.util.ClassUtil;
+import proguard.obfuscate.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class reads a startup profile: a list of classes in the order in which
+ * an application loads them. It resolves the classes against the classes in
+ * a class pool.
+ * <p>
+ * Each non-comment line of the file contains a class name, in external or
+ * internal form. The reader also accepts the class loading logs of the
+ * virtual machine, as printed with <code>-verbose:class</code>
+ * (<code>[Loaded com.example.Foo from ...]</code>) or with
+ * <code>-Xlog:class+load</code> (<code>... com.example.Foo source: ...</code>).
+ * Comments start with a '#' character. If the profile was collected from
+ * an obfuscated application, the reader can translate the names back to
+ * their original names, based on the corresponding mapping file. Entries that
+ * can't be parsed or resolved are ignored.
+ *
+ * @author Eric Lafortune
+ */
+public class StartupProfileReader
+{
+    private static final String LOADED_PREFIX = "[Loaded ";
+    private static final String SOURCE_INFIX  = " source:";
+
+
+    private final File profileFile;
+    private final File mappingFile;
+
+    // The map: [new external class name - original external class name].
+    private final Map classNames = new HashMap();
+
+    private int unresolvedCount;
+
+
+    /**
+     * Creates a new StartupProfileReader for the given profile file.
+     * @param profileFile the profile file.
+     * @param mappingFile an optional mapping file, to translate obfuscated
+     *                    names in the profile to the names in the class
+     *                    pool.
+     */
+    public StartupProfileReader(File profileFile, File mappingFile)
+    {
+        this.profileFile = profileFile;
+        this.mappingFile = mappingFile;
+    }
+
+
+    /**
+     * Returns the number of entries in the most recently read profile that
+     * didn't match any classes.
+     */
+    public int getUnresolvedCount()
+    {
+        return unresolvedCount;
+    }
+
+
+    /**
+     * Reads the profile file, resolving its entries against the classes in
+     * the given class pool.
+     * @return the internal names of the profiled classes, as they are known
+     *         in the class pool, in their startup order and without
+     *         duplicates.
+     */
+    public List read(ClassPool classPool) throws IOException
+    {
+        classNames.clear();
+        unresolvedCount = 0;
+
+        if (mappingFile != null)
+        {
+            new MappingReader(mappingFile).pump(new MyMappingCollector());
+        }
+
+        Set  startupClassNameSet = new HashSet();
+        List startupClassNames   = new ArrayList();
+
+        LineNumberReader reader = new LineNumberReader(
+                                  new BufferedReader(
+                                  new FileReader(profileFile)));
+        try
+        {
+            while (true)
+            {
+                String line = reader.readLine();
+
+                if (line == null)
+                {
+                    break;
+                }
+
+                line = line.trim();
+
+                // Is it a non-comment line?
+                if (line.length() > 0 &&
+                    !line.startsWith("#"))
+                {
+                    String className = findClassName(classPool, line);
+                    if (className == null)
+                    {
+                        unresolvedCount++;
+                    }
+                    else if (startupClassNameSet.add(className))
+                    {
+                        startupClassNames.add(className);
+                    }
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new IOException("Can't process startup profile file (" + ex.getMessage() + ")");
+        }
+        finally
+        {
+            try
+            {
+                reader.close();
+            }
+            catch (IOException ex)
+            {
+                // This shouldn't happen.
+            }
+        }
+
+        return startupClassNames;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the internal name of the class specified in the given line,
+     * as it is known in the given class pool, or null if it can't be found.
+     */
+    private String findClassName(ClassPool classPool, String line)
+    {
+        String externalClassName = ClassUtil.externalClassName(parseClassName(line));
+
+        // Try the name as it is.
+        String className = ClassUtil.internalClassName(externalClassName);
+        if (classPool.getClass(className) != null)
+        {
+            return className;
+        }
+
+        // Try the original name from the mapping.
+        String originalClassName = (String)classNames.get(externalClassName);
+        if (originalClassName != null)
+        {
+            className = ClassUtil.internalClassName(originalClassName);
+            if (classPool.getClass(className) != null)
+            {
+                return className;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Returns the class name in the given line, which may be a plain class
+     * name or a line from a class loading log.
+     */
+    private static String parseClassName(String line)
+    {
+        // Is it a line like "[Loaded com.example.Foo from ...]"?
+        if (line.startsWith(LOADED_PREFIX))
+        {
+            return firstToken(line.substring(LOADED_PREFIX.length()));
+        }
+
+        // Is it a line like "[...][class,load] com.example.Foo source: ..."?
+        int sourceIndex = line.indexOf(SOURCE_INFIX);
+        if (sourceIndex >= 0)
+        {
+            String prefix = line.substring(0, sourceIndex).trim();
+
+            return prefix.substring(prefix.lastIndexOf(' ') + 1);
+        }
+
+        return firstToken(line);
+    }
+
+
+    /**
+     * Returns the first whitespace-separated token of the given string.
+     */
+    private static String firstToken(String string)
+    {
+        StringTokenizer tokenizer = new StringTokenizer(string);
+
+        return tokenizer.hasMoreTokens() ?
+            tokenizer.nextToken() :
+            string;
+    }
+
+
+    /**
+     * This MappingProcessor collects the original class names for the new
+     * class names.
+     */
+    private class MyMappingCollector
+    implements    MappingProcessor
+    {
+        // Implementations for MappingProcessor.
+
+        public boolean processClassMapping(String className,
+                                           String newClassName)
+        {
+            classNames.put(newClassName, className);
+
+            return false;
+        }
+
+
+        public void processFieldMapping(String className,
+                                        String fieldType,
+                                        String fieldName,
+                                        String newClassName,
+                                        String newFieldName) {}
+
+
+        public void processMethodMapping(String className,
+                                         int    firstLineNumber,
+                                         int    lastLineNumber,
+                                         String methodReturnType,
+                                         String methodName,
+                                         String methodArguments,
+                                         String newClassName,
+                                         int    newFirstLineNumber,
+                                         int    newLastLineNumber,
+                                         String newMethodName) {}
+    }
+}
@@ -84,17 +84,22 @@ public class UpToDateChecker
             }
 
             // Check the dates of the auxiliary input files.
+            checker.updateInputModificationTime(configuration.startupProfile);
+            checker.updateInputModificationTime(configuration.applyProfile);
             checker.updateInputModificationTime(configuration.applyMapping);
             checker.updateInputModificationTime(configuration.obfuscationDictionary);
             checker.updateInputModificationTime(configuration.classObfuscationDictionary);
             checker.updateInputModificationTime(configuration.packageObfuscationDictionary);
 
             // Check the dates of the auxiliary output files.
+            checker.updateOutputModificationTime(configuration.startupJar);
             checker.updateOutputModificationTime(configuration.printSeeds);
             checker.updateOutputModificationTime(configuration.printUsage);
             checker.updateOutputModificationTime(configuration.printMapping);
             checker.updateOutputModificationTime(configuration.printConfiguration);
             checker.updateOutputModificationTime(configuration.dump);
+            checker.updateOutputModificationTime(configuration.printPerformance);
+            checker.updateOutputModificationTime(configuration.printMemory);
         }
         catch (IllegalStateException e)
         {
@@ -255,6 +255,7 @@ public class ClassConstants
     public static final String NAME_JAVA_LANG_CLONEABLE                    = "java/lang/Cloneable";
     public static final String NAME_JAVA_LANG_THROWABLE                    = "java/lang/Throwable";
     public static final String NAME_JAVA_LANG_EXCEPTION                    = "java/lang/Exception";
+    public static final String NAME_JAVA_LANG_ENUM                         = "java/lang/Enum";
     public static final String NAME_JAVA_LANG_CLASS                        = "java/lang/Class";
     public static final String TYPE_JAVA_LANG_CLASS                        = "Ljava/lang/Class;";
     public static final String NAME_JAVA_LANG_CLASS_LOADER                 = "java/lang/ClassLoader";
@@ -289,6 +290,9 @@ public class ClassConstants
     public static final String NAME_JAVA_UTIL_MAP                          = "java/util/Map";
     public static final String TYPE_JAVA_UTIL_MAP                          = "Ljava/util/Map;";
     public static final String NAME_JAVA_UTIL_HASH_MAP                     = "java/util/HashMap";
+    public static final String NAME_JAVA_UTIL_HASHTABLE                    = "java/util/Hashtable";
+    public static final String NAME_JAVA_UTIL_ARRAY_LIST                   = "java/util/ArrayList";
+    public static final String NAME_JAVA_UTIL_VECTOR                       = "java/util/Vector";
 
     public static final String NAME_ANDROID_UTIL_FLOAT_MATH                = "android/util/FloatMath";
 
@@ -300,6 +304,8 @@ public class ClassConstants
     public static final String METHOD_TYPE_INIT   = "()V";
     public static final String METHOD_NAME_CLINIT = "<clinit>";
     public static final String METHOD_TYPE_CLINIT = "()V";
+    public static final String METHOD_NAME_FINALIZE = "finalize";
+    public static final String METHOD_TYPE_FINALIZE = "()V";
 
     public static final String METHOD_NAME_OBJECT_GET_CLASS                 = "getClass";
     public static final String METHOD_TYPE_OBJECT_GET_CLASS                 = "()Ljava/lang/Class;";
@@ -27,11 +27,17 @@ import proguard.classfile.visitor.*;
 
 /**
  * This Clazz is a compact representation of the essential data in a Java class.
+ * Its fields and methods may even be kept in packed form, until they are
+ * needed.
  *
  * @author Eric Lafortune
  */
 public class LibraryClass implements Clazz
 {
+    private static final LibraryField[]  EMPTY_LIBRARY_FIELDS  = new LibraryField[0];
+    private static final LibraryMethod[] EMPTY_LIBRARY_METHODS = new LibraryMethod[0];
+
+
     public int             u2accessFlags;
     public String          thisClassName;
     public String          superClassName;
@@ -39,6 +45,23 @@ public class LibraryClass implements Clazz
     public LibraryField[]  fields;
     public LibraryMethod[] methods;
 
+    /**
+     * An optional compact representation of the fields and methods, from
+     * which the above arrays are only created when the members are actually
+     * needed, e.g. when they are visited or found. As long as it is set, the
+     * above arrays are null. It contains the number of fields, followed by
+     * the access flags and the indices of the name and of the descriptor of
+     * each field and then of each method.
+     * @see #unpackMembers()
+     */
+    public volatile int[] packedMembers;
+
+    /**
+     * The strings referenced by the packed members. Classes may share these
+     * strings, and even the array itself.
+     */
+    public String[] packedMemberStrings;
+
     /**
      * An extra field pointing to the superclass of this class.
      * This field is filled out by the {@link ClassSuperHierarchyInitializer}.
@@ -269,6 +292,13 @@ public class LibraryClass implements Clazz
 
     public Field findField(String name, String descriptor)
     {
+        // Don't create the members if there isn't any matching field anyway.
+        if (packedMembers != null &&
+            !unpackMembers(true, name, descriptor))
+        {
+            return null;
+        }
+
         for (int index = 0; index < fields.length; index++)
         {
             Field field = fields[index];
@@ -286,6 +316,13 @@ public class LibraryClass implements Clazz
 
     public Method findMethod(String name, String descriptor)
     {
+        // Don't create the members if there isn't any matching method anyway.
+        if (packedMembers != null &&
+            !unpackMembers(false, name, descriptor))
+        {
+            return null;
+        }
+
         for (int index = 0; index < methods.length; index++)
         {
             Method method = methods[index];
@@ -463,6 +500,11 @@ public class LibraryClass implements Clazz
 
     public void fieldsAccept(MemberVisitor memberVisitor)
     {
+        if (packedMembers != null)
+        {
+            unpackMembers();
+        }
+
         for (int index = 0; index < fields.length; index++)
         {
             Field field = fields[index];
@@ -486,6 +528,11 @@ public class LibraryClass implements Clazz
 
     public void methodsAccept(MemberVisitor memberVisitor)
     {
+        if (packedMembers != null)
+        {
+            unpackMembers();
+        }
+
         for (int index = 0; index < methods.length; index++)
         {
             Method method = methods[index];
@@ -531,6 +578,54 @@ public class LibraryClass implements Clazz
     }
 
 
+    /**
+     * Creates the field and method objects from their packed representation,
+     * if they haven't been created yet.
+     */
+    public synchronized void unpackMembers()
+    {
+        int[] packedMembers = this.packedMembers;
+        if (packedMembers != null)
+        {
+            String[] strings = packedMemberStrings;
+
+            int fieldCount  = packedMembers[0];
+            int methodCount = (packedMembers.length - 1) / 3 - fieldCount;
+
+            LibraryField[] fields = fieldCount == 0 ?
+                EMPTY_LIBRARY_FIELDS :
+                new LibraryField[fieldCount];
+
+            int offset = 1;
+            for (int index = 0; index < fieldCount; index++, offset += 3)
+            {
+                fields[index] = new LibraryField(packedMembers[offset],
+                                                 strings[packedMembers[offset + 1]],
+                                                 strings[packedMembers[offset + 2]]);
+            }
+
+            LibraryMethod[] methods = methodCount == 0 ?
+                EMPTY_LIBRARY_METHODS :
+                new LibraryMethod[methodCount];
+
+            for (int index = 0; index < methodCount; index++, offset += 3)
+            {
+                methods[index] = new LibraryMethod(packedMembers[offset],
+                                                   strings[packedMembers[offset + 1]],
+                                                   strings[packedMembers[offset + 2]]);
+            }
+
+            this.fields  = fields;
+            this.methods = methods;
+
+            // Clear the packed representation last, so other threads see
+            // the complete arrays once they see it cleared.
+            this.packedMemberStrings = null;
+            this.packedMembers       = null;
+        }
+    }
+
+
     // Implementations for VisitorAccepter.
 
     public Object getVisitorInfo()
@@ -544,6 +639,45 @@ public class LibraryClass implements Clazz
     }
 
 
+    // Small utility methods.
+
+    /**
+     * Creates the field and method objects from their packed representation,
+     * if it contains a field or method (as specified) with the given name
+     * and descriptor. Null values match any name or descriptor.
+     * @return whether the member objects are present now.
+     */
+    private synchronized boolean unpackMembers(boolean field,
+                                               String  name,
+                                               String  descriptor)
+    {
+        int[] packedMembers = this.packedMembers;
+        if (packedMembers == null)
+        {
+            return true;
+        }
+
+        String[] strings = packedMemberStrings;
+
+        int fieldsEnd = 1 + packedMembers[0] * 3;
+        int start     = field ? 1         : fieldsEnd;
+        int end       = field ? fieldsEnd : packedMembers.length;
+
+        for (int offset = start; offset < end; offset += 3)
+        {
+            if ((name       == null || strings[packedMembers[offset + 1]].equals(name)) &&
+                (descriptor == null || strings[packedMembers[offset + 2]].equals(descriptor)))
+            {
+                unpackMembers();
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
     // Implementations for Object.
 
     public String toString()
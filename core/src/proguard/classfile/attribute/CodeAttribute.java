@@ -23,7 +23,7 @@ package proguard.classfile.attribute;
 import proguard.classfile.*;
 import proguard.classfile.attribute.visitor.*;
 import proguard.classfile.instruction.*;
-import proguard.classfile.instruction.visitor.InstructionVisitor;
+import proguard.classfile.instruction.visitor.*;
 
 /**
  * This Attribute represents a code attribute.
@@ -46,6 +46,13 @@ public class CodeAttribute extends Attribute
     public int             u2attributesCount;
     public Attribute[]     attributes;
 
+    /**
+     * An extra field in which code analyses can cache their results, as
+     * long as the code doesn't change. Code editors clear it when they
+     * change the code.
+     */
+    public Object analysisInfo;
+
 
     /**
      * Creates an uninitialized CodeAttribute.
@@ -168,15 +175,32 @@ public class CodeAttribute extends Attribute
      */
     public void instructionsAccept(Clazz clazz, Method method, int startOffset, int endOffset, InstructionVisitor instructionVisitor)
     {
-        int offset = startOffset;
+        // Can we decode the instructions into reused instances?
+        ReusableInstructions reusableInstructions =
+            instructionVisitor instanceof TransientInstructionVisitor &&
+            ((TransientInstructionVisitor)instructionVisitor).acceptsTransientInstructions() ?
+                ReusableInstructions.acquire() :
+                null;
+
+        try
+        {
+            int offset = startOffset;
 
-        while (offset < endOffset)
+            while (offset < endOffset)
+            {
+                // Note that the instruction is only volatile.
+                Instruction instruction = InstructionFactory.create(code, offset, reusableInstructions);
+                int instructionLength = instruction.length(offset);
+                instruction.accept(clazz, method, this, offset, instructionVisitor);
+                offset += instructionLength;
+            }
+        }
+        finally
         {
-            // Note that the instruction is only volatile.
-            Instruction instruction = InstructionFactory.create(code, offset);
-            int instructionLength = instruction.length(offset);
-            instruction.accept(clazz, method, this, offset, instructionVisitor);
-            offset += instructionLength;
+            if (reusableInstructions != null)
+            {
+                reusableInstructions.release();
+            }
         }
     }
 
@@ -76,7 +76,7 @@ implements   AttributeVisitor,
 
     private final int[]   codeFragmentOffsets  = new int[MAXIMUM_LEVELS];
     private final int[]   codeFragmentLengths  = new int[MAXIMUM_LEVELS];
-    private final int[][] instructionOffsetMap = new int[MAXIMUM_LEVELS][ClassConstants.TYPICAL_CODE_LENGTH + 1];
+    private final int[][] instructionOffsetMap = new int[MAXIMUM_LEVELS][];
 
     private ExceptionInfo[]  exceptionTable  = new ExceptionInfo[ClassConstants.TYPICAL_EXCEPTION_TABLE_LENGTH];
     private LineNumberInfo[] lineNumberTable = new LineNumberInfo[ClassConstants.TYPICAL_LINE_NUMBER_TABLE_LENGTH];
@@ -164,10 +164,14 @@ implements   AttributeVisitor,
 
         ensureCodeLength(maximumCodeLength);
 
-        // Try to reuse the previous array for this code fragment.
-        if (instructionOffsetMap[level].length <= maximumCodeFragmentLength)
+        // Try to reuse the previous array for this code fragment. We're
+        // only creating the arrays of the levels that are actually used,
+        // since most composers only use one or two levels.
+        if (instructionOffsetMap[level] == null ||
+            instructionOffsetMap[level].length <= maximumCodeFragmentLength)
         {
-            instructionOffsetMap[level] = new int[maximumCodeFragmentLength + 1];
+            instructionOffsetMap[level] =
+                new int[Math.max(maximumCodeFragmentLength, ClassConstants.TYPICAL_CODE_LENGTH) + 1];
         }
 
         // Initialize the offset map.
@@ -526,6 +530,9 @@ implements   AttributeVisitor,
         codeAttribute.u4codeLength = codeLength;
         System.arraycopy(code, 0, codeAttribute.code, 0, codeLength);
 
+        // Any cached analysis results are outdated.
+        codeAttribute.analysisInfo = null;
+
         // Remove exceptions with empty code blocks (done before).
         //exceptionTableLength =
         //    removeEmptyExceptions(exceptionTable, exceptionTableLength);
@@ -532,6 +532,9 @@ implements   AttributeVisitor,
                 System.out.println("CodeAttributeEditor: "+clazz.getName()+"."+method.getName(clazz)+method.getDescriptor(clazz));
             }
 
+            // Any cached analysis results are outdated.
+            codeAttribute.analysisInfo = null;
+
             // Can we perform a faster simple replacement of instructions?
             if (canPerformSimpleReplacements(codeAttribute))
             {
@@ -32,6 +32,20 @@ public class InstructionFactory
      * at the given index.
      */
     public static Instruction create(byte[] code, int offset)
+    {
+        return create(code, offset, null);
+    }
+
+
+    /**
+     * Creates an Instruction from the data in the byte array, starting
+     * at the given index. If reusable instructions are specified, the
+     * returned instruction is one of them, so it is only valid until the
+     * next invocation with the same reusable instructions.
+     */
+    public static Instruction create(byte[]               code,
+                                     int                  offset,
+                                     ReusableInstructions reusableInstructions)
     {
         Instruction instruction;
 
@@ -165,7 +179,9 @@ public class InstructionFactory
 
             case InstructionConstants.OP_MONITORENTER:
             case InstructionConstants.OP_MONITOREXIT:
-                instruction = new SimpleInstruction();
+                instruction = reusableInstructions != null ?
+                    reusableInstructions.simpleInstruction :
+                    new SimpleInstruction();
                 break;
 
             // Instructions with a contant pool index.
@@ -189,7 +205,9 @@ public class InstructionFactory
             case InstructionConstants.OP_CHECKCAST:
             case InstructionConstants.OP_INSTANCEOF:
             case InstructionConstants.OP_MULTIANEWARRAY:
-                instruction = new ConstantInstruction();
+                instruction = reusableInstructions != null ?
+                    reusableInstructions.constantInstruction :
+                    new ConstantInstruction();
                 break;
 
             // Instructions with a local variable index.
@@ -248,7 +266,14 @@ public class InstructionFactory
             case InstructionConstants.OP_IINC:
 
             case InstructionConstants.OP_RET:
-                instruction = new VariableInstruction(wide);
+                VariableInstruction variableInstruction =
+                    reusableInstructions != null ?
+                        reusableInstructions.variableInstruction :
+                        new VariableInstruction();
+
+                variableInstruction.wide = wide;
+
+                instruction = variableInstruction;
                 break;
 
             // Instructions with a branch offset operand.
@@ -274,17 +299,23 @@ public class InstructionFactory
 
             case InstructionConstants.OP_GOTO_W:
             case InstructionConstants.OP_JSR_W:
-                instruction = new BranchInstruction();
+                instruction = reusableInstructions != null ?
+                    reusableInstructions.branchInstruction :
+                    new BranchInstruction();
                 break;
 
             //  The tableswitch instruction.
             case InstructionConstants.OP_TABLESWITCH:
-                instruction = new TableSwitchInstruction();
+                instruction = reusableInstructions != null ?
+                    reusableInstructions.tableSwitchInstruction :
+                    new TableSwitchInstruction();
                 break;
 
             //  The lookupswitch instruction.
             case InstructionConstants.OP_LOOKUPSWITCH:
-                instruction = new LookUpSwitchInstruction();
+                instruction = reusableInstructions != null ?
+                    reusableInstructions.lookUpSwitchInstruction :
+                    new LookUpSwitchInstruction();
                 break;
 
             default:
@@ -0,0 +1,84 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.classfile.instruction;
+
+/**
+ * This class contains a single mutable instance of each type of Instruction,
+ * so the InstructionFactory can decode instructions into them, instead of
+ * creating new instances every time.
+ * <p>
+ * Each thread has its own set, which can only be acquired once at a time.
+ * This way, nested decoding loops on the same thread (for instance, a
+ * visitor that visits the instruction at a branch target) simply fall back
+ * to creating new instances, without overwriting the instructions that are
+ * still being visited.
+ *
+ * @see InstructionFactory#create(byte[], int, ReusableInstructions)
+ * @author Eric Lafortune
+ */
+public class ReusableInstructions
+{
+    private static final ThreadLocal<ReusableInstructions> THREAD_INSTRUCTIONS =
+        new ThreadLocal<ReusableInstructions>()
+        {
+            protected ReusableInstructions initialValue()
+            {
+                return new ReusableInstructions();
+            }
+        };
+
+
+    final SimpleInstruction       simpleInstruction       = new SimpleInstruction();
+    final VariableInstruction     variableInstruction     = new VariableInstruction();
+    final ConstantInstruction     constantInstruction     = new ConstantInstruction();
+    final BranchInstruction       branchInstruction       = new BranchInstruction();
+    final TableSwitchInstruction  tableSwitchInstruction  = new TableSwitchInstruction();
+    final LookUpSwitchInstruction lookUpSwitchInstruction = new LookUpSwitchInstruction();
+
+    private boolean acquired;
+
+
+    /**
+     * Returns the reusable instructions of the current thread, or null if
+     * they have already been acquired and not released yet.
+     */
+    public static ReusableInstructions acquire()
+    {
+        ReusableInstructions reusableInstructions = THREAD_INSTRUCTIONS.get();
+        if (reusableInstructions.acquired)
+        {
+            return null;
+        }
+
+        reusableInstructions.acquired = true;
+
+        return reusableInstructions;
+    }
+
+
+    /**
+     * Releases these reusable instructions, so they can be acquired again.
+     */
+    public void release()
+    {
+        acquired = false;
+    }
+}
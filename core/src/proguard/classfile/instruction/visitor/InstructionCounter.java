@@ -32,7 +32,7 @@ import proguard.classfile.util.SimplifiedVisitor;
  */
 public class InstructionCounter
 extends      SimplifiedVisitor
-implements   InstructionVisitor
+implements   TransientInstructionVisitor
 {
     private int count;
 
@@ -56,4 +56,12 @@ implements   InstructionVisitor
     {
         count++;
     }
+
+
+    // Implementations for TransientInstructionVisitor.
+
+    public boolean acceptsTransientInstructions()
+    {
+        return true;
+    }
 }
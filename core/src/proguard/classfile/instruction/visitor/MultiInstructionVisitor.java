@@ -32,7 +32,7 @@ import proguard.util.ArrayUtil;
  *
  * @author Eric Lafortune
  */
-public class MultiInstructionVisitor implements InstructionVisitor
+public class MultiInstructionVisitor implements TransientInstructionVisitor
 {
     private InstructionVisitor[] instructionVisitors;
     private int                  instructionVisitorCount;
@@ -109,4 +109,23 @@ public class MultiInstructionVisitor implements InstructionVisitor
             instructionVisitors[index].visitLookUpSwitchInstruction(clazz, method, codeAttribute, offset, lookUpSwitchInstruction);
         }
     }
+
+
+    // Implementations for TransientInstructionVisitor.
+
+    public boolean acceptsTransientInstructions()
+    {
+        // All visitors have to accept transient instructions.
+        for (int index = 0; index < instructionVisitorCount; index++)
+        {
+            InstructionVisitor instructionVisitor = instructionVisitors[index];
+            if (!(instructionVisitor instanceof TransientInstructionVisitor &&
+                  ((TransientInstructionVisitor)instructionVisitor).acceptsTransientInstructions()))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
 }
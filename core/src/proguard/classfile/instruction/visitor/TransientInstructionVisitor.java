@@ -0,0 +1,39 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.classfile.instruction.visitor;
+
+/**
+ * This interface lets an <code>InstructionVisitor</code> declare that it only
+ * uses the instructions that it visits for the duration of each visit: it
+ * doesn't keep any references to them and it doesn't modify them. The
+ * CodeAttribute can then decode the instructions into reused instances,
+ * instead of creating new instances for every visit.
+ *
+ * @see proguard.classfile.instruction.ReusableInstructions
+ * @author Eric Lafortune
+ */
+public interface TransientInstructionVisitor extends InstructionVisitor
+{
+    /**
+     * Returns whether this visitor accepts transient, reused instructions.
+     */
+    public boolean acceptsTransientInstructions();
+}
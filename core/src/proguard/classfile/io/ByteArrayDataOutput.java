@@ -0,0 +1,263 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.classfile.io;
+
+import java.io.*;
+
+/**
+ * This class writes primitive values in big-endian order into a growable
+ * byte array, like a DataOutput without any IOExceptions. The written bytes
+ * can be patched afterwards, for instance to fill out lengths that are only
+ * known once the subsequent data has been written, and then written out in
+ * a single call.
+ * <p>
+ * Like DataOutput#writeShort, the method writeShort writes the lower 16 bits
+ * of any value. The methods writeUnsignedShort and writeSignedShort first
+ * check whether the values fit, throwing IllegalArgumentExceptions
+ * otherwise.
+ * <p>
+ * Each thread has its own instance, which can only be acquired once at a
+ * time, so its array can be reused for writing subsequent classes.
+ *
+ * @author Eric Lafortune
+ */
+final class ByteArrayDataOutput
+{
+    private static final int INITIAL_SIZE = 16 * 1024;
+
+    private static final ThreadLocal<ByteArrayDataOutput> THREAD_OUTPUT =
+        new ThreadLocal<ByteArrayDataOutput>()
+        {
+            protected ByteArrayDataOutput initialValue()
+            {
+                return new ByteArrayDataOutput();
+            }
+        };
+
+
+    private byte[]  bytes = new byte[INITIAL_SIZE];
+    private int     length;
+    private boolean acquired;
+
+
+    /**
+     * Returns the empty output of the current thread, or a new empty output
+     * if it has already been acquired and not released yet.
+     */
+    public static ByteArrayDataOutput acquire()
+    {
+        ByteArrayDataOutput output = THREAD_OUTPUT.get();
+        if (output.acquired)
+        {
+            output = new ByteArrayDataOutput();
+        }
+
+        output.acquired = true;
+        output.length   = 0;
+
+        return output;
+    }
+
+
+    /**
+     * Releases this output, so it can be acquired again.
+     */
+    public void release()
+    {
+        acquired = false;
+    }
+
+
+    /**
+     * Returns the number of bytes written so far, which is also the offset
+     * of the next byte.
+     */
+    public int length()
+    {
+        return length;
+    }
+
+
+    /**
+     * Overwrites the four bytes at the given offset with the given int
+     * value.
+     */
+    public void setInt(int offset, int v)
+    {
+        bytes[offset    ] = (byte)(v >>> 24);
+        bytes[offset + 1] = (byte)(v >>> 16);
+        bytes[offset + 2] = (byte)(v >>>  8);
+        bytes[offset + 3] = (byte) v;
+    }
+
+
+    /**
+     * Writes out all bytes written so far to the given DataOutput.
+     */
+    public void writeTo(DataOutput dataOutput)
+    {
+        try
+        {
+            dataOutput.write(bytes, 0, length);
+        }
+        catch (IOException ex)
+        {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+
+    // Methods corresponding to DataOutput.
+
+    public void write(byte[] b)
+    {
+        write(b, 0, b.length);
+    }
+
+
+    public void write(byte[] b, int off, int len)
+    {
+        ensureCapacity(len);
+
+        System.arraycopy(b, off, bytes, length, len);
+        length += len;
+    }
+
+
+    public void writeBoolean(boolean v)
+    {
+        writeByte(v ? 1 : 0);
+    }
+
+
+    public void writeByte(int v)
+    {
+        ensureCapacity(1);
+
+        bytes[length++] = (byte)v;
+    }
+
+
+    public void writeChar(int v)
+    {
+        writeShort(v);
+    }
+
+
+    public void writeDouble(double v)
+    {
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+
+    public void writeFloat(float v)
+    {
+        writeInt(Float.floatToIntBits(v));
+    }
+
+
+    public void writeInt(int v)
+    {
+        ensureCapacity(4);
+
+        byte[] bytes  = this.bytes;
+        int    length = this.length;
+
+        bytes[length    ] = (byte)(v >>> 24);
+        bytes[length + 1] = (byte)(v >>> 16);
+        bytes[length + 2] = (byte)(v >>>  8);
+        bytes[length + 3] = (byte) v;
+
+        this.length = length + 4;
+    }
+
+
+    public void writeLong(long v)
+    {
+        writeInt((int)(v >>> 32));
+        writeInt((int) v);
+    }
+
+
+    /**
+     * Checks if the given value is an unsigned short value before writing it.
+     *
+     * @throws IllegalArgumentException if the value is not an unsigned short value.
+     * @see #writeShort(int)
+     */
+    public void writeUnsignedShort(int v)
+    {
+        if ((v & 0xffff) != v)
+        {
+            throw new IllegalArgumentException("Overflow of unsigned short value ["+v+"]");
+        }
+
+        writeShort(v);
+    }
+
+
+    /**
+     * Checks if the given value is a signed short value before writing it.
+     *
+     * @throws IllegalArgumentException if the value is not a signed short value.
+     * @see #writeShort(int)
+     */
+    public void writeSignedShort(int v)
+    {
+        if ((short)v != v)
+        {
+            throw new IllegalArgumentException("Overflow of signed short value ["+v+"]");
+        }
+
+        writeShort(v);
+    }
+
+
+    public void writeShort(int v)
+    {
+        ensureCapacity(2);
+
+        byte[] bytes  = this.bytes;
+        int    length = this.length;
+
+        bytes[length    ] = (byte)(v >>> 8);
+        bytes[length + 1] = (byte) v;
+
+        this.length = length + 2;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Makes sure the array can hold the given number of additional bytes.
+     */
+    private void ensureCapacity(int count)
+    {
+        int requiredLength = length + count;
+        if (requiredLength > bytes.length)
+        {
+            byte[] newBytes = new byte[Math.max(requiredLength, bytes.length * 2)];
+            System.arraycopy(bytes, 0, newBytes, 0, length);
+            bytes = newBytes;
+        }
+    }
+}
@@ -27,10 +27,15 @@ import proguard.classfile.util.*;
 import proguard.classfile.visitor.*;
 
 import java.io.DataInput;
+import java.util.Map;
 
 /**
  * This ClassVisitor fills out the LibraryClass objects that it visits with data
  * from the given DataInput object.
+ * <p>
+ * If it gets a map of shared strings, it stores the fields and methods in
+ * their packed form, with strings that are shared with all other classes
+ * that are read with the same map.
  *
  * @author Eric Lafortune
  */
@@ -47,10 +52,19 @@ implements   ClassVisitor,
     private final RuntimeDataInput dataInput;
     private final boolean          skipNonPublicClasses;
     private final boolean          skipNonPublicClassMembers;
+    private final Map              sharedStrings;
 
     // A global array that acts as a parameter for the visitor methods.
     private Constant[]      constantPool;
 
+    // Global arrays and counters that act as parameters for reading packed
+    // members.
+    private int[]           packedMembers;
+    private int             packedMembersSize;
+    private int[]           packedStringIndices;
+    private String[]        packedStrings;
+    private int             packedStringsSize;
+
 
     /**
      * Creates a new ProgramClassReader for reading from the given DataInput.
@@ -58,10 +72,32 @@ implements   ClassVisitor,
     public LibraryClassReader(DataInput dataInput,
                               boolean   skipNonPublicClasses,
                               boolean   skipNonPublicClassMembers)
+    {
+        this(dataInput, skipNonPublicClasses, skipNonPublicClassMembers, null);
+    }
+
+
+    /**
+     * Creates a new ProgramClassReader for reading from the given DataInput.
+     * @param dataInput                 the input to read from.
+     * @param skipNonPublicClasses      specifies whether non-public classes
+     *                                  are skipped.
+     * @param skipNonPublicClassMembers specifies whether package visible
+     *                                  class members are skipped.
+     * @param sharedStrings             an optional map in which the member
+     *                                  strings are shared between classes.
+     *                                  If it is specified, the reader
+     *                                  stores the members in packed form.
+     */
+    public LibraryClassReader(DataInput dataInput,
+                              boolean   skipNonPublicClasses,
+                              boolean   skipNonPublicClassMembers,
+                              Map       sharedStrings)
     {
         this.dataInput                 = new RuntimeDataInput(dataInput);
         this.skipNonPublicClasses      = skipNonPublicClasses;
         this.skipNonPublicClassMembers = skipNonPublicClassMembers;
+        this.sharedStrings             = sharedStrings;
     }
 
 
@@ -146,68 +182,15 @@ implements   ClassVisitor,
             libraryClass.interfaceNames[index] = getClassName(u2interface);
         }
 
-        // Read the fields.
-        int u2fieldsCount = dataInput.readUnsignedShort();
-
-        // Create the fields array.
-        LibraryField[] reusableFields = new LibraryField[u2fieldsCount];
-
-        int visibleFieldsCount = 0;
-        for (int index = 0; index < u2fieldsCount; index++)
+        if (sharedStrings != null)
         {
-            LibraryField field = new LibraryField();
-            this.visitLibraryMember(libraryClass, field);
-
-            // Only store fields that are visible.
-            if (AccessUtil.accessLevel(field.getAccessFlags()) >=
-                (skipNonPublicClassMembers ? AccessUtil.PROTECTED :
-                                             AccessUtil.PACKAGE_VISIBLE))
-            {
-                reusableFields[visibleFieldsCount++] = field;
-            }
-        }
-
-        // Copy the visible fields (if any) into a fields array of the right size.
-        if (visibleFieldsCount == 0)
-        {
-            libraryClass.fields = EMPTY_LIBRARY_FIELDS;
+            // Read the fields and methods in packed form.
+            readPackedMembers(libraryClass);
         }
         else
         {
-            libraryClass.fields = new LibraryField[visibleFieldsCount];
-            System.arraycopy(reusableFields, 0, libraryClass.fields, 0, visibleFieldsCount);
-        }
-
-        // Read the methods.
-        int u2methodsCount = dataInput.readUnsignedShort();
-
-        // Create the methods array.
-        LibraryMethod[] reusableMethods = new LibraryMethod[u2methodsCount];
-
-        int visibleMethodsCount = 0;
-        for (int index = 0; index < u2methodsCount; index++)
-        {
-            LibraryMethod method = new LibraryMethod();
-            this.visitLibraryMember(libraryClass, method);
-
-            // Only store methods that are visible.
-            if (AccessUtil.accessLevel(method.getAccessFlags()) >=
-                (skipNonPublicClassMembers ? AccessUtil.PROTECTED :
-                                             AccessUtil.PACKAGE_VISIBLE))
-            {
-                reusableMethods[visibleMethodsCount++] = method;
-            }
-        }
-
-        // Copy the visible methods (if any) into a methods array of the right size.
-        if (visibleMethodsCount == 0)
-        {
-            libraryClass.methods = EMPTY_LIBRARY_METHODS;
-        }
-        else
-        {
-            libraryClass.methods = new LibraryMethod[visibleMethodsCount];
-            System.arraycopy(reusableMethods, 0, libraryClass.methods, 0, visibleMethodsCount);
+            // Read the fields and methods as objects.
+            readMembers(libraryClass);
         }
 
         // Skip the class attributes.
@@ -337,13 +320,17 @@ implements   ClassVisitor,
 
     /**
      * Returns the class name of the ClassConstant at the specified index in the
-     * reusable constant pool.
+     * reusable constant pool, shared if possible.
      */
     private String getClassName(int constantIndex)
     {
         ClassConstant classEntry = (ClassConstant)constantPool[constantIndex];
 
-        return getString(classEntry.u2nameIndex);
+        String className = getString(classEntry.u2nameIndex);
+
+        return sharedStrings != null ?
+            sharedString(className) :
+            className;
     }
 
 
@@ -357,6 +344,203 @@ implements   ClassVisitor,
     }
 
 
+    /**
+     * Reads the fields and methods of the given library class as objects.
+     */
+    private void readMembers(LibraryClass libraryClass)
+    {
+        // Read the fields.
+        int u2fieldsCount = dataInput.readUnsignedShort();
+
+        // Create the fields array.
+        LibraryField[] reusableFields = new LibraryField[u2fieldsCount];
+
+        int visibleFieldsCount = 0;
+        for (int index = 0; index < u2fieldsCount; index++)
+        {
+            LibraryField field = new LibraryField();
+            this.visitLibraryMember(libraryClass, field);
+
+            // Only store fields that are visible.
+            if (AccessUtil.accessLevel(field.getAccessFlags()) >=
+                (skipNonPublicClassMembers ? AccessUtil.PROTECTED :
+                                             AccessUtil.PACKAGE_VISIBLE))
+            {
+                reusableFields[visibleFieldsCount++] = field;
+            }
+        }
+
+        // Copy the visible fields (if any) into a fields array of the right size.
+        if (visibleFieldsCount == 0)
+        {
+            libraryClass.fields = EMPTY_LIBRARY_FIELDS;
+        }
+        else
+        {
+            libraryClass.fields = new LibraryField[visibleFieldsCount];
+            System.arraycopy(reusableFields, 0, libraryClass.fields, 0, visibleFieldsCount);
+        }
+
+        // Read the methods.
+        int u2methodsCount = dataInput.readUnsignedShort();
+
+        // Create the methods array.
+        LibraryMethod[] reusableMethods = new LibraryMethod[u2methodsCount];
+
+        int visibleMethodsCount = 0;
+        for (int index = 0; index < u2methodsCount; index++)
+        {
+            LibraryMethod method = new LibraryMethod();
+            this.visitLibraryMember(libraryClass, method);
+
+            // Only store methods that are visible.
+            if (AccessUtil.accessLevel(method.getAccessFlags()) >=
+                (skipNonPublicClassMembers ? AccessUtil.PROTECTED :
+                                             AccessUtil.PACKAGE_VISIBLE))
+            {
+                reusableMethods[visibleMethodsCount++] = method;
+            }
+        }
+
+        // Copy the visible methods (if any) into a methods array of the right size.
+        if (visibleMethodsCount == 0)
+        {
+            libraryClass.methods = EMPTY_LIBRARY_METHODS;
+        }
+        else
+        {
+            libraryClass.methods = new LibraryMethod[visibleMethodsCount];
+            System.arraycopy(reusableMethods, 0, libraryClass.methods, 0, visibleMethodsCount);
+        }
+    }
+
+
+    /**
+     * Reads the fields and methods of the given library class in packed
+     * form.
+     */
+    private void readPackedMembers(LibraryClass libraryClass)
+    {
+        int u2fieldsCount = dataInput.readUnsignedShort();
+
+        // Create the packed arrays, with room for all fields for now.
+        packedMembers       = new int[1 + 3 * u2fieldsCount];
+        packedMembersSize   = 1;
+        packedStringIndices = new int[constantPool.length];
+        packedStrings       = new String[constantPool.length];
+        packedStringsSize   = 0;
+
+        // Read the fields.
+        for (int index = 0; index < u2fieldsCount; index++)
+        {
+            readPackedMember();
+        }
+
+        int visibleFieldsCount = (packedMembersSize - 1) / 3;
+
+        packedMembers[0] = visibleFieldsCount;
+
+        // Read the methods.
+        int u2methodsCount = dataInput.readUnsignedShort();
+
+        // Make room for all methods.
+        int[] newPackedMembers = new int[packedMembersSize + 3 * u2methodsCount];
+        System.arraycopy(packedMembers, 0, newPackedMembers, 0, packedMembersSize);
+        packedMembers = newPackedMembers;
+
+        for (int index = 0; index < u2methodsCount; index++)
+        {
+            readPackedMember();
+        }
+
+        if (packedMembersSize == 1)
+        {
+            // Without any visible members, there's nothing to pack.
+            libraryClass.fields  = EMPTY_LIBRARY_FIELDS;
+            libraryClass.methods = EMPTY_LIBRARY_METHODS;
+        }
+        else
+        {
+            // Copy the packed members and their strings into arrays of the
+            // right sizes.
+            int[] members = new int[packedMembersSize];
+            System.arraycopy(packedMembers, 0, members, 0, packedMembersSize);
+
+            String[] strings = new String[packedStringsSize];
+            System.arraycopy(packedStrings, 0, strings, 0, packedStringsSize);
+
+            libraryClass.packedMemberStrings = strings;
+            libraryClass.packedMembers       = members;
+        }
+
+        packedMembers       = null;
+        packedStringIndices = null;
+        packedStrings       = null;
+    }
+
+
+    /**
+     * Reads a field or method and adds it to the packed members, if it is
+     * visible.
+     */
+    private void readPackedMember()
+    {
+        int u2accessFlags     = dataInput.readUnsignedShort();
+        int u2nameIndex       = dataInput.readUnsignedShort();
+        int u2descriptorIndex = dataInput.readUnsignedShort();
+
+        // Skip the member attributes.
+        skipAttributes();
+
+        // Only store members that are visible.
+        if (AccessUtil.accessLevel(u2accessFlags) >=
+            (skipNonPublicClassMembers ? AccessUtil.PROTECTED :
+                                         AccessUtil.PACKAGE_VISIBLE))
+        {
+            packedMembers[packedMembersSize++] = u2accessFlags;
+            packedMembers[packedMembersSize++] = packedStringIndex(u2nameIndex);
+            packedMembers[packedMembersSize++] = packedStringIndex(u2descriptorIndex);
+        }
+    }
+
+
+    /**
+     * Returns the index in the packed strings of the string of the
+     * Utf8Constant at the specified index in the reusable constant pool,
+     * adding the shared string if necessary.
+     */
+    private int packedStringIndex(int constantIndex)
+    {
+        // The stored indices are incremented, so 0 means absent.
+        int index = packedStringIndices[constantIndex] - 1;
+        if (index < 0)
+        {
+            index = packedStringsSize++;
+
+            packedStrings[index]               = sharedString(getString(constantIndex));
+            packedStringIndices[constantIndex] = index + 1;
+        }
+
+        return index;
+    }
+
+
+    /**
+     * Returns the shared instance of the given string.
+     */
+    private String sharedString(String string)
+    {
+        String sharedString = (String)sharedStrings.get(string);
+        if (sharedString == null)
+        {
+            sharedStrings.put(string, string);
+            sharedString = string;
+        }
+
+        return sharedString;
+    }
+
+
     private Constant createConstant()
     {
         int u1tag = dataInput.readUnsignedByte();
@@ -71,6 +71,7 @@ implements   ClassVisitor,
              ElementValueVisitor
 {
     private final RuntimeDataInput dataInput;
+    private final boolean          ignoreStackMapTableAttributes;
 
 
     /**
@@ -78,7 +79,26 @@ implements   ClassVisitor,
      */
     public ProgramClassReader(DataInput dataInput)
     {
-        this.dataInput                = new RuntimeDataInput(dataInput);
+        this(dataInput, false);
+    }
+
+
+    /**
+     * Creates a new ProgramClassReader for reading from the given DataInput.
+     * @param dataInput                     the input to read from.
+     * @param ignoreStackMapTableAttributes specifies whether the StackMapTable
+     *                                      attributes of classes with version
+     *                                      1.6 or higher are left undecoded,
+     *                                      as unknown attributes with their
+     *                                      raw contents. This saves time and
+     *                                      memory if the attributes are going
+     *                                      to be cleared anyway.
+     */
+    public ProgramClassReader(DataInput dataInput,
+                              boolean   ignoreStackMapTableAttributes)
+    {
+        this.dataInput                     = new RuntimeDataInput(dataInput);
+        this.ignoreStackMapTableAttributes = ignoreStackMapTableAttributes;
     }
 
 
@@ -1269,7 +1289,10 @@ implements   ClassVisitor,
             attributeName.equals(ClassConstants.ATTR_Exceptions)                                 ? (Attribute)new ExceptionsAttribute():
             attributeName.equals(ClassConstants.ATTR_Code)                                       ? (Attribute)new CodeAttribute():
             attributeName.equals(ClassConstants.ATTR_StackMap)                                   ? (Attribute)new StackMapAttribute():
-            attributeName.equals(ClassConstants.ATTR_StackMapTable)                              ? (Attribute)new StackMapTableAttribute():
+            attributeName.equals(ClassConstants.ATTR_StackMapTable)                              ? (ignoreStackMapTableAttributes &&
+                                                                                                    ((ProgramClass)clazz).u4version >= ClassConstants.CLASS_VERSION_1_6 ?
+                                                                                                       (Attribute)new UnknownAttribute(u2attributeNameIndex, u4attributeLength) :
+                                                                                                       (Attribute)new StackMapTableAttribute()):
             attributeName.equals(ClassConstants.ATTR_LineNumberTable)                            ? (Attribute)new LineNumberTableAttribute():
             attributeName.equals(ClassConstants.ATTR_LocalVariableTable)                         ? (Attribute)new LocalVariableTableAttribute():
             attributeName.equals(ClassConstants.ATTR_LocalVariableTypeTable)                     ? (Attribute)new LocalVariableTypeTableAttribute():
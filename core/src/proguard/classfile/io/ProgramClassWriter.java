@@ -41,6 +41,9 @@ import java.io.*;
 /**
  * This ClassVisitor writes out the ProgramClass objects that it visits to the
  * given DataOutput object.
+ * <p>
+ * Each class is first serialized into a reusable byte array, which is then
+ * written out to the DataOutput object in a single call.
  *
  * @author Eric Lafortune
  */
@@ -51,7 +54,10 @@ implements   ClassVisitor,
              ConstantVisitor,
              AttributeVisitor
 {
-    private RuntimeDataOutput dataOutput;
+    private final DataOutput classDataOutput;
+
+    // The output of the class that is currently being written.
+    private ByteArrayDataOutput dataOutput;
 
     private final ConstantBodyWriter         constantBodyWriter         = new ConstantBodyWriter();
     private final AttributeBodyWriter        attributeBodyWriter        = new AttributeBodyWriter();
@@ -65,13 +71,39 @@ implements   ClassVisitor,
      */
     public ProgramClassWriter(DataOutput dataOutput)
     {
-        this.dataOutput = new RuntimeDataOutput(dataOutput);
+        this.classDataOutput = dataOutput;
     }
 
 
     // Implementations for ClassVisitor.
 
     public void visitProgramClass(ProgramClass programClass)
+    {
+        dataOutput = ByteArrayDataOutput.acquire();
+        try
+        {
+            writeProgramClass(programClass);
+
+            // Write out the entire class at once.
+            dataOutput.writeTo(classDataOutput);
+        }
+        finally
+        {
+            dataOutput.release();
+            dataOutput = null;
+        }
+    }
+
+
+    public void visitLibraryClass(LibraryClass libraryClass)
+    {
+    }
+
+
+    /**
+     * Writes the given program class to the current output.
+     */
+    private void writeProgramClass(ProgramClass programClass)
     {
         // Write the magic number.
         dataOutput.writeInt(ClassConstants.MAGIC);
@@ -117,11 +149,6 @@ implements   ClassVisitor,
     }
 
 
-    public void visitLibraryClass(LibraryClass libraryClass)
-    {
-    }
-
-
     // Implementations for MemberVisitor.
 
     public void visitProgramField(ProgramClass programClass, ProgramField programField)
@@ -342,27 +369,18 @@ implements   ClassVisitor,
         // Write the attribute name index.
         dataOutput.writeUnsignedShort(attribute.u2attributeNameIndex);
 
-        // We'll write the attribute body into an array first, so we can
-        // automatically figure out its length.
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        // Reserve space for the attribute length, which we'll fill out
+        // once we've written the attribute body.
+        int lengthOffset = dataOutput.length();
+        dataOutput.writeInt(0);
 
-        // Temporarily replace the current data output.
-        RuntimeDataOutput oldDataOutput = dataOutput;
-        dataOutput = new RuntimeDataOutput(new DataOutputStream(byteArrayOutputStream));
-
-        // Write the attribute body into the array. Note that the
-        // accept method with two dummy null arguments never throws
-        // an UnsupportedOperationException.
+        // Write the attribute body. Note that the accept method with two
+        // dummy null arguments never throws an
+        // UnsupportedOperationException.
         attribute.accept(clazz, null, null, attributeBodyWriter);
 
-        // Restore the original data output.
-        dataOutput = oldDataOutput;
-
-        // Write the attribute length and body.
-        byte[] info = byteArrayOutputStream.toByteArray();
-
-        dataOutput.writeInt(info.length);
-        dataOutput.write(info);
+        // Fill out the attribute length.
+        dataOutput.setInt(lengthOffset, dataOutput.length() - lengthOffset - 4);
     }
 
 
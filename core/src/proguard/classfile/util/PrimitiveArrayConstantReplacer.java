@@ -29,10 +29,16 @@ import proguard.classfile.editor.*;
 import proguard.classfile.instruction.*;
 import proguard.classfile.instruction.visitor.InstructionVisitor;
 import proguard.classfile.visitor.ClassVisitor;
+import proguard.obfuscate.*;
 
 /**
  * This ClassVisitor replaces all PrimitiveArray constants by Java bytecode
  * compliant array store instructions.
+ * <p>
+ * Optionally, it encodes the elements of large arrays in string constants
+ * instead, which are decoded at run-time by a synthetic decoder method per
+ * element type in each class. Char arrays are simply created with
+ * String#toCharArray().
  *
  * @see ArrayInitializationReplacer
  * @author Thomas Neidhart
@@ -45,13 +51,59 @@ implements   ClassVisitor,
              ConstantVisitor,
              PrimitiveArrayConstantElementVisitor
 {
+    private static final int MINIMUM_ENCODED_ARRAY_LENGTH = 16;
+    private static final int MAXIMUM_STRING_UTF8_LENGTH   = 65535;
+
+    private static final String METHOD_NAME_TO_CHAR_ARRAY       = "toCharArray";
+    private static final String METHOD_TYPE_TO_CHAR_ARRAY       = "()[C";
+    private static final String METHOD_NAME_CONCAT              = "concat";
+    private static final String METHOD_TYPE_CONCAT              = "(Ljava/lang/String;)Ljava/lang/String;";
+    private static final String METHOD_NAME_INT_BITS_TO_FLOAT   = "intBitsToFloat";
+    private static final String METHOD_TYPE_INT_BITS_TO_FLOAT   = "(I)F";
+    private static final String METHOD_NAME_LONG_BITS_TO_DOUBLE = "longBitsToDouble";
+    private static final String METHOD_TYPE_LONG_BITS_TO_DOUBLE = "(J)D";
+
+    // Labels in the code of the decoder methods.
+    private static final int LOOP_START = 0;
+    private static final int LOOP_TEST  = 1;
+    private static final int LOOP_END   = 2;
+    private static final int RETURN     = 3;
+
+    private final boolean encodeArrays;
+
     private final CodeAttributeEditor  codeAttributeEditor  = new CodeAttributeEditor();
     private final ConstantPoolShrinker constantPoolShrinker = new ConstantPoolShrinker();
+    private final MyElementEncoder     elementEncoder       = new MyElementEncoder();
 
     // Fields acting as parameters and return values.
 
     private boolean                        classModified;
     private InstructionSequenceBuilder builder;
+    private NameFactory                nameFactory;
+    private String[]                   decoderMethodNames;
+    private StringBuffer               encodedElements;
+
+
+    /**
+     * Creates a new PrimitiveArrayConstantReplacer that always expands
+     * the arrays into array store instructions.
+     */
+    public PrimitiveArrayConstantReplacer()
+    {
+        this(false);
+    }
+
+
+    /**
+     * Creates a new PrimitiveArrayConstantReplacer.
+     * @param encodeArrays specifies whether large arrays should be encoded
+     *                     in string constants, instead of being expanded into
+     *                     array store instructions.
+     */
+    public PrimitiveArrayConstantReplacer(boolean encodeArrays)
+    {
+        this.encodeArrays = encodeArrays;
+    }
 
 
     // Implementations for ClassVisitor.
@@ -66,10 +118,18 @@ implements   ClassVisitor,
         // Replace PrimitiveArray constants if the class has any.
         if (counter.getCount() > 0)
         {
-            classModified = false;
+            classModified      = false;
+            nameFactory        = null;
+            decoderMethodNames = null;
 
             programClass.methodsAccept(new AllAttributeVisitor(this));
 
+            // Add the decoder methods that the encoded arrays need.
+            if (decoderMethodNames != null)
+            {
+                addDecoderMethods(programClass);
+            }
+
             if (classModified)
             {
                 // Remove the now unused PrimitiveArray constants.
@@ -132,6 +192,40 @@ implements   ClassVisitor,
         // Start composing a new array initialization sequence.
         builder = new InstructionSequenceBuilder((ProgramClass) clazz);
 
+        // Should we encode the array in a string? We don't add decoder
+        // methods to interfaces.
+        if (encodeArrays &&
+            arrayLength >= MINIMUM_ENCODED_ARRAY_LENGTH &&
+            (primitiveType == ClassConstants.TYPE_CHAR ||
+             (clazz.getAccessFlags() & ClassConstants.ACC_INTERFACE) == 0))
+        {
+            // Encode the array elements.
+            encodedElements = new StringBuffer(arrayLength * encodedElementSize(primitiveType));
+
+            primitiveArrayConstant.primitiveArrayElementsAccept(clazz, elementEncoder);
+
+            // Push the string with the encoded elements.
+            pushString(encodedElements.toString());
+
+            encodedElements = null;
+
+            // Decode the string.
+            if (primitiveType == ClassConstants.TYPE_CHAR)
+            {
+                builder.invokevirtual(ClassConstants.NAME_JAVA_LANG_STRING,
+                                      METHOD_NAME_TO_CHAR_ARRAY,
+                                      METHOD_TYPE_TO_CHAR_ARRAY);
+            }
+            else
+            {
+                builder.invokestatic(clazz.getName(),
+                                     decoderMethodName(clazz, primitiveType),
+                                     decoderMethodType(primitiveType));
+            }
+
+            return;
+        }
+
         // Push the primitive array length.
         builder.pushInt(primitiveArrayConstant.getLength());
 
@@ -215,4 +309,418 @@ implements   ClassVisitor,
                .pushDouble(value)
                .dastore();
     }
+
+
+    // Small utility methods.
+
+    /**
+     * Appends instructions to push the given string, split into chunks that
+     * fit in constant pool entries, if necessary.
+     */
+    private void pushString(String string)
+    {
+        int chunkStart  = 0;
+        int chunkLength = 0;
+
+        for (int index = 0; index < string.length(); index++)
+        {
+            // Compute the length of the character in modified UTF-8.
+            char c = string.charAt(index);
+            int  utf8Length =
+                c == 0     ? 2 :
+                c <  0x80  ? 1 :
+                c <  0x800 ? 2 :
+                             3;
+
+            if (chunkLength + utf8Length > MAXIMUM_STRING_UTF8_LENGTH)
+            {
+                pushStringChunk(string.substring(chunkStart, index), chunkStart > 0);
+
+                chunkStart  = index;
+                chunkLength = 0;
+            }
+
+            chunkLength += utf8Length;
+        }
+
+        pushStringChunk(string.substring(chunkStart), chunkStart > 0);
+    }
+
+
+    /**
+     * Appends instructions to push the given string chunk, optionally
+     * concatenating it to the preceding chunk.
+     */
+    private void pushStringChunk(String chunk, boolean concatenate)
+    {
+        builder.ldc(chunk);
+
+        if (concatenate)
+        {
+            builder.invokevirtual(ClassConstants.NAME_JAVA_LANG_STRING,
+                                  METHOD_NAME_CONCAT,
+                                  METHOD_TYPE_CONCAT);
+        }
+    }
+
+
+    /**
+     * Returns the name of the decoder method for arrays of the given
+     * primitive type in the given class, creating a name if necessary.
+     * The methods themselves are added after all code has been processed.
+     */
+    private String decoderMethodName(Clazz clazz, char primitiveType)
+    {
+        if (decoderMethodNames == null)
+        {
+            nameFactory        = UniqueMemberNameFactory.newInjectedMemberNameFactory(clazz);
+            decoderMethodNames = new String[InstructionConstants.ARRAY_T_LONG -
+                                            InstructionConstants.ARRAY_T_BOOLEAN + 1];
+        }
+
+        int index = InstructionUtil.arrayTypeFromInternalType(primitiveType) -
+                    InstructionConstants.ARRAY_T_BOOLEAN;
+
+        String decoderMethodName = decoderMethodNames[index];
+        if (decoderMethodName == null)
+        {
+            decoderMethodName         = nameFactory.nextName();
+            decoderMethodNames[index] = decoderMethodName;
+        }
+
+        return decoderMethodName;
+    }
+
+
+    /**
+     * Returns the descriptor of the decoder method for arrays of the given
+     * primitive type.
+     */
+    private String decoderMethodType(char primitiveType)
+    {
+        return
+            ClassConstants.METHOD_ARGUMENTS_OPEN  +
+            ClassConstants.TYPE_JAVA_LANG_STRING  +
+            ClassConstants.METHOD_ARGUMENTS_CLOSE +
+            ClassConstants.TYPE_ARRAY             +
+            primitiveType;
+    }
+
+
+    /**
+     * Adds the decoder methods with the collected names to the given class.
+     */
+    private void addDecoderMethods(ProgramClass programClass)
+    {
+        SimplifiedClassEditor classEditor =
+            new SimplifiedClassEditor(programClass);
+
+        for (int index = 0; index < decoderMethodNames.length; index++)
+        {
+            String decoderMethodName = decoderMethodNames[index];
+            if (decoderMethodName != null)
+            {
+                char primitiveType =
+                    InstructionUtil.internalTypeFromArrayType((byte)(InstructionConstants.ARRAY_T_BOOLEAN + index));
+
+                addDecoderMethod(classEditor,
+                                 decoderMethodName,
+                                 primitiveType);
+            }
+        }
+
+        classEditor.finishEditing();
+    }
+
+
+    /**
+     * Adds a decoder method for arrays of the given primitive type, with
+     * the given name, to the edited class. The method has the following
+     * structure:
+     * <pre>
+     *     private static synthetic T[] name(String string)
+     *     {
+     *         char[] chars = string.toCharArray();
+     *         T[]    array = new T[chars.length / elementSize];
+     *         for (int index = 0; index < array.length; index++)
+     *         {
+     *             array[index] = (T)decode(chars, index * elementSize);
+     *         }
+     *         return array;
+     *     }
+     * </pre>
+     */
+    private void addDecoderMethod(SimplifiedClassEditor classEditor,
+                                  String                decoderMethodName,
+                                  char                  primitiveType)
+    {
+        int elementShift = encodedElementShift(primitiveType);
+
+        CompactCodeAttributeComposer composer =
+            classEditor.addMethod(ClassConstants.ACC_PRIVATE |
+                                  ClassConstants.ACC_STATIC  |
+                                  ClassConstants.ACC_SYNTHETIC,
+                                  decoderMethodName,
+                                  decoderMethodType(primitiveType),
+                                  RETURN + 1);
+
+        // Convert the string to a char array.
+        composer
+            .aload_0()
+            .invokevirtual(ClassConstants.NAME_JAVA_LANG_STRING,
+                           METHOD_NAME_TO_CHAR_ARRAY,
+                           METHOD_TYPE_TO_CHAR_ARRAY)
+            .astore_1();
+
+        // Create the primitive array.
+        composer
+            .aload_1()
+            .arraylength();
+
+        if (elementShift > 0)
+        {
+            composer
+                .iconst(elementShift)
+                .ishr();
+        }
+
+        composer
+            .newarray(InstructionUtil.arrayTypeFromInternalType(primitiveType))
+            .astore_2();
+
+        // Loop over the array elements.
+        composer
+            .iconst_0()
+            .istore_3()
+            .appendLabel(LOOP_START)
+            .iload_3()
+            .aload_2()
+            .arraylength()
+            .appendLabel(LOOP_TEST)
+            .ificmpge(RETURN - LOOP_TEST)
+            .aload_2()
+            .iload_3();
+
+        // Decode and store the array element.
+        switch (primitiveType)
+        {
+            case ClassConstants.TYPE_BOOLEAN:
+                loadEncodedChar(composer, 0, 0)
+                    .bastore();
+                break;
+
+            case ClassConstants.TYPE_BYTE:
+                loadEncodedChar(composer, 0, 0)
+                    .i2b()
+                    .bastore();
+                break;
+
+            case ClassConstants.TYPE_SHORT:
+                loadEncodedChar(composer, 0, 0)
+                    .i2s()
+                    .sastore();
+                break;
+
+            case ClassConstants.TYPE_INT:
+                loadEncodedInt(composer)
+                    .iastore();
+                break;
+
+            case ClassConstants.TYPE_FLOAT:
+                loadEncodedInt(composer)
+                    .invokestatic(ClassConstants.NAME_JAVA_LANG_FLOAT,
+                                  METHOD_NAME_INT_BITS_TO_FLOAT,
+                                  METHOD_TYPE_INT_BITS_TO_FLOAT)
+                    .fastore();
+                break;
+
+            case ClassConstants.TYPE_LONG:
+                loadEncodedLong(composer)
+                    .lastore();
+                break;
+
+            case ClassConstants.TYPE_DOUBLE:
+                loadEncodedLong(composer)
+                    .invokestatic(ClassConstants.NAME_JAVA_LANG_DOUBLE,
+                                  METHOD_NAME_LONG_BITS_TO_DOUBLE,
+                                  METHOD_TYPE_LONG_BITS_TO_DOUBLE)
+                    .dastore();
+                break;
+        }
+
+        // Continue with the next element.
+        composer
+            .iinc(3, 1)
+            .appendLabel(LOOP_END)
+            .goto_(LOOP_START - LOOP_END)
+            .appendLabel(RETURN)
+            .aload_2()
+            .areturn();
+    }
+
+
+    /**
+     * Appends instructions to load an int that is encoded in two chars.
+     */
+    private CompactCodeAttributeComposer loadEncodedInt(CompactCodeAttributeComposer composer)
+    {
+        loadEncodedChar(composer, 1, 0)
+            .bipush(16)
+            .ishl();
+
+        return loadEncodedChar(composer, 1, 1)
+            .ior();
+    }
+
+
+    /**
+     * Appends instructions to load a long that is encoded in four chars.
+     */
+    private CompactCodeAttributeComposer loadEncodedLong(CompactCodeAttributeComposer composer)
+    {
+        loadEncodedChar(composer, 2, 0)
+            .i2l();
+
+        for (int charIndex = 1; charIndex < 4; charIndex++)
+        {
+            composer.bipush(16)
+                    .lshl();
+
+            loadEncodedChar(composer, 2, charIndex)
+                .i2l()
+                .lor();
+        }
+
+        return composer;
+    }
+
+
+    /**
+     * Appends instructions to load the specified encoded char of the
+     * current array element: chars[(index << elementShift) + charIndex].
+     */
+    private CompactCodeAttributeComposer loadEncodedChar(CompactCodeAttributeComposer composer,
+                                                         int                          elementShift,
+                                                         int                          charIndex)
+    {
+        composer
+            .aload_1()
+            .iload_3();
+
+        if (elementShift > 0)
+        {
+            composer
+                .iconst(elementShift)
+                .ishl();
+        }
+
+        if (charIndex > 0)
+        {
+            composer
+                .iconst(charIndex)
+                .iadd();
+        }
+
+        return composer.caload();
+    }
+
+
+    /**
+     * Returns the number of chars in which an array element of the given
+     * primitive type is encoded.
+     */
+    private static int encodedElementSize(char primitiveType)
+    {
+        return 1 << encodedElementShift(primitiveType);
+    }
+
+
+    /**
+     * Returns the binary logarithm of the number of chars in which an array
+     * element of the given primitive type is encoded.
+     */
+    private static int encodedElementShift(char primitiveType)
+    {
+        switch (primitiveType)
+        {
+            case ClassConstants.TYPE_INT:
+            case ClassConstants.TYPE_FLOAT:  return 1;
+            case ClassConstants.TYPE_LONG:
+            case ClassConstants.TYPE_DOUBLE: return 2;
+            default:                         return 0;
+        }
+    }
+
+
+    /**
+     * This PrimitiveArrayConstantElementVisitor encodes the visited array
+     * elements as chars in the string buffer.
+     */
+    private class MyElementEncoder
+    implements    PrimitiveArrayConstantElementVisitor
+    {
+        public void visitBooleanArrayConstantElement(Clazz clazz, PrimitiveArrayConstant primitiveArrayConstant, int index, boolean value)
+        {
+            encodedElements.append(value ? (char)1 : (char)0);
+        }
+
+
+        public void visitByteArrayConstantElement(Clazz clazz, PrimitiveArrayConstant primitiveArrayConstant, int index, byte value)
+        {
+            // Avoid the 3-byte UTF-8 encoding of sign-extended values.
+            encodedElements.append((char)(value & 0xff));
+        }
+
+
+        public void visitCharArrayConstantElement(Clazz clazz, PrimitiveArrayConstant primitiveArrayConstant, int index, char value)
+        {
+            encodedElements.append(value);
+        }
+
+
+        public void visitShortArrayConstantElement(Clazz clazz, PrimitiveArrayConstant primitiveArrayConstant, int index, short value)
+        {
+            encodedElements.append((char)value);
+        }
+
+
+        public void visitIntArrayConstantElement(Clazz clazz, PrimitiveArrayConstant primitiveArrayConstant, int index, int value)
+        {
+            appendInt(value);
+        }
+
+
+        public void visitFloatArrayConstantElement(Clazz clazz, PrimitiveArrayConstant primitiveArrayConstant, int index, float value)
+        {
+            appendInt(Float.floatToRawIntBits(value));
+        }
+
+
+        public void visitLongArrayConstantElement(Clazz clazz, PrimitiveArrayConstant primitiveArrayConstant, int index, long value)
+        {
+            appendLong(value);
+        }
+
+
+        public void visitDoubleArrayConstantElement(Clazz clazz, PrimitiveArrayConstant primitiveArrayConstant, int index, double value)
+        {
+            appendLong(Double.doubleToRawLongBits(value));
+        }
+
+
+        // Small utility methods.
+
+        private void appendInt(int value)
+        {
+            encodedElements.append((char)(value >>> 16))
+                           .append((char) value);
+        }
+
+
+        private void appendLong(long value)
+        {
+            appendInt((int)(value >>> 32));
+            appendInt((int) value);
+        }
+    }
 }
@@ -74,8 +74,13 @@ implements   ClassVisitor,
     {
         clean(libraryClass);
 
-        libraryClass.fieldsAccept(this);
-        libraryClass.methodsAccept(this);
+        // Packed class members don't have any visitor info yet, so we
+        // don't need to unpack them.
+        if (libraryClass.packedMembers == null)
+        {
+            libraryClass.fieldsAccept(this);
+            libraryClass.methodsAccept(this);
+        }
     }
 
 
@@ -66,7 +66,7 @@ public class ClassNameFilter implements ClassVisitor
                            List         variableStringMatchers,
                            ClassVisitor classVisitor)
     {
-        this(new ListParser(new ClassNameParser(variableStringMatchers)).parse(regularExpression),
+        this(new CompiledListParser(new ClassNameParser(variableStringMatchers), variableStringMatchers).parse(regularExpression),
              classVisitor);
     }
 
@@ -99,7 +99,7 @@ public class ClassNameFilter implements ClassVisitor
                            List         variableStringMatchers,
                            ClassVisitor classVisitor)
     {
-        this(new ListParser(new ClassNameParser(variableStringMatchers)).parse(regularExpression),
+        this(new CompiledListParser(new ClassNameParser(variableStringMatchers), variableStringMatchers).parse(regularExpression),
              classVisitor);
     }
 
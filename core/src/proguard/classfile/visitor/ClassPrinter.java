@@ -185,6 +185,9 @@ implements   ClassVisitor,
             }
         }
 
+        // Make sure the fields and methods are present as objects.
+        libraryClass.unpackMembers();
+
         println("Fields (count = " + libraryClass.fields.length + "):");
         libraryClass.fieldsAccept(this);
 
@@ -67,7 +67,7 @@ public class MemberDescriptorFilter implements MemberVisitor
                                   List          variableStringMatchers,
                                   MemberVisitor memberVisitor)
     {
-        this(new ListParser(new ClassNameParser(variableStringMatchers)).parse(regularExpression),
+        this(new CompiledListParser(new ClassNameParser(variableStringMatchers), variableStringMatchers).parse(regularExpression),
              memberVisitor);
     }
 
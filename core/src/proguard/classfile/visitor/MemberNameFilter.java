@@ -67,7 +67,7 @@ public class MemberNameFilter implements MemberVisitor
                             List          variableStringMatchers,
                             MemberVisitor memberVisitor)
     {
-        this(new ListParser(new NameParser(variableStringMatchers)).parse(regularExpression),
+        this(new CompiledListParser(new NameParser(variableStringMatchers), variableStringMatchers).parse(regularExpression),
              memberVisitor);
     }
 
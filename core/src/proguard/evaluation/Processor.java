@@ -42,6 +42,7 @@ implements   InstructionVisitor
     private final InvocationUnit invocationUnit;
     private final boolean        alwaysCast;
 
+    private final InterningValueFactory     interningValueFactory;
     private final ConstantValueFactory      constantValueFactory;
     private final ClassConstantValueFactory classConstantValueFactory;
 
@@ -51,7 +52,9 @@ implements   InstructionVisitor
      * @param variables      the local variable frame.
      * @param stack          the local stack.
      * @param valueFactory   the value factory that will create all values
-     *                       during the evaluation.
+     *                       during the evaluation. If it is an
+     *                       InterningValueFactory, the processor also
+     *                       interns the results of its computations.
      * @param branchUnit     the class that can affect the program counter.
      * @param invocationUnit the class that can access other program members.
      * @param alwaysCast     a flag that specifies whether downcasts or casts
@@ -71,6 +74,10 @@ implements   InstructionVisitor
         this.invocationUnit = invocationUnit;
         this.alwaysCast     = alwaysCast;
 
+        interningValueFactory = valueFactory instanceof InterningValueFactory ?
+            (InterningValueFactory)valueFactory :
+            null;
+
         constantValueFactory      = new ConstantValueFactory(valueFactory);
         classConstantValueFactory = new ClassConstantValueFactory(valueFactory);
     }
@@ -235,61 +242,61 @@ implements   InstructionVisitor
                 break;
 
             case InstructionConstants.OP_IADD:
-                stack.push(stack.ipop().add(stack.ipop()));
+                stack.push(intern(stack.ipop().add(stack.ipop())));
                 break;
 
             case InstructionConstants.OP_LADD:
-                stack.push(stack.lpop().add(stack.lpop()));
+                stack.push(intern(stack.lpop().add(stack.lpop())));
                 break;
 
             case InstructionConstants.OP_FADD:
-                stack.push(stack.fpop().add(stack.fpop()));
+                stack.push(intern(stack.fpop().add(stack.fpop())));
                 break;
 
             case InstructionConstants.OP_DADD:
-                stack.push(stack.dpop().add(stack.dpop()));
+                stack.push(intern(stack.dpop().add(stack.dpop())));
                 break;
 
             case InstructionConstants.OP_ISUB:
-                stack.push(stack.ipop().subtractFrom(stack.ipop()));
+                stack.push(intern(stack.ipop().subtractFrom(stack.ipop())));
                 break;
 
             case InstructionConstants.OP_LSUB:
-                stack.push(stack.lpop().subtractFrom(stack.lpop()));
+                stack.push(intern(stack.lpop().subtractFrom(stack.lpop())));
                 break;
 
             case InstructionConstants.OP_FSUB:
-                stack.push(stack.fpop().subtractFrom(stack.fpop()));
+                stack.push(intern(stack.fpop().subtractFrom(stack.fpop())));
                 break;
 
             case InstructionConstants.OP_DSUB:
-                stack.push(stack.dpop().subtractFrom(stack.dpop()));
+                stack.push(intern(stack.dpop().subtractFrom(stack.dpop())));
                 break;
 
             case InstructionConstants.OP_IMUL:
-                stack.push(stack.ipop().multiply(stack.ipop()));
+                stack.push(intern(stack.ipop().multiply(stack.ipop())));
                 break;
 
             case InstructionConstants.OP_LMUL:
-                stack.push(stack.lpop().multiply(stack.lpop()));
+                stack.push(intern(stack.lpop().multiply(stack.lpop())));
                 break;
 
             case InstructionConstants.OP_FMUL:
-                stack.push(stack.fpop().multiply(stack.fpop()));
+                stack.push(intern(stack.fpop().multiply(stack.fpop())));
                 break;
 
             case InstructionConstants.OP_DMUL:
-                stack.push(stack.dpop().multiply(stack.dpop()));
+                stack.push(intern(stack.dpop().multiply(stack.dpop())));
                 break;
 
             case InstructionConstants.OP_IDIV:
                 try
                 {
-                    stack.push(stack.ipop().divideOf(stack.ipop()));
+                    stack.push(intern(stack.ipop().divideOf(stack.ipop())));
                 }
                 catch (ArithmeticException ex)
                 {
-                    stack.push(valueFactory.createIntegerValue());
+                    stack.push(intern(valueFactory.createIntegerValue()));
                     // TODO: Forward ArithmeticExceptions.
                     //stack.clear();
                     //stack.push(valueFactory.createReference(false));
@@ -300,11 +307,11 @@ implements   InstructionVisitor
             case InstructionConstants.OP_LDIV:
                 try
                 {
-                    stack.push(stack.lpop().divideOf(stack.lpop()));
+                    stack.push(intern(stack.lpop().divideOf(stack.lpop())));
                 }
                 catch (ArithmeticException ex)
                 {
-                    stack.push(valueFactory.createLongValue());
+                    stack.push(intern(valueFactory.createLongValue()));
                     // TODO: Forward ArithmeticExceptions.
                     //stack.clear();
                     //stack.push(valueFactory.createReference(false));
@@ -313,21 +320,21 @@ implements   InstructionVisitor
                 break;
 
             case InstructionConstants.OP_FDIV:
-                stack.push(stack.fpop().divideOf(stack.fpop()));
+                stack.push(intern(stack.fpop().divideOf(stack.fpop())));
                 break;
 
             case InstructionConstants.OP_DDIV:
-                stack.push(stack.dpop().divideOf(stack.dpop()));
+                stack.push(intern(stack.dpop().divideOf(stack.dpop())));
                 break;
 
             case InstructionConstants.OP_IREM:
                 try
                 {
-                    stack.push(stack.ipop().remainderOf(stack.ipop()));
+                    stack.push(intern(stack.ipop().remainderOf(stack.ipop())));
                 }
                 catch (ArithmeticException ex)
                 {
-                    stack.push(valueFactory.createIntegerValue());
+                    stack.push(intern(valueFactory.createIntegerValue()));
                     // TODO: Forward ArithmeticExceptions.
                     //stack.clear();
                     //stack.push(valueFactory.createReference(false));
@@ -338,11 +345,11 @@ implements   InstructionVisitor
             case InstructionConstants.OP_LREM:
                 try
                 {
-                    stack.push(stack.lpop().remainderOf(stack.lpop()));
+                    stack.push(intern(stack.lpop().remainderOf(stack.lpop())));
                 }
                 catch (ArithmeticException ex)
                 {
-                    stack.push(valueFactory.createLongValue());
+                    stack.push(intern(valueFactory.createLongValue()));
                     // TODO: Forward ArithmeticExceptions.
                     //stack.clear();
                     //stack.push(valueFactory.createReference(false));
@@ -351,135 +358,135 @@ implements   InstructionVisitor
                 break;
 
             case InstructionConstants.OP_FREM:
-                stack.push(stack.fpop().remainderOf(stack.fpop()));
+                stack.push(intern(stack.fpop().remainderOf(stack.fpop())));
                 break;
 
             case InstructionConstants.OP_DREM:
-                stack.push(stack.dpop().remainderOf(stack.dpop()));
+                stack.push(intern(stack.dpop().remainderOf(stack.dpop())));
                 break;
 
             case InstructionConstants.OP_INEG:
-                stack.push(stack.ipop().negate());
+                stack.push(intern(stack.ipop().negate()));
                 break;
 
             case InstructionConstants.OP_LNEG:
-                stack.push(stack.lpop().negate());
+                stack.push(intern(stack.lpop().negate()));
                 break;
 
             case InstructionConstants.OP_FNEG:
-                stack.push(stack.fpop().negate());
+                stack.push(intern(stack.fpop().negate()));
                 break;
 
             case InstructionConstants.OP_DNEG:
-                stack.push(stack.dpop().negate());
+                stack.push(intern(stack.dpop().negate()));
                 break;
 
             case InstructionConstants.OP_ISHL:
-                stack.push(stack.ipop().shiftLeftOf(stack.ipop()));
+                stack.push(intern(stack.ipop().shiftLeftOf(stack.ipop())));
                 break;
 
             case InstructionConstants.OP_LSHL:
-                stack.push(stack.ipop().shiftLeftOf(stack.lpop()));
+                stack.push(intern(stack.ipop().shiftLeftOf(stack.lpop())));
                 break;
 
             case InstructionConstants.OP_ISHR:
-                stack.push(stack.ipop().shiftRightOf(stack.ipop()));
+                stack.push(intern(stack.ipop().shiftRightOf(stack.ipop())));
                 break;
 
             case InstructionConstants.OP_LSHR:
-                stack.push(stack.ipop().shiftRightOf(stack.lpop()));
+                stack.push(intern(stack.ipop().shiftRightOf(stack.lpop())));
                 break;
 
             case InstructionConstants.OP_IUSHR:
-                stack.push(stack.ipop().unsignedShiftRightOf(stack.ipop()));
+                stack.push(intern(stack.ipop().unsignedShiftRightOf(stack.ipop())));
                 break;
 
             case InstructionConstants.OP_LUSHR:
-                stack.push(stack.ipop().unsignedShiftRightOf(stack.lpop()));
+                stack.push(intern(stack.ipop().unsignedShiftRightOf(stack.lpop())));
                 break;
 
             case InstructionConstants.OP_IAND:
-                stack.push(stack.ipop().and(stack.ipop()));
+                stack.push(intern(stack.ipop().and(stack.ipop())));
                 break;
 
             case InstructionConstants.OP_LAND:
-                stack.push(stack.lpop().and(stack.lpop()));
+                stack.push(intern(stack.lpop().and(stack.lpop())));
                 break;
 
             case InstructionConstants.OP_IOR:
-                stack.push(stack.ipop().or(stack.ipop()));
+                stack.push(intern(stack.ipop().or(stack.ipop())));
                 break;
 
             case InstructionConstants.OP_LOR:
-                stack.push(stack.lpop().or(stack.lpop()));
+                stack.push(intern(stack.lpop().or(stack.lpop())));
                 break;
 
             case InstructionConstants.OP_IXOR:
-                stack.push(stack.ipop().xor(stack.ipop()));
+                stack.push(intern(stack.ipop().xor(stack.ipop())));
                 break;
 
             case InstructionConstants.OP_LXOR:
-                stack.push(stack.lpop().xor(stack.lpop()));
+                stack.push(intern(stack.lpop().xor(stack.lpop())));
                 break;
 
             case InstructionConstants.OP_I2L:
-                stack.push(stack.ipop().convertToLong());
+                stack.push(intern(stack.ipop().convertToLong()));
                 break;
 
             case InstructionConstants.OP_I2F:
-                stack.push(stack.ipop().convertToFloat());
+                stack.push(intern(stack.ipop().convertToFloat()));
                 break;
 
             case InstructionConstants.OP_I2D:
-                stack.push(stack.ipop().convertToDouble());
+                stack.push(intern(stack.ipop().convertToDouble()));
                 break;
 
             case InstructionConstants.OP_L2I:
-                stack.push(stack.lpop().convertToInteger());
+                stack.push(intern(stack.lpop().convertToInteger()));
                 break;
 
             case InstructionConstants.OP_L2F:
-                stack.push(stack.lpop().convertToFloat());
+                stack.push(intern(stack.lpop().convertToFloat()));
                 break;
 
             case InstructionConstants.OP_L2D:
-                stack.push(stack.lpop().convertToDouble());
+                stack.push(intern(stack.lpop().convertToDouble()));
                 break;
 
             case InstructionConstants.OP_F2I:
-                stack.push(stack.fpop().convertToInteger());
+                stack.push(intern(stack.fpop().convertToInteger()));
                 break;
 
             case InstructionConstants.OP_F2L:
-                stack.push(stack.fpop().convertToLong());
+                stack.push(intern(stack.fpop().convertToLong()));
                 break;
 
             case InstructionConstants.OP_F2D:
-                stack.push(stack.fpop().convertToDouble());
+                stack.push(intern(stack.fpop().convertToDouble()));
                 break;
 
             case InstructionConstants.OP_D2I:
-                stack.push(stack.dpop().convertToInteger());
+                stack.push(intern(stack.dpop().convertToInteger()));
                 break;
 
             case InstructionConstants.OP_D2L:
-                stack.push(stack.dpop().convertToLong());
+                stack.push(intern(stack.dpop().convertToLong()));
                 break;
 
             case InstructionConstants.OP_D2F:
-                stack.push(stack.dpop().convertToFloat());
+                stack.push(intern(stack.dpop().convertToFloat()));
                 break;
 
             case InstructionConstants.OP_I2B:
-                stack.push(stack.ipop().convertToByte());
+                stack.push(intern(stack.ipop().convertToByte()));
                 break;
 
             case InstructionConstants.OP_I2C:
-                stack.push(stack.ipop().convertToCharacter());
+                stack.push(intern(stack.ipop().convertToCharacter()));
                 break;
 
             case InstructionConstants.OP_I2S:
-                stack.push(stack.ipop().convertToShort());
+                stack.push(intern(stack.ipop().convertToShort()));
                 break;
 
             case InstructionConstants.OP_LCMP:
@@ -487,27 +494,27 @@ implements   InstructionVisitor
 
                 LongValue longValue1 = stack.lpop();
                 LongValue longValue2 = stack.lpop();
-                stack.push(longValue2.compare(longValue1));
+                stack.push(intern(longValue2.compare(longValue1)));
                 break;
 
             case InstructionConstants.OP_FCMPL:
                 FloatValue floatValue1 = stack.fpop();
                 FloatValue floatValue2 = stack.fpop();
-                stack.push(floatValue2.compare(floatValue1));
+                stack.push(intern(floatValue2.compare(floatValue1)));
                 break;
 
             case InstructionConstants.OP_FCMPG:
-                stack.push(stack.fpop().compareReverse(stack.fpop()));
+                stack.push(intern(stack.fpop().compareReverse(stack.fpop())));
                 break;
 
             case InstructionConstants.OP_DCMPL:
                 DoubleValue doubleValue1 = stack.dpop();
                 DoubleValue doubleValue2 = stack.dpop();
-                stack.push(doubleValue2.compare(doubleValue1));
+                stack.push(intern(doubleValue2.compare(doubleValue1)));
                 break;
 
             case InstructionConstants.OP_DCMPG:
-                stack.push(stack.dpop().compareReverse(stack.dpop()));
+                stack.push(intern(stack.dpop().compareReverse(stack.dpop())));
                 break;
 
             case InstructionConstants.OP_IRETURN:
@@ -744,8 +751,8 @@ implements   InstructionVisitor
 
             case InstructionConstants.OP_IINC:
                 variables.store(variableIndex,
-                                variables.iload(variableIndex).add(
-                                valueFactory.createIntegerValue(variableInstruction.constant)));
+                                intern(variables.iload(variableIndex).add(
+                                valueFactory.createIntegerValue(variableInstruction.constant))));
                 break;
 
             case InstructionConstants.OP_RET:
@@ -930,4 +937,18 @@ implements   InstructionVisitor
                                            conditional);
         }
     }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the interned version of the given computed value, if the
+     * value factory supports interning.
+     */
+    private Value intern(Value value)
+    {
+        return interningValueFactory != null ?
+            interningValueFactory.intern(value) :
+            value;
+    }
 }
@@ -143,7 +143,8 @@ public class Stack
                     newValue = thisValue.generalize(otherValue);
                 }
 
-                changed = changed || !thisValue.equals(newValue);
+                changed = changed ||
+                    thisValue != newValue && !thisValue.equals(newValue);
 
                 values[index] = newValue;
             }
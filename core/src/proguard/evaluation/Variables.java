@@ -135,7 +135,8 @@ public class Variables
             {
                 Value newValue = thisValue.generalize(otherValue);
 
-                changed = changed || !thisValue.equals(newValue);
+                changed = changed ||
+                    thisValue != newValue && !thisValue.equals(newValue);
 
                 this.values[index] = newValue;
             }
@@ -0,0 +1,217 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.evaluation.value;
+
+import proguard.classfile.Clazz;
+
+import java.util.*;
+
+/**
+ * This ValueFactory hash-conses the primitive values that another value
+ * factory creates: equal particular and symbolic values (like composite,
+ * negated, and converted values) are represented by a single shared
+ * instance. The evaluation can intern the results of its computations
+ * with {@link #intern(Value)}, so equal values in variables and on stacks
+ * generally are identical, and comparing or generalizing them doesn't need
+ * to walk their expression trees.
+ * <p>
+ * Reference values are mutable in some implementations, so this factory
+ * doesn't intern them.
+ * <p>
+ * The table of interned values should be cleared with {@link #reset()} for
+ * every evaluated method, so it doesn't keep growing. Instances are not
+ * thread-safe.
+ *
+ * @author Eric Lafortune
+ */
+public class InterningValueFactory
+implements   ValueFactory
+{
+    private final ValueFactory valueFactory;
+
+    private final Map internedValues = new HashMap();
+
+
+    /**
+     * Creates a new InterningValueFactory.
+     * @param valueFactory the value factory that creates the actual values.
+     */
+    public InterningValueFactory(ValueFactory valueFactory)
+    {
+        this.valueFactory = valueFactory;
+    }
+
+
+    /**
+     * Clears the table of interned values.
+     */
+    public void reset()
+    {
+        internedValues.clear();
+    }
+
+
+    /**
+     * Returns the shared instance that is equal to the given value, if the
+     * value is a particular or symbolic primitive value. Returns the given
+     * value itself otherwise, or if it is the first of its kind.
+     */
+    public Value intern(Value value)
+    {
+        if (!isInternable(value))
+        {
+            return value;
+        }
+
+        Value internedValue = (Value)internedValues.get(value);
+        if (internedValue == null)
+        {
+            internedValues.put(value, value);
+
+            internedValue = value;
+        }
+
+        return internedValue;
+    }
+
+
+    // Implementations for ValueFactory.
+
+    public Value createValue(String  type,
+                             Clazz   referencedClass,
+                             boolean mayBeExtension,
+                             boolean mayBeNull)
+    {
+        return intern(valueFactory.createValue(type,
+                                               referencedClass,
+                                               mayBeExtension,
+                                               mayBeNull));
+    }
+
+
+    public IntegerValue createIntegerValue()
+    {
+        return (IntegerValue)intern(valueFactory.createIntegerValue());
+    }
+
+
+    public IntegerValue createIntegerValue(int value)
+    {
+        return (IntegerValue)intern(valueFactory.createIntegerValue(value));
+    }
+
+
+    public LongValue createLongValue()
+    {
+        return (LongValue)intern(valueFactory.createLongValue());
+    }
+
+
+    public LongValue createLongValue(long value)
+    {
+        return (LongValue)intern(valueFactory.createLongValue(value));
+    }
+
+
+    public FloatValue createFloatValue()
+    {
+        return (FloatValue)intern(valueFactory.createFloatValue());
+    }
+
+
+    public FloatValue createFloatValue(float value)
+    {
+        return (FloatValue)intern(valueFactory.createFloatValue(value));
+    }
+
+
+    public DoubleValue createDoubleValue()
+    {
+        return (DoubleValue)intern(valueFactory.createDoubleValue());
+    }
+
+
+    public DoubleValue createDoubleValue(double value)
+    {
+        return (DoubleValue)intern(valueFactory.createDoubleValue(value));
+    }
+
+
+    public ReferenceValue createReferenceValue()
+    {
+        return valueFactory.createReferenceValue();
+    }
+
+
+    public ReferenceValue createReferenceValueNull()
+    {
+        return valueFactory.createReferenceValueNull();
+    }
+
+
+    public ReferenceValue createReferenceValue(String  type,
+                                               Clazz   referencedClass,
+                                               boolean mayBeExtension,
+                                               boolean mayBeNull)
+    {
+        return valueFactory.createReferenceValue(type,
+                                                 referencedClass,
+                                                 mayBeExtension,
+                                                 mayBeNull);
+    }
+
+
+    public ReferenceValue createArrayReferenceValue(String       type,
+                                                    Clazz        referencedClass,
+                                                    IntegerValue arrayLength)
+    {
+        return valueFactory.createArrayReferenceValue(type,
+                                                      referencedClass,
+                                                      arrayLength);
+    }
+
+
+    public ReferenceValue createArrayReferenceValue(String       type,
+                                                    Clazz        referencedClass,
+                                                    IntegerValue arrayLength,
+                                                    Value        elementValue)
+    {
+        return valueFactory.createArrayReferenceValue(type,
+                                                      referencedClass,
+                                                      arrayLength,
+                                                      elementValue);
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns whether the given value is an immutable particular or
+     * symbolic primitive value. The unknown values are singletons already.
+     */
+    private boolean isInternable(Value value)
+    {
+        return value instanceof SpecificIntegerValue ||
+               value instanceof SpecificLongValue    ||
+               value instanceof SpecificFloatValue   ||
+               value instanceof SpecificDoubleValue;
+    }
+}
@@ -201,7 +201,8 @@ final class ParticularDoubleValue extends SpecificDoubleValue
     public boolean equals(Object object)
     {
        // Also handle NaN and Infinity.
-       return super.equals(object) &&
+       return this == object ||
+              super.equals(object) &&
               Double.doubleToLongBits(this.value) ==
               Double.doubleToLongBits(((ParticularDoubleValue)object).value);
     }
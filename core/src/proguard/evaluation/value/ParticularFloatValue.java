@@ -201,7 +201,8 @@ final class ParticularFloatValue extends SpecificFloatValue
     public boolean equals(Object object)
     {
         // Also handle NaN and Infinity.
-        return super.equals(object) &&
+        return this == object ||
+               super.equals(object) &&
                Float.floatToIntBits(this.value) ==
                Float.floatToIntBits(((ParticularFloatValue)object).value);
     }
@@ -364,7 +364,8 @@ final class ParticularIntegerValue extends SpecificIntegerValue
 
     public boolean equals(Object object)
     {
-        return super.equals(object) &&
+        return this == object ||
+               super.equals(object) &&
                this.value == ((ParticularIntegerValue)object).value;
     }
 
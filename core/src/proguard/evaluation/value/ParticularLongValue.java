@@ -252,7 +252,8 @@ final class ParticularLongValue extends SpecificLongValue
 
     public boolean equals(Object object)
     {
-        return super.equals(object) &&
+        return this == object ||
+               super.equals(object) &&
                this.value == ((ParticularLongValue)object).value;
     }
 
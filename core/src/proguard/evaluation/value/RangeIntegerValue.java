@@ -0,0 +1,339 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.evaluation.value;
+
+/**
+ * This IntegerValue represents a known range of integer values, from a
+ * minimum value up to and including a maximum value. It only keeps track of
+ * the range for comparisons and generalizations. Any computations yield
+ * unknown values.
+ *
+ * @author Eric Lafortune
+ */
+public class RangeIntegerValue extends IntegerValue
+{
+    private final int min;
+    private final int max;
+
+
+    /**
+     * Creates a new range integer value.
+     * @param min the minimum value of the range.
+     * @param max the maximum value of the range, included.
+     */
+    public RangeIntegerValue(int min, int max)
+    {
+        this.min = min;
+        this.max = max;
+    }
+
+
+    /**
+     * Returns the minimum value of the range.
+     */
+    public int min()
+    {
+        return min;
+    }
+
+
+    /**
+     * Returns the maximum value of the range, included.
+     */
+    public int max()
+    {
+        return max;
+    }
+
+
+    // Basic unary methods.
+
+    public IntegerValue negate()
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue convertToByte()
+    {
+        return min >= Byte.MIN_VALUE &&
+               max <= Byte.MAX_VALUE ?
+            this :
+            BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue convertToCharacter()
+    {
+        return min >= Character.MIN_VALUE &&
+               max <= Character.MAX_VALUE ?
+            this :
+            BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue convertToShort()
+    {
+        return min >= Short.MIN_VALUE &&
+               max <= Short.MAX_VALUE ?
+            this :
+            BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public LongValue convertToLong()
+    {
+        return BasicValueFactory.LONG_VALUE;
+    }
+
+    public FloatValue convertToFloat()
+    {
+        return BasicValueFactory.FLOAT_VALUE;
+    }
+
+    public DoubleValue convertToDouble()
+    {
+        return BasicValueFactory.DOUBLE_VALUE;
+    }
+
+
+    // Basic binary methods.
+
+    public IntegerValue generalize(IntegerValue other)
+    {
+        if (other.isParticular())
+        {
+            int value = other.value();
+
+            return value >= min &&
+                   value <= max ?
+                this :
+                new RangeIntegerValue(Math.min(min, value),
+                                      Math.max(max, value));
+        }
+
+        if (other instanceof RangeIntegerValue)
+        {
+            RangeIntegerValue otherRange = (RangeIntegerValue)other;
+
+            return otherRange.min >= min &&
+                   otherRange.max <= max ?
+                this :
+                new RangeIntegerValue(Math.min(min, otherRange.min),
+                                      Math.max(max, otherRange.max));
+        }
+
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+
+    public IntegerValue add(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue subtract(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue subtractFrom(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue multiply(IntegerValue other)
+    throws ArithmeticException
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue divide(IntegerValue other)
+    throws ArithmeticException
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue divideOf(IntegerValue other)
+    throws ArithmeticException
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue remainder(IntegerValue other)
+    throws ArithmeticException
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue remainderOf(IntegerValue other)
+    throws ArithmeticException
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue shiftLeft(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue shiftLeftOf(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue shiftRight(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue shiftRightOf(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue unsignedShiftRight(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue unsignedShiftRightOf(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public LongValue shiftLeftOf(LongValue other)
+    {
+        return BasicValueFactory.LONG_VALUE;
+    }
+
+    public LongValue shiftRightOf(LongValue other)
+    {
+        return BasicValueFactory.LONG_VALUE;
+    }
+
+    public LongValue unsignedShiftRightOf(LongValue other)
+    {
+        return BasicValueFactory.LONG_VALUE;
+    }
+
+    public IntegerValue and(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue or(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+    public IntegerValue xor(IntegerValue other)
+    {
+        return BasicValueFactory.INTEGER_VALUE;
+    }
+
+
+    public int equal(IntegerValue other)
+    {
+        if (other.isParticular())
+        {
+            int value = other.value();
+
+            return value < min || value > max ? NEVER : MAYBE;
+        }
+
+        if (other instanceof RangeIntegerValue)
+        {
+            RangeIntegerValue otherRange = (RangeIntegerValue)other;
+
+            return otherRange.max < min || otherRange.min > max ? NEVER : MAYBE;
+        }
+
+        return MAYBE;
+    }
+
+    public int lessThan(IntegerValue other)
+    {
+        if (other.isParticular())
+        {
+            int value = other.value();
+
+            return max <  value ? ALWAYS :
+                   min >= value ? NEVER  :
+                                  MAYBE;
+        }
+
+        if (other instanceof RangeIntegerValue)
+        {
+            RangeIntegerValue otherRange = (RangeIntegerValue)other;
+
+            return max <  otherRange.min ? ALWAYS :
+                   min >= otherRange.max ? NEVER  :
+                                           MAYBE;
+        }
+
+        return MAYBE;
+    }
+
+    public int lessThanOrEqual(IntegerValue other)
+    {
+        if (other.isParticular())
+        {
+            int value = other.value();
+
+            return max <= value ? ALWAYS :
+                   min >  value ? NEVER  :
+                                  MAYBE;
+        }
+
+        if (other instanceof RangeIntegerValue)
+        {
+            RangeIntegerValue otherRange = (RangeIntegerValue)other;
+
+            return max <= otherRange.min ? ALWAYS :
+                   min >  otherRange.max ? NEVER  :
+                                           MAYBE;
+        }
+
+        return MAYBE;
+    }
+
+
+    // Implementations for Object.
+
+    public boolean equals(Object object)
+    {
+        return object != null &&
+               this.getClass() == object.getClass() &&
+               this.min == ((RangeIntegerValue)object).min &&
+               this.max == ((RangeIntegerValue)object).max;
+    }
+
+
+    public int hashCode()
+    {
+        return this.getClass().hashCode() ^
+               min                        ^
+               (max << 16);
+    }
+
+
+    public String toString()
+    {
+        return "i:" + min + ".." + max;
+    }
+}
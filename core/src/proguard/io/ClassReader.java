@@ -26,6 +26,7 @@ import proguard.classfile.util.*;
 import proguard.classfile.visitor.ClassVisitor;
 
 import java.io.*;
+import java.util.*;
 
 /**
  * This DataEntryReader applies a given ClassVisitor to the class
@@ -35,7 +36,13 @@ import java.io.*;
  * depending on the <code>isLibrary</code> flag.
  * <p>
  * In case of libraries, only public classes are considered, if the
- * <code>skipNonPublicLibraryClasses</code> flag is set.
+ * <code>skipNonPublicLibraryClasses</code> flag is set. Their fields and
+ * methods are packed, sharing their strings between all classes that the
+ * reader reads.
+ * <p>
+ * In case of program classes, the StackMapTable attributes of classes with
+ * version 1.6 or higher are left undecoded, if the
+ * <code>ignoreStackMapTableAttributes</code> flag is set.
  *
  * @author Eric Lafortune
  */
@@ -44,9 +51,12 @@ public class ClassReader implements DataEntryReader
     private final boolean        isLibrary;
     private final boolean        skipNonPublicLibraryClasses;
     private final boolean        skipNonPublicLibraryClassMembers;
+    private final boolean        ignoreStackMapTableAttributes;
     private final WarningPrinter warningPrinter;
     private final ClassVisitor   classVisitor;
 
+    private final Map sharedStrings = new HashMap();
+
 
     /**
      * Creates a new DataEntryClassFilter for reading the specified
@@ -57,10 +67,32 @@ public class ClassReader implements DataEntryReader
                        boolean        skipNonPublicLibraryClassMembers,
                        WarningPrinter warningPrinter,
                        ClassVisitor   classVisitor)
+    {
+        this(isLibrary,
+             skipNonPublicLibraryClasses,
+             skipNonPublicLibraryClassMembers,
+             false,
+             warningPrinter,
+             classVisitor);
+    }
+
+
+    /**
+     * Creates a new DataEntryClassFilter for reading the specified
+     * Clazz objects, optionally without decoding the StackMapTable
+     * attributes of program classes.
+     */
+    public ClassReader(boolean        isLibrary,
+                       boolean        skipNonPublicLibraryClasses,
+                       boolean        skipNonPublicLibraryClassMembers,
+                       boolean        ignoreStackMapTableAttributes,
+                       WarningPrinter warningPrinter,
+                       ClassVisitor   classVisitor)
     {
         this.isLibrary                        = isLibrary;
         this.skipNonPublicLibraryClasses      = skipNonPublicLibraryClasses;
         this.skipNonPublicLibraryClassMembers = skipNonPublicLibraryClassMembers;
+        this.ignoreStackMapTableAttributes    = ignoreStackMapTableAttributes;
         this.warningPrinter                   = warningPrinter;
         this.classVisitor                     = classVisitor;
     }
@@ -83,12 +115,12 @@ public class ClassReader implements DataEntryReader
             if (isLibrary)
             {
                 clazz = new LibraryClass();
-                clazz.accept(new LibraryClassReader(dataInputStream, skipNonPublicLibraryClasses, skipNonPublicLibraryClassMembers));
+                clazz.accept(new LibraryClassReader(dataInputStream, skipNonPublicLibraryClasses, skipNonPublicLibraryClassMembers, sharedStrings));
             }
             else
             {
                 clazz = new ProgramClass();
-                clazz.accept(new ProgramClassReader(dataInputStream));
+                clazz.accept(new ProgramClassReader(dataInputStream, ignoreStackMapTableAttributes));
             }
 
             // Apply the visitor, if we have a real class.
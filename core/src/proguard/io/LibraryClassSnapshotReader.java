@@ -0,0 +1,243 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import proguard.classfile.*;
+import proguard.classfile.visitor.ClassVisitor;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class reads library classes from a binary snapshot file, as written
+ * by a LibraryClassSnapshotWriter. It maps the file into memory and
+ * validates it completely, before creating any classes. Identical strings
+ * are created only once, so the classes share them. The classes keep their
+ * fields and methods in packed form, referring to the shared string table.
+ *
+ * @see LibraryClassSnapshotWriter
+ * @author Eric Lafortune
+ */
+public class LibraryClassSnapshotReader
+{
+    private static final LibraryField[]  EMPTY_LIBRARY_FIELDS  = new LibraryField[0];
+    private static final LibraryMethod[] EMPTY_LIBRARY_METHODS = new LibraryMethod[0];
+    private static final String[]        EMPTY_STRINGS         = new String[0];
+
+
+    private final LibraryClass[] libraryClasses;
+
+
+    /**
+     * Creates a new LibraryClassSnapshotReader that reads the library
+     * classes from the given file.
+     * @throws IOException if the file can't be read or if it doesn't
+     *                     contain a valid snapshot.
+     */
+    public LibraryClassSnapshotReader(File file) throws IOException
+    {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            FileChannel channel = randomAccessFile.getChannel();
+
+            libraryClasses =
+                readClasses(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+        }
+        catch (RuntimeException e)
+        {
+            // The file is inconsistent, for instance truncated.
+            throw (IOException)new IOException("Invalid library snapshot ["+file.getName()+"] ("+e.toString()+")").initCause(e);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+
+
+    /**
+     * Applies the given ClassVisitor to all library classes in the snapshot,
+     * in their original order.
+     */
+    public void classesAccept(ClassVisitor classVisitor)
+    {
+        for (int index = 0; index < libraryClasses.length; index++)
+        {
+            libraryClasses[index].accept(classVisitor);
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Reads all library classes from the given buffer.
+     */
+    private LibraryClass[] readClasses(ByteBuffer buffer) throws IOException
+    {
+        IntBuffer ints = buffer.asIntBuffer();
+
+        // Check the header.
+        if (ints.remaining() < LibraryClassSnapshotWriter.HEADER_SIZE ||
+            ints.get(0) != LibraryClassSnapshotWriter.MAGIC ||
+            ints.get(1) != LibraryClassSnapshotWriter.VERSION)
+        {
+            throw new IOException("Unsupported library snapshot format");
+        }
+
+        int stringCount    = ints.get(2);
+        int classCount     = ints.get(3);
+        int interfaceCount = ints.get(4);
+        int memberCount    = ints.get(5);
+        int charCount      = ints.get(6);
+
+        // Compute the offsets of the sections, in ints.
+        int classesOffset       = LibraryClassSnapshotWriter.HEADER_SIZE;
+        int interfacesOffset    = classesOffset    + classCount  * LibraryClassSnapshotWriter.CLASS_RECORD_SIZE;
+        int membersOffset       = interfacesOffset + interfaceCount;
+        int stringOffsetsOffset = membersOffset    + memberCount * LibraryClassSnapshotWriter.MEMBER_RECORD_SIZE;
+        int stringTableOffset   = stringOffsetsOffset + stringCount + 1;
+
+        if (buffer.limit() != stringTableOffset * 4 + charCount * 2)
+        {
+            throw new IOException("Inconsistent library snapshot size");
+        }
+
+        // Create a view on the string table. We're casting to Buffer, since
+        // Java 9 and higher have covariant overrides that Java 8 lacks.
+        ((Buffer)buffer).position(stringTableOffset * 4);
+        CharBuffer chars = buffer.slice().asCharBuffer();
+
+        String[] strings = new String[stringCount];
+
+        // Create the library classes.
+        LibraryClass[] libraryClasses = new LibraryClass[classCount];
+
+        for (int classIndex = 0; classIndex < classCount; classIndex++)
+        {
+            int recordOffset = classesOffset + classIndex * LibraryClassSnapshotWriter.CLASS_RECORD_SIZE;
+
+            int accessFlags         = ints.get(recordOffset);
+            int nameIndex           = ints.get(recordOffset + 1);
+            int superNameIndex      = ints.get(recordOffset + 2);
+            int interfaceIndex      = ints.get(recordOffset + 3);
+            int classInterfaceCount = ints.get(recordOffset + 4);
+            int memberIndex         = ints.get(recordOffset + 5);
+            int fieldCount          = ints.get(recordOffset + 6);
+            int methodCount         = ints.get(recordOffset + 7);
+
+            LibraryClass libraryClass = new LibraryClass();
+
+            libraryClass.u2accessFlags  = accessFlags;
+            libraryClass.thisClassName  = string(ints, chars, strings, stringOffsetsOffset, nameIndex);
+            libraryClass.superClassName = string(ints, chars, strings, stringOffsetsOffset, superNameIndex);
+
+            // Create the interface names.
+            String[] interfaceNames = classInterfaceCount == 0 ?
+                EMPTY_STRINGS :
+                new String[classInterfaceCount];
+
+            for (int index = 0; index < classInterfaceCount; index++)
+            {
+                interfaceNames[index] =
+                    string(ints, chars, strings, stringOffsetsOffset,
+                           ints.get(interfacesOffset + interfaceIndex + index));
+            }
+
+            libraryClass.interfaceNames = interfaceNames;
+
+            // Create the packed members, referring to the shared string
+            // table.
+            int classMemberCount = fieldCount + methodCount;
+            if (classMemberCount == 0)
+            {
+                libraryClass.fields  = EMPTY_LIBRARY_FIELDS;
+                libraryClass.methods = EMPTY_LIBRARY_METHODS;
+            }
+            else
+            {
+                int[] packedMembers = new int[1 + classMemberCount * LibraryClassSnapshotWriter.MEMBER_RECORD_SIZE];
+
+                packedMembers[0] = fieldCount;
+
+                for (int index = 0; index < classMemberCount; index++)
+                {
+                    int memberOffset = membersOffset + (memberIndex + index) * LibraryClassSnapshotWriter.MEMBER_RECORD_SIZE;
+                    int memberNameIndex       = ints.get(memberOffset + 1);
+                    int memberDescriptorIndex = ints.get(memberOffset + 2);
+
+                    // Make sure the strings exist.
+                    string(ints, chars, strings, stringOffsetsOffset, memberNameIndex);
+                    string(ints, chars, strings, stringOffsetsOffset, memberDescriptorIndex);
+
+                    int packedOffset = 1 + index * 3;
+
+                    packedMembers[packedOffset]     = ints.get(memberOffset);
+                    packedMembers[packedOffset + 1] = memberNameIndex;
+                    packedMembers[packedOffset + 2] = memberDescriptorIndex;
+                }
+
+                libraryClass.packedMemberStrings = strings;
+                libraryClass.packedMembers       = packedMembers;
+            }
+
+            libraryClasses[classIndex] = libraryClass;
+        }
+
+        return libraryClasses;
+    }
+
+
+    /**
+     * Returns the string with the given index, or null if the index is -1,
+     * creating the string only once.
+     */
+    private String string(IntBuffer  ints,
+                          CharBuffer chars,
+                          String[]   strings,
+                          int        stringOffsetsOffset,
+                          int        stringIndex)
+    {
+        if (stringIndex < 0)
+        {
+            return null;
+        }
+
+        String string = strings[stringIndex];
+        if (string == null)
+        {
+            int start = ints.get(stringOffsetsOffset + stringIndex);
+            int end   = ints.get(stringOffsetsOffset + stringIndex + 1);
+
+            char[] stringChars = new char[end - start];
+            ((Buffer)chars).position(start);
+            chars.get(stringChars);
+
+            string = new String(stringChars);
+
+            strings[stringIndex] = string;
+        }
+
+        return string;
+    }
+}
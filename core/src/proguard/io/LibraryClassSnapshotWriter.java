@@ -0,0 +1,372 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import proguard.classfile.*;
+import proguard.classfile.visitor.ClassVisitor;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This ClassVisitor collects the library classes that it visits, so they
+ * can be written to a compact binary snapshot file. The file contains a
+ * shared string table and fixed-width records, so it can be read back
+ * efficiently through memory mapping.
+ * <p>
+ * The file has the following layout, with all numbers as big-endian ints:
+ * <ul>
+ * <li>The header: the magic number, the format version, the number of
+ *     strings, classes, interface names, and members, and the number of
+ *     chars in the string table.</li>
+ * <li>The class records: the access flags, the indices of the class name and
+ *     of the super class name (or -1), the index and count of its interface
+ *     names, and the index of its members, followed by its field count and
+ *     its method count.</li>
+ * <li>The interface names: the string indices.</li>
+ * <li>The member records: the access flags and the indices of the name and
+ *     of the descriptor.</li>
+ * <li>The string offsets: the char offsets of the strings in the string
+ *     table, with a final offset for its end.</li>
+ * <li>The string table: the chars of all strings, as UTF-16.</li>
+ * </ul>
+ *
+ * @see LibraryClassSnapshotReader
+ * @author Eric Lafortune
+ */
+public class LibraryClassSnapshotWriter
+implements   ClassVisitor
+{
+    static final int MAGIC   = 0x50474c43;
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE        = 7;
+    static final int CLASS_RECORD_SIZE  = 8;
+    static final int MEMBER_RECORD_SIZE = 3;
+
+
+    private final List libraryClasses = new ArrayList();
+
+
+    /**
+     * Writes the collected library classes to the given file.
+     */
+    public void write(File file) throws IOException
+    {
+        // Collect the strings and count the records.
+        Map  stringIndices  = new HashMap();
+        List strings        = new ArrayList();
+        int  interfaceCount = 0;
+        int  memberCount    = 0;
+        int  charCount      = 0;
+
+        for (int classIndex = 0; classIndex < libraryClasses.size(); classIndex++)
+        {
+            LibraryClass libraryClass = (LibraryClass)libraryClasses.get(classIndex);
+
+            charCount += addString(stringIndices, strings, libraryClass.thisClassName);
+            charCount += addString(stringIndices, strings, libraryClass.superClassName);
+
+            String[] interfaceNames = libraryClass.interfaceNames;
+            if (interfaceNames != null)
+            {
+                for (int index = 0; index < interfaceNames.length; index++)
+                {
+                    charCount += addString(stringIndices, strings, interfaceNames[index]);
+                }
+
+                interfaceCount += interfaceNames.length;
+            }
+
+            charCount += addMemberStrings(stringIndices, strings, libraryClass);
+
+            memberCount += fieldCount(libraryClass) +
+                           methodCount(libraryClass);
+        }
+
+        DataOutputStream output =
+            new DataOutputStream(
+            new BufferedOutputStream(
+            new FileOutputStream(file)));
+
+        try
+        {
+            // Write the header.
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(strings.size());
+            output.writeInt(libraryClasses.size());
+            output.writeInt(interfaceCount);
+            output.writeInt(memberCount);
+            output.writeInt(charCount);
+
+            // Write the class records.
+            int interfaceIndex = 0;
+            int memberIndex    = 0;
+
+            for (int classIndex = 0; classIndex < libraryClasses.size(); classIndex++)
+            {
+                LibraryClass libraryClass = (LibraryClass)libraryClasses.get(classIndex);
+
+                int classInterfaceCount = libraryClass.interfaceNames == null ? 0 :
+                    libraryClass.interfaceNames.length;
+                int fieldCount  = fieldCount(libraryClass);
+                int methodCount = methodCount(libraryClass);
+
+                output.writeInt(libraryClass.u2accessFlags);
+                output.writeInt(stringIndex(stringIndices, libraryClass.thisClassName));
+                output.writeInt(stringIndex(stringIndices, libraryClass.superClassName));
+                output.writeInt(interfaceIndex);
+                output.writeInt(classInterfaceCount);
+                output.writeInt(memberIndex);
+                output.writeInt(fieldCount);
+                output.writeInt(methodCount);
+
+                interfaceIndex += classInterfaceCount;
+                memberIndex    += fieldCount + methodCount;
+            }
+
+            // Write the interface names.
+            for (int classIndex = 0; classIndex < libraryClasses.size(); classIndex++)
+            {
+                String[] interfaceNames =
+                    ((LibraryClass)libraryClasses.get(classIndex)).interfaceNames;
+
+                if (interfaceNames != null)
+                {
+                    for (int index = 0; index < interfaceNames.length; index++)
+                    {
+                        output.writeInt(stringIndex(stringIndices, interfaceNames[index]));
+                    }
+                }
+            }
+
+            // Write the member records.
+            for (int classIndex = 0; classIndex < libraryClasses.size(); classIndex++)
+            {
+                LibraryClass libraryClass = (LibraryClass)libraryClasses.get(classIndex);
+
+                writeMembers(output, stringIndices, libraryClass);
+            }
+
+            // Write the string offsets.
+            int charOffset = 0;
+            for (int index = 0; index < strings.size(); index++)
+            {
+                output.writeInt(charOffset);
+
+                charOffset += ((String)strings.get(index)).length();
+            }
+            output.writeInt(charOffset);
+
+            // Write the string table.
+            for (int index = 0; index < strings.size(); index++)
+            {
+                output.writeChars((String)strings.get(index));
+            }
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+
+    // Implementations for ClassVisitor.
+
+    public void visitProgramClass(ProgramClass programClass) {}
+
+
+    public void visitLibraryClass(LibraryClass libraryClass)
+    {
+        libraryClasses.add(libraryClass);
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Adds the member strings of the given class to the string table,
+     * returning the number of chars that have been added.
+     */
+    private int addMemberStrings(Map          stringIndices,
+                                 List         strings,
+                                 LibraryClass libraryClass)
+    {
+        int[] packedMembers = libraryClass.packedMembers;
+        if (packedMembers != null)
+        {
+            String[] packedMemberStrings = libraryClass.packedMemberStrings;
+
+            int charCount = 0;
+
+            for (int offset = 1; offset < packedMembers.length; offset += 3)
+            {
+                charCount += addString(stringIndices, strings, packedMemberStrings[packedMembers[offset + 1]]);
+                charCount += addString(stringIndices, strings, packedMemberStrings[packedMembers[offset + 2]]);
+            }
+
+            return charCount;
+        }
+
+        return addMemberStrings(stringIndices, strings, libraryClass.fields) +
+               addMemberStrings(stringIndices, strings, libraryClass.methods);
+    }
+
+
+    /**
+     * Adds the strings of the given members to the string table, returning
+     * the number of chars that have been added.
+     */
+    private int addMemberStrings(Map             stringIndices,
+                                 List            strings,
+                                 LibraryMember[] members)
+    {
+        int charCount = 0;
+
+        if (members != null)
+        {
+            for (int index = 0; index < members.length; index++)
+            {
+                LibraryMember member = members[index];
+
+                charCount += addString(stringIndices, strings, member.name);
+                charCount += addString(stringIndices, strings, member.descriptor);
+            }
+        }
+
+        return charCount;
+    }
+
+
+    /**
+     * Adds the given string to the string table, if it is not null and not
+     * present yet, returning the number of chars that have been added.
+     */
+    private int addString(Map    stringIndices,
+                          List   strings,
+                          String string)
+    {
+        if (string == null ||
+            stringIndices.containsKey(string))
+        {
+            return 0;
+        }
+
+        stringIndices.put(string, Integer.valueOf(strings.size()));
+        strings.add(string);
+
+        return string.length();
+    }
+
+
+    /**
+     * Returns the index of the given string in the string table, or -1 if
+     * the string is null.
+     */
+    private int stringIndex(Map stringIndices, String string)
+    {
+        return string == null ? -1 :
+            ((Integer)stringIndices.get(string)).intValue();
+    }
+
+
+    /**
+     * Writes the member records of the given class.
+     */
+    private void writeMembers(DataOutputStream output,
+                              Map              stringIndices,
+                              LibraryClass     libraryClass)
+    throws IOException
+    {
+        int[] packedMembers = libraryClass.packedMembers;
+        if (packedMembers != null)
+        {
+            String[] packedMemberStrings = libraryClass.packedMemberStrings;
+
+            for (int offset = 1; offset < packedMembers.length; offset += 3)
+            {
+                output.writeInt(packedMembers[offset]);
+                output.writeInt(stringIndex(stringIndices, packedMemberStrings[packedMembers[offset + 1]]));
+                output.writeInt(stringIndex(stringIndices, packedMemberStrings[packedMembers[offset + 2]]));
+            }
+        }
+        else
+        {
+            writeMembers(output, stringIndices, libraryClass.fields);
+            writeMembers(output, stringIndices, libraryClass.methods);
+        }
+    }
+
+
+    /**
+     * Writes the records of the given members.
+     */
+    private void writeMembers(DataOutputStream output,
+                              Map              stringIndices,
+                              LibraryMember[]  members)
+    throws IOException
+    {
+        if (members != null)
+        {
+            for (int index = 0; index < members.length; index++)
+            {
+                LibraryMember member = members[index];
+
+                output.writeInt(member.u2accessFlags);
+                output.writeInt(stringIndex(stringIndices, member.name));
+                output.writeInt(stringIndex(stringIndices, member.descriptor));
+            }
+        }
+    }
+
+
+    /**
+     * Returns the number of fields of the given class.
+     */
+    private int fieldCount(LibraryClass libraryClass)
+    {
+        int[] packedMembers = libraryClass.packedMembers;
+
+        return packedMembers != null ?
+            packedMembers[0] :
+            memberCount(libraryClass.fields);
+    }
+
+
+    /**
+     * Returns the number of methods of the given class.
+     */
+    private int methodCount(LibraryClass libraryClass)
+    {
+        int[] packedMembers = libraryClass.packedMembers;
+
+        return packedMembers != null ?
+            (packedMembers.length - 1) / 3 - packedMembers[0] :
+            memberCount(libraryClass.methods);
+    }
+
+
+    private int memberCount(LibraryMember[] members)
+    {
+        return members == null ? 0 : members.length;
+    }
+}
@@ -51,7 +51,7 @@ public class NameFilter extends FilteredDataEntryReader
                       DataEntryReader acceptedDataEntryReader,
                       DataEntryReader rejectedDataEntryReader)
     {
-        super(new DataEntryNameFilter(new ListParser(new FileNameParser()).parse(regularExpression)),
+        super(new DataEntryNameFilter(new CompiledListParser(new FileNameParser()).parse(regularExpression)),
               acceptedDataEntryReader,
               rejectedDataEntryReader);
     }
@@ -76,7 +76,7 @@ public class NameFilter extends FilteredDataEntryReader
                       DataEntryReader acceptedDataEntryReader,
                       DataEntryReader rejectedDataEntryReader)
     {
-        super(new DataEntryNameFilter(new ListParser(new FileNameParser()).parse(regularExpressions)),
+        super(new DataEntryNameFilter(new CompiledListParser(new FileNameParser()).parse(regularExpressions)),
               acceptedDataEntryReader,
               rejectedDataEntryReader);
     }
@@ -51,7 +51,7 @@ public class NameFilteredDataEntryWriter extends FilteredDataEntryWriter
                                        DataEntryWriter acceptedDataEntryWriter,
                                        DataEntryWriter rejectedDataEntryWriter)
     {
-        this(new ListParser(new FileNameParser()).parse(regularExpression),
+        this(new CompiledListParser(new FileNameParser()).parse(regularExpression),
              acceptedDataEntryWriter,
              rejectedDataEntryWriter);
     }
@@ -76,7 +76,7 @@ public class NameFilteredDataEntryWriter extends FilteredDataEntryWriter
                                        DataEntryWriter acceptedDataEntryWriter,
                                        DataEntryWriter rejectedDataEntryWriter)
     {
-        this(new ListParser(new FileNameParser()).parse(regularExpressions),
+        this(new CompiledListParser(new FileNameParser()).parse(regularExpressions),
              acceptedDataEntryWriter,
              rejectedDataEntryWriter);
     }
@@ -0,0 +1,89 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * This DataEntryReader collects the data entries with the given names, and
+ * then pumps them in the order of those names, irrespective of the order in
+ * which it has read them. It ignores data entries with other names and
+ * duplicate data entries.
+ * <p>
+ * The collected data entries are only suitable for readers that don't read
+ * their contents, like the IdleRewriter.
+ *
+ * @author Eric Lafortune
+ */
+public class OrderedDataEntryPump
+implements   DataEntryReader,
+             DataEntryPump
+{
+    // The map: [data entry name - index in the order].
+    private final Map         nameIndices = new HashMap();
+    private final DataEntry[] dataEntries;
+
+
+    /**
+     * Creates a new OrderedDataEntryPump.
+     * @param names the names of the data entries to collect, in the order in
+     *              which they should be pumped.
+     */
+    public OrderedDataEntryPump(List names)
+    {
+        dataEntries = new DataEntry[names.size()];
+
+        for (int index = 0; index < names.size(); index++)
+        {
+            nameIndices.put(names.get(index), Integer.valueOf(index));
+        }
+    }
+
+
+    // Implementations for DataEntryReader.
+
+    public void read(DataEntry dataEntry) throws IOException
+    {
+        Integer index = (Integer)nameIndices.get(dataEntry.getName());
+        if (index != null &&
+            dataEntries[index.intValue()] == null)
+        {
+            dataEntries[index.intValue()] = dataEntry;
+        }
+    }
+
+
+    // Implementations for DataEntryPump.
+
+    public void pumpDataEntries(DataEntryReader dataEntryReader)
+    throws IOException
+    {
+        for (int index = 0; index < dataEntries.length; index++)
+        {
+            DataEntry dataEntry = dataEntries[index];
+            if (dataEntry != null)
+            {
+                dataEntryReader.read(dataEntry);
+            }
+        }
+    }
+}
@@ -124,7 +124,7 @@ implements   ClassVisitor,
 
         this.useMixedCaseClassNames  = useMixedCaseClassNames;
         this.keepPackageNamesMatcher = keepPackageNames == null ? null :
-            new ListParser(new FileNameParser()).parse(keepPackageNames);
+            new CompiledListParser(new FileNameParser()).parse(keepPackageNames);
         this.flattenPackageHierarchy = flattenPackageHierarchy;
         this.repackageClasses        = repackageClasses;
         this.allowAccessModification = allowAccessModification;
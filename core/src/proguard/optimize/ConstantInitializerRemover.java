@@ -0,0 +1,565 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize;
+
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.attribute.visitor.*;
+import proguard.classfile.constant.*;
+import proguard.classfile.constant.visitor.ConstantVisitor;
+import proguard.classfile.editor.*;
+import proguard.classfile.instruction.*;
+import proguard.classfile.instruction.visitor.*;
+import proguard.classfile.util.*;
+import proguard.classfile.visitor.*;
+import proguard.evaluation.value.Value;
+import proguard.optimize.info.*;
+
+import java.util.*;
+
+/**
+ * This ClassPoolVisitor moves the constant values that static initializers
+ * assign to static final fields of their own classes into ConstantValue
+ * attributes of the fields. It replaces the assignments by pop instructions,
+ * and it removes the static initializers that then no longer have any
+ * effect, so the classes no longer have any side effects when they are
+ * initialized.
+ * <p>
+ * The values are the values that have been propagated to the fields, so
+ * they should already have been filled out. A field is only considered if
+ * its own static initializer is the only code that writes to it, and if it
+ * is assigned in the straight code at the start of the initializer, before
+ * it can be read.
+ *
+ * @see proguard.optimize.evaluation.StoringInvocationUnit
+ * @see SideEffectClassChecker
+ * @author Eric Lafortune
+ */
+public class ConstantInitializerRemover
+extends      SimplifiedVisitor
+implements   ClassPoolVisitor,
+             MemberVisitor,
+             AttributeVisitor,
+             InstructionVisitor,
+             ConstantVisitor
+{
+    private final MemberVisitor extraFieldVisitor;
+
+    private final SideEffectInstructionChecker sideEffectInstructionChecker = new SideEffectInstructionChecker(true, true);
+    private final CodeAttributeEditor          codeAttributeEditor          = new CodeAttributeEditor(false, false);
+
+    // The fields that are written outside the static initializers of their
+    // own classes.
+    private final Set otherWrittenFields = new HashSet();
+
+    // Parameter for the constant visitor.
+    private Clazz initializerClass;
+
+    // Fields acting as return values for the code attribute visitor.
+    private final Map firstPushInstructions = new LinkedHashMap();
+    private final Map storeOffsets          = new HashMap();
+    private boolean   isSideEffectFree;
+
+
+    /**
+     * Creates a new ConstantInitializerRemover.
+     */
+    public ConstantInitializerRemover()
+    {
+        this(null);
+    }
+
+
+    /**
+     * Creates a new ConstantInitializerRemover with an extra visitor.
+     * @param extraFieldVisitor an optional extra visitor for all fields
+     *                          whose constant values have been moved into
+     *                          ConstantValue attributes.
+     */
+    public ConstantInitializerRemover(MemberVisitor extraFieldVisitor)
+    {
+        this.extraFieldVisitor = extraFieldVisitor;
+    }
+
+
+    // Implementations for ClassPoolVisitor.
+
+    public void visitClassPool(ClassPool classPool)
+    {
+        otherWrittenFields.clear();
+
+        // Collect the fields that are written outside the static
+        // initializers of their own classes. Class files older than Java 9
+        // may write to static final fields from any method of their classes.
+        classPool.classesAccept(
+            new AllMethodVisitor(
+            new AllAttributeVisitor(
+            new AllInstructionVisitor(this))));
+
+        // Move the constants from the static initializers.
+        classPool.classesAccept(
+            new AllMethodVisitor(
+            new MemberNameFilter(ClassConstants.METHOD_NAME_CLINIT,
+            new OptimizationInfoMemberFilter(this))));
+    }
+
+
+    // Implementations for InstructionVisitor.
+
+    public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction) {}
+
+
+    public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
+    {
+        switch (constantInstruction.opcode)
+        {
+            case InstructionConstants.OP_PUTSTATIC:
+                // The static initializer may write to the fields of its
+                // own class.
+                initializerClass =
+                    method.getName(clazz).equals(ClassConstants.METHOD_NAME_CLINIT) ?
+                        clazz :
+                        null;
+
+                clazz.constantPoolEntryAccept(constantInstruction.constantIndex, this);
+                break;
+
+            case InstructionConstants.OP_LDC:
+            case InstructionConstants.OP_LDC_W:
+                // The field may be written by means of reflection.
+                initializerClass = null;
+
+                clazz.constantPoolEntryAccept(constantInstruction.constantIndex, this);
+                break;
+        }
+    }
+
+
+    // Implementations for ConstantVisitor.
+
+    public void visitAnyConstant(Clazz clazz, Constant constant) {}
+
+
+    public void visitStringConstant(Clazz clazz, StringConstant stringConstant)
+    {
+        if (stringConstant.referencedMember instanceof Field)
+        {
+            otherWrittenFields.add(stringConstant.referencedMember);
+        }
+    }
+
+
+    public void visitFieldrefConstant(Clazz clazz, FieldrefConstant fieldrefConstant)
+    {
+        Member referencedMember = fieldrefConstant.referencedMember;
+        if (referencedMember != null &&
+            (initializerClass == null ||
+             !isOwnField(initializerClass, referencedMember)))
+        {
+            otherWrittenFields.add(referencedMember);
+        }
+    }
+
+
+    // Implementations for MemberVisitor.
+
+    public void visitAnyMember(Clazz clazz, Member member) {}
+
+
+    public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
+    {
+        firstPushInstructions.clear();
+        storeOffsets.clear();
+        isSideEffectFree = false;
+
+        // Find the field assignments in the static initializer.
+        programMethod.attributesAccept(programClass, this);
+
+        // Move the constants to the fields.
+        Set movedFields = new HashSet();
+
+        Iterator iterator = firstPushInstructions.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry entry = (Map.Entry)iterator.next();
+
+            ProgramField programField    = (ProgramField)entry.getKey();
+            Instruction  pushInstruction = (Instruction)entry.getValue();
+
+            int constantIndex =
+                constantIndex(programClass, programField, pushInstruction);
+
+            if (constantIndex > 0)
+            {
+                addConstantValueAttribute(programClass,
+                                          programField,
+                                          constantIndex);
+
+                // Replace the assignments, which all store the same
+                // constant, by pop instructions.
+                Instruction popInstruction =
+                    new SimpleInstruction(
+                        ClassUtil.isInternalCategory2Type(programField.getDescriptor(programClass)) ?
+                            InstructionConstants.OP_POP2 :
+                            InstructionConstants.OP_POP);
+
+                List offsets = (List)storeOffsets.get(programField);
+                for (int index = 0; index < offsets.size(); index++)
+                {
+                    codeAttributeEditor.replaceInstruction(((Integer)offsets.get(index)).intValue(),
+                                                           popInstruction);
+                }
+
+                // Let the field optimization info pick up the new value.
+                ((ProgramFieldOptimizationInfo)FieldOptimizationInfo.getFieldOptimizationInfo(programField)).resetValue(programClass, programField);
+
+                movedFields.add(programField);
+
+                // Visit the field, if required.
+                if (extraFieldVisitor != null)
+                {
+                    extraFieldVisitor.visitProgramField(programClass, programField);
+                }
+            }
+        }
+
+        if (isSideEffectFree &&
+            movedFields.containsAll(storeOffsets.keySet()))
+        {
+            // Remove the static initializer, which doesn't have any effect
+            // anymore.
+            new ClassEditor(programClass).removeMethod(programMethod);
+        }
+        else if (!movedFields.isEmpty())
+        {
+            // Apply the replacements.
+            programMethod.attributesAccept(programClass, codeAttributeEditor);
+        }
+    }
+
+
+    // Implementations for AttributeVisitor.
+
+    public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+    public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+    {
+        ProgramClass programClass = (ProgramClass)clazz;
+        byte[]       code         = codeAttribute.code;
+        int          codeLength   = codeAttribute.u4codeLength;
+
+        codeAttributeEditor.reset(codeLength);
+
+        // The straight code at the start of the static initializer, outside
+        // of any try blocks, is executed exactly once, before any other code
+        // that might read the fields.
+        int straightCodeEnd = codeLength;
+        for (int index = 0; index < codeAttribute.u2exceptionTableLength; index++)
+        {
+            straightCodeEnd = Math.min(straightCodeEnd,
+                                       codeAttribute.exceptionTable[index].u2startPC);
+        }
+
+        Set         readFields          = new HashSet();
+        boolean     inStraightCode      = true;
+        boolean     sideEffectFree      = true;
+        Instruction previousInstruction = null;
+
+        int offset = 0;
+        while (offset < codeLength)
+        {
+            Instruction  instruction = InstructionFactory.create(code, offset);
+            byte         opcode      = instruction.opcode;
+            ProgramField ownField    = ownStaticField(programClass, instruction);
+
+            inStraightCode &=
+                offset < straightCodeEnd &&
+                isStraightInstruction(programClass, instruction, ownField);
+
+            if (inStraightCode)
+            {
+                if (opcode == InstructionConstants.OP_RETURN)
+                {
+                    // The static initializer has no effects beyond this
+                    // point, if it hasn't had any before.
+                    isSideEffectFree = sideEffectFree;
+                    inStraightCode   = false;
+                }
+                else if (opcode == InstructionConstants.OP_PUTSTATIC)
+                {
+                    // Remember the instruction before the first assignment,
+                    // if the field can't have been read before.
+                    if (!readFields.contains(ownField) &&
+                        !firstPushInstructions.containsKey(ownField))
+                    {
+                        firstPushInstructions.put(ownField, previousInstruction);
+                    }
+                }
+                else if (opcode == InstructionConstants.OP_GETSTATIC)
+                {
+                    readFields.add(ownField);
+                }
+                else
+                {
+                    sideEffectFree &=
+                        !sideEffectInstructionChecker.hasSideEffects(clazz,
+                                                                     method,
+                                                                     codeAttribute,
+                                                                     offset,
+                                                                     instruction);
+                }
+            }
+
+            // Collect the offsets of all assignments to fields of the class.
+            if (opcode == InstructionConstants.OP_PUTSTATIC &&
+                ownField != null)
+            {
+                List offsets = (List)storeOffsets.get(ownField);
+                if (offsets == null)
+                {
+                    offsets = new ArrayList();
+                    storeOffsets.put(ownField, offsets);
+                }
+
+                offsets.add(Integer.valueOf(offset));
+            }
+
+            previousInstruction = instruction;
+
+            offset += instruction.length(offset);
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns whether the given instruction can be part of the straight code
+     * at the start of a static initializer, without branching and without
+     * accessing any other classes or invoking any methods, which might read
+     * the fields of the class.
+     */
+    private boolean isStraightInstruction(ProgramClass programClass,
+                                          Instruction  instruction,
+                                          ProgramField ownField)
+    {
+        switch (instruction.opcode)
+        {
+            case InstructionConstants.OP_IRETURN:
+            case InstructionConstants.OP_LRETURN:
+            case InstructionConstants.OP_FRETURN:
+            case InstructionConstants.OP_DRETURN:
+            case InstructionConstants.OP_ARETURN:
+            case InstructionConstants.OP_ATHROW:
+            case InstructionConstants.OP_MONITORENTER:
+            case InstructionConstants.OP_MONITOREXIT:
+            case InstructionConstants.OP_RET:
+                return false;
+
+            case InstructionConstants.OP_GETSTATIC:
+            case InstructionConstants.OP_PUTSTATIC:
+                return ownField != null;
+
+            case InstructionConstants.OP_LDC:
+            case InstructionConstants.OP_LDC_W:
+            case InstructionConstants.OP_LDC2_W:
+            {
+                int tag = programClass.getTag(((ConstantInstruction)instruction).constantIndex);
+
+                return tag == ClassConstants.CONSTANT_Integer ||
+                       tag == ClassConstants.CONSTANT_Long    ||
+                       tag == ClassConstants.CONSTANT_Float   ||
+                       tag == ClassConstants.CONSTANT_Double  ||
+                       tag == ClassConstants.CONSTANT_String;
+            }
+
+            default:
+                return instruction instanceof SimpleInstruction ||
+                       instruction instanceof VariableInstruction;
+        }
+    }
+
+
+    /**
+     * Returns the static field of the given class that the given instruction
+     * accesses, if any.
+     */
+    private ProgramField ownStaticField(ProgramClass programClass,
+                                        Instruction  instruction)
+    {
+        if (instruction.opcode != InstructionConstants.OP_GETSTATIC &&
+            instruction.opcode != InstructionConstants.OP_PUTSTATIC)
+        {
+            return null;
+        }
+
+        Member referencedMember =
+            ((FieldrefConstant)programClass.getConstant(((ConstantInstruction)instruction).constantIndex)).referencedMember;
+
+        return isOwnField(programClass, referencedMember) ?
+            (ProgramField)referencedMember :
+            null;
+    }
+
+
+    /**
+     * Returns whether the given member is a field of the given class.
+     */
+    private boolean isOwnField(Clazz clazz, Member member)
+    {
+        if (clazz instanceof ProgramClass)
+        {
+            ProgramClass programClass = (ProgramClass)clazz;
+
+            for (int index = 0; index < programClass.u2fieldsCount; index++)
+            {
+                if (programClass.fields[index] == member)
+                {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Returns the index of a constant with the value that has been propagated
+     * to the given field, adding the constant if necessary, or 0 if the
+     * field doesn't have a suitable constant value.
+     */
+    private int constantIndex(ProgramClass programClass,
+                              ProgramField programField,
+                              Instruction  pushInstruction)
+    {
+        if ((programField.getAccessFlags() & (ClassConstants.ACC_STATIC |
+                                              ClassConstants.ACC_FINAL)) !=
+                                             (ClassConstants.ACC_STATIC |
+                                              ClassConstants.ACC_FINAL) ||
+            hasConstantValue(programClass, programField)                 ||
+            otherWrittenFields.contains(programField))
+        {
+            return 0;
+        }
+
+        FieldOptimizationInfo fieldOptimizationInfo =
+            FieldOptimizationInfo.getFieldOptimizationInfo(programField);
+
+        if (!(fieldOptimizationInfo instanceof ProgramFieldOptimizationInfo))
+        {
+            return 0;
+        }
+
+        // Since the static initializer is the only code that writes to the
+        // field, a particular value is the value of all its assignments.
+        Value value = fieldOptimizationInfo.getValue();
+        if (value == null)
+        {
+            return 0;
+        }
+
+        ConstantPoolEditor constantPoolEditor =
+            new ConstantPoolEditor(programClass);
+
+        String fieldType = programField.getDescriptor(programClass);
+        switch (fieldType.charAt(0))
+        {
+            case ClassConstants.TYPE_BOOLEAN:
+            case ClassConstants.TYPE_BYTE:
+            case ClassConstants.TYPE_CHAR:
+            case ClassConstants.TYPE_SHORT:
+            case ClassConstants.TYPE_INT:
+                return value.isParticular() &&
+                       value.computationalType() == Value.TYPE_INTEGER ?
+                    constantPoolEditor.addIntegerConstant(value.integerValue().value()) :
+                    0;
+
+            case ClassConstants.TYPE_LONG:
+                return value.isParticular() &&
+                       value.computationalType() == Value.TYPE_LONG ?
+                    constantPoolEditor.addLongConstant(value.longValue().value()) :
+                    0;
+
+            case ClassConstants.TYPE_FLOAT:
+                return value.isParticular() &&
+                       value.computationalType() == Value.TYPE_FLOAT ?
+                    constantPoolEditor.addFloatConstant(value.floatValue().value()) :
+                    0;
+
+            case ClassConstants.TYPE_DOUBLE:
+                return value.isParticular() &&
+                       value.computationalType() == Value.TYPE_DOUBLE ?
+                    constantPoolEditor.addDoubleConstant(value.doubleValue().value()) :
+                    0;
+
+            default:
+                // The values don't contain the contents of strings, so we
+                // take the string constant from the single assignment.
+                return fieldType.equals(ClassConstants.TYPE_JAVA_LANG_STRING)        &&
+                       value.computationalType() == Value.TYPE_REFERENCE             &&
+                       value.referenceValue().isNull() == Value.NEVER                &&
+                       ((List)storeOffsets.get(programField)).size() == 1            &&
+                       pushInstruction != null                                       &&
+                       (pushInstruction.opcode == InstructionConstants.OP_LDC ||
+                        pushInstruction.opcode == InstructionConstants.OP_LDC_W)     &&
+                       programClass.getTag(((ConstantInstruction)pushInstruction).constantIndex) == ClassConstants.CONSTANT_String ?
+                    ((ConstantInstruction)pushInstruction).constantIndex :
+                    0;
+        }
+    }
+
+
+    /**
+     * Returns whether the given field has a ConstantValue attribute.
+     */
+    private boolean hasConstantValue(ProgramClass programClass,
+                                     ProgramField programField)
+    {
+        for (int index = 0; index < programField.u2attributesCount; index++)
+        {
+            if (programField.attributes[index].getAttributeName(programClass).equals(ClassConstants.ATTR_ConstantValue))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Adds a ConstantValue attribute with the specified constant to the given
+     * field.
+     */
+    private void addConstantValueAttribute(ProgramClass programClass,
+                                           ProgramField programField,
+                                           int          constantIndex)
+    {
+        ConstantPoolEditor constantPoolEditor =
+            new ConstantPoolEditor(programClass);
+
+        new AttributesEditor(programClass, programField, false).addAttribute(
+            new ConstantValueAttribute(constantPoolEditor.addUtf8Constant(ClassConstants.ATTR_ConstantValue),
+                                       constantIndex));
+    }
+}
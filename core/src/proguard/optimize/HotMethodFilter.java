@@ -0,0 +1,109 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize;
+
+import proguard.classfile.*;
+import proguard.classfile.visitor.MemberVisitor;
+
+/**
+ * This <code>MemberVisitor</code> delegates its visits to methods to one of
+ * two other given <code>MemberVisitor</code> instances, depending on whether
+ * they are hot in a given method profile.
+ *
+ * @see MethodProfile
+ * @author Eric Lafortune
+ */
+public class HotMethodFilter
+implements   MemberVisitor
+{
+    private final MethodProfile methodProfile;
+    private final MemberVisitor hotMemberVisitor;
+    private final MemberVisitor coldMemberVisitor;
+
+
+    /**
+     * Creates a new HotMethodFilter.
+     * @param methodProfile    the method profile that specifies the hot
+     *                         methods.
+     * @param hotMemberVisitor the <code>MemberVisitor</code> to which visits
+     *                         to hot methods will be delegated.
+     */
+    public HotMethodFilter(MethodProfile methodProfile,
+                           MemberVisitor hotMemberVisitor)
+    {
+        this(methodProfile, hotMemberVisitor, null);
+    }
+
+
+    /**
+     * Creates a new HotMethodFilter.
+     * @param methodProfile     the method profile that specifies the hot
+     *                          methods.
+     * @param hotMemberVisitor  the <code>MemberVisitor</code> to which visits
+     *                          to hot methods will be delegated.
+     * @param coldMemberVisitor the <code>MemberVisitor</code> to which visits
+     *                          to all other methods will be delegated.
+     */
+    public HotMethodFilter(MethodProfile methodProfile,
+                           MemberVisitor hotMemberVisitor,
+                           MemberVisitor coldMemberVisitor)
+    {
+        this.methodProfile     = methodProfile;
+        this.hotMemberVisitor  = hotMemberVisitor;
+        this.coldMemberVisitor = coldMemberVisitor;
+    }
+
+
+    // Implementations for MemberVisitor.
+
+    public void visitProgramField(ProgramClass programClass, ProgramField programField) {}
+    public void visitLibraryField(LibraryClass libraryClass, LibraryField libraryField) {}
+
+
+    public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
+    {
+        MemberVisitor memberVisitor = delegateVisitor(programMethod);
+        if (memberVisitor != null)
+        {
+            memberVisitor.visitProgramMethod(programClass, programMethod);
+        }
+    }
+
+
+    public void visitLibraryMethod(LibraryClass libraryClass, LibraryMethod libraryMethod)
+    {
+        MemberVisitor memberVisitor = delegateVisitor(libraryMethod);
+        if (memberVisitor != null)
+        {
+            memberVisitor.visitLibraryMethod(libraryClass, libraryMethod);
+        }
+    }
+
+
+    // Small utility methods.
+
+    private MemberVisitor delegateVisitor(Method method)
+    {
+        return methodProfile.isHot(method) ?
+            hotMemberVisitor :
+            coldMemberVisitor;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize;
+
+import proguard.classfile.Method;
+
+import java.util.*;
+
+/**
+ * This class contains the invocation counts of methods and of call sites,
+ * as collected by profiling the program at run-time. The methods with the
+ * highest counts that together account for most of the profiled
+ * invocations (90%, by default) are hot. The same goes for call sites. All
+ * other profiled methods and call sites are considered to be cold.
+ *
+ * @see MethodProfileReader
+ * @author Eric Lafortune
+ */
+public class MethodProfile
+{
+    // The percentage of all profiled invocations that the hot methods or
+    // call sites account for.
+    private static final int HOT_INVOCATION_PERCENTAGE = Integer.parseInt(System.getProperty("hot.invocation.percentage", "90"));
+
+
+    // The maps: [Method - Long count] and [Method - [Method - Long count]].
+    private final Map methodCounts   = new HashMap();
+    private final Map callSiteCounts = new HashMap();
+
+    // The minimum counts of hot methods and call sites, computed lazily.
+    private volatile long hotMethodCount   = -1L;
+    private volatile long hotCallSiteCount = -1L;
+
+
+    /**
+     * Adds the given invocation count for the given method.
+     */
+    public void addMethodCount(Method method, long count)
+    {
+        addCount(methodCounts, method, count);
+
+        hotMethodCount = -1L;
+    }
+
+
+    /**
+     * Adds the given invocation count for the invocations of the given
+     * callee from the given caller.
+     */
+    public void addCallSiteCount(Method caller, Method callee, long count)
+    {
+        Map calleeCounts = (Map)callSiteCounts.get(caller);
+        if (calleeCounts == null)
+        {
+            calleeCounts = new HashMap();
+            callSiteCounts.put(caller, calleeCounts);
+        }
+
+        addCount(calleeCounts, callee, count);
+
+        hotCallSiteCount = -1L;
+    }
+
+
+    /**
+     * Returns the number of methods with known invocation counts.
+     */
+    public int getMethodCount()
+    {
+        return methodCounts.size();
+    }
+
+
+    /**
+     * Returns the invocation count of the given method, or 0 if it is not
+     * known.
+     */
+    public long getMethodCount(Method method)
+    {
+        return getCount(methodCounts, method);
+    }
+
+
+    /**
+     * Returns the invocation count of the given callee from the given caller,
+     * or 0 if it is not known.
+     */
+    public long getCallSiteCount(Method caller, Method callee)
+    {
+        Map calleeCounts = (Map)callSiteCounts.get(caller);
+
+        return calleeCounts == null ? 0L : getCount(calleeCounts, callee);
+    }
+
+
+    /**
+     * Returns whether the profile contains an invocation count for the given
+     * method.
+     */
+    public boolean isProfiled(Method method)
+    {
+        return methodCounts.containsKey(method);
+    }
+
+
+    /**
+     * Returns whether the given method is hot.
+     */
+    public boolean isHot(Method method)
+    {
+        if (hotMethodCount < 0L)
+        {
+            hotMethodCount = hotCount(methodCounts.values());
+        }
+
+        long count = getMethodCount(method);
+
+        return count > 0L && count >= hotMethodCount;
+    }
+
+
+    /**
+     * Returns whether the invocations of the given callee from the given
+     * caller are hot.
+     */
+    public boolean isHotCallSite(Method caller, Method callee)
+    {
+        if (hotCallSiteCount < 0L)
+        {
+            List counts = new ArrayList();
+
+            Iterator iterator = callSiteCounts.values().iterator();
+            while (iterator.hasNext())
+            {
+                counts.addAll(((Map)iterator.next()).values());
+            }
+
+            hotCallSiteCount = hotCount(counts);
+        }
+
+        long count = getCallSiteCount(caller, callee);
+
+        return count > 0L && count >= hotCallSiteCount;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Adds the given count to the count of the given method in the given map.
+     */
+    private void addCount(Map counts, Method method, long count)
+    {
+        counts.put(method, Long.valueOf(getCount(counts, method) + count));
+    }
+
+
+    /**
+     * Returns the minimum count of the highest given counts that together
+     * account for the hot percentage of the total count.
+     */
+    private long hotCount(Collection counts)
+    {
+        long[] sortedCounts = new long[counts.size()];
+        long   totalCount   = 0L;
+
+        Iterator iterator = counts.iterator();
+        for (int index = 0; index < sortedCounts.length; index++)
+        {
+            long count = ((Long)iterator.next()).longValue();
+
+            sortedCounts[index] = count;
+            totalCount         += count;
+        }
+
+        Arrays.sort(sortedCounts);
+
+        // Accumulate the counts from the highest one down, until they reach
+        // the hot percentage of the total count.
+        double hotTotalCount = totalCount * HOT_INVOCATION_PERCENTAGE / 100.0;
+        long   count         = 0L;
+
+        for (int index = sortedCounts.length - 1; index >= 0; index--)
+        {
+            count += sortedCounts[index];
+            if (count >= hotTotalCount)
+            {
+                return sortedCounts[index];
+            }
+        }
+
+        return 0L;
+    }
+
+
+    /**
+     * Returns the count of the given method in the given map, or 0 if it
+     * isn't present.
+     */
+    private long getCount(Map counts, Method method)
+    {
+        Long count = (Long)counts.get(method);
+
+        return count == null ? 0L : count.longValue();
+    }
+}
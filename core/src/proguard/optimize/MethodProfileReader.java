@@ -0,0 +1,479 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize;
+
+import proguard.classfile.*;
+import proguard.classfile.util.*;
+import proguard.classfile.visitor.MemberVisitor;
+import proguard.obfuscate.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class reads a method profile from a text file and resolves its
+ * entries against the methods in a class pool.
+ * <p>
+ * Each non-comment line of the file either specifies the invocation count
+ * of a method:
+ * <pre>
+ *     com.example.Foo.bar(int,java.lang.String) 1200
+ * </pre>
+ * or the invocation count of a call site, as a caller and a callee:
+ * <pre>
+ *     com.example.Foo.bar(int,java.lang.String) -> com.example.Baz.baz() 800
+ * </pre>
+ * Comments start with a '#' character. If the profile was collected from
+ * an obfuscated program, the reader can translate the names back to their
+ * original names, based on the corresponding mapping file. Entries that
+ * can't be parsed or resolved are ignored.
+ *
+ * @see MethodProfile
+ * @author Eric Lafortune
+ */
+public class MethodProfileReader
+{
+    private static final String CALL_SITE_ARROW = "->";
+
+
+    private final File profileFile;
+    private final File mappingFile;
+
+    // The maps: [new external class name - original external class name] and
+    // [original external class name.new method name - List of String[] {
+    // original method name, original external arguments }].
+    private final Map classNames  = new HashMap();
+    private final Map methodNames = new HashMap();
+
+    private int unresolvedCount;
+
+
+    /**
+     * Creates a new MethodProfileReader for the given profile file.
+     */
+    public MethodProfileReader(File profileFile)
+    {
+        this(profileFile, null);
+    }
+
+
+    /**
+     * Creates a new MethodProfileReader for the given profile file.
+     * @param profileFile the profile file.
+     * @param mappingFile an optional mapping file, to translate obfuscated
+     *                    names in the profile to the names in the class
+     *                    pool.
+     */
+    public MethodProfileReader(File profileFile, File mappingFile)
+    {
+        this.profileFile = profileFile;
+        this.mappingFile = mappingFile;
+    }
+
+
+    /**
+     * Returns the number of entries in the most recently read profile that
+     * didn't match any methods.
+     */
+    public int getUnresolvedCount()
+    {
+        return unresolvedCount;
+    }
+
+
+    /**
+     * Reads the profile file, resolving its entries against the methods
+     * in the given class pool.
+     */
+    public MethodProfile read(ClassPool classPool) throws IOException
+    {
+        classNames.clear();
+        methodNames.clear();
+        unresolvedCount = 0;
+
+        if (mappingFile != null)
+        {
+            new MappingReader(mappingFile).pump(new MyMappingCollector());
+        }
+
+        MethodProfile methodProfile = new MethodProfile();
+
+        LineNumberReader reader = new LineNumberReader(
+                                  new BufferedReader(
+                                  new FileReader(profileFile)));
+        try
+        {
+            while (true)
+            {
+                String line = reader.readLine();
+
+                if (line == null)
+                {
+                    break;
+                }
+
+                line = line.trim();
+
+                // Is it a non-comment line?
+                if (line.length() > 0 &&
+                    !line.startsWith("#"))
+                {
+                    processLine(line, classPool, methodProfile);
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new IOException("Can't process profile file (" + ex.getMessage() + ")");
+        }
+        finally
+        {
+            try
+            {
+                reader.close();
+            }
+            catch (IOException ex)
+            {
+                // This shouldn't happen.
+            }
+        }
+
+        return methodProfile;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Parses the given line with a method count or a call site count and
+     * adds the count to the given method profile.
+     */
+    private void processLine(String        line,
+                             ClassPool     classPool,
+                             MethodProfile methodProfile)
+    {
+        // Split off the count at the end.
+        int spaceIndex = lastWhitespaceIndex(line);
+        if (spaceIndex < 0)
+        {
+            return;
+        }
+
+        long count;
+        try
+        {
+            count = Long.parseLong(line.substring(spaceIndex + 1));
+        }
+        catch (NumberFormatException e)
+        {
+            return;
+        }
+
+        String methods = line.substring(0, spaceIndex).trim();
+
+        // Is it a call site count or a method count?
+        int arrowIndex = methods.indexOf(CALL_SITE_ARROW);
+        if (arrowIndex >= 0)
+        {
+            Method caller = findMethod(classPool, methods.substring(0, arrowIndex).trim());
+            Method callee = findMethod(classPool, methods.substring(arrowIndex + CALL_SITE_ARROW.length()).trim());
+            if (caller != null &&
+                callee != null)
+            {
+                methodProfile.addCallSiteCount(caller, callee, count);
+            }
+            else
+            {
+                unresolvedCount++;
+            }
+        }
+        else
+        {
+            Method method = findMethod(classPool, methods);
+            if (method != null)
+            {
+                methodProfile.addMethodCount(method, count);
+            }
+            else
+            {
+                unresolvedCount++;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the method specified as "class.method(arguments)" in external
+     * names, possibly obfuscated, or null if it can't be found.
+     */
+    private Method findMethod(ClassPool classPool, String methodSpecification)
+    {
+        int openIndex  = methodSpecification.indexOf('(');
+        int closeIndex = methodSpecification.indexOf(')', openIndex + 1);
+        if (openIndex < 0 || closeIndex < 0)
+        {
+            return null;
+        }
+
+        int dotIndex = methodSpecification.lastIndexOf('.', openIndex);
+        if (dotIndex < 0)
+        {
+            return null;
+        }
+
+        String className       = methodSpecification.substring(0, dotIndex).trim();
+        String methodName      = methodSpecification.substring(dotIndex + 1, openIndex).trim();
+        String methodArguments = removeWhitespace(methodSpecification.substring(openIndex + 1, closeIndex));
+
+        // Try the names as they are.
+        Method method = findMethod(classPool, className, methodName, methodArguments);
+        if (method != null ||
+            classNames.isEmpty())
+        {
+            return method;
+        }
+
+        // Try the original names from the mapping.
+        String originalClassName       = originalClassName(className);
+        String originalMethodArguments = originalMethodArguments(methodArguments);
+
+        List originalMethods = (List)methodNames.get(originalClassName + '.' + methodName);
+        if (originalMethods != null)
+        {
+            for (int index = 0; index < originalMethods.size(); index++)
+            {
+                String[] originalMethod = (String[])originalMethods.get(index);
+                if (originalMethod[1].equals(originalMethodArguments))
+                {
+                    return findMethod(classPool,
+                                      originalClassName,
+                                      originalMethod[0],
+                                      originalMethodArguments);
+                }
+            }
+        }
+
+        // The method itself may not have been renamed.
+        return findMethod(classPool,
+                          originalClassName,
+                          methodName,
+                          originalMethodArguments);
+    }
+
+
+    /**
+     * Returns the specified method in the given class pool, or null if it
+     * can't be found.
+     */
+    private Method findMethod(ClassPool classPool,
+                              String    externalClassName,
+                              String    methodName,
+                              String    externalMethodArguments)
+    {
+        Clazz clazz = classPool.getClass(ClassUtil.internalClassName(externalClassName));
+        if (clazz == null)
+        {
+            return null;
+        }
+
+        // Find a method with the right name and arguments, ignoring the
+        // return type.
+        MethodCollector methodCollector = new MethodCollector(methodName,
+                                                              externalMethodArguments);
+        clazz.methodsAccept(methodCollector);
+
+        return methodCollector.method;
+    }
+
+
+    /**
+     * Returns the original external class name of the given new external
+     * class name, or the given name if it hasn't been renamed.
+     */
+    private String originalClassName(String externalClassName)
+    {
+        // Handle array types.
+        int bracketIndex = externalClassName.indexOf('[');
+        if (bracketIndex >= 0)
+        {
+            return originalClassName(externalClassName.substring(0, bracketIndex)) +
+                   externalClassName.substring(bracketIndex);
+        }
+
+        String originalClassName = (String)classNames.get(externalClassName);
+
+        return originalClassName != null ?
+            originalClassName :
+            externalClassName;
+    }
+
+
+    /**
+     * Returns the original external method arguments of the given new
+     * external method arguments.
+     */
+    private String originalMethodArguments(String externalMethodArguments)
+    {
+        if (externalMethodArguments.length() == 0)
+        {
+            return externalMethodArguments;
+        }
+
+        StringBuffer buffer = new StringBuffer();
+
+        StringTokenizer tokenizer = new StringTokenizer(externalMethodArguments, ",");
+        while (tokenizer.hasMoreTokens())
+        {
+            if (buffer.length() > 0)
+            {
+                buffer.append(',');
+            }
+
+            buffer.append(originalClassName(tokenizer.nextToken()));
+        }
+
+        return buffer.toString();
+    }
+
+
+    /**
+     * Returns the index of the last whitespace character in the given string,
+     * or -1 if there isn't any.
+     */
+    private static int lastWhitespaceIndex(String string)
+    {
+        for (int index = string.length() - 1; index >= 0; index--)
+        {
+            if (Character.isWhitespace(string.charAt(index)))
+            {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Returns the given string without any whitespace.
+     */
+    private static String removeWhitespace(String string)
+    {
+        StringBuffer buffer = new StringBuffer(string.length());
+        for (int index = 0; index < string.length(); index++)
+        {
+            char c = string.charAt(index);
+            if (!Character.isWhitespace(c))
+            {
+                buffer.append(c);
+            }
+        }
+
+        return buffer.toString();
+    }
+
+
+    /**
+     * This MemberVisitor remembers the method with a given name and given
+     * external arguments.
+     */
+    private static class MethodCollector
+    extends              SimplifiedVisitor
+    implements           MemberVisitor
+    {
+        private final String methodName;
+        private final String externalMethodArguments;
+
+        private Method method;
+
+
+        public MethodCollector(String methodName,
+                               String externalMethodArguments)
+        {
+            this.methodName              = methodName;
+            this.externalMethodArguments = externalMethodArguments;
+        }
+
+
+        // Implementations for MemberVisitor.
+
+        public void visitAnyMember(Clazz clazz, Member member)
+        {
+            if (member.getName(clazz).equals(methodName) &&
+                ClassUtil.externalMethodArguments(member.getDescriptor(clazz)).equals(externalMethodArguments))
+            {
+                method = (Method)member;
+            }
+        }
+    }
+
+
+    /**
+     * This MappingProcessor collects the original class names and method
+     * names for the new names.
+     */
+    private class MyMappingCollector
+    implements    MappingProcessor
+    {
+        // Implementations for MappingProcessor.
+
+        public boolean processClassMapping(String className,
+                                           String newClassName)
+        {
+            classNames.put(newClassName, className);
+
+            return true;
+        }
+
+
+        public void processFieldMapping(String className,
+                                        String fieldType,
+                                        String fieldName,
+                                        String newClassName,
+                                        String newFieldName) {}
+
+
+        public void processMethodMapping(String className,
+                                         int    firstLineNumber,
+                                         int    lastLineNumber,
+                                         String methodReturnType,
+                                         String methodName,
+                                         String methodArguments,
+                                         String newClassName,
+                                         int    newFirstLineNumber,
+                                         int    newLastLineNumber,
+                                         String newMethodName)
+        {
+            // The mapping reader passes the original name of the enclosing
+            // class as the new class name.
+            String key = newClassName + '.' + newMethodName;
+
+            List originalMethods = (List)methodNames.get(key);
+            if (originalMethods == null)
+            {
+                originalMethods = new ArrayList();
+                methodNames.put(key, originalMethods);
+            }
+
+            originalMethods.add(new String[] { methodName, methodArguments });
+        }
+    }
+}
@@ -47,6 +47,10 @@ public class Optimizer
 {
     public  static final boolean DETAILS = System.getProperty("optd") != null;
 
+    // The number of additional rounds of peephole optimizations that hot
+    // methods get in each pass.
+    private static final int HOT_PEEPHOLE_ROUNDS = Integer.parseInt(System.getProperty("hot.peephole.rounds", "2"));
+
     private static final String CLASS_MARKING_FINAL                  = "class/marking/final";
     private static final String CLASS_UNBOXING_ENUM                  = "class/unboxing/enum";
     private static final String CLASS_MERGING_VERTICAL               = "class/merging/vertical";
@@ -55,6 +59,7 @@ public class Optimizer
     private static final String FIELD_REMOVAL_WRITEONLY              = "field/removal/writeonly";
     private static final String FIELD_MARKING_PRIVATE                = "field/marking/private";
     private static final String FIELD_PROPAGATION_VALUE              = "field/propagation/value";
+    private static final String FIELD_PROPAGATION_CONSTANT           = "field/propagation/constant";
     private static final String METHOD_MARKING_PRIVATE               = "method/marking/private";
     private static final String METHOD_MARKING_STATIC                = "method/marking/static";
     private static final String METHOD_MARKING_FINAL                 = "method/marking/final";
@@ -62,6 +67,8 @@ public class Optimizer
     private static final String METHOD_REMOVAL_PARAMETER             = "method/removal/parameter";
     private static final String METHOD_PROPAGATION_PARAMETER         = "method/propagation/parameter";
     private static final String METHOD_PROPAGATION_RETURNVALUE       = "method/propagation/returnvalue";
+    private static final String METHOD_SPECIALIZATION_PARAMETER      = "method/specialization/parameter";
+    private static final String METHOD_DEVIRTUALIZATION              = "method/devirtualization";
     private static final String METHOD_INLINING_SHORT                = "method/inlining/short";
     private static final String METHOD_INLINING_UNIQUE               = "method/inlining/unique";
     private static final String METHOD_INLINING_TAILRECURSION        = "method/inlining/tailrecursion";
@@ -74,12 +81,16 @@ public class Optimizer
     private static final String CODE_SIMPLIFICATION_OBJECT           = "code/simplification/object";
     private static final String CODE_SIMPLIFICATION_STRING           = "code/simplification/string";
     private static final String CODE_SIMPLIFICATION_MATH             = "code/simplification/math";
+    private static final String CODE_SIMPLIFICATION_ENUMSWITCH       = "code/simplification/enumswitch";
     private static final String CODE_SIMPLIFICATION_ADVANCED         = "code/simplification/advanced";
     private static final String CODE_REMOVAL_ADVANCED                = "code/removal/advanced";
     private static final String CODE_REMOVAL_SIMPLE                  = "code/removal/simple";
     private static final String CODE_REMOVAL_VARIABLE                = "code/removal/variable";
     private static final String CODE_REMOVAL_EXCEPTION               = "code/removal/exception";
     private static final String CODE_ALLOCATION_VARIABLE             = "code/allocation/variable";
+    private static final String CODE_ALLOCATION_SCALARREPLACEMENT    = "code/allocation/scalarreplacement";
+    private static final String CODE_ALLOCATION_UNSYNCHRONIZED       = "code/allocation/unsynchronized";
+    private static final String CODE_ALLOCATION_HASHTABLE            = "code/allocation/hashtable";
 
 
     public static final String[] OPTIMIZATION_NAMES = new String[]
@@ -90,6 +101,7 @@ public class Optimizer
         FIELD_REMOVAL_WRITEONLY,
         FIELD_MARKING_PRIVATE,
         FIELD_PROPAGATION_VALUE,
+        FIELD_PROPAGATION_CONSTANT,
         METHOD_MARKING_PRIVATE,
         METHOD_MARKING_STATIC,
         METHOD_MARKING_FINAL,
@@ -97,6 +109,8 @@ public class Optimizer
         METHOD_REMOVAL_PARAMETER,
         METHOD_PROPAGATION_PARAMETER,
         METHOD_PROPAGATION_RETURNVALUE,
+        METHOD_SPECIALIZATION_PARAMETER,
+        METHOD_DEVIRTUALIZATION,
         METHOD_INLINING_SHORT,
         METHOD_INLINING_UNIQUE,
         METHOD_INLINING_TAILRECURSION,
@@ -108,16 +122,22 @@ public class Optimizer
         CODE_SIMPLIFICATION_BRANCH,
         CODE_SIMPLIFICATION_STRING,
         CODE_SIMPLIFICATION_MATH,
+        CODE_SIMPLIFICATION_ENUMSWITCH,
         CODE_SIMPLIFICATION_ADVANCED,
         CODE_REMOVAL_ADVANCED,
         CODE_REMOVAL_SIMPLE,
         CODE_REMOVAL_VARIABLE,
         CODE_REMOVAL_EXCEPTION,
         CODE_ALLOCATION_VARIABLE,
+        CODE_ALLOCATION_SCALARREPLACEMENT,
+        CODE_ALLOCATION_UNSYNCHRONIZED,
+        CODE_ALLOCATION_HASHTABLE,
     };
 
 
-    private final Configuration configuration;
+    private final Configuration      configuration;
+    private final MethodProfile      methodProfile;
+    private final PerformanceTracker performanceTracker;
 
     private final boolean classMarkingFinal;
     private final boolean classUnboxingEnum;
@@ -127,6 +147,7 @@ public class Optimizer
     private final boolean fieldRemovalWriteonly;
     private final boolean fieldMarkingPrivate;
     private final boolean fieldPropagationValue;
+    private final boolean fieldPropagationConstant;
     private final boolean methodMarkingPrivate;
     private final boolean methodMarkingStatic;
     private final boolean methodMarkingFinal;
@@ -134,6 +155,8 @@ public class Optimizer
     private final boolean methodRemovalParameter;
     private final boolean methodPropagationParameter;
     private final boolean methodPropagationReturnvalue;
+    private final boolean methodSpecializationParameter;
+    private final boolean methodDevirtualization;
     private final boolean methodInliningShort;
     private final boolean methodInliningUnique;
     private final boolean methodInliningTailrecursion;
@@ -146,6 +169,7 @@ public class Optimizer
     private final boolean codeSimplificationObject;
     private final boolean codeSimplificationString;
     private final boolean codeSimplificationMath;
+    private final boolean codeSimplificationEnumSwitch;
     private final boolean codeSimplificationPeephole;
     private       boolean codeSimplificationAdvanced;
     private       boolean codeRemovalAdvanced;
@@ -153,6 +177,9 @@ public class Optimizer
     private final boolean codeRemovalVariable;
     private       boolean codeRemovalException;
     private final boolean codeAllocationVariable;
+    private final boolean codeAllocationScalarreplacement;
+    private final boolean codeAllocationUnsynchronized;
+    private final boolean codeAllocationHashtable;
 
 
     /**
@@ -160,7 +187,41 @@ public class Optimizer
      */
     public Optimizer(Configuration configuration)
     {
-        this.configuration = configuration;
+        this(configuration, null);
+    }
+
+
+    /**
+     * Creates a new Optimizer.
+     * @param configuration the configuration of the optimizations.
+     * @param methodProfile an optional run-time profile of the program, to
+     *                      spend more optimization effort on hot methods
+     *                      and less on cold methods.
+     */
+    public Optimizer(Configuration configuration,
+                     MethodProfile methodProfile)
+    {
+        this(configuration, methodProfile, null);
+    }
+
+
+    /**
+     * Creates a new Optimizer.
+     * @param configuration      the configuration of the optimizations.
+     * @param methodProfile      an optional run-time profile of the program,
+     *                           to spend more optimization effort on hot
+     *                           methods and less on cold methods.
+     * @param performanceTracker an optional tracker for the performance
+     *                           metrics of the individual optimization
+     *                           steps.
+     */
+    public Optimizer(Configuration      configuration,
+                     MethodProfile      methodProfile,
+                     PerformanceTracker performanceTracker)
+    {
+        this.configuration      = configuration;
+        this.methodProfile      = methodProfile;
+        this.performanceTracker = performanceTracker;
 
         // Create a matcher for filtering optimizations.
         StringMatcher filter = configuration.optimizations != null ?
@@ -175,6 +236,7 @@ public class Optimizer
         fieldRemovalWriteonly             = filter.matches(FIELD_REMOVAL_WRITEONLY);
         fieldMarkingPrivate               = filter.matches(FIELD_MARKING_PRIVATE);
         fieldPropagationValue             = filter.matches(FIELD_PROPAGATION_VALUE);
+        fieldPropagationConstant          = filter.matches(FIELD_PROPAGATION_CONSTANT);
         methodMarkingPrivate              = filter.matches(METHOD_MARKING_PRIVATE);
         methodMarkingStatic               = filter.matches(METHOD_MARKING_STATIC);
         methodMarkingFinal                = filter.matches(METHOD_MARKING_FINAL);
@@ -182,6 +244,8 @@ public class Optimizer
         methodRemovalParameter            = filter.matches(METHOD_REMOVAL_PARAMETER);
         methodPropagationParameter        = filter.matches(METHOD_PROPAGATION_PARAMETER);
         methodPropagationReturnvalue      = filter.matches(METHOD_PROPAGATION_RETURNVALUE);
+        methodSpecializationParameter     = filter.matches(METHOD_SPECIALIZATION_PARAMETER);
+        methodDevirtualization            = filter.matches(METHOD_DEVIRTUALIZATION);
         methodInliningShort               = filter.matches(METHOD_INLINING_SHORT);
         methodInliningUnique              = filter.matches(METHOD_INLINING_UNIQUE);
         methodInliningTailrecursion       = filter.matches(METHOD_INLINING_TAILRECURSION);
@@ -194,12 +258,22 @@ public class Optimizer
         codeSimplificationObject          = filter.matches(CODE_SIMPLIFICATION_OBJECT);
         codeSimplificationString          = filter.matches(CODE_SIMPLIFICATION_STRING);
         codeSimplificationMath            = filter.matches(CODE_SIMPLIFICATION_MATH);
+        codeSimplificationEnumSwitch      = filter.matches(CODE_SIMPLIFICATION_ENUMSWITCH);
         codeSimplificationAdvanced        = filter.matches(CODE_SIMPLIFICATION_ADVANCED);
         codeRemovalAdvanced               = filter.matches(CODE_REMOVAL_ADVANCED);
         codeRemovalSimple                 = filter.matches(CODE_REMOVAL_SIMPLE);
         codeRemovalVariable               = filter.matches(CODE_REMOVAL_VARIABLE);
         codeRemovalException              = filter.matches(CODE_REMOVAL_EXCEPTION);
         codeAllocationVariable            = filter.matches(CODE_ALLOCATION_VARIABLE);
+        codeAllocationScalarreplacement   = filter.matches(CODE_ALLOCATION_SCALARREPLACEMENT);
+        codeAllocationUnsynchronized      = filter.matches(CODE_ALLOCATION_UNSYNCHRONIZED);
+
+        // Replacing Hashtable instances changes the behavior for null keys
+        // and values, so it is only applied if it is specified explicitly.
+        codeAllocationHashtable =
+            configuration.optimizations != null                             &&
+            configuration.optimizations.contains(CODE_ALLOCATION_HASHTABLE) &&
+            filter.matches(CODE_ALLOCATION_HASHTABLE);
 
         // Some optimizations are required by other optimizations.
         codeSimplificationAdvanced =
@@ -259,6 +333,7 @@ public class Optimizer
         final MemberCounter        fieldRemovalWriteonlyCounter             = new MemberCounter();
         final MemberCounter        fieldMarkingPrivateCounter               = new MemberCounter();
         final MemberCounter        fieldPropagationValueCounter             = new MemberCounter();
+        final MemberCounter        fieldPropagationConstantCounter          = new MemberCounter();
         final MemberCounter        methodMarkingPrivateCounter              = new MemberCounter();
         final MemberCounter        methodMarkingStaticCounter               = new MemberCounter();
         final MemberCounter        methodMarkingFinalCounter                = new MemberCounter();
@@ -267,6 +342,8 @@ public class Optimizer
         final MemberCounter        methodRemovalParameterCounter2           = new MemberCounter();
         final MemberCounter        methodPropagationParameterCounter        = new MemberCounter();
         final MemberCounter        methodPropagationReturnvalueCounter      = new MemberCounter();
+        final MemberCounter        methodSpecializationParameterCounter     = new MemberCounter();
+        final InstructionCounter   methodDevirtualizationCounter            = new InstructionCounter();
         final InstructionCounter   methodInliningShortCounter               = new InstructionCounter();
         final InstructionCounter   methodInliningUniqueCounter              = new InstructionCounter();
         final InstructionCounter   methodInliningTailrecursionCounter       = new InstructionCounter();
@@ -280,12 +357,15 @@ public class Optimizer
         final InstructionCounter   codeSimplificationStringCounter          = new InstructionCounter();
         final InstructionCounter   codeSimplificationMathCounter            = new InstructionCounter();
         final InstructionCounter   codeSimplificationAndroidMathCounter     = new InstructionCounter();
+        final InstructionCounter   codeSimplificationEnumSwitchCounter      = new InstructionCounter();
         final InstructionCounter   codeSimplificationAdvancedCounter        = new InstructionCounter();
         final InstructionCounter   deletedCounter                           = new InstructionCounter();
         final InstructionCounter   addedCounter                             = new InstructionCounter();
         final MemberCounter        codeRemovalVariableCounter               = new MemberCounter();
         final ExceptionCounter     codeRemovalExceptionCounter              = new ExceptionCounter();
         final MemberCounter        codeAllocationVariableCounter            = new MemberCounter();
+        final InstructionCounter   codeAllocationScalarreplacementCounter   = new InstructionCounter();
+        final InstructionCounter   codeAllocationUnsynchronizedCounter      = new InstructionCounter();
         final MemberCounter        initializerFixCounter1                   = new MemberCounter();
         final MemberCounter        initializerFixCounter2                   = new MemberCounter();
 
@@ -392,6 +472,16 @@ public class Optimizer
                 keepMarker))
             )))))));
 
+        if (methodSpecializationParameter)
+        {
+            // Create copies of methods for the constant arguments with which
+            // they are invoked, before any optimization info is attached.
+            programClassPool.accept(
+                new TimedClassPoolVisitor("Specializing methods",
+                new MethodSpecializer(methodProfile,
+                                      methodSpecializationParameterCounter)));
+        }
+
         // Attach some optimization info to all classes and class members, so
         // it can be filled out later.
         programClassPool.classesAccept(new ProgramClassOptimizationInfoSetter());
@@ -465,6 +555,18 @@ public class Optimizer
             libraryClassPool.accept(classPoolVisitor);
         }
 
+        if (configuration.assumeValues != null)
+        {
+            // Create a visitor for assigning the specified constant values
+            // and value ranges to fields and method return values.
+            ClassPoolVisitor classPoolVisitor =
+                createAssumedValuesVisitor(configuration.assumeValues);
+
+            // Mark the seeds.
+            programClassPool.accept(classPoolVisitor);
+            libraryClassPool.accept(classPoolVisitor);
+        }
+
         if (classMarkingFinal)
         {
             // Make classes final, whereever possible.
@@ -690,6 +792,20 @@ public class Optimizer
             }
         }
 
+        if (codeSimplificationEnumSwitch)
+        {
+            // Simplify the static initializers of the synthetic classes
+            // that are generated for switch statements on enums, so their
+            // switch maps can be propagated.
+            programClassPool.classesAccept(
+                new ClassAccessFilter(ClassConstants.ACC_SYNTHETIC, 0,
+                new NamedMethodVisitor(ClassConstants.METHOD_NAME_CLINIT,
+                                       ClassConstants.METHOD_TYPE_CLINIT,
+                new AllAttributeVisitor(
+                new DebugAttributeVisitor("Simplifying enum switch maps",
+                new EnumSwitchMapSimplifier(codeSimplificationEnumSwitchCounter))))));
+        }
+
         // Mark all used parameters, including the 'this' parameters.
         ParallelAllClassVisitor.ClassVisitorFactory markingUsedParametersClassVisitor =
             new ParallelAllClassVisitor.ClassVisitorFactory()
@@ -773,7 +889,9 @@ public class Optimizer
                 {
                     public ClassVisitor createClassVisitor()
                     {
-                        ValueFactory valueFactory = new ParticularValueFactory();
+                        ValueFactory valueFactory =
+                            new InterningValueFactory(
+                            new ParticularValueFactory());
 
                         InvocationUnit storingInvocationUnit =
                             new StoringInvocationUnit(valueFactory,
@@ -847,6 +965,45 @@ public class Optimizer
             }
         }
 
+        if (fieldPropagationConstant)
+        {
+            // Move the constant values that static initializers assign to
+            // the fields of their classes into the fields, and remove the
+            // initializers that no longer have any effect, so the classes
+            // no longer have any side effects when initialized.
+            programClassPool.accept(
+                new TimedClassPoolVisitor("Moving constant field initializers",
+                new ConstantInitializerRemover(fieldPropagationConstantCounter)));
+        }
+
+        if (codeAllocationScalarreplacement)
+        {
+            // Replace small objects that don't escape by local variables.
+            programClassPool.accept(
+                new TimedClassPoolVisitor("Scalar replacement",
+                new AllMethodVisitor(
+                new AllAttributeVisitor(
+                new DebugAttributeVisitor("Scalar replacement",
+                new OptimizationCodeAttributeFilter(
+                new ScalarReplacer(codeAllocationScalarreplacementCounter)))))));
+        }
+
+        if (codeAllocationUnsynchronized)
+        {
+            // Replace synchronized StringBuffer and Vector instances, and
+            // optionally Hashtable instances, that don't escape by
+            // unsynchronized instances.
+            programClassPool.accept(
+                new TimedClassPoolVisitor("Lock elision",
+                new AllMethodVisitor(
+                new AllAttributeVisitor(
+                new DebugAttributeVisitor("Lock elision",
+                new OptimizationCodeAttributeFilter(
+                new SynchronizedClassReplacer(libraryClassPool,
+                                              codeAllocationHashtable,
+                                              codeAllocationUnsynchronizedCounter)))))));
+        }
+
         if (codeSimplificationAdvanced)
         {
             ParallelAllClassVisitor.ClassVisitorFactory simplifyingCodeVisitor =
@@ -856,7 +1013,9 @@ public class Optimizer
                     {
                         // Perform partial evaluation again, now loading any previously stored
                         // values for fields, method parameters, and method return values.
-                        ValueFactory valueFactory = new IdentifiedValueFactory();
+                        ValueFactory valueFactory =
+                            new InterningValueFactory(
+                            new IdentifiedValueFactory());
 
                         SimplifiedInvocationUnit loadingInvocationUnit =
                             new LoadingInvocationUnit(valueFactory,
@@ -892,7 +1051,9 @@ public class Optimizer
                     {
                         // Perform partial evaluation again, now loading any previously stored
                         // values for fields, method parameters, and method return values.
-                        ValueFactory valueFactory = new IdentifiedValueFactory();
+                        ValueFactory valueFactory =
+                            new InterningValueFactory(
+                            new IdentifiedValueFactory());
 
                         SimplifiedInvocationUnit loadingInvocationUnit =
                             new LoadingInvocationUnit(valueFactory,
@@ -1016,6 +1177,34 @@ public class Optimizer
             }
         }
 
+        if (methodDevirtualization)
+        {
+            ParallelAllClassVisitor.ClassVisitorFactory devirtualizingCodeVisitor =
+                new ParallelAllClassVisitor.ClassVisitorFactory()
+                {
+                    public ClassVisitor createClassVisitor()
+                    {
+                        // Evaluate the types of the invocation receivers.
+                        return
+                            new AllMethodVisitor(
+                            new AllAttributeVisitor(
+                            new DebugAttributeVisitor("Devirtualizing invocations",
+                            new OptimizationCodeAttributeFilter(
+                            new InvocationDevirtualizer(
+                            new PartialEvaluator(new TypedReferenceValueFactory()),
+                            methodDevirtualizationCounter)))));
+                    }
+                };
+
+            // Replace virtual and interface invocations that can only
+            // select a single method by direct invocations, before the
+            // invocations are counted and inlined below.
+            programClassPool.accept(
+                new TimedClassPoolVisitor("Devirtualizing invocations",
+                new ParallelAllClassVisitor(
+                devirtualizingCodeVisitor)));
+        }
+
         // Mark all classes with package visible members.
         // Mark all exception catches of methods.
         // Count all method invocations.
@@ -1201,7 +1390,8 @@ public class Optimizer
                                   configuration.android,
                                   configuration.allowAccessModification,
                                   false,
-                                  methodInliningShortCounter)))))));
+                                  methodInliningShortCounter,
+                                  methodProfile)))))));
         }
 
         if (methodInliningTailrecursion)
@@ -1318,14 +1508,32 @@ public class Optimizer
                             new InstructionVisitor[peepholeOptimizations.size()];
                         peepholeOptimizations.toArray(peepholeOptimizationsArray);
 
-                        return
-                            new AllMethodVisitor(
+                        MemberVisitor peepholeOptimizer =
                             new AllAttributeVisitor(
                             new DebugAttributeVisitor("Peephole optimizations",
                             new OptimizationCodeAttributeFilter(
                             new PeepholeOptimizer(branchTargetFinder, codeAttributeEditor,
                             new MultiInstructionVisitor(
-                            peepholeOptimizationsArray))))));
+                            peepholeOptimizationsArray)))));
+
+                        if (methodProfile != null)
+                        {
+                            // Apply additional rounds of peephole
+                            // optimizations to hot methods.
+                            MemberVisitor[] peepholeRounds =
+                                new MemberVisitor[1 + HOT_PEEPHOLE_ROUNDS];
+
+                            peepholeRounds[0] = peepholeOptimizer;
+                            for (int round = 1; round < peepholeRounds.length; round++)
+                            {
+                                peepholeRounds[round] =
+                                    new HotMethodFilter(methodProfile, peepholeOptimizer);
+                            }
+
+                            peepholeOptimizer = new MultiMemberVisitor(peepholeRounds);
+                        }
+
+                        return new AllMethodVisitor(peepholeOptimizer);
                     }
                 };
 
@@ -1400,6 +1608,13 @@ public class Optimizer
             new TimedClassPoolVisitor("Shrinking constant pool",
             new ConstantPoolShrinker()));
 
+        // Drop the cached analysis results of this pass, so they don't
+        // take up memory for the rest of the processing.
+        programClassPool.classesAccept(
+            new AllMethodVisitor(
+            new AllAttributeVisitor(
+            new AnalysisInfoCleaner())));
+
         int classMarkingFinalCount                 = classMarkingFinalCounter                .getCount();
         int classUnboxingEnumCount                 = classUnboxingEnumCounter                .getCount();
         int classMergingVerticalCount              = classMergingVerticalCounter             .getCount();
@@ -1408,6 +1623,7 @@ public class Optimizer
         int fieldRemovalWriteonlyCount             = fieldRemovalWriteonlyCounter            .getCount();
         int fieldMarkingPrivateCount               = fieldMarkingPrivateCounter              .getCount();
         int fieldPropagationValueCount             = fieldPropagationValueCounter            .getCount();
+        int fieldPropagationConstantCount          = fieldPropagationConstantCounter         .getCount();
         int methodMarkingPrivateCount              = methodMarkingPrivateCounter             .getCount();
         int methodMarkingStaticCount               = methodMarkingStaticCounter              .getCount();
         int methodMarkingFinalCount                = methodMarkingFinalCounter               .getCount();
@@ -1416,6 +1632,8 @@ public class Optimizer
         int methodRemovalParameterCount2           = methodRemovalParameterCounter2          .getCount() - methodMarkingStaticCounter.getCount() - initializerFixCounter1.getCount() - initializerFixCounter2.getCount();
         int methodPropagationParameterCount        = methodPropagationParameterCounter       .getCount();
         int methodPropagationReturnvalueCount      = methodPropagationReturnvalueCounter     .getCount();
+        int methodSpecializationParameterCount     = methodSpecializationParameterCounter    .getCount();
+        int methodDevirtualizationCount            = methodDevirtualizationCounter           .getCount();
         int methodInliningShortCount               = methodInliningShortCounter              .getCount();
         int methodInliningUniqueCount              = methodInliningUniqueCounter             .getCount();
         int methodInliningTailrecursionCount       = methodInliningTailrecursionCounter      .getCount();
@@ -1429,11 +1647,14 @@ public class Optimizer
         int codeSimplificationStringCount          = codeSimplificationStringCounter         .getCount();
         int codeSimplificationMathCount            = codeSimplificationMathCounter           .getCount();
         int codeSimplificationAndroidMathCount     = codeSimplificationAndroidMathCounter    .getCount();
+        int codeSimplificationEnumSwitchCount      = codeSimplificationEnumSwitchCounter     .getCount();
         int codeSimplificationAdvancedCount        = codeSimplificationAdvancedCounter       .getCount();
         int codeRemovalCount                       = deletedCounter                          .getCount() - addedCounter.getCount();
         int codeRemovalVariableCount               = codeRemovalVariableCounter              .getCount();
         int codeRemovalExceptionCount              = codeRemovalExceptionCounter             .getCount();
         int codeAllocationVariableCount            = codeAllocationVariableCounter           .getCount();
+        int codeAllocationScalarreplacementCount   = codeAllocationScalarreplacementCounter  .getCount();
+        int codeAllocationUnsynchronizedCount      = codeAllocationUnsynchronizedCounter     .getCount();
 
         // Forget about constant fields, parameters, and return values, if they
         // didn't lead to any useful optimizations. We want to avoid fruitless
@@ -1455,6 +1676,7 @@ public class Optimizer
             System.out.println("  Number of removed write-only fields:           " + fieldRemovalWriteonlyCount             + disabled(fieldRemovalWriteonly));
             System.out.println("  Number of privatized fields:                   " + fieldMarkingPrivateCount               + disabled(fieldMarkingPrivate));
             System.out.println("  Number of inlined constant fields:             " + fieldPropagationValueCount             + disabled(fieldPropagationValue));
+            System.out.println("  Number of moved constant field initializers:   " + fieldPropagationConstantCount           + disabled(fieldPropagationConstant));
             System.out.println("  Number of privatized methods:                  " + methodMarkingPrivateCount              + disabled(methodMarkingPrivate));
             System.out.println("  Number of staticized methods:                  " + methodMarkingStaticCount               + disabled(methodMarkingStatic));
             System.out.println("  Number of finalized methods:                   " + methodMarkingFinalCount                + disabled(methodMarkingFinal));
@@ -1463,6 +1685,8 @@ public class Optimizer
             System.out.println("  Number of removed method parameters:           " + methodRemovalParameterCount2           + disabled(methodRemovalParameter));
             System.out.println("  Number of inlined constant parameters:         " + methodPropagationParameterCount        + disabled(methodPropagationParameter));
             System.out.println("  Number of inlined constant return values:      " + methodPropagationReturnvalueCount      + disabled(methodPropagationReturnvalue));
+            System.out.println("  Number of specialized methods:                 " + methodSpecializationParameterCount     + disabled(methodSpecializationParameter));
+            System.out.println("  Number of devirtualized method calls:          " + methodDevirtualizationCount            + disabled(methodDevirtualization));
             System.out.println("  Number of inlined short method calls:          " + methodInliningShortCount               + disabled(methodInliningShort));
             System.out.println("  Number of inlined unique method calls:         " + methodInliningUniqueCount              + disabled(methodInliningUnique));
             System.out.println("  Number of inlined tail recursion calls:        " + methodInliningTailrecursionCount       + disabled(methodInliningTailrecursion));
@@ -1477,11 +1701,14 @@ public class Optimizer
             System.out.println("  Number of math peephole optimizations:         " + codeSimplificationMathCount            + disabled(codeSimplificationMath));
             if (configuration.android)
             System.out.println("  Number of Android math peephole optimizations: " + codeSimplificationAndroidMathCount     + disabled(codeSimplificationMath));
+            System.out.println("  Number of simplified enum switch map entries:  " + codeSimplificationEnumSwitchCount      + disabled(codeSimplificationEnumSwitch));
             System.out.println("  Number of simplified instructions:             " + codeSimplificationAdvancedCount        + disabled(codeSimplificationAdvanced));
             System.out.println("  Number of removed instructions:                " + codeRemovalCount                       + disabled(codeRemovalAdvanced));
             System.out.println("  Number of removed local variables:             " + codeRemovalVariableCount               + disabled(codeRemovalVariable));
             System.out.println("  Number of removed exception blocks:            " + codeRemovalExceptionCount              + disabled(codeRemovalException));
             System.out.println("  Number of optimized local variable frames:     " + codeAllocationVariableCount            + disabled(codeAllocationVariable));
+            System.out.println("  Number of replaced object allocations:         " + codeAllocationScalarreplacementCount   + disabled(codeAllocationScalarreplacement));
+            System.out.println("  Number of unsynchronized allocations:          " + codeAllocationUnsynchronizedCount      + disabled(codeAllocationUnsynchronized));
         }
 
         return classMarkingFinalCount                 > 0 ||
@@ -1495,10 +1722,13 @@ public class Optimizer
                methodMarkingStaticCount               > 0 ||
                methodMarkingFinalCount                > 0 ||
                fieldPropagationValueCount             > 0 ||
+               fieldPropagationConstantCount          > 0 ||
                methodRemovalParameterCount1           > 0 ||
                methodRemovalParameterCount2           > 0 ||
                methodPropagationParameterCount        > 0 ||
                methodPropagationReturnvalueCount      > 0 ||
+               methodSpecializationParameterCount     > 0 ||
+               methodDevirtualizationCount            > 0 ||
                methodInliningShortCount               > 0 ||
                methodInliningUniqueCount              > 0 ||
                methodInliningTailrecursionCount       > 0 ||
@@ -1512,11 +1742,14 @@ public class Optimizer
                codeSimplificationStringCount          > 0 ||
                codeSimplificationMathCount            > 0 ||
                codeSimplificationAndroidMathCount     > 0 ||
+               codeSimplificationEnumSwitchCount      > 0 ||
                codeSimplificationAdvancedCount        > 0 ||
                codeRemovalCount                       > 0 ||
                codeRemovalVariableCount               > 0 ||
                codeRemovalExceptionCount              > 0 ||
-               codeAllocationVariableCount            > 0;
+               codeAllocationVariableCount            > 0 ||
+               codeAllocationScalarreplacementCount   > 0 ||
+               codeAllocationUnsynchronizedCount      > 0;
     }
 
 
@@ -1625,6 +1858,82 @@ public class Optimizer
     }
 
 
+    /**
+     * Returns a class pool visitor that assigns the values of the given
+     * class specifications to the matching fields and methods.
+     */
+    private ClassPoolVisitor createAssumedValuesVisitor(List classSpecifications)
+    {
+        MultiClassPoolVisitor multiClassPoolVisitor = new MultiClassPoolVisitor();
+
+        for (int index = 0; index < classSpecifications.size(); index++)
+        {
+            ClassSpecification classSpecification =
+                (ClassSpecification)classSpecifications.get(index);
+
+            addAssumedValuesVisitors(classSpecification,
+                                     classSpecification.fieldSpecifications,
+                                     true,
+                                     multiClassPoolVisitor);
+
+            addAssumedValuesVisitors(classSpecification,
+                                     classSpecification.methodSpecifications,
+                                     false,
+                                     multiClassPoolVisitor);
+        }
+
+        return multiClassPoolVisitor;
+    }
+
+
+    /**
+     * Adds class pool visitors that assign the values of the given member
+     * specifications to the matching fields or methods. Each member
+     * specification gets its own visitor, since it has its own values.
+     */
+    private void addAssumedValuesVisitors(ClassSpecification    classSpecification,
+                                          List                  memberSpecifications,
+                                          boolean               isField,
+                                          MultiClassPoolVisitor multiClassPoolVisitor)
+    {
+        if (memberSpecifications != null)
+        {
+            for (int index = 0; index < memberSpecifications.size(); index++)
+            {
+                Object memberSpecification = memberSpecifications.get(index);
+                if (memberSpecification instanceof MemberValueSpecification)
+                {
+                    MemberValueSpecification memberValueSpecification =
+                        (MemberValueSpecification)memberSpecification;
+
+                    // Create a copy of the class specification with just this
+                    // class member specification.
+                    ClassSpecification memberClassSpecification =
+                        new ClassSpecification(classSpecification);
+
+                    memberClassSpecification.fieldSpecifications  = null;
+                    memberClassSpecification.methodSpecifications = null;
+
+                    if (isField)
+                    {
+                        memberClassSpecification.addField(memberValueSpecification);
+                    }
+                    else
+                    {
+                        memberClassSpecification.addMethod(memberValueSpecification);
+                    }
+
+                    multiClassPoolVisitor.addClassPoolVisitor(
+                        new ClassSpecificationVisitorFactory()
+                            .createClassPoolVisitor(Collections.singletonList(memberClassSpecification),
+                                                    null,
+                                                    new AssumedValueMarker(memberValueSpecification.values)));
+                }
+            }
+        }
+    }
+
+
     /**
      * Returns a String indicating whether the given flag is enabled or
      * disabled.
@@ -1681,8 +1990,18 @@ public class Optimizer
                 start = System.currentTimeMillis();
             }
 
+            if (performanceTracker != null)
+            {
+                performanceTracker.beginPhase(message);
+            }
+
             classPool.accept(classPoolVisitor);
 
+            if (performanceTracker != null)
+            {
+                performanceTracker.endPhase(classPool);
+            }
+
             if (DETAILS)
             {
                 long end = System.currentTimeMillis();
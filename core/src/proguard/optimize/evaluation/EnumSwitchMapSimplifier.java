@@ -0,0 +1,607 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize.evaluation;
+
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.attribute.visitor.*;
+import proguard.classfile.constant.*;
+import proguard.classfile.constant.visitor.ConstantVisitor;
+import proguard.classfile.editor.CodeAttributeEditor;
+import proguard.classfile.instruction.*;
+import proguard.classfile.instruction.visitor.InstructionVisitor;
+import proguard.classfile.util.*;
+import proguard.classfile.visitor.MemberVisitor;
+import proguard.evaluation.TracedStack;
+import proguard.evaluation.value.*;
+import proguard.optimize.info.NoSideEffectClassMarker;
+import proguard.optimize.peephole.BranchTargetFinder;
+
+import java.util.*;
+
+/**
+ * This AttributeVisitor simplifies the static initializers of the synthetic
+ * classes that compilers generate for switch statements on enums. These
+ * initializers fill out "int[] $SwitchMap$..." arrays, guarded against
+ * NoSuchFieldError exceptions:
+ * <pre>
+ *     $SwitchMap$Color = new int[Color.values().length];
+ *     try { $SwitchMap$Color[Color.RED.ordinal()] = 1; }
+ *     catch (NoSuchFieldError e) {}
+ *     ...
+ * </pre>
+ * If the enum is a program class with a stable layout, the visitor replaces
+ * the ordinals of its constants and the length of its array of values by
+ * constants. The partial evaluator can then fill out the switch map arrays,
+ * so the EvaluationSimplifier can replace the switches on the mapped values
+ * by switches on the ordinals, as it does for simple enums. The synthetic
+ * classes can then be shrunk away.
+ * <p>
+ * An enum has a stable layout if its static initializer assigns each of its
+ * enum constants exactly once, with a new instance that is created with a
+ * constant ordinal, and if these ordinals range from 0 to the number of
+ * enum constants.
+ *
+ * @author Eric Lafortune
+ */
+public class EnumSwitchMapSimplifier
+extends      SimplifiedVisitor
+implements   AttributeVisitor,
+             InstructionVisitor,
+             ConstantVisitor
+{
+    //*
+    private static final boolean DEBUG = false;
+    /*/
+    private static       boolean DEBUG = System.getProperty("esms") != null;
+    //*/
+
+
+    private static final String METHOD_NAME_ORDINAL = "ordinal";
+    private static final String METHOD_TYPE_ORDINAL = "()I";
+    private static final String METHOD_NAME_VALUES  = "values";
+
+
+    private final InstructionVisitor extraInstructionVisitor;
+
+    private final BranchTargetFinder  branchTargetFinder  = new BranchTargetFinder();
+    private final CodeAttributeEditor codeAttributeEditor = new CodeAttributeEditor(false, true);
+    private final PartialEvaluator    partialEvaluator    = new PartialEvaluator(new ParticularValueFactory());
+
+    // The map: [enum class - Map: [enum constant field - Integer ordinal]],
+    // with empty maps for enums without a stable layout.
+    private final Map enumOrdinals = new HashMap();
+
+    // Field acting as a return value for the constant visitor.
+    private RefConstant refConstant;
+
+
+    /**
+     * Creates a new EnumSwitchMapSimplifier.
+     */
+    public EnumSwitchMapSimplifier()
+    {
+        this(null);
+    }
+
+
+    /**
+     * Creates a new EnumSwitchMapSimplifier.
+     * @param extraInstructionVisitor an optional extra visitor for all
+     *                                simplified ordinals.
+     */
+    public EnumSwitchMapSimplifier(InstructionVisitor extraInstructionVisitor)
+    {
+        this.extraInstructionVisitor = extraInstructionVisitor;
+    }
+
+
+    // Implementations for AttributeVisitor.
+
+    public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+    public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+    {
+        branchTargetFinder.visitCodeAttribute(clazz, method, codeAttribute);
+
+        codeAttributeEditor.reset(codeAttribute.u4codeLength);
+
+        codeAttribute.instructionsAccept(clazz, method, this);
+
+        if (codeAttributeEditor.isModified())
+        {
+            codeAttributeEditor.visitCodeAttribute(clazz, method, codeAttribute);
+
+            // Does the static initializer now only fill out the switch maps?
+            if (method.getName(clazz).equals(ClassConstants.METHOD_NAME_CLINIT) &&
+                onlyInitializesArrays(clazz, codeAttribute))
+            {
+                if (DEBUG)
+                {
+                    System.out.println("EnumSwitchMapSimplifier: ["+clazz.getName()+"] doesn't have any side effects");
+                }
+
+                // Accessing the class then doesn't have any side effects,
+                // so unused switch maps can be removed.
+                clazz.accept(new NoSideEffectClassMarker());
+            }
+        }
+    }
+
+
+    // Implementations for InstructionVisitor.
+
+    public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction) {}
+
+
+    public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
+    {
+        byte opcode = constantInstruction.opcode;
+        if (opcode != InstructionConstants.OP_GETSTATIC &&
+            opcode != InstructionConstants.OP_INVOKESTATIC)
+        {
+            return;
+        }
+
+        // Is the instruction followed by an instruction that isn't
+        // a branch target?
+        int nextOffset = offset + constantInstruction.length(offset);
+        if (nextOffset >= codeAttribute.u4codeLength ||
+            branchTargetFinder.isTarget(nextOffset))
+        {
+            return;
+        }
+
+        Instruction nextInstruction =
+            InstructionFactory.create(codeAttribute.code, nextOffset);
+
+        int value = -1;
+
+        if (opcode == InstructionConstants.OP_GETSTATIC)
+        {
+            // Is it a sequence "getstatic Enum.X; invokevirtual ordinal()"?
+            if (nextInstruction.opcode == InstructionConstants.OP_INVOKEVIRTUAL &&
+                isMethod(clazz,
+                         ((ConstantInstruction)nextInstruction).constantIndex,
+                         METHOD_NAME_ORDINAL,
+                         METHOD_TYPE_ORDINAL))
+            {
+                value = ordinal(clazz, constantInstruction.constantIndex);
+            }
+        }
+        else
+        {
+            // Is it a sequence "invokestatic Enum.values(); arraylength"?
+            if (nextInstruction.opcode == InstructionConstants.OP_ARRAYLENGTH)
+            {
+                value = valueCount(clazz, constantInstruction.constantIndex);
+            }
+        }
+
+        if (value >= 0 &&
+            (short)value == value)
+        {
+            if (DEBUG)
+            {
+                System.out.println("EnumSwitchMapSimplifier: ["+clazz.getName()+"."+method.getName(clazz)+method.getDescriptor(clazz)+"]: "+constantInstruction.toString(offset)+" + "+nextInstruction.toString(nextOffset)+" -> "+value);
+            }
+
+            Instruction replacementInstruction =
+                new SimpleInstruction(InstructionConstants.OP_SIPUSH, value);
+
+            codeAttributeEditor.replaceInstruction(offset, replacementInstruction);
+            codeAttributeEditor.deleteInstruction(nextOffset);
+
+            // Visit the instruction, if required.
+            if (extraInstructionVisitor != null)
+            {
+                replacementInstruction.accept(clazz, method, codeAttribute, offset, extraInstructionVisitor);
+            }
+        }
+    }
+
+
+    // Implementations for ConstantVisitor.
+
+    public void visitAnyConstant(Clazz clazz, Constant constant) {}
+
+
+    public void visitAnyRefConstant(Clazz clazz, RefConstant refConstant)
+    {
+        this.refConstant = refConstant;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns whether the given code only creates primitive arrays, fills
+     * them out with constants, and stores them in static fields of the given
+     * class, guarded by exception handlers that ignore the exceptions.
+     */
+    private boolean onlyInitializesArrays(Clazz         clazz,
+                                          CodeAttribute codeAttribute)
+    {
+        byte[] code = codeAttribute.code;
+
+        int offset = 0;
+        while (offset < codeAttribute.u4codeLength)
+        {
+            Instruction instruction = InstructionFactory.create(code, offset);
+
+            switch (instruction.opcode)
+            {
+                case InstructionConstants.OP_ICONST_M1:
+                case InstructionConstants.OP_ICONST_0:
+                case InstructionConstants.OP_ICONST_1:
+                case InstructionConstants.OP_ICONST_2:
+                case InstructionConstants.OP_ICONST_3:
+                case InstructionConstants.OP_ICONST_4:
+                case InstructionConstants.OP_ICONST_5:
+                case InstructionConstants.OP_BIPUSH:
+                case InstructionConstants.OP_SIPUSH:
+                case InstructionConstants.OP_NEWARRAY:
+                case InstructionConstants.OP_IASTORE:
+                case InstructionConstants.OP_ASTORE:
+                case InstructionConstants.OP_ASTORE_0:
+                case InstructionConstants.OP_ASTORE_1:
+                case InstructionConstants.OP_ASTORE_2:
+                case InstructionConstants.OP_ASTORE_3:
+                case InstructionConstants.OP_POP:
+                case InstructionConstants.OP_GOTO:
+                case InstructionConstants.OP_GOTO_W:
+                case InstructionConstants.OP_RETURN:
+                    break;
+
+                case InstructionConstants.OP_GETSTATIC:
+                case InstructionConstants.OP_PUTSTATIC:
+                {
+                    // Only the fields of the class itself are accessed.
+                    RefConstant refConstant =
+                        refConstant(clazz, ((ConstantInstruction)instruction).constantIndex);
+
+                    if (!refConstant.getClassName(clazz).equals(clazz.getName()))
+                    {
+                        return false;
+                    }
+                    break;
+                }
+
+                default:
+                    return false;
+            }
+
+            offset += instruction.length(offset);
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Returns whether the specified method reference has the given name and
+     * type.
+     */
+    private boolean isMethod(Clazz  clazz,
+                             int    constantIndex,
+                             String name,
+                             String type)
+    {
+        RefConstant refConstant = refConstant(clazz, constantIndex);
+
+        return refConstant != null                      &&
+               refConstant.getName(clazz).equals(name) &&
+               refConstant.getType(clazz).equals(type);
+    }
+
+
+    /**
+     * Returns the ordinal of the enum constant that is referenced by the
+     * specified field reference, or -1 if it is unknown.
+     */
+    private int ordinal(Clazz clazz, int constantIndex)
+    {
+        RefConstant refConstant = refConstant(clazz, constantIndex);
+        if (refConstant == null)
+        {
+            return -1;
+        }
+
+        Clazz  enumClass = refConstant.referencedClass;
+        Member enumField = refConstant.referencedMember;
+        if (enumClass == null ||
+            enumField == null)
+        {
+            return -1;
+        }
+
+        Integer ordinal = (Integer)enumOrdinals(enumClass).get(enumField);
+
+        return ordinal != null ? ordinal.intValue() : -1;
+    }
+
+
+    /**
+     * Returns the number of enum constants in the enum whose "values()"
+     * method is referenced by the specified method reference, or -1 if it is
+     * unknown.
+     */
+    private int valueCount(Clazz clazz, int constantIndex)
+    {
+        RefConstant refConstant = refConstant(clazz, constantIndex);
+        if (refConstant == null)
+        {
+            return -1;
+        }
+
+        Clazz enumClass = refConstant.referencedClass;
+        if (enumClass == null ||
+            !refConstant.getClassName(clazz).equals(enumClass.getName()) ||
+            !refConstant.getName(clazz).equals(METHOD_NAME_VALUES)     ||
+            !refConstant.getType(clazz).equals("()[" + ClassUtil.internalTypeFromClassName(enumClass.getName())))
+        {
+            return -1;
+        }
+
+        Map ordinals = enumOrdinals(enumClass);
+
+        return ordinals.isEmpty() ? -1 : ordinals.size();
+    }
+
+
+    /**
+     * Returns the specified reference constant, or null if it isn't a
+     * reference constant.
+     */
+    private RefConstant refConstant(Clazz clazz, int constantIndex)
+    {
+        refConstant = null;
+
+        clazz.constantPoolEntryAccept(constantIndex, this);
+
+        return refConstant;
+    }
+
+
+    /**
+     * Returns the ordinals of the enum constants of the given class, or an
+     * empty map if the class is not an enum with a stable layout.
+     */
+    private Map enumOrdinals(Clazz clazz)
+    {
+        Map ordinals = (Map)enumOrdinals.get(clazz);
+        if (ordinals == null)
+        {
+            ordinals = findEnumOrdinals(clazz);
+
+            enumOrdinals.put(clazz, ordinals);
+        }
+
+        return ordinals;
+    }
+
+
+    /**
+     * Analyzes the static initializer of the given class and returns the
+     * ordinals of its enum constants, or an empty map if the class is not an
+     * enum with a stable layout.
+     */
+    private Map findEnumOrdinals(Clazz clazz)
+    {
+        // Is it a program enum class?
+        if (!(clazz instanceof ProgramClass) ||
+            (clazz.getAccessFlags() & ClassConstants.ACC_ENUM) == 0 ||
+            !ClassConstants.NAME_JAVA_LANG_ENUM.equals(clazz.getSuperName()))
+        {
+            return Collections.EMPTY_MAP;
+        }
+
+        // Analyze its static initializer.
+        EnumOrdinalFinder enumOrdinalFinder = new EnumOrdinalFinder();
+
+        clazz.methodAccept(ClassConstants.METHOD_NAME_CLINIT,
+                           ClassConstants.METHOD_TYPE_CLINIT,
+                           new AllAttributeVisitor(enumOrdinalFinder));
+
+        Map fieldNews   = enumOrdinalFinder.fieldNews;
+        Map newOrdinals = enumOrdinalFinder.newOrdinals;
+        if (fieldNews == null)
+        {
+            return Collections.EMPTY_MAP;
+        }
+
+        // Collect the ordinals of all enum constants.
+        EnumConstantCollector enumConstantCollector =
+            new EnumConstantCollector(ClassUtil.internalTypeFromClassName(clazz.getName()));
+
+        clazz.fieldsAccept(enumConstantCollector);
+
+        List enumFields = enumConstantCollector.enumFields;
+
+        Map       ordinals     = new HashMap();
+        boolean[] usedOrdinals = new boolean[enumFields.size()];
+
+        for (int index = 0; index < enumFields.size(); index++)
+        {
+            Object  field   = enumFields.get(index);
+            Integer ordinal = (Integer)newOrdinals.get(fieldNews.get(field));
+
+            // The ordinals must be unique and dense.
+            if (ordinal == null                           ||
+                ordinal.intValue() < 0                    ||
+                ordinal.intValue() >= usedOrdinals.length ||
+                usedOrdinals[ordinal.intValue()])
+            {
+                return Collections.EMPTY_MAP;
+            }
+
+            usedOrdinals[ordinal.intValue()] = true;
+
+            ordinals.put(field, ordinal);
+        }
+
+        if (DEBUG)
+        {
+            System.out.println("EnumSwitchMapSimplifier: ["+clazz.getName()+"] has a stable layout with "+ordinals.size()+" enum constants");
+        }
+
+        return ordinals;
+    }
+
+
+    /**
+     * This AttributeVisitor finds the new instances that the static
+     * initializer of an enum class assigns to its enum constants, and the
+     * ordinals with which it creates them.
+     */
+    private class EnumOrdinalFinder
+    extends       SimplifiedVisitor
+    implements    AttributeVisitor
+    {
+        // The maps: [enum constant field - Integer offset of new instance],
+        // or null if the layout isn't stable, and [Integer offset of new
+        // instance - Integer ordinal].
+        public Map fieldNews;
+        public Map newOrdinals = new HashMap();
+
+
+        // Implementations for AttributeVisitor.
+
+        public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+        public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+        {
+            partialEvaluator.visitCodeAttribute(clazz, method, codeAttribute);
+
+            fieldNews = new HashMap();
+
+            byte[] code = codeAttribute.code;
+
+            int offset = 0;
+            while (offset < codeAttribute.u4codeLength)
+            {
+                Instruction instruction = InstructionFactory.create(code, offset);
+
+                if (partialEvaluator.isTraced(offset))
+                {
+                    byte opcode = instruction.opcode;
+
+                    if (opcode == InstructionConstants.OP_INVOKESPECIAL)
+                    {
+                        // Remember the ordinal with which an instance is
+                        // created, as the second parameter of its constructor.
+                        RefConstant refConstant =
+                            refConstant(clazz, ((ConstantInstruction)instruction).constantIndex);
+
+                        String type = refConstant.getType(clazz);
+                        if (refConstant.getName(clazz).equals(ClassConstants.METHOD_NAME_INIT) &&
+                            type.startsWith(ClassConstants.METHOD_ARGUMENTS_OPEN +
+                                            ClassConstants.TYPE_JAVA_LANG_STRING +
+                                            ClassConstants.TYPE_INT))
+                        {
+                            int parameterSize = ClassUtil.internalMethodParameterSize(type);
+
+                            TracedStack stack = partialEvaluator.getStackBefore(offset);
+
+                            InstructionOffsetValue newOffsets =
+                                stack.getTopActualProducerValue(parameterSize).instructionOffsetValue();
+                            IntegerValue ordinal =
+                                stack.getTop(parameterSize - 2).integerValue();
+
+                            if (newOffsets.instructionOffsetCount() == 1 &&
+                                ordinal.isParticular())
+                            {
+                                newOrdinals.put(new Integer(newOffsets.instructionOffset(0)),
+                                                new Integer(ordinal.value()));
+                            }
+                        }
+                    }
+                    else if (opcode == InstructionConstants.OP_PUTSTATIC)
+                    {
+                        // Remember the instance that is assigned to an enum
+                        // constant.
+                        RefConstant refConstant =
+                            refConstant(clazz, ((ConstantInstruction)instruction).constantIndex);
+
+                        Member field = refConstant.referencedMember;
+                        if (refConstant.referencedClass == clazz &&
+                            field != null                        &&
+                            (field.getAccessFlags() & ClassConstants.ACC_ENUM) != 0)
+                        {
+                            InstructionOffsetValue newOffsets =
+                                partialEvaluator.getStackBefore(offset).getTopActualProducerValue(0).instructionOffsetValue();
+
+                            // Each enum constant must be assigned exactly
+                            // once, with a single new instance.
+                            if (fieldNews.containsKey(field)              ||
+                                newOffsets.instructionOffsetCount() != 1 ||
+                                code[newOffsets.instructionOffset(0)] != InstructionConstants.OP_NEW)
+                            {
+                                fieldNews = null;
+                                return;
+                            }
+
+                            fieldNews.put(field, new Integer(newOffsets.instructionOffset(0)));
+                        }
+                    }
+                }
+
+                offset += instruction.length(offset);
+            }
+        }
+    }
+
+
+    /**
+     * This MemberVisitor collects the enum constant fields of the given type
+     * that it visits.
+     */
+    private static class EnumConstantCollector
+    extends              SimplifiedVisitor
+    implements           MemberVisitor
+    {
+        private final String enumType;
+
+        public final List enumFields = new ArrayList();
+
+
+        public EnumConstantCollector(String enumType)
+        {
+            this.enumType = enumType;
+        }
+
+
+        // Implementations for MemberVisitor.
+
+        public void visitProgramField(ProgramClass programClass, ProgramField programField)
+        {
+            if ((programField.getAccessFlags() & (ClassConstants.ACC_STATIC |
+                                                  ClassConstants.ACC_ENUM)) == (ClassConstants.ACC_STATIC |
+                                                                                 ClassConstants.ACC_ENUM) &&
+                programField.getDescriptor(programClass).equals(enumType))
+            {
+                enumFields.add(programField);
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize.evaluation;
+
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.attribute.visitor.AttributeVisitor;
+import proguard.classfile.constant.*;
+import proguard.classfile.constant.visitor.ConstantVisitor;
+import proguard.classfile.editor.*;
+import proguard.classfile.instruction.*;
+import proguard.classfile.instruction.visitor.InstructionVisitor;
+import proguard.classfile.util.*;
+import proguard.evaluation.value.*;
+
+/**
+ * This AttributeVisitor replaces virtual and interface method invocations in
+ * the code attributes that it visits by direct references to the invoked
+ * methods, whenever the partial evaluator can determine the single method
+ * that the invocations select. The invocations then become invokevirtual
+ * instructions that refer to final methods or to the exact classes of the
+ * receivers, so that subsequent optimizations, like method inlining, can
+ * handle them.
+ *
+ * The invoked methods must be public program methods, and their classes
+ * must be accessible from the invoking classes.
+ *
+ * @see proguard.optimize.peephole.MethodFinalizer
+ * @see proguard.optimize.peephole.MethodInliner
+ * @author Eric Lafortune
+ */
+public class InvocationDevirtualizer
+extends      SimplifiedVisitor
+implements   AttributeVisitor,
+             InstructionVisitor,
+             ConstantVisitor
+{
+    //*
+    private static final boolean DEBUG = false;
+    /*/
+    private static boolean DEBUG = System.getProperty("id") != null;
+    //*/
+
+    private final InstructionVisitor extraInstructionVisitor;
+
+    private final PartialEvaluator    partialEvaluator;
+    private final CodeAttributeEditor codeAttributeEditor = new CodeAttributeEditor(true, true);
+
+    private boolean evaluated;
+
+    // Fields acting as parameters and return values for the visitor methods.
+    private Clazz  referencedClass;
+    private Member referencedMethod;
+
+
+    /**
+     * Creates a new InvocationDevirtualizer.
+     */
+    public InvocationDevirtualizer()
+    {
+        this(new PartialEvaluator(new TypedReferenceValueFactory()), null);
+    }
+
+
+    /**
+     * Creates a new InvocationDevirtualizer.
+     * @param partialEvaluator        the partial evaluator that will
+     *                                execute the code and provide
+     *                                information about the invocation
+     *                                receivers.
+     * @param extraInstructionVisitor an optional extra visitor for all
+     *                                devirtualized invocations.
+     */
+    public InvocationDevirtualizer(PartialEvaluator   partialEvaluator,
+                                   InstructionVisitor extraInstructionVisitor)
+    {
+        this.partialEvaluator        = partialEvaluator;
+        this.extraInstructionVisitor = extraInstructionVisitor;
+    }
+
+
+    // Implementations for AttributeVisitor.
+
+    public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+    public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+    {
+        // We'll only evaluate the code once we encounter an invocation that
+        // we might devirtualize.
+        evaluated = false;
+
+        // Reset the code changes.
+        codeAttributeEditor.reset(codeAttribute.u4codeLength);
+
+        // Replace any invocations that can be devirtualized.
+        codeAttribute.instructionsAccept(clazz, method, this);
+
+        // Apply all accumulated changes to the code.
+        if (evaluated)
+        {
+            codeAttributeEditor.visitCodeAttribute(clazz, method, codeAttribute);
+        }
+    }
+
+
+    // Implementations for InstructionVisitor.
+
+    public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction) {}
+
+
+    public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
+    {
+        byte opcode = constantInstruction.opcode;
+        if (opcode == InstructionConstants.OP_INVOKEVIRTUAL ||
+            opcode == InstructionConstants.OP_INVOKEINTERFACE)
+        {
+            // Find the referenced method.
+            referencedClass  = null;
+            referencedMethod = null;
+            clazz.constantPoolEntryAccept(constantInstruction.constantIndex, this);
+
+            // Is it an overridable method that may be invoked virtually?
+            if (referencedMethod != null &&
+                (referencedMethod.getAccessFlags() & (ClassConstants.ACC_PUBLIC |
+                                                      ClassConstants.ACC_PROTECTED)) != 0 &&
+                (referencedMethod.getAccessFlags() & (ClassConstants.ACC_PRIVATE |
+                                                      ClassConstants.ACC_STATIC  |
+                                                      ClassConstants.ACC_FINAL)) == 0 &&
+                (referencedClass.getAccessFlags() & ClassConstants.ACC_FINAL) == 0)
+            {
+                if (!evaluated)
+                {
+                    // Evaluate the method.
+                    partialEvaluator.visitCodeAttribute(clazz, method, codeAttribute);
+
+                    evaluated = true;
+                }
+
+                if (partialEvaluator.isTraced(offset))
+                {
+                    devirtualize(clazz, offset, constantInstruction);
+                }
+            }
+        }
+    }
+
+
+    // Implementations for ConstantVisitor.
+
+    public void visitAnyConstant(Clazz clazz, Constant constant) {}
+
+
+    public void visitAnyMethodrefConstant(Clazz clazz, RefConstant refConstant)
+    {
+        referencedClass  = refConstant.referencedClass;
+        referencedMethod = refConstant.referencedMember;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Replaces the given invocation by a direct invocation of the single
+     * method that it can select, if possible.
+     */
+    private void devirtualize(Clazz               clazz,
+                              int                 offset,
+                              ConstantInstruction constantInstruction)
+    {
+        String name = clazz.getRefName(constantInstruction.constantIndex);
+        String type = clazz.getRefType(constantInstruction.constantIndex);
+
+        // Get the receiver of the invocation, below the parameters.
+        ReferenceValue receiver =
+            partialEvaluator.getStackBefore(offset).getTop(
+                ClassUtil.internalMethodParameterSize(type)).referenceValue();
+
+        // Do we know the class of the receiver?
+        Clazz receiverClass = receiver.getReferencedClass();
+        if (receiverClass == null                                               ||
+            receiver.isNull() == Value.ALWAYS                                   ||
+            ClassUtil.isInternalArrayType(receiver.getType())                   ||
+            (receiverClass.getAccessFlags() & ClassConstants.ACC_INTERFACE) != 0)
+        {
+            return;
+        }
+
+        // Find the method that the receiver class or its super classes
+        // declare. The JVM selects this method, unless a subclass overrides
+        // it.
+        Clazz  targetClass  = receiverClass;
+        Method targetMethod = null;
+        while (targetClass != null)
+        {
+            targetMethod = targetClass.findMethod(name, type);
+            if (targetMethod != null)
+            {
+                break;
+            }
+
+            targetClass = targetClass.getSuperClass();
+        }
+
+        // Is it a public program method that can't be overridden by the
+        // actual receiver?
+        if (targetMethod == null                                            ||
+            !(targetMethod instanceof ProgramMethod)                        ||
+            (targetMethod.getAccessFlags() & (ClassConstants.ACC_PUBLIC   |
+                                              ClassConstants.ACC_STATIC   |
+                                              ClassConstants.ACC_ABSTRACT)) != ClassConstants.ACC_PUBLIC ||
+            receiver.mayBeExtension()                                       &&
+            (targetMethod.getAccessFlags() & ClassConstants.ACC_FINAL) == 0 &&
+            (targetClass.getAccessFlags()  & ClassConstants.ACC_FINAL) == 0)
+        {
+            return;
+        }
+
+        // Is the class of the method accessible from the invoking class?
+        if ((targetClass.getAccessFlags() & ClassConstants.ACC_PUBLIC) == 0 &&
+            !ClassUtil.internalPackageName(targetClass.getName()).equals(
+             ClassUtil.internalPackageName(clazz.getName())))
+        {
+            return;
+        }
+
+        // Is the invocation already as direct as possible?
+        if (constantInstruction.opcode == InstructionConstants.OP_INVOKEVIRTUAL &&
+            targetClass.equals(referencedClass))
+        {
+            return;
+        }
+
+        if (DEBUG)
+        {
+            System.out.println("InvocationDevirtualizer: ["+clazz.getName()+"] "+
+                               constantInstruction.toString(offset)+" -> ["+
+                               targetClass.getName()+"."+name+type+"]");
+        }
+
+        // Replace the invocation.
+        int constantIndex =
+            new ConstantPoolEditor((ProgramClass)clazz).addMethodrefConstant(targetClass,
+                                                                            targetMethod);
+
+        Instruction replacementInstruction =
+            new ConstantInstruction(InstructionConstants.OP_INVOKEVIRTUAL,
+                                    constantIndex);
+
+        codeAttributeEditor.replaceInstruction(offset, replacementInstruction);
+
+        // Visit the instruction, if required.
+        if (extraInstructionVisitor != null)
+        {
+            replacementInstruction.accept(clazz, null, null, offset, extraInstructionVisitor);
+        }
+    }
+}
@@ -24,22 +24,32 @@ import proguard.classfile.*;
 import proguard.classfile.attribute.*;
 import proguard.classfile.attribute.visitor.*;
 import proguard.classfile.instruction.*;
-import proguard.classfile.instruction.visitor.InstructionVisitor;
+import proguard.classfile.instruction.visitor.TransientInstructionVisitor;
 import proguard.classfile.util.SimplifiedVisitor;
-import proguard.evaluation.BasicInvocationUnit;
+import proguard.evaluation.*;
 import proguard.evaluation.value.*;
 import proguard.util.ArrayUtil;
 
+import java.util.Arrays;
+
 /**
  * This AttributeVisitor analyzes the liveness of the variables in the code
  * attributes that it visits, based on partial evaluation.
+ * <p>
+ * The analysis splits the traced instructions into basic blocks and solves
+ * the liveness equations with a backward worklist over these blocks. It
+ * keeps the liveness of the variables before and after each instruction in
+ * packed bit sets, with 64 variables per long word. For methods with very
+ * many variables and long code, it only analyzes the first 64 variables,
+ * and approximates the liveness of the others by the presence of their
+ * values.
  *
  * @author Eric Lafortune
  */
 public class LivenessAnalyzer
 extends      SimplifiedVisitor
 implements   AttributeVisitor,
-             InstructionVisitor,
+             TransientInstructionVisitor,
              ExceptionInfoVisitor
 {
     //*
@@ -48,20 +58,59 @@ implements   AttributeVisitor,
     private static       boolean DEBUG = System.getProperty("la") != null;
     //*/
 
-    private static final int MAX_VARIABLES_SIZE = 64;
+    // The analysis is limited to the first 64 variables if all variables
+    // would need too much memory.
+    private static final int MAX_VARIABLES_SIZE          = 64;
+    private static final int MAX_ANALYZED_VARIABLES_SIZE = 4096;
+    private static final int MAX_BIT_SETS_LENGTH         = 1024 * 1024;
+
+    private static final int NONE = -1;
 
     private final PartialEvaluator     partialEvaluator;
     private final boolean              runPartialEvaluator;
     private final InitializationFinder initializationFinder;
     private final boolean              runInitializationFinder;
 
+    // The liveness bit sets, with wordCount long words for each offset,
+    // for the first variablesSize variables.
+    private int    variablesSize;
+    private int    wordCount;
     private long[] isAliveBefore = new long[ClassConstants.TYPICAL_CODE_LENGTH];
     private long[] isAliveAfter  = new long[ClassConstants.TYPICAL_CODE_LENGTH];
     private long[] isCategory2   = new long[ClassConstants.TYPICAL_CODE_LENGTH];
 
+    // The variables that the instructions load and store.
+    private int[] loadedVariables = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int[] storedVariables = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+
+    // The basic blocks, with the blocks that depend on their liveness and
+    // the exception handler blocks whose liveness they include.
+    private boolean[] isBlockBoundary   = new boolean[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int[]     blockIndices      = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int[]     blockStarts       = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int[]     blockEnds         = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int       blockCount;
+    private int[]     dependentIndices  = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int[]     dependentBlocks   = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int[]     handlerIndices    = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int[]     handlerBlocks     = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+
+    // The edges between the blocks, while they are being collected.
+    private int[] edgeSources      = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int[] edgeTargets      = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int   edgeCount;
+    private int[] handlerSources   = new int[ClassConstants.TYPICAL_EXCEPTION_TABLE_LENGTH];
+    private int[] handlerTargets   = new int[ClassConstants.TYPICAL_EXCEPTION_TABLE_LENGTH];
+    private int   handlerEdgeCount;
+
+    // The worklist of blocks that still have to be analyzed.
+    private int[]     worklist   = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private boolean[] isQueued   = new boolean[ClassConstants.TYPICAL_CODE_LENGTH];
+
     // Fields acting as global temporary variables.
-    private boolean checkAgain;
-    private long    alive;
+    private int    superInitializationOffset;
+    private long[] alive          = new long[1];
+    private long[] exceptionAlive = new long[1];
 
 
     /**
@@ -137,15 +186,26 @@ implements   AttributeVisitor,
     }
 
 
+    /**
+     * Returns the number of variables whose liveness has been analyzed,
+     * starting from index 0. The liveness of any other variables is
+     * approximated by the presence of their values.
+     */
+    public int getAnalyzedVariablesSize()
+    {
+        return variablesSize;
+    }
+
+
     /**
      * Returns whether the specified variable is alive before the instruction
      * at the given offset.
      */
     public boolean isAliveBefore(int instructionOffset, int variableIndex)
     {
-        return variableIndex >= MAX_VARIABLES_SIZE ?
+        return variableIndex >= variablesSize ?
             partialEvaluator.getVariablesBefore(instructionOffset).getValue(variableIndex) != null :
-            (isAliveBefore[instructionOffset] & (1L << variableIndex)) != 0;
+            isSet(isAliveBefore, instructionOffset, variableIndex);
     }
 
 
@@ -155,17 +215,7 @@ implements   AttributeVisitor,
      */
     public void setAliveBefore(int instructionOffset, int variableIndex, boolean alive)
     {
-        if (variableIndex < MAX_VARIABLES_SIZE)
-        {
-            if (alive)
-            {
-                isAliveBefore[instructionOffset] |= 1L << variableIndex;
-            }
-            else
-            {
-                isAliveBefore[instructionOffset] &= ~(1L << variableIndex);
-            }
-        }
+        set(isAliveBefore, instructionOffset, variableIndex, alive);
     }
 
 
@@ -175,9 +225,9 @@ implements   AttributeVisitor,
      */
     public boolean isAliveAfter(int instructionOffset, int variableIndex)
     {
-        return variableIndex >= MAX_VARIABLES_SIZE ?
+        return variableIndex >= variablesSize ?
             partialEvaluator.getVariablesAfter(instructionOffset).getValue(variableIndex) != null :
-            (isAliveAfter[instructionOffset] & (1L << variableIndex)) != 0;
+            isSet(isAliveAfter, instructionOffset, variableIndex);
     }
 
 
@@ -187,17 +237,7 @@ implements   AttributeVisitor,
      */
     public void setAliveAfter(int instructionOffset, int variableIndex, boolean alive)
     {
-        if (variableIndex < MAX_VARIABLES_SIZE)
-        {
-            if (alive)
-            {
-                isAliveAfter[instructionOffset] |= 1L << variableIndex;
-            }
-            else
-            {
-                isAliveAfter[instructionOffset] &= ~(1L << variableIndex);
-            }
-        }
+        set(isAliveAfter, instructionOffset, variableIndex, alive);
     }
 
 
@@ -207,10 +247,10 @@ implements   AttributeVisitor,
      */
     public boolean isCategory2(int instructionOffset, int variableIndex)
     {
-        return variableIndex >= MAX_VARIABLES_SIZE ?
+        return variableIndex >= variablesSize ?
             partialEvaluator.getVariablesBefore(instructionOffset).getValue(variableIndex) != null &&
             partialEvaluator.getVariablesBefore(instructionOffset).getValue(variableIndex).isCategory2() :
-            (isCategory2[instructionOffset] & (1L << variableIndex)) != 0;
+            isSet(isCategory2, instructionOffset, variableIndex);
     }
 
 
@@ -220,17 +260,40 @@ implements   AttributeVisitor,
      */
     public void setCategory2(int instructionOffset, int variableIndex, boolean category2)
     {
-        if (variableIndex < MAX_VARIABLES_SIZE)
-        {
-            if (category2)
-            {
-                isCategory2[instructionOffset] |= 1L << variableIndex;
-            }
-            else
-            {
-                isCategory2[instructionOffset] &= ~(1L << variableIndex);
-            }
-        }
+        set(isCategory2, instructionOffset, variableIndex, category2);
+    }
+
+
+    /**
+     * Returns the packed liveness flags of the variables with indices
+     * 64 * wordIndex up to 64 * wordIndex + 63, before the instruction at
+     * the given offset.
+     */
+    public long getAliveBeforeBits(int instructionOffset, int wordIndex)
+    {
+        return isAliveBefore[instructionOffset * wordCount + wordIndex];
+    }
+
+
+    /**
+     * Returns the packed liveness flags of the variables with indices
+     * 64 * wordIndex up to 64 * wordIndex + 63, after the instruction at
+     * the given offset.
+     */
+    public long getAliveAfterBits(int instructionOffset, int wordIndex)
+    {
+        return isAliveAfter[instructionOffset * wordCount + wordIndex];
+    }
+
+
+    /**
+     * Returns the packed category 2 flags of the variables with indices
+     * 64 * wordIndex up to 64 * wordIndex + 63, at the instruction at the
+     * given offset.
+     */
+    public long getCategory2Bits(int instructionOffset, int wordIndex)
+    {
+        return isCategory2[instructionOffset * wordCount + wordIndex];
     }
 
 
@@ -251,13 +314,23 @@ implements   AttributeVisitor,
             System.out.println("Liveness analysis: "+clazz.getName()+"."+method.getName(clazz)+method.getDescriptor(clazz));
         }
 
-        int codeLength    = codeAttribute.u4codeLength;
-        int variablesSize = codeAttribute.u2maxLocals;
+        int codeLength = codeAttribute.u4codeLength;
+
+        variablesSize = codeAttribute.u2maxLocals;
+        wordCount     = (variablesSize + 63) >>> 6;
+
+        // We'll only really analyze the first 64 variables if the bit sets
+        // for all variables would get too large.
+        if (variablesSize > MAX_VARIABLES_SIZE &&
+            (variablesSize > MAX_ANALYZED_VARIABLES_SIZE ||
+             codeLength * wordCount > MAX_BIT_SETS_LENGTH))
+        {
+            variablesSize = MAX_VARIABLES_SIZE;
+            wordCount     = 1;
+        }
 
         // Initialize the global arrays.
-        isAliveBefore = ArrayUtil.ensureArraySize(isAliveBefore, codeLength, 0L);
-        isAliveAfter  = ArrayUtil.ensureArraySize(isAliveAfter,  codeLength, 0L);
-        isCategory2   = ArrayUtil.ensureArraySize(isCategory2,   codeLength, 0L);
+        initializeArrays(codeLength);
 
         // Evaluate the method.
         if (runPartialEvaluator)
@@ -270,102 +343,53 @@ implements   AttributeVisitor,
             initializationFinder.visitCodeAttribute(clazz, method, codeAttribute);
         }
 
-        // We'll only really analyze the first 64 variables.
-        if (variablesSize > MAX_VARIABLES_SIZE)
+        superInitializationOffset = initializationFinder.superInitializationOffset();
+
+        // Collect the variables that the instructions load and store.
+        codeAttribute.instructionsAccept(clazz, method, this);
+
+        // Split the code into basic blocks and link them up.
+        findBlocks(clazz, method, codeAttribute);
+
+        // Start with all blocks in the worklist, so the last block comes
+        // first.
+        int worklistSize = blockCount;
+        for (int blockIndex = 0; blockIndex < blockCount; blockIndex++)
         {
-            variablesSize = MAX_VARIABLES_SIZE;
+            worklist[blockIndex] = blockIndex;
+            isQueued[blockIndex] = true;
         }
 
-        // Mark liveness blocks, as many times as necessary.
-        do
+        // Propagate the liveness backward until it's stable.
+        while (worklistSize > 0)
         {
-            checkAgain = false;
-            alive      = 0L;
+            int blockIndex = worklist[--worklistSize];
+            isQueued[blockIndex] = false;
 
-            // Loop over all traced instructions, backward.
-            for (int offset = codeLength - 1; offset >= 0; offset--)
+            if (analyzeBlock(blockIndex))
             {
-                if (partialEvaluator.isTraced(offset))
+                // Reconsider all blocks that depend on the changed liveness
+                // at the start of this block.
+                int endIndex = dependentIndices[blockIndex + 1];
+                for (int index = dependentIndices[blockIndex]; index < endIndex; index++)
                 {
-                    // Update the liveness based on the branch targets.
-                    InstructionOffsetValue branchTargets = partialEvaluator.branchTargets(offset);
-                    if (branchTargets != null)
+                    int dependentBlockIndex = dependentBlocks[index];
+                    if (!isQueued[dependentBlockIndex])
                     {
-                        // Update the liveness right after the branch instruction.
-                        alive = combinedLiveness(branchTargets);
-                    }
-
-                    // Merge the current liveness.
-                    alive |= isAliveAfter[offset];
-
-                    // Update the liveness after the instruction.
-                    isAliveAfter[offset] = alive;
-
-                    // Update the current liveness based on the instruction.
-                    codeAttribute.instructionAccept(clazz, method, offset, this);
-
-                    // Merge the current liveness.
-                    alive |= isAliveBefore[offset];
-
-                    // Update the liveness before the instruction.
-                    if ((~isAliveBefore[offset] & alive) != 0L)
-                    {
-                        isAliveBefore[offset] = alive;
-
-                        // Do we have to check again after this loop?
-                        InstructionOffsetValue branchOrigins = partialEvaluator.branchOrigins(offset);
-                        if (branchOrigins != null &&
-                            offset < branchOrigins.maximumValue())
-                        {
-                            checkAgain = true;
-                        }
+                        isQueued[dependentBlockIndex] = true;
+                        worklist[worklistSize++] = dependentBlockIndex;
                     }
                 }
             }
-
-            // Account for the liveness at the start of the exception handlers.
-            codeAttribute.exceptionsAccept(clazz, method, this);
         }
-        while (checkAgain);
 
         // Loop over all instructions, to mark variables that take up two entries.
         for (int offset = 0; offset < codeLength; offset++)
         {
             if (partialEvaluator.isTraced(offset))
             {
-                // Loop over all variables.
-                for (int variableIndex = 0; variableIndex < variablesSize; variableIndex++)
-                {
-                    // Is the variable alive and a category 2 type?
-                    if (isAliveBefore(offset, variableIndex))
-                    {
-                        Value value = partialEvaluator.getVariablesBefore(offset).getValue(variableIndex);
-                        if (value != null && value.isCategory2())
-                        {
-                            // Mark it as such.
-                            setCategory2(offset, variableIndex, true);
-
-                            // Mark the next variable as well.
-                            setAliveBefore(offset, variableIndex + 1, true);
-                            setCategory2(  offset, variableIndex + 1, true);
-                        }
-                    }
-
-                    // Is the variable alive and a category 2 type?
-                    if (isAliveAfter(offset, variableIndex))
-                    {
-                        Value value = partialEvaluator.getVariablesAfter(offset).getValue(variableIndex);
-                        if (value != null && value.isCategory2())
-                        {
-                            // Mark it as such.
-                            setCategory2(offset, variableIndex, true);
-
-                            // Mark the next variable as well.
-                            setAliveAfter(offset, variableIndex + 1, true);
-                            setCategory2( offset, variableIndex + 1, true);
-                        }
-                    }
-                }
+                markCategory2(offset, isAliveBefore, partialEvaluator.getVariablesBefore(offset));
+                markCategory2(offset, isAliveAfter,  partialEvaluator.getVariablesAfter(offset));
             }
         }
 
@@ -376,17 +400,12 @@ implements   AttributeVisitor,
             {
                 if (partialEvaluator.isTraced(offset))
                 {
-                    long aliveBefore = isAliveBefore[offset];
-                    long aliveAfter  = isAliveAfter[offset];
-                    long category2   = isCategory2[offset];
-
                     // Print out the liveness of all variables before the instruction.
                     for (int variableIndex = 0; variableIndex < variablesSize; variableIndex++)
                     {
-                        long variableMask = (1L << variableIndex);
-                        System.out.print((aliveBefore & variableMask) == 0L ? '.' :
-                                         (category2   & variableMask) == 0L ? 'x' :
-                                                                              '*');
+                        System.out.print(!isAliveBefore(offset, variableIndex) ? '.' :
+                                         !isCategory2(offset, variableIndex)   ? 'x' :
+                                                                                 '*');
                     }
 
                     // Print out the instruction itself.
@@ -395,10 +414,9 @@ implements   AttributeVisitor,
                     // Print out the liveness of all variables after the instruction.
                     for (int variableIndex = 0; variableIndex < variablesSize; variableIndex++)
                     {
-                        long variableMask = (1L << variableIndex);
-                        System.out.print((aliveAfter & variableMask) == 0L ? '.' :
-                                         (category2  & variableMask) == 0L ? 'x' :
-                                                                             '=');
+                        System.out.print(!isAliveAfter(offset, variableIndex) ? '.' :
+                                         !isCategory2(offset, variableIndex)  ? 'x' :
+                                                                                '=');
                     }
 
                     System.out.println();
@@ -408,6 +426,14 @@ implements   AttributeVisitor,
     }
 
 
+    // Implementations for TransientInstructionVisitor.
+
+    public boolean acceptsTransientInstructions()
+    {
+        return true;
+    }
+
+
     // Implementations for InstructionVisitor.
 
     public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction) {}
@@ -416,85 +442,439 @@ implements   AttributeVisitor,
     public void visitVariableInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, VariableInstruction variableInstruction)
     {
         int variableIndex = variableInstruction.variableIndex;
-        if (variableIndex < MAX_VARIABLES_SIZE)
+        if (variableIndex < variablesSize)
         {
-            long livenessMask = 1L << variableIndex;
-
             // Is it a load instruction or a store instruction?
             if (variableInstruction.isLoad())
             {
-                // Start marking the variable before the load instruction.
-                alive |= livenessMask;
+                loadedVariables[offset] = variableIndex;
             }
             else
             {
-                // Stop marking the variable before the store instruction.
-                alive &= ~livenessMask;
-
-                // But do mark the variable right after the store instruction.
-                isAliveAfter[offset] |= livenessMask;
+                storedVariables[offset] = variableIndex;
             }
         }
     }
 
 
-    public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
+    // Implementations for ExceptionInfoVisitor.
+
+    public void visitExceptionInfo(Clazz clazz, Method method, CodeAttribute codeAttribute, ExceptionInfo exceptionInfo)
     {
-        // Special case: variable 0 ('this') in an initializer has to be alive
-        // as long as it hasn't been initialized.
-        if (offset == initializationFinder.superInitializationOffset())
+        int handlerBlockIndex = blockIndices[exceptionInfo.u2handlerPC];
+        if (handlerBlockIndex != NONE)
         {
-            alive |= 1L;
+            // The blocks of the try block include the liveness at the start
+            // of the handler, so they depend on it.
+            int startOffset = exceptionInfo.u2startPC;
+            int endOffset   = exceptionInfo.u2endPC;
+
+            for (int offset = startOffset; offset < endOffset; offset++)
+            {
+                int blockIndex = blockIndices[offset];
+                if (blockIndex != NONE)
+                {
+                    addEdge(handlerBlockIndex, blockIndex);
+
+                    handlerSources = ArrayUtil.add(handlerSources, handlerEdgeCount,   blockIndex);
+                    handlerTargets = ArrayUtil.add(handlerTargets, handlerEdgeCount++, handlerBlockIndex);
+                }
+            }
         }
     }
 
 
-    // Implementations for ExceptionInfoVisitor.
+    // Small utility methods.
 
-    public void visitExceptionInfo(Clazz clazz, Method method, CodeAttribute codeAttribute, ExceptionInfo exceptionInfo)
+    /**
+     * Initializes the global arrays for the given code length.
+     */
+    private void initializeArrays(int codeLength)
     {
-        // Are any variables alive at the start of the handler?
-        long alive = isAliveBefore[exceptionInfo.u2handlerPC];
-        if (alive != 0L)
+        int bitsLength = codeLength * wordCount;
+
+        isAliveBefore   = ArrayUtil.ensureArraySize(isAliveBefore,   bitsLength, 0L);
+        isAliveAfter    = ArrayUtil.ensureArraySize(isAliveAfter,    bitsLength, 0L);
+        isCategory2     = ArrayUtil.ensureArraySize(isCategory2,     bitsLength, 0L);
+        loadedVariables = ArrayUtil.ensureArraySize(loadedVariables, codeLength, NONE);
+        storedVariables = ArrayUtil.ensureArraySize(storedVariables, codeLength, NONE);
+        isBlockBoundary = ArrayUtil.ensureArraySize(isBlockBoundary, codeLength + 1, false);
+        blockIndices    = ArrayUtil.ensureArraySize(blockIndices,    codeLength + 1, NONE);
+
+        if (blockStarts.length < codeLength)
         {
-            // Set the same liveness flags for the entire try block.
-            int startOffset = exceptionInfo.u2startPC;
-            int endOffset   = exceptionInfo.u2endPC;
+            blockStarts      = new int[codeLength];
+            blockEnds        = new int[codeLength];
+            worklist         = new int[codeLength];
+            isQueued         = new boolean[codeLength];
+        }
 
-            for (int offset = startOffset; offset < endOffset; offset++)
+        if (dependentIndices.length < codeLength + 1)
+        {
+            dependentIndices = new int[codeLength + 1];
+            handlerIndices   = new int[codeLength + 1];
+        }
+
+        if (alive.length < wordCount)
+        {
+            alive          = new long[wordCount];
+            exceptionAlive = new long[wordCount];
+        }
+    }
+
+
+    /**
+     * Splits the traced instructions of the given code attribute into basic
+     * blocks and collects the dependencies between them.
+     */
+    private void findBlocks(Clazz clazz, Method method, CodeAttribute codeAttribute)
+    {
+        int codeLength = codeAttribute.u4codeLength;
+
+        // Blocks start at branch targets...
+        for (int offset = 0; offset < codeLength; offset++)
+        {
+            if (partialEvaluator.isTraced(offset))
             {
-                if (partialEvaluator.isTraced(offset))
+                InstructionOffsetValue branchTargets = partialEvaluator.branchTargets(offset);
+                if (branchTargets != null)
+                {
+                    int count = branchTargets.instructionOffsetCount();
+                    for (int index = 0; index < count; index++)
+                    {
+                        isBlockBoundary[branchTargets.instructionOffset(index)] = true;
+                    }
+                }
+            }
+        }
+
+        // ...and at the boundaries of try blocks and exception handlers, so
+        // each block is either entirely inside a try block or outside of it.
+        ExceptionInfo[] exceptionTable = codeAttribute.exceptionTable;
+        for (int index = 0; index < codeAttribute.u2exceptionTableLength; index++)
+        {
+            ExceptionInfo exceptionInfo = exceptionTable[index];
+
+            isBlockBoundary[exceptionInfo.u2startPC]   = true;
+            isBlockBoundary[exceptionInfo.u2endPC]     = true;
+            isBlockBoundary[exceptionInfo.u2handlerPC] = true;
+        }
+
+        // Collect the blocks of traced instructions. Blocks also start after
+        // instructions with branch targets.
+        blockCount = 0;
+
+        boolean startsBlock = true;
+        for (int offset = 0; offset < codeLength; offset++)
+        {
+            startsBlock |= isBlockBoundary[offset];
+
+            if (partialEvaluator.isTraced(offset))
+            {
+                if (startsBlock)
                 {
-                    if ((~(isAliveBefore[offset] & isAliveAfter[offset]) & alive) != 0L)
+                    blockStarts[blockCount]  = offset;
+                    blockIndices[offset]     = blockCount++;
+                }
+
+                blockEnds[blockCount - 1] = offset;
+
+                startsBlock = partialEvaluator.branchTargets(offset) != null;
+            }
+        }
+
+        // Collect the dependencies of the blocks on their successors.
+        edgeCount        = 0;
+        handlerEdgeCount = 0;
+
+        for (int blockIndex = 0; blockIndex < blockCount; blockIndex++)
+        {
+            InstructionOffsetValue branchTargets =
+                partialEvaluator.branchTargets(blockEnds[blockIndex]);
+
+            if (branchTargets != null)
+            {
+                int count = branchTargets.instructionOffsetCount();
+                for (int index = 0; index < count; index++)
+                {
+                    int targetBlockIndex = blockIndices[branchTargets.instructionOffset(index)];
+                    if (targetBlockIndex != NONE)
                     {
-                        isAliveBefore[offset] |= alive;
-                        isAliveAfter[offset]  |= alive;
+                        addEdge(targetBlockIndex, blockIndex);
+                    }
+                }
+            }
+            else if (blockIndex + 1 < blockCount)
+            {
+                addEdge(blockIndex + 1, blockIndex);
+            }
+        }
+
+        // Collect the dependencies of the blocks on their exception handlers.
+        codeAttribute.exceptionsAccept(clazz, method, this);
+
+        // Sort the edges by their sources.
+        dependentBlocks = sortEdges(edgeSources,    edgeTargets,    edgeCount,        dependentIndices, dependentBlocks);
+        handlerBlocks   = sortEdges(handlerSources, handlerTargets, handlerEdgeCount, handlerIndices,   handlerBlocks);
+    }
+
+
+    /**
+     * Adds an edge from the given source block to the given block that
+     * depends on it.
+     */
+    private void addEdge(int sourceBlockIndex, int dependentBlockIndex)
+    {
+        edgeSources = ArrayUtil.add(edgeSources, edgeCount,   sourceBlockIndex);
+        edgeTargets = ArrayUtil.add(edgeTargets, edgeCount++, dependentBlockIndex);
+    }
+
+
+    /**
+     * Sorts the given edges by their sources, filling out the given start
+     * indices for all blocks and returning the sorted targets.
+     */
+    private int[] sortEdges(int[] sources,
+                            int[] targets,
+                            int   edgeCount,
+                            int[] indices,
+                            int[] sortedTargets)
+    {
+        // Count the edges of each source.
+        Arrays.fill(indices, 0, blockCount + 1, 0);
+
+        for (int index = 0; index < edgeCount; index++)
+        {
+            indices[sources[index] + 1]++;
+        }
+
+        for (int blockIndex = 0; blockIndex < blockCount; blockIndex++)
+        {
+            indices[blockIndex + 1] += indices[blockIndex];
+        }
+
+        // Distribute the targets.
+        if (sortedTargets.length < edgeCount)
+        {
+            sortedTargets = new int[edgeCount];
+        }
+
+        for (int index = 0; index < edgeCount; index++)
+        {
+            int source = sources[index];
+            sortedTargets[indices[source]++] = targets[index];
+        }
+
+        // Shift the start indices back into place.
+        for (int blockIndex = blockCount; blockIndex > 0; blockIndex--)
+        {
+            indices[blockIndex] = indices[blockIndex - 1];
+        }
+
+        indices[0] = 0;
+
+        return sortedTargets;
+    }
+
+
+    /**
+     * Computes the liveness before and after all instructions of the
+     * specified block, based on the current liveness at the starts of its
+     * successors and exception handlers.
+     * @return whether the liveness at the start of the block has changed.
+     */
+    private boolean analyzeBlock(int blockIndex)
+    {
+        int startOffset = blockStarts[blockIndex];
+        int endOffset   = blockEnds[blockIndex];
+
+        // Compute the liveness right after the block.
+        Arrays.fill(alive, 0, wordCount, 0L);
+
+        InstructionOffsetValue branchTargets = partialEvaluator.branchTargets(endOffset);
+        if (branchTargets != null)
+        {
+            int count = branchTargets.instructionOffsetCount();
+            for (int index = 0; index < count; index++)
+            {
+                or(alive, isAliveBefore, branchTargets.instructionOffset(index));
+            }
+        }
+        else if (blockIndex + 1 < blockCount)
+        {
+            or(alive, isAliveBefore, blockStarts[blockIndex + 1]);
+        }
+
+        // Compute the liveness at the start of the exception handlers, which
+        // applies throughout the block.
+        Arrays.fill(exceptionAlive, 0, wordCount, 0L);
+
+        int endIndex = handlerIndices[blockIndex + 1];
+        for (int index = handlerIndices[blockIndex]; index < endIndex; index++)
+        {
+            or(exceptionAlive, isAliveBefore, blockStarts[handlerBlocks[index]]);
+        }
+
+        // Loop over all traced instructions of the block, backward.
+        boolean changed = false;
 
-                        // Check again after having marked this try block.
-                        checkAgain = true;
+        for (int offset = endOffset; offset >= startOffset; offset--)
+        {
+            if (partialEvaluator.isTraced(offset))
+            {
+                int bitsOffset = offset * wordCount;
+
+                // Update the liveness after the instruction.
+                for (int wordIndex = 0; wordIndex < wordCount; wordIndex++)
+                {
+                    isAliveAfter[bitsOffset + wordIndex] =
+                        alive[wordIndex] |= exceptionAlive[wordIndex];
+                }
+
+                // Update the current liveness based on the instruction.
+                int storedVariable = storedVariables[offset];
+                if (storedVariable != NONE)
+                {
+                    long livenessMask = 1L << storedVariable;
+
+                    // Stop marking the variable before the store instruction,
+                    // but do mark it right after the store instruction.
+                    alive[storedVariable >>> 6] &= ~livenessMask;
+                    isAliveAfter[bitsOffset + (storedVariable >>> 6)] |= livenessMask;
+                }
+
+                int loadedVariable = loadedVariables[offset];
+                if (loadedVariable != NONE)
+                {
+                    // Start marking the variable before the load instruction.
+                    alive[loadedVariable >>> 6] |= 1L << loadedVariable;
+                }
+
+                // Special case: variable 0 ('this') in an initializer has to
+                // be alive as long as it hasn't been initialized.
+                if (offset == superInitializationOffset)
+                {
+                    alive[0] |= 1L;
+                }
+
+                // Update the liveness before the instruction.
+                for (int wordIndex = 0; wordIndex < wordCount; wordIndex++)
+                {
+                    long newAlive = alive[wordIndex] |= exceptionAlive[wordIndex];
+
+                    if (offset == startOffset &&
+                        isAliveBefore[bitsOffset + wordIndex] != newAlive)
+                    {
+                        changed = true;
                     }
+
+                    isAliveBefore[bitsOffset + wordIndex] = newAlive;
                 }
             }
         }
+
+        return changed;
     }
 
 
-    // Small utility methods.
+    /**
+     * Marks the alive variables in the given bit sets that take up two
+     * entries at the given offset, according to the given variables.
+     */
+    private void markCategory2(int       offset,
+                               long[]    isAlive,
+                               Variables variables)
+    {
+        for (int variableIndex = nextSetBit(isAlive, offset, 0);
+             variableIndex != NONE;
+             variableIndex = nextSetBit(isAlive, offset, variableIndex + 1))
+        {
+            // Is the alive variable a category 2 type?
+            Value value = variables.getValue(variableIndex);
+            if (value != null && value.isCategory2())
+            {
+                // Mark it as such.
+                set(isCategory2, offset, variableIndex, true);
+
+                // Mark the next variable as well.
+                set(isAlive,     offset, variableIndex + 1, true);
+                set(isCategory2, offset, variableIndex + 1, true);
+            }
+        }
+    }
+
+
+    /**
+     * Adds the bits of the given offset in the given bit sets to the given
+     * bits.
+     */
+    private void or(long[] bits, long[] bitSets, int offset)
+    {
+        int bitsOffset = offset * wordCount;
+
+        for (int wordIndex = 0; wordIndex < wordCount; wordIndex++)
+        {
+            bits[wordIndex] |= bitSets[bitsOffset + wordIndex];
+        }
+    }
+
 
     /**
-     * Returns the combined liveness mask of the variables right before the
-     * specified instruction offsets.
+     * Returns the index of the first set bit in the given bit sets at the
+     * given offset, starting at the given variable index, or NONE.
      */
-    private long combinedLiveness(InstructionOffsetValue instructionOffsetValue)
+    private int nextSetBit(long[] bitSets, int offset, int variableIndex)
     {
-        long alive = 0L;
+        int wordIndex = variableIndex >>> 6;
+        if (wordIndex >= wordCount)
+        {
+            return NONE;
+        }
+
+        int  bitsOffset = offset * wordCount;
+        long word       = bitSets[bitsOffset + wordIndex] & (-1L << variableIndex);
 
-        int count = instructionOffsetValue.instructionOffsetCount();
-        for (int index = 0; index < count; index++)
+        while (word == 0L)
         {
-            alive |= isAliveBefore[instructionOffsetValue.instructionOffset(index)];
+            if (++wordIndex >= wordCount)
+            {
+                return NONE;
+            }
+
+            word = bitSets[bitsOffset + wordIndex];
         }
 
-        return alive;
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+
+    /**
+     * Returns whether the specified bit is set in the given bit sets.
+     */
+    private boolean isSet(long[] bitSets, int offset, int variableIndex)
+    {
+        return variableIndex < variablesSize &&
+               (bitSets[offset * wordCount + (variableIndex >>> 6)] & (1L << variableIndex)) != 0L;
+    }
+
+
+    /**
+     * Sets or clears the specified bit in the given bit sets.
+     */
+    private void set(long[] bitSets, int offset, int variableIndex, boolean set)
+    {
+        if (variableIndex < variablesSize)
+        {
+            int index = offset * wordCount + (variableIndex >>> 6);
+
+            if (set)
+            {
+                bitSets[index] |= 1L << variableIndex;
+            }
+            else
+            {
+                bitSets[index] &= ~(1L << variableIndex);
+            }
+        }
     }
 }
@@ -0,0 +1,663 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize.evaluation;
+
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.attribute.visitor.*;
+import proguard.classfile.constant.*;
+import proguard.classfile.constant.visitor.ConstantVisitor;
+import proguard.classfile.editor.*;
+import proguard.classfile.instruction.*;
+import proguard.classfile.instruction.visitor.TransientInstructionVisitor;
+import proguard.classfile.util.*;
+import proguard.classfile.visitor.*;
+import proguard.evaluation.TracedStack;
+import proguard.evaluation.value.*;
+import proguard.optimize.*;
+import proguard.optimize.info.VariableUsageMarker;
+import proguard.util.StringTransformer;
+
+import java.util.*;
+
+/**
+ * This ClassPoolVisitor specializes the methods in the class pools that it
+ * visits for the constant arguments with which they are invoked. For each
+ * static or private method, it picks the primitive parameter for which most
+ * invocations pass a constant, if they only pass a few distinct constants.
+ * It then creates a copy of the method for each constant, which starts by
+ * storing the constant in the parameter, and it lets the invocations with
+ * that constant invoke the copy instead. Subsequent optimizations can then
+ * simplify the copies and remove their unused parameters.
+ * <p>
+ * The total code length of the copies is limited. If a method profile is
+ * available, the hottest methods are specialized first.
+ *
+ * @author Eric Lafortune
+ */
+public class MethodSpecializer
+extends      SimplifiedVisitor
+implements   ClassPoolVisitor,
+             AttributeVisitor,
+             TransientInstructionVisitor,
+             ConstantVisitor,
+             MemberVisitor
+{
+    //*
+    private static final boolean DEBUG = false;
+    /*/
+    private static       boolean DEBUG = System.getProperty("ms") != null;
+    //*/
+
+    private static final int MAXIMUM_SPECIALIZED_CODE_LENGTH = Integer.parseInt(System.getProperty("maximum.specialized.code.length", "2000"));
+    private static final int MAXIMUM_SPECIALIZATION_COUNT    = 4;
+
+
+    private final MethodProfile       methodProfile;
+    private final MemberVisitor       extraSpecializedMethodVisitor;
+    private final PartialEvaluator    partialEvaluator    = new PartialEvaluator(new ParticularValueFactory());
+    private final VariableUsageMarker variableUsageMarker = new VariableUsageMarker();
+    private final CodeAttributeEditor codeAttributeEditor = new CodeAttributeEditor();
+
+    // The invocations of the candidate methods, in their order in the code,
+    // and grouped per invoked method: [ProgramMethod - List of Invocation].
+    private final List invocations       = new ArrayList();
+    private final Map  methodInvocations = new LinkedHashMap();
+
+    // Fields acting as parameters and return values for the visitor methods.
+    private final List    codeInvocations = new ArrayList();
+    private ProgramClass  targetClass;
+    private ProgramMethod targetMethod;
+
+
+    /**
+     * Creates a new MethodSpecializer.
+     * @param methodProfile                 an optional run-time profile of
+     *                                      the program, to specialize the
+     *                                      hottest methods first.
+     * @param extraSpecializedMethodVisitor an optional extra visitor for
+     *                                      all newly created specialized
+     *                                      methods.
+     */
+    public MethodSpecializer(MethodProfile methodProfile,
+                             MemberVisitor extraSpecializedMethodVisitor)
+    {
+        this.methodProfile                 = methodProfile;
+        this.extraSpecializedMethodVisitor = extraSpecializedMethodVisitor;
+    }
+
+
+    // Implementations for ClassPoolVisitor.
+
+    public void visitClassPool(ClassPool classPool)
+    {
+        invocations.clear();
+        methodInvocations.clear();
+
+        // Collect the invocations of candidate methods, with their constant
+        // arguments.
+        classPool.classesAccept(
+            new AllMethodVisitor(
+            new AllAttributeVisitor(this)));
+
+        // Sort the invoked methods, hottest first, if we have a profile.
+        List methods = new ArrayList(methodInvocations.keySet());
+
+        if (methodProfile != null)
+        {
+            Collections.sort(methods, new Comparator()
+            {
+                public int compare(Object object1, Object object2)
+                {
+                    long count1 = methodProfile.getMethodCount((Method)object1);
+                    long count2 = methodProfile.getMethodCount((Method)object2);
+
+                    return count1 > count2 ? -1 :
+                           count1 < count2 ?  1 :
+                                              0;
+                }
+            });
+        }
+
+        // Specialize the methods, as long as the specialized code fits in
+        // the budget.
+        int remainingCodeLength = MAXIMUM_SPECIALIZED_CODE_LENGTH;
+
+        for (int index = 0; index < methods.size(); index++)
+        {
+            ProgramMethod method = (ProgramMethod)methods.get(index);
+
+            remainingCodeLength -=
+                specializeMethod(method,
+                                 (List)methodInvocations.get(method),
+                                 remainingCodeLength);
+        }
+
+        // Let the invocations invoke the specialized methods.
+        retargetInvocations();
+    }
+
+
+    // Implementations for AttributeVisitor.
+
+    public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+    public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+    {
+        // Don't touch code that has to be kept.
+        if (KeepMarker.isKept(codeAttribute))
+        {
+            return;
+        }
+
+        // Find the invocations of candidate methods. Most code doesn't
+        // have any, so we can skip the partial evaluation.
+        codeInvocations.clear();
+
+        codeAttribute.instructionsAccept(clazz, method, this);
+
+        if (codeInvocations.isEmpty())
+        {
+            return;
+        }
+
+        // Evaluate the method.
+        try
+        {
+            partialEvaluator.visitCodeAttribute(clazz, method, codeAttribute);
+        }
+        catch (RuntimeException ex)
+        {
+            System.err.println("Unexpected error while specializing invoked methods:");
+            System.err.println("  Class       = ["+clazz.getName()+"]");
+            System.err.println("  Method      = ["+method.getName(clazz)+method.getDescriptor(clazz)+"]");
+            System.err.println("  Exception   = ["+ex.getClass().getName()+"] ("+ex.getMessage()+")");
+            System.err.println("Not specializing the methods invoked from this method");
+
+            return;
+        }
+
+        // Collect the constant arguments of the reachable invocations.
+        for (int index = 0; index < codeInvocations.size(); index++)
+        {
+            Invocation invocation = (Invocation)codeInvocations.get(index);
+
+            if (partialEvaluator.isTraced(invocation.offset))
+            {
+                collectArguments(invocation);
+
+                invocations.add(invocation);
+
+                List targetInvocations =
+                    (List)methodInvocations.get(invocation.targetMethod);
+
+                if (targetInvocations == null)
+                {
+                    targetInvocations = new ArrayList();
+                    methodInvocations.put(invocation.targetMethod, targetInvocations);
+                }
+
+                targetInvocations.add(invocation);
+            }
+        }
+    }
+
+
+    // Implementations for InstructionVisitor.
+
+    public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction) {}
+
+
+    public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
+    {
+        byte opcode = constantInstruction.opcode;
+
+        if (opcode == InstructionConstants.OP_INVOKESTATIC ||
+            opcode == InstructionConstants.OP_INVOKESPECIAL)
+        {
+            // Is the invoked method a candidate?
+            targetMethod = null;
+
+            clazz.constantPoolEntryAccept(constantInstruction.constantIndex, this);
+
+            if (targetMethod != null)
+            {
+                codeInvocations.add(new Invocation((ProgramClass)clazz,
+                                                   method,
+                                                   codeAttribute,
+                                                   offset,
+                                                   opcode,
+                                                   targetClass,
+                                                   targetMethod));
+            }
+        }
+    }
+
+
+    // Implementations for TransientInstructionVisitor.
+
+    public boolean acceptsTransientInstructions()
+    {
+        return true;
+    }
+
+
+    // Implementations for ConstantVisitor.
+
+    public void visitAnyConstant(Clazz clazz, Constant constant) {}
+
+
+    public void visitMethodrefConstant(Clazz clazz, MethodrefConstant methodrefConstant)
+    {
+        methodrefConstant.referencedMemberAccept(this);
+    }
+
+
+    // Implementations for MemberVisitor.
+
+    public void visitAnyMember(Clazz clazz, Member member) {}
+
+
+    public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
+    {
+        // Only consider methods that are invoked directly, that have code,
+        // and that have primitive parameters.
+        if ((programClass.getAccessFlags() & ClassConstants.ACC_INTERFACE) == 0   &&
+            (programMethod.getAccessFlags() & (ClassConstants.ACC_STATIC |
+                                               ClassConstants.ACC_PRIVATE)) != 0  &&
+            (programMethod.getAccessFlags() & (ClassConstants.ACC_ABSTRACT |
+                                               ClassConstants.ACC_NATIVE)) == 0   &&
+            !programMethod.getName(programClass).equals(ClassConstants.METHOD_NAME_INIT) &&
+            hasPrimitiveParameters(programMethod.getDescriptor(programClass)))
+        {
+            targetClass  = programClass;
+            targetMethod = programMethod;
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Fills out the constant primitive arguments of the given invocation,
+     * based on the current partial evaluation.
+     */
+    private void collectArguments(Invocation invocation)
+    {
+        String      descriptor = invocation.targetMethod.getDescriptor(invocation.targetClass);
+        TracedStack stack      = partialEvaluator.getStackBefore(invocation.offset);
+
+        int parameterSize   = ClassUtil.internalMethodParameterSize(descriptor, true);
+        int parameterOffset = 0;
+        int parameterIndex  = 0;
+
+        InternalTypeEnumeration typeEnumeration =
+            new InternalTypeEnumeration(descriptor);
+
+        while (typeEnumeration.hasMoreTypes())
+        {
+            String type     = typeEnumeration.nextType();
+            int    typeSize = ClassUtil.internalTypeSize(type);
+
+            // The value of a category 2 argument is on top of its extra
+            // entry.
+            Value argument =
+                stack.getTop(parameterSize - parameterOffset - typeSize);
+
+            if (ClassUtil.isInternalPrimitiveType(type) &&
+                argument.isParticular())
+            {
+                invocation.arguments[parameterIndex] = argument;
+            }
+
+            parameterOffset += typeSize;
+            parameterIndex++;
+        }
+    }
+
+
+    /**
+     * Specializes the given method for the constant arguments of the given
+     * invocations, if possible within the given remaining code length.
+     * @return the code length of the created specialized methods.
+     */
+    private int specializeMethod(ProgramMethod method,
+                                 List          invocations,
+                                 int           remainingCodeLength)
+    {
+        ProgramClass programClass = ((Invocation)invocations.get(0)).targetClass;
+
+        String descriptor = method.getDescriptor(programClass);
+        boolean isStatic  = (method.getAccessFlags() & ClassConstants.ACC_STATIC) != 0;
+
+        CodeAttribute codeAttribute =
+            (CodeAttribute)new AttributesEditor(programClass, method, false).findAttribute(ClassConstants.ATTR_Code);
+
+        if (codeAttribute == null)
+        {
+            return 0;
+        }
+
+        // Mark the parameters that the method actually uses.
+        variableUsageMarker.visitCodeAttribute(programClass, method, codeAttribute);
+
+        // Find the parameter for which most invocations pass a constant,
+        // with only a few distinct constants.
+        int bestParameterIndex    = -1;
+        int bestVariableIndex     = -1;
+        Set bestValues            = null;
+        int bestInvocationCount   = 0;
+
+        int parameterCount = ClassUtil.internalMethodParameterCount(descriptor);
+        int variableIndex  = isStatic ? 0 : 1;
+
+        InternalTypeEnumeration typeEnumeration =
+            new InternalTypeEnumeration(descriptor);
+
+        for (int parameterIndex = 0; parameterIndex < parameterCount; parameterIndex++)
+        {
+            Set values          = new LinkedHashSet();
+            int invocationCount = 0;
+
+            for (int index = 0; index < invocations.size(); index++)
+            {
+                Value argument =
+                    ((Invocation)invocations.get(index)).arguments[parameterIndex];
+
+                if (argument != null)
+                {
+                    values.add(argument);
+                    invocationCount++;
+                }
+            }
+
+            // Specializing for a single constant is only useful if
+            // some invocations pass other values.
+            if (invocationCount > bestInvocationCount                &&
+                values.size() <= MAXIMUM_SPECIALIZATION_COUNT        &&
+                (values.size() > 1 || invocationCount < invocations.size()) &&
+                variableUsageMarker.isVariableUsed(variableIndex))
+            {
+                bestParameterIndex  = parameterIndex;
+                bestVariableIndex   = variableIndex;
+                bestValues          = values;
+                bestInvocationCount = invocationCount;
+            }
+
+            variableIndex += ClassUtil.internalTypeSize(typeEnumeration.nextType());
+        }
+
+        if (bestValues == null)
+        {
+            return 0;
+        }
+
+        // Does the specialized code fit?
+        int codeLength = bestValues.size() * codeAttribute.u4codeLength;
+        if (codeLength > remainingCodeLength)
+        {
+            return 0;
+        }
+
+        if (DEBUG)
+        {
+            System.out.println("MethodSpecializer: ["+programClass.getName()+"."+method.getName(programClass)+descriptor+"]: specializing parameter #"+bestParameterIndex+" for "+bestValues);
+        }
+
+        // Create a specialized method for each constant.
+        Iterator valueIterator = bestValues.iterator();
+        while (valueIterator.hasNext())
+        {
+            Value value = (Value)valueIterator.next();
+
+            ProgramMethod specializedMethod =
+                createSpecializedMethod(programClass,
+                                        method,
+                                        bestVariableIndex,
+                                        value);
+
+            // Remember the specialized method for the invocations with
+            // this constant.
+            for (int index = 0; index < invocations.size(); index++)
+            {
+                Invocation invocation = (Invocation)invocations.get(index);
+
+                if (value.equals(invocation.arguments[bestParameterIndex]))
+                {
+                    invocation.specializedMethod = specializedMethod;
+                }
+            }
+
+            if (extraSpecializedMethodVisitor != null)
+            {
+                extraSpecializedMethodVisitor.visitProgramMethod(programClass, specializedMethod);
+            }
+        }
+
+        return codeLength;
+    }
+
+
+    /**
+     * Creates a copy of the given method that starts by storing the given
+     * constant in the specified parameter variable.
+     */
+    private ProgramMethod createSpecializedMethod(ProgramClass  programClass,
+                                                  ProgramMethod method,
+                                                  int           variableIndex,
+                                                  Value         value)
+    {
+        // Find a unique name for the copy.
+        String name = method.getName(programClass);
+
+        int counter = 0;
+        while (programClass.findMethod(name + ClassConstants.SPECIAL_MEMBER_SEPARATOR + counter, null) != null)
+        {
+            counter++;
+        }
+
+        final String specializedName =
+            name + ClassConstants.SPECIAL_MEMBER_SEPARATOR + counter;
+
+        // Copy the method.
+        method.accept(programClass,
+            new MemberAdder(programClass,
+                            new StringTransformer()
+                            {
+                                public String transform(String string)
+                                {
+                                    return specializedName;
+                                }
+                            },
+                            null));
+
+        ProgramMethod specializedMethod =
+            (ProgramMethod)programClass.findMethod(specializedName,
+                                                   method.getDescriptor(programClass));
+
+        // The copy gets its own optimization info later on.
+        specializedMethod.setVisitorInfo(null);
+
+        // Store the constant in the parameter.
+        CodeAttribute codeAttribute =
+            (CodeAttribute)new AttributesEditor(programClass, specializedMethod, false).findAttribute(ClassConstants.ATTR_Code);
+
+        codeAttributeEditor.reset(codeAttribute.u4codeLength);
+        codeAttributeEditor.insertBeforeOffset(0,
+            storeConstantInstructions(programClass, variableIndex, value));
+        codeAttributeEditor.visitCodeAttribute(programClass, specializedMethod, codeAttribute);
+
+        return specializedMethod;
+    }
+
+
+    /**
+     * Returns the instructions that store the given constant in the
+     * specified variable.
+     */
+    private Instruction[] storeConstantInstructions(ProgramClass programClass,
+                                                    int          variableIndex,
+                                                    Value        value)
+    {
+        InstructionSequenceBuilder builder =
+            new InstructionSequenceBuilder(programClass);
+
+        switch (value.computationalType())
+        {
+            case Value.TYPE_INTEGER:
+            {
+                int constant = value.integerValue().value();
+                (constant == (short)constant ?
+                    builder.sipush(constant) :
+                    builder.ldc(constant)).istore(variableIndex);
+                break;
+            }
+            case Value.TYPE_LONG:
+                builder.ldc2_w(value.longValue().value()).lstore(variableIndex);
+                break;
+
+            case Value.TYPE_FLOAT:
+                builder.ldc(value.floatValue().value()).fstore(variableIndex);
+                break;
+
+            case Value.TYPE_DOUBLE:
+                builder.ldc2_w(value.doubleValue().value()).dstore(variableIndex);
+                break;
+        }
+
+        return builder.instructions();
+    }
+
+
+    /**
+     * Lets the collected invocations invoke their specialized methods,
+     * if any.
+     */
+    private void retargetInvocations()
+    {
+        Invocation codeInvocation = null;
+
+        for (int index = 0; index < invocations.size(); index++)
+        {
+            Invocation invocation = (Invocation)invocations.get(index);
+
+            if (invocation.specializedMethod != null)
+            {
+                // Apply the changes to the previous code, if we're moving
+                // on to other code.
+                if (codeInvocation == null ||
+                    codeInvocation.codeAttribute != invocation.codeAttribute)
+                {
+                    applyChanges(codeInvocation);
+
+                    codeInvocation = invocation;
+                    codeAttributeEditor.reset(invocation.codeAttribute.u4codeLength);
+                }
+
+                ConstantPoolEditor constantPoolEditor =
+                    new ConstantPoolEditor(invocation.clazz);
+
+                codeAttributeEditor.replaceInstruction(invocation.offset,
+                    new ConstantInstruction(invocation.opcode,
+                                            constantPoolEditor.addMethodrefConstant(invocation.targetClass,
+                                                                                    invocation.specializedMethod)));
+            }
+        }
+
+        applyChanges(codeInvocation);
+    }
+
+
+    /**
+     * Applies the collected changes to the code of the given invocation,
+     * if any.
+     */
+    private void applyChanges(Invocation invocation)
+    {
+        if (invocation != null)
+        {
+            codeAttributeEditor.visitCodeAttribute(invocation.clazz,
+                                                   invocation.method,
+                                                   invocation.codeAttribute);
+        }
+    }
+
+
+    /**
+     * Returns whether the given method descriptor has any primitive
+     * parameters.
+     */
+    private boolean hasPrimitiveParameters(String descriptor)
+    {
+        InternalTypeEnumeration typeEnumeration =
+            new InternalTypeEnumeration(descriptor);
+
+        while (typeEnumeration.hasMoreTypes())
+        {
+            if (ClassUtil.isInternalPrimitiveType(typeEnumeration.nextType()))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * This class represents an invocation of a candidate method, with its
+     * constant arguments.
+     */
+    private static class Invocation
+    {
+        private final ProgramClass  clazz;
+        private final Method        method;
+        private final CodeAttribute codeAttribute;
+        private final int           offset;
+        private final byte          opcode;
+        private final ProgramClass  targetClass;
+        private final ProgramMethod targetMethod;
+        private final Value[]       arguments;
+
+        private ProgramMethod specializedMethod;
+
+
+        public Invocation(ProgramClass  clazz,
+                          Method        method,
+                          CodeAttribute codeAttribute,
+                          int           offset,
+                          byte          opcode,
+                          ProgramClass  targetClass,
+                          ProgramMethod targetMethod)
+        {
+            this.clazz         = clazz;
+            this.method        = method;
+            this.codeAttribute = codeAttribute;
+            this.offset        = offset;
+            this.opcode        = opcode;
+            this.targetClass   = targetClass;
+            this.targetMethod  = targetMethod;
+            this.arguments     =
+                new Value[ClassUtil.internalMethodParameterCount(targetMethod.getDescriptor(targetClass))];
+        }
+    }
+}
@@ -302,6 +302,12 @@ implements   AttributeVisitor,
         TracedVariables variables = new TracedVariables(codeAttribute.u2maxLocals);
         TracedStack     stack     = new TracedStack(codeAttribute.u2maxStack);
 
+        // Start with a fresh table of interned values, if any.
+        if (valueFactory instanceof InterningValueFactory)
+        {
+            ((InterningValueFactory)valueFactory).reset();
+        }
+
         // Initialize the reusable arrays and variables.
         initializeArrays(codeAttribute);
         initializeParameters(clazz, method, codeAttribute, variables);
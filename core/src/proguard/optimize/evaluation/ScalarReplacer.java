@@ -0,0 +1,984 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize.evaluation;
+
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.attribute.visitor.AttributeVisitor;
+import proguard.classfile.constant.*;
+import proguard.classfile.editor.CodeAttributeEditor;
+import proguard.classfile.instruction.*;
+import proguard.classfile.instruction.visitor.*;
+import proguard.classfile.util.*;
+import proguard.evaluation.*;
+import proguard.evaluation.value.*;
+import proguard.util.ArrayUtil;
+
+import java.util.*;
+
+/**
+ * This AttributeVisitor replaces the objects that are created in the code
+ * attributes that it visits by local variables, if the objects never escape
+ * from the code. Their classes must be program classes that directly extend
+ * java.lang.Object, without static initializers, without finalizers, and
+ * with constructors that only assign parameters and constants to fields.
+ * The code may then only access the fields of the objects and invoke these
+ * constructors on them.
+ * <p>
+ * The allocations are replaced by pushing null references, which the code
+ * then still moves around unchanged, until subsequent optimizations remove
+ * them.
+ *
+ * @see ReferenceTracingValueFactory
+ * @author Eric Lafortune
+ */
+public class ScalarReplacer
+extends      SimplifiedVisitor
+implements   AttributeVisitor,
+             TransientInstructionVisitor
+{
+    //*
+    private static final boolean DEBUG = false;
+    /*/
+    private static       boolean DEBUG = System.getProperty("sr") != null;
+    //*/
+
+    private static final int MAXIMUM_FIELD_COUNT = 8;
+
+
+    private final PartialEvaluator    partialEvaluator;
+    private final boolean             runPartialEvaluator;
+    private final InstructionVisitor  extraAllocationVisitor;
+    private final CodeAttributeEditor codeAttributeEditor = new CodeAttributeEditor();
+
+    private ProgramClass[] allocatedClasses = new ProgramClass[ClassConstants.TYPICAL_CODE_LENGTH];
+    private int[][]        fieldVariables   = new int[ClassConstants.TYPICAL_CODE_LENGTH][];
+    private boolean        hasAllocations;
+    private int            nextVariableIndex;
+
+
+    /**
+     * Creates a new ScalarReplacer.
+     */
+    public ScalarReplacer()
+    {
+        this(null);
+    }
+
+
+    /**
+     * Creates a new ScalarReplacer.
+     * @param extraAllocationVisitor an optional extra visitor for all
+     *                               replaced allocation instructions.
+     */
+    public ScalarReplacer(InstructionVisitor extraAllocationVisitor)
+    {
+        this(new ReferenceTracingValueFactory(new BasicValueFactory()),
+             extraAllocationVisitor);
+    }
+
+
+    /**
+     * Creates a new ScalarReplacer. This private constructor gets around
+     * the constraint that it's not allowed to add statements before calling
+     * 'this'.
+     */
+    private ScalarReplacer(ReferenceTracingValueFactory referenceTracingValueFactory,
+                           InstructionVisitor           extraAllocationVisitor)
+    {
+        this(new PartialEvaluator(referenceTracingValueFactory,
+                                  new ParameterTracingInvocationUnit(new BasicInvocationUnit(referenceTracingValueFactory)),
+                                  true,
+                                  referenceTracingValueFactory),
+             true,
+             extraAllocationVisitor);
+    }
+
+
+    /**
+     * Creates a new ScalarReplacer.
+     * @param partialEvaluator       the evaluator to be used for the
+     *                               analysis. It must trace reference
+     *                               values.
+     * @param runPartialEvaluator    specifies whether to run this evaluator
+     *                               on every code attribute that is
+     *                               visited.
+     * @param extraAllocationVisitor an optional extra visitor for all
+     *                               replaced allocation instructions.
+     */
+    public ScalarReplacer(PartialEvaluator   partialEvaluator,
+                          boolean            runPartialEvaluator,
+                          InstructionVisitor extraAllocationVisitor)
+    {
+        this.partialEvaluator       = partialEvaluator;
+        this.runPartialEvaluator    = runPartialEvaluator;
+        this.extraAllocationVisitor = extraAllocationVisitor;
+    }
+
+
+    // Implementations for AttributeVisitor.
+
+    public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+    public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+    {
+        int codeLength = codeAttribute.u4codeLength;
+
+        // Initialize the global arrays.
+        allocatedClasses = ArrayUtil.ensureArraySize(allocatedClasses, codeLength, null);
+        fieldVariables   = ArrayUtil.ensureArraySize(fieldVariables,   codeLength, null);
+        hasAllocations   = false;
+
+        // Find the allocations of suitable classes. Most code doesn't have
+        // any, so we can skip the partial evaluation.
+        codeAttribute.instructionsAccept(clazz, method, this);
+
+        if (!hasAllocations)
+        {
+            return;
+        }
+
+        // Evaluate the method.
+        if (runPartialEvaluator)
+        {
+            partialEvaluator.visitCodeAttribute(clazz, method, codeAttribute);
+        }
+
+        ProgramClass programClass = (ProgramClass)clazz;
+        byte[]       code         = codeAttribute.code;
+
+        // Discard the allocations whose objects are used in any other way
+        // than accessing their fields or invoking their trivial
+        // constructors.
+        int offset = 0;
+        while (offset < codeLength)
+        {
+            Instruction instruction = InstructionFactory.create(code, offset);
+
+            if (partialEvaluator.isTraced(offset))
+            {
+                checkConsumer(programClass, offset, instruction);
+            }
+            else if (allocatedClasses[offset] != null)
+            {
+                allocatedClasses[offset] = null;
+            }
+
+            offset += instruction.length(offset);
+        }
+
+        // Allocate local variables for the fields of the remaining objects.
+        boolean replacing = false;
+
+        nextVariableIndex = codeAttribute.u2maxLocals;
+
+        for (offset = 0; offset < codeLength; offset++)
+        {
+            ProgramClass allocatedClass = allocatedClasses[offset];
+            if (allocatedClass != null)
+            {
+                fieldVariables[offset] = allocateFieldVariables(allocatedClass);
+
+                replacing = true;
+            }
+        }
+
+        if (!replacing)
+        {
+            return;
+        }
+
+        if (DEBUG)
+        {
+            System.out.println("ScalarReplacer: ["+clazz.getName()+"."+method.getName(clazz)+method.getDescriptor(clazz)+"]");
+        }
+
+        // Replace the allocations, field accesses, and constructor
+        // invocations.
+        codeAttributeEditor.reset(codeLength);
+
+        offset = 0;
+        while (offset < codeLength)
+        {
+            Instruction instruction = InstructionFactory.create(code, offset);
+
+            if (partialEvaluator.isTraced(offset))
+            {
+                replaceInstruction(clazz, method, codeAttribute, programClass, offset, instruction);
+            }
+
+            offset += instruction.length(offset);
+        }
+
+        codeAttributeEditor.visitCodeAttribute(clazz, method, codeAttribute);
+    }
+
+
+    // Implementations for InstructionVisitor.
+
+    public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction)
+    {
+        allocatedClasses[offset] = null;
+    }
+
+
+    public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
+    {
+        ProgramClass allocatedClass = null;
+
+        if (constantInstruction.opcode == InstructionConstants.OP_NEW)
+        {
+            Clazz referencedClass =
+                ((ClassConstant)((ProgramClass)clazz).getConstant(constantInstruction.constantIndex)).referencedClass;
+
+            if (isSuitableClass(referencedClass))
+            {
+                allocatedClass = (ProgramClass)referencedClass;
+
+                hasAllocations = true;
+            }
+        }
+
+        allocatedClasses[offset] = allocatedClass;
+    }
+
+
+    // Implementations for TransientInstructionVisitor.
+
+    public boolean acceptsTransientInstructions()
+    {
+        return true;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns whether the given class is a small program class whose
+     * instances can be replaced by local variables.
+     */
+    private boolean isSuitableClass(Clazz clazz)
+    {
+        if (!(clazz instanceof ProgramClass))
+        {
+            return false;
+        }
+
+        ProgramClass programClass = (ProgramClass)clazz;
+
+        if ((programClass.getAccessFlags() & (ClassConstants.ACC_INTERFACE |
+                                              ClassConstants.ACC_ABSTRACT)) != 0                                   ||
+            !ClassConstants.NAME_JAVA_LANG_OBJECT.equals(programClass.getSuperName())                              ||
+            programClass.findMethod(ClassConstants.METHOD_NAME_CLINIT,    ClassConstants.METHOD_TYPE_CLINIT)    != null ||
+            programClass.findMethod(ClassConstants.METHOD_NAME_FINALIZE,  ClassConstants.METHOD_TYPE_FINALIZE)  != null)
+        {
+            return false;
+        }
+
+        int fieldCount = 0;
+        for (int index = 0; index < programClass.u2fieldsCount; index++)
+        {
+            if ((programClass.fields[index].getAccessFlags() & ClassConstants.ACC_STATIC) == 0)
+            {
+                fieldCount++;
+            }
+        }
+
+        return fieldCount <= MAXIMUM_FIELD_COUNT;
+    }
+
+
+    /**
+     * Discards the allocations whose objects are popped off the stack by
+     * the given instruction in an unsupported way.
+     */
+    private void checkConsumer(ProgramClass programClass,
+                               int          offset,
+                               Instruction  instruction)
+    {
+        int popCount = instruction.stackPopCount(programClass);
+        if (popCount == 0)
+        {
+            return;
+        }
+
+        TracedStack stackBefore = partialEvaluator.getStackBefore(offset);
+
+        for (int index = 0; index < popCount; index++)
+        {
+            Value stackEntry = stackBefore.getTop(index);
+
+            if (!isNeutralInstruction(instruction) &&
+                (index != popCount - 1 ||
+                 !isSupportedAccess(programClass,
+                                    instruction,
+                                    allocationOffset(stackEntry))))
+            {
+                discardAllocations(stackEntry);
+            }
+        }
+    }
+
+
+    /**
+     * Replaces the given instruction, if it creates or consumes an object
+     * that is replaced by local variables.
+     */
+    private void replaceInstruction(Clazz         clazz,
+                                    Method        method,
+                                    CodeAttribute codeAttribute,
+                                    ProgramClass  programClass,
+                                    int           offset,
+                                    Instruction   instruction)
+    {
+        switch (instruction.opcode)
+        {
+            case InstructionConstants.OP_NEW:
+            {
+                ProgramClass allocatedClass = allocatedClasses[offset];
+                if (allocatedClass != null)
+                {
+                    if (DEBUG)
+                    {
+                        System.out.println("  Replacing allocation "+instruction.toString(offset));
+                    }
+
+                    codeAttributeEditor.replaceInstruction(offset,
+                        allocationReplacement(allocatedClass,
+                                              fieldVariables[offset]));
+
+                    if (extraAllocationVisitor != null)
+                    {
+                        instruction.accept(clazz, method, codeAttribute, offset, extraAllocationVisitor);
+                    }
+                }
+                break;
+            }
+            case InstructionConstants.OP_GETFIELD:
+            case InstructionConstants.OP_PUTFIELD:
+            case InstructionConstants.OP_INVOKESPECIAL:
+            {
+                int allocationOffset =
+                    allocationOffset(partialEvaluator.getStackBefore(offset).getTop(instruction.stackPopCount(clazz) - 1));
+
+                if (allocationOffset >= 0)
+                {
+                    RefConstant refConstant =
+                        (RefConstant)programClass.getConstant(((ConstantInstruction)instruction).constantIndex);
+
+                    ProgramClass allocatedClass = allocatedClasses[allocationOffset];
+                    int[]        variables      = fieldVariables[allocationOffset];
+
+                    Instruction[] replacementInstructions =
+                        instruction.opcode == InstructionConstants.OP_GETFIELD ?
+                            getFieldReplacement(allocatedClass, (ProgramField)refConstant.referencedMember, variables) :
+                        instruction.opcode == InstructionConstants.OP_PUTFIELD ?
+                            putFieldReplacement(allocatedClass, (ProgramField)refConstant.referencedMember, variables) :
+                            constructorReplacement(allocatedClass, (ProgramMethod)refConstant.referencedMember, variables);
+
+                    codeAttributeEditor.replaceInstruction(offset, replacementInstructions);
+                }
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Returns whether the given instruction only moves values around on the
+     * stack or into local variables.
+     */
+    private boolean isNeutralInstruction(Instruction instruction)
+    {
+        switch (instruction.canonicalOpcode())
+        {
+            case InstructionConstants.OP_POP:
+            case InstructionConstants.OP_POP2:
+            case InstructionConstants.OP_DUP:
+            case InstructionConstants.OP_DUP_X1:
+            case InstructionConstants.OP_DUP_X2:
+            case InstructionConstants.OP_DUP2:
+            case InstructionConstants.OP_DUP2_X1:
+            case InstructionConstants.OP_DUP2_X2:
+            case InstructionConstants.OP_SWAP:
+            case InstructionConstants.OP_ASTORE:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+
+    /**
+     * Returns whether the given instruction accesses a field of the object
+     * that is allocated at the given offset, or invokes its trivial
+     * constructor, with the object as the deepest popped stack entry.
+     */
+    private boolean isSupportedAccess(ProgramClass programClass,
+                                      Instruction  instruction,
+                                      int          allocationOffset)
+    {
+        if (allocationOffset < 0)
+        {
+            return false;
+        }
+
+        ProgramClass allocatedClass = allocatedClasses[allocationOffset];
+
+        switch (instruction.opcode)
+        {
+            case InstructionConstants.OP_GETFIELD:
+            case InstructionConstants.OP_PUTFIELD:
+            {
+                RefConstant refConstant =
+                    (RefConstant)programClass.getConstant(((ConstantInstruction)instruction).constantIndex);
+
+                return refConstant.referencedClass == allocatedClass &&
+                       refConstant.referencedMember instanceof ProgramField;
+            }
+            case InstructionConstants.OP_INVOKESPECIAL:
+            {
+                RefConstant refConstant =
+                    (RefConstant)programClass.getConstant(((ConstantInstruction)instruction).constantIndex);
+
+                return refConstant.referencedClass == allocatedClass &&
+                       refConstant.referencedMember instanceof ProgramMethod &&
+                       refConstant.getName(programClass).equals(ClassConstants.METHOD_NAME_INIT) &&
+                       constructorReplacement(allocatedClass,
+                                              (ProgramMethod)refConstant.referencedMember,
+                                              null) != null;
+            }
+            default:
+                return false;
+        }
+    }
+
+
+    /**
+     * Returns the offset of the remaining allocation that has created the
+     * given value, or -1 if the value may also come from elsewhere.
+     */
+    private int allocationOffset(Value value)
+    {
+        if (value.computationalType() != Value.TYPE_REFERENCE)
+        {
+            return -1;
+        }
+
+        Value traceValue = ((TracedReferenceValue)value.referenceValue()).getTraceValue();
+        if (traceValue == null)
+        {
+            return -1;
+        }
+
+        InstructionOffsetValue instructionOffsetValue = traceValue.instructionOffsetValue();
+        if (instructionOffsetValue.instructionOffsetCount() != 1 ||
+            !instructionOffsetValue.isNewinstance(0))
+        {
+            return -1;
+        }
+
+        int allocationOffset = instructionOffsetValue.instructionOffset(0);
+
+        return allocatedClasses[allocationOffset] != null ?
+            allocationOffset :
+            -1;
+    }
+
+
+    /**
+     * Discards all allocations that may have created the given value.
+     */
+    private void discardAllocations(Value value)
+    {
+        if (value.computationalType() == Value.TYPE_REFERENCE)
+        {
+            Value traceValue = ((TracedReferenceValue)value.referenceValue()).getTraceValue();
+            if (traceValue != null)
+            {
+                InstructionOffsetValue instructionOffsetValue = traceValue.instructionOffsetValue();
+
+                int count = instructionOffsetValue.instructionOffsetCount();
+                for (int index = 0; index < count; index++)
+                {
+                    if (instructionOffsetValue.isNewinstance(index))
+                    {
+                        allocatedClasses[instructionOffsetValue.instructionOffset(index)] = null;
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returns new local variable indices for the instance fields of the
+     * given class, or -1 for its static fields.
+     */
+    private int[] allocateFieldVariables(ProgramClass programClass)
+    {
+        int[] variables = new int[programClass.u2fieldsCount];
+
+        for (int index = 0; index < programClass.u2fieldsCount; index++)
+        {
+            ProgramField programField = programClass.fields[index];
+
+            variables[index] =
+                (programField.getAccessFlags() & ClassConstants.ACC_STATIC) == 0 ?
+                    allocateVariable(programField.getDescriptor(programClass)) :
+                    -1;
+        }
+
+        return variables;
+    }
+
+
+    /**
+     * Returns a new local variable index for a value of the given type.
+     */
+    private int allocateVariable(String type)
+    {
+        int variableIndex = nextVariableIndex;
+
+        nextVariableIndex += ClassUtil.internalTypeSize(type);
+
+        return variableIndex;
+    }
+
+
+    /**
+     * Returns the instructions that initialize the field variables of an
+     * allocated object with their default values, and push a null reference
+     * in its place.
+     */
+    private Instruction[] allocationReplacement(ProgramClass programClass,
+                                                int[]        variables)
+    {
+        List instructions = new ArrayList();
+
+        for (int index = 0; index < programClass.u2fieldsCount; index++)
+        {
+            if (variables[index] >= 0)
+            {
+                String type = programClass.fields[index].getDescriptor(programClass);
+
+                instructions.add(defaultValueInstruction(type));
+                instructions.add(storeInstruction(type, variables[index]));
+            }
+        }
+
+        instructions.add(new SimpleInstruction(InstructionConstants.OP_ACONST_NULL));
+
+        return (Instruction[])instructions.toArray(new Instruction[instructions.size()]);
+    }
+
+
+    /**
+     * Returns the instructions that replace reading the given field.
+     */
+    private Instruction[] getFieldReplacement(ProgramClass programClass,
+                                              ProgramField programField,
+                                              int[]        variables)
+    {
+        return new Instruction[]
+        {
+            new SimpleInstruction(InstructionConstants.OP_POP),
+            loadInstruction(programField.getDescriptor(programClass),
+                            variables[fieldIndex(programClass, programField)]),
+        };
+    }
+
+
+    /**
+     * Returns the instructions that replace writing the given field.
+     */
+    private Instruction[] putFieldReplacement(ProgramClass programClass,
+                                              ProgramField programField,
+                                              int[]        variables)
+    {
+        return new Instruction[]
+        {
+            storeInstruction(programField.getDescriptor(programClass),
+                             variables[fieldIndex(programClass, programField)]),
+            new SimpleInstruction(InstructionConstants.OP_POP),
+        };
+    }
+
+
+    /**
+     * Returns the instructions that replace invoking the given constructor,
+     * or null if the constructor does anything else than invoking the
+     * constructor of java.lang.Object and assigning parameters and simple
+     * constants to fields. If the given field variables are null, the
+     * method only checks the constructor.
+     */
+    private Instruction[] constructorReplacement(ProgramClass  programClass,
+                                                 ProgramMethod programMethod,
+                                                 int[]         variables)
+    {
+        CodeAttribute codeAttribute = codeAttribute(programMethod);
+        if (codeAttribute == null ||
+            codeAttribute.u2exceptionTableLength > 0)
+        {
+            return null;
+        }
+
+        // Collect the assignments: the indices of the fields, and either
+        // the loaded parameter variables or the pushed constants.
+        List    fieldIndices    = new ArrayList();
+        List    valueInstructions = new ArrayList();
+        boolean superInitialized  = false;
+
+        byte[] code   = codeAttribute.code;
+        int    offset = 0;
+        while (true)
+        {
+            Instruction instruction = InstructionFactory.create(code, offset);
+            if (instruction.opcode == InstructionConstants.OP_RETURN)
+            {
+                break;
+            }
+
+            // Every statement starts by loading 'this'.
+            if (instruction.opcode != InstructionConstants.OP_ALOAD_0)
+            {
+                return null;
+            }
+
+            offset += instruction.length(offset);
+
+            instruction = InstructionFactory.create(code, offset);
+            offset += instruction.length(offset);
+
+            // Is it the invocation of the super constructor?
+            if (instruction.opcode == InstructionConstants.OP_INVOKESPECIAL)
+            {
+                RefConstant refConstant =
+                    (RefConstant)programClass.getConstant(((ConstantInstruction)instruction).constantIndex);
+
+                if (superInitialized                                                    ||
+                    !refConstant.getClassName(programClass).equals(ClassConstants.NAME_JAVA_LANG_OBJECT) ||
+                    !refConstant.getName(programClass).equals(ClassConstants.METHOD_NAME_INIT))
+                {
+                    return null;
+                }
+
+                superInitialized = true;
+                continue;
+            }
+
+            // Otherwise it has to be a parameter or a simple constant.
+            if (!isParameterLoad(instruction) &&
+                !isSimpleConstant(instruction))
+            {
+                return null;
+            }
+
+            Instruction putInstruction = InstructionFactory.create(code, offset);
+            offset += putInstruction.length(offset);
+
+            if (putInstruction.opcode != InstructionConstants.OP_PUTFIELD)
+            {
+                return null;
+            }
+
+            RefConstant refConstant =
+                (RefConstant)programClass.getConstant(((ConstantInstruction)putInstruction).constantIndex);
+
+            if (refConstant.referencedClass != programClass ||
+                !(refConstant.referencedMember instanceof ProgramField))
+            {
+                return null;
+            }
+
+            fieldIndices.add(new Integer(fieldIndex(programClass, (ProgramField)refConstant.referencedMember)));
+            valueInstructions.add(instruction);
+        }
+
+        if (!superInitialized)
+        {
+            return null;
+        }
+
+        if (variables == null)
+        {
+            return new Instruction[0];
+        }
+
+        // Pop the parameters off the stack, into the field variables
+        // directly, if possible, or into temporary variables otherwise.
+        String descriptor     = programMethod.getDescriptor(programClass);
+        int    parameterCount = ClassUtil.internalMethodParameterCount(descriptor);
+
+        String[] parameterTypes     = new String[parameterCount];
+        int[]    parameterVariables = new int[parameterCount];
+
+        InternalTypeEnumeration parameterTypeEnumeration =
+            new InternalTypeEnumeration(descriptor);
+
+        int parameterVariable = 1;
+        for (int index = 0; index < parameterCount; index++)
+        {
+            String parameterType = parameterTypeEnumeration.nextType();
+
+            parameterTypes[index]     = parameterType;
+            parameterVariables[index] = parameterVariable;
+
+            parameterVariable += ClassUtil.internalTypeSize(parameterType);
+        }
+
+        List instructions      = new ArrayList();
+        Map  variableRemapping = new HashMap();
+
+        for (int index = parameterCount - 1; index >= 0; index--)
+        {
+            String parameterType = parameterTypes[index];
+
+            int assignmentIndex =
+                singleAssignmentIndex(fieldIndices,
+                                      valueInstructions,
+                                      parameterVariables[index]);
+
+            if (assignmentIndex == -1)
+            {
+                // The parameter isn't used.
+                instructions.add(new SimpleInstruction(ClassUtil.isInternalCategory2Type(parameterType) ?
+                                                           InstructionConstants.OP_POP2 :
+                                                           InstructionConstants.OP_POP));
+            }
+            else if (assignmentIndex >= 0)
+            {
+                // The parameter is only assigned to a single field.
+                int fieldIndex = ((Integer)fieldIndices.get(assignmentIndex)).intValue();
+
+                instructions.add(storeInstruction(parameterType, variables[fieldIndex]));
+
+                fieldIndices.set(assignmentIndex, null);
+            }
+            else
+            {
+                // The parameter is used multiple times.
+                int temporaryVariable = allocateVariable(parameterType);
+
+                instructions.add(storeInstruction(parameterType, temporaryVariable));
+
+                variableRemapping.put(new Integer(parameterVariables[index]),
+                                      new Integer(temporaryVariable));
+            }
+        }
+
+        // Pop the null reference.
+        instructions.add(new SimpleInstruction(InstructionConstants.OP_POP));
+
+        // Perform the remaining assignments.
+        for (int index = 0; index < fieldIndices.size(); index++)
+        {
+            Integer fieldIndex = (Integer)fieldIndices.get(index);
+            if (fieldIndex != null)
+            {
+                ProgramField programField = programClass.fields[fieldIndex.intValue()];
+                String       type         = programField.getDescriptor(programClass);
+                Instruction  instruction  = (Instruction)valueInstructions.get(index);
+
+                if (instruction instanceof VariableInstruction)
+                {
+                    Integer temporaryVariable =
+                        (Integer)variableRemapping.get(new Integer(((VariableInstruction)instruction).variableIndex));
+
+                    instruction = loadInstruction(type, temporaryVariable.intValue());
+                }
+
+                instructions.add(instruction);
+                instructions.add(storeInstruction(type, variables[fieldIndex.intValue()]));
+            }
+        }
+
+        return (Instruction[])instructions.toArray(new Instruction[instructions.size()]);
+    }
+
+
+    /**
+     * Returns the index of the only assignment of the given parameter
+     * variable, if that assignment is also the only assignment of its field,
+     * -1 if there aren't any assignments of the parameter variable, or -2
+     * otherwise.
+     */
+    private int singleAssignmentIndex(List fieldIndices,
+                                      List valueInstructions,
+                                      int  parameterVariable)
+    {
+        int assignmentIndex = -1;
+
+        for (int index = 0; index < valueInstructions.size(); index++)
+        {
+            Instruction instruction = (Instruction)valueInstructions.get(index);
+            if (instruction instanceof VariableInstruction &&
+                ((VariableInstruction)instruction).variableIndex == parameterVariable)
+            {
+                if (assignmentIndex != -1)
+                {
+                    return -2;
+                }
+
+                assignmentIndex = index;
+            }
+        }
+
+        if (assignmentIndex >= 0)
+        {
+            Object fieldIndex = fieldIndices.get(assignmentIndex);
+            if (fieldIndices.indexOf(fieldIndex) != fieldIndices.lastIndexOf(fieldIndex))
+            {
+                return -2;
+            }
+        }
+
+        return assignmentIndex;
+    }
+
+
+    /**
+     * Returns the code attribute of the given method, if any.
+     */
+    private CodeAttribute codeAttribute(ProgramMethod programMethod)
+    {
+        for (int index = 0; index < programMethod.u2attributesCount; index++)
+        {
+            Attribute attribute = programMethod.attributes[index];
+            if (attribute instanceof CodeAttribute)
+            {
+                return (CodeAttribute)attribute;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Returns whether the given instruction loads a parameter of a
+     * constructor.
+     */
+    private boolean isParameterLoad(Instruction instruction)
+    {
+        return instruction instanceof VariableInstruction &&
+               ((VariableInstruction)instruction).isLoad() &&
+               instruction.opcode != InstructionConstants.OP_RET &&
+               ((VariableInstruction)instruction).variableIndex > 0;
+    }
+
+
+    /**
+     * Returns whether the given instruction pushes a constant without
+     * referring to the constant pool.
+     */
+    private boolean isSimpleConstant(Instruction instruction)
+    {
+        switch (instruction.canonicalOpcode())
+        {
+            case InstructionConstants.OP_ACONST_NULL:
+            case InstructionConstants.OP_ICONST_0:
+            case InstructionConstants.OP_LCONST_0:
+            case InstructionConstants.OP_FCONST_0:
+            case InstructionConstants.OP_DCONST_0:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+
+    /**
+     * Returns the index of the given field in the fields of the given class.
+     */
+    private int fieldIndex(ProgramClass programClass, ProgramField programField)
+    {
+        for (int index = 0; index < programClass.u2fieldsCount; index++)
+        {
+            if (programClass.fields[index] == programField)
+            {
+                return index;
+            }
+        }
+
+        throw new IllegalArgumentException("Can't find field ["+programField.getName(programClass)+"] in class ["+programClass.getName()+"]");
+    }
+
+
+    /**
+     * Returns an instruction that pushes the default value of the given type.
+     */
+    private Instruction defaultValueInstruction(String type)
+    {
+        switch (type.charAt(0))
+        {
+            case ClassConstants.TYPE_LONG:   return new SimpleInstruction(InstructionConstants.OP_LCONST_0);
+            case ClassConstants.TYPE_FLOAT:  return new SimpleInstruction(InstructionConstants.OP_FCONST_0);
+            case ClassConstants.TYPE_DOUBLE: return new SimpleInstruction(InstructionConstants.OP_DCONST_0);
+            case ClassConstants.TYPE_CLASS_START:
+            case ClassConstants.TYPE_ARRAY:  return new SimpleInstruction(InstructionConstants.OP_ACONST_NULL);
+            default:                         return new SimpleInstruction(InstructionConstants.OP_ICONST_0);
+        }
+    }
+
+
+    /**
+     * Returns an instruction that loads a value of the given type from the
+     * given variable.
+     */
+    private Instruction loadInstruction(String type, int variableIndex)
+    {
+        return new VariableInstruction(loadOpcode(type), variableIndex);
+    }
+
+
+    /**
+     * Returns an instruction that stores a value of the given type in the
+     * given variable.
+     */
+    private Instruction storeInstruction(String type, int variableIndex)
+    {
+        return new VariableInstruction((byte)(loadOpcode(type) +
+                                              InstructionConstants.OP_ISTORE -
+                                              InstructionConstants.OP_ILOAD),
+                                       variableIndex);
+    }
+
+
+    /**
+     * Returns the canonical load opcode for values of the given type.
+     */
+    private byte loadOpcode(String type)
+    {
+        switch (type.charAt(0))
+        {
+            case ClassConstants.TYPE_LONG:   return InstructionConstants.OP_LLOAD;
+            case ClassConstants.TYPE_FLOAT:  return InstructionConstants.OP_FLOAD;
+            case ClassConstants.TYPE_DOUBLE: return InstructionConstants.OP_DLOAD;
+            case ClassConstants.TYPE_CLASS_START:
+            case ClassConstants.TYPE_ARRAY:  return InstructionConstants.OP_ALOAD;
+            default:                         return InstructionConstants.OP_ILOAD;
+        }
+    }
+}
@@ -0,0 +1,766 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize.evaluation;
+
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.attribute.visitor.AttributeVisitor;
+import proguard.classfile.constant.*;
+import proguard.classfile.editor.*;
+import proguard.classfile.instruction.*;
+import proguard.classfile.instruction.visitor.*;
+import proguard.classfile.util.*;
+import proguard.classfile.visitor.*;
+import proguard.evaluation.*;
+import proguard.evaluation.value.*;
+import proguard.util.ArrayUtil;
+
+/**
+ * This AttributeVisitor replaces the synchronized StringBuffer, Vector, and
+ * optionally Hashtable instances that are created in the code attributes
+ * that it visits by unsynchronized StringBuilder, ArrayList, and HashMap
+ * instances, if the instances never escape from the code. The code may then
+ * only invoke methods that have equivalents in the replacement classes,
+ * compare the instances with null, and move them around.
+ * <p>
+ * HashMap instances accept null keys and values, whereas Hashtable
+ * instances throw NullPointerExceptions. Replacing Hashtable instances
+ * therefore assumes that the code doesn't rely on such exceptions.
+ * <p>
+ * Vector methods with indices aren't supported, since Vector throws
+ * ArrayIndexOutOfBoundsExceptions, whereas ArrayList only throws
+ * IndexOutOfBoundsExceptions.
+ *
+ * @see ReferenceTracingValueFactory
+ * @author Eric Lafortune
+ */
+public class SynchronizedClassReplacer
+extends      SimplifiedVisitor
+implements   AttributeVisitor,
+             TransientInstructionVisitor
+{
+    //*
+    private static final boolean DEBUG = false;
+    /*/
+    private static       boolean DEBUG = true;
+    //*/
+
+    // The synchronized classes and their unsynchronized replacements.
+    private static final String[][] CLASS_REPLACEMENTS = new String[][]
+    {
+        { ClassConstants.NAME_JAVA_LANG_STRING_BUFFER, ClassConstants.NAME_JAVA_LANG_STRING_BUILDER },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR,        ClassConstants.NAME_JAVA_UTIL_ARRAY_LIST     },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE,     ClassConstants.NAME_JAVA_UTIL_HASH_MAP       },
+    };
+
+    private static final int STRING_BUFFER_INDEX = 0;
+    private static final int HASHTABLE_INDEX     = 2;
+
+    // The supported methods of the synchronized classes, other than the
+    // StringBuffer methods, which all have equivalents. The optional last
+    // two elements specify a different replacement method.
+    private static final String[][] METHOD_REPLACEMENTS = new String[][]
+    {
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, ClassConstants.METHOD_NAME_INIT, "()V" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, ClassConstants.METHOD_NAME_INIT, "(I)V" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, ClassConstants.METHOD_NAME_INIT, "(Ljava/util/Collection;)V" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "add",               "(Ljava/lang/Object;)Z" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "addAll",            "(Ljava/util/Collection;)Z" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "size",              "()I" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "isEmpty",           "()Z" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "contains",          "(Ljava/lang/Object;)Z" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "indexOf",           "(Ljava/lang/Object;)I" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "lastIndexOf",       "(Ljava/lang/Object;)I" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "remove",            "(Ljava/lang/Object;)Z" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "clear",             "()V" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "toArray",           "()[Ljava/lang/Object;" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "toArray",           "([Ljava/lang/Object;)[Ljava/lang/Object;" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "toString",          "()Ljava/lang/String;" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "hashCode",          "()I" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "ensureCapacity",    "(I)V" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "trimToSize",        "()V" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "addElement",        "(Ljava/lang/Object;)V", "add",    "(Ljava/lang/Object;)Z" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "removeElement",     "(Ljava/lang/Object;)Z", "remove", "(Ljava/lang/Object;)Z" },
+        { ClassConstants.NAME_JAVA_UTIL_VECTOR, "removeAllElements", "()V",                   "clear",  "()V" },
+
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, ClassConstants.METHOD_NAME_INIT, "()V" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, ClassConstants.METHOD_NAME_INIT, "(I)V" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, ClassConstants.METHOD_NAME_INIT, "(IF)V" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, "put",           "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, "get",           "(Ljava/lang/Object;)Ljava/lang/Object;" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, "containsKey",   "(Ljava/lang/Object;)Z" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, "containsValue", "(Ljava/lang/Object;)Z" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, "remove",        "(Ljava/lang/Object;)Ljava/lang/Object;" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, "size",          "()I" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, "isEmpty",       "()Z" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, "clear",         "()V" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, "hashCode",      "()I" },
+        { ClassConstants.NAME_JAVA_UTIL_HASHTABLE, "contains",      "(Ljava/lang/Object;)Z", "containsValue", "(Ljava/lang/Object;)Z" },
+    };
+
+    private static final int NONE    = -1;
+    private static final int MIXED   = -2;
+    private static final int PENDING = -3;
+
+
+    private final Clazz[]             replacementClasses = new Clazz[CLASS_REPLACEMENTS.length];
+    private final PartialEvaluator    partialEvaluator;
+    private final boolean             runPartialEvaluator;
+    private final InstructionVisitor  extraAllocationVisitor;
+    private final MemberFinder        memberFinder        = new MemberFinder();
+    private final CodeAttributeEditor codeAttributeEditor = new CodeAttributeEditor();
+
+    private int[]     classIndices = new int[ClassConstants.TYPICAL_CODE_LENGTH];
+    private boolean[] resolving    = new boolean[ClassConstants.TYPICAL_CODE_LENGTH];
+    private boolean   hasAllocations;
+
+    // Fields acting as parameters for the resolution of invocations that
+    // return their receivers.
+    private ProgramClass referencingClass;
+    private byte[]       code;
+
+
+    /**
+     * Creates a new SynchronizedClassReplacer.
+     * @param libraryClassPool       the library class pool that contains
+     *                               the replacement classes.
+     * @param replaceHashtables      specifies whether Hashtable instances
+     *                               should be replaced as well.
+     * @param extraAllocationVisitor an optional extra visitor for all
+     *                               replaced allocation instructions.
+     */
+    public SynchronizedClassReplacer(ClassPool          libraryClassPool,
+                                     boolean            replaceHashtables,
+                                     InstructionVisitor extraAllocationVisitor)
+    {
+        this(libraryClassPool,
+             replaceHashtables,
+             new ReferenceTracingValueFactory(new BasicValueFactory()),
+             extraAllocationVisitor);
+    }
+
+
+    /**
+     * Creates a new SynchronizedClassReplacer. This private constructor
+     * gets around the constraint that it's not allowed to add statements
+     * before calling 'this'.
+     */
+    private SynchronizedClassReplacer(ClassPool                    libraryClassPool,
+                                      boolean                      replaceHashtables,
+                                      ReferenceTracingValueFactory referenceTracingValueFactory,
+                                      InstructionVisitor           extraAllocationVisitor)
+    {
+        this(libraryClassPool,
+             replaceHashtables,
+             new PartialEvaluator(referenceTracingValueFactory,
+                                  new ReferenceTracingInvocationUnit(new BasicInvocationUnit(referenceTracingValueFactory)),
+                                  true,
+                                  referenceTracingValueFactory),
+             true,
+             extraAllocationVisitor);
+    }
+
+
+    /**
+     * Creates a new SynchronizedClassReplacer.
+     * @param libraryClassPool       the library class pool that contains
+     *                               the replacement classes.
+     * @param replaceHashtables      specifies whether Hashtable instances
+     *                               should be replaced as well.
+     * @param partialEvaluator       the evaluator to be used for the
+     *                               analysis. It must trace reference
+     *                               values, with the offsets of the
+     *                               invocations for method return values.
+     * @param runPartialEvaluator    specifies whether to run this evaluator
+     *                               on every code attribute that is
+     *                               visited.
+     * @param extraAllocationVisitor an optional extra visitor for all
+     *                               replaced allocation instructions.
+     */
+    public SynchronizedClassReplacer(ClassPool          libraryClassPool,
+                                     boolean            replaceHashtables,
+                                     PartialEvaluator   partialEvaluator,
+                                     boolean            runPartialEvaluator,
+                                     InstructionVisitor extraAllocationVisitor)
+    {
+        this.partialEvaluator       = partialEvaluator;
+        this.runPartialEvaluator    = runPartialEvaluator;
+        this.extraAllocationVisitor = extraAllocationVisitor;
+
+        for (int index = 0; index < CLASS_REPLACEMENTS.length; index++)
+        {
+            replacementClasses[index] =
+                index != HASHTABLE_INDEX || replaceHashtables ?
+                    libraryClassPool.getClass(CLASS_REPLACEMENTS[index][1]) :
+                    null;
+        }
+    }
+
+
+    /**
+     * Adds the unsynchronized replacement classes of any synchronized
+     * classes in the given class pool to that class pool, with their
+     * hierarchies, if they are present in the given library class pool.
+     */
+    public static void addReplacementClasses(ClassPool libraryClassPool,
+                                             ClassPool classPool)
+    {
+        for (int index = 0; index < CLASS_REPLACEMENTS.length; index++)
+        {
+            if (classPool.getClass(CLASS_REPLACEMENTS[index][0]) != null)
+            {
+                Clazz replacementClass =
+                    libraryClassPool.getClass(CLASS_REPLACEMENTS[index][1]);
+
+                if (replacementClass != null)
+                {
+                    replacementClass.accept(
+                        new ClassHierarchyTraveler(true, true, true, false,
+                        new LibraryClassFilter(
+                        new ClassPoolFiller(classPool))));
+                }
+            }
+        }
+    }
+
+
+    // Implementations for AttributeVisitor.
+
+    public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+    public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+    {
+        int codeLength = codeAttribute.u4codeLength;
+
+        // Initialize the global arrays.
+        classIndices   = ArrayUtil.ensureArraySize(classIndices, codeLength, NONE);
+        resolving      = ArrayUtil.ensureArraySize(resolving,    codeLength, false);
+        hasAllocations = false;
+
+        // Find the allocations of synchronized classes. Most code doesn't
+        // have any, so we can skip the partial evaluation.
+        codeAttribute.instructionsAccept(clazz, method, this);
+
+        if (!hasAllocations)
+        {
+            return;
+        }
+
+        // Evaluate the method.
+        if (runPartialEvaluator)
+        {
+            partialEvaluator.visitCodeAttribute(clazz, method, codeAttribute);
+        }
+
+        ProgramClass programClass = (ProgramClass)clazz;
+
+        referencingClass = programClass;
+        code             = codeAttribute.code;
+
+        // Discard the allocations whose instances are used in unsupported
+        // ways, or mixed with other instances, until we've found a stable
+        // set.
+        boolean discarded;
+        do
+        {
+            discarded = false;
+
+            int offset = 0;
+            while (offset < codeLength)
+            {
+                Instruction instruction = InstructionFactory.create(code, offset);
+
+                if (partialEvaluator.isTraced(offset))
+                {
+                    discarded |= checkConsumer(programClass, offset, instruction);
+                }
+                else if (classIndices[offset] != NONE)
+                {
+                    classIndices[offset] = NONE;
+                }
+
+                offset += instruction.length(offset);
+            }
+        }
+        while (discarded);
+
+        // Replace the remaining allocations and invocations.
+        codeAttributeEditor.reset(codeLength);
+
+        int offset = 0;
+        while (offset < codeLength)
+        {
+            Instruction instruction = InstructionFactory.create(code, offset);
+
+            if (partialEvaluator.isTraced(offset))
+            {
+                replaceInstruction(clazz, method, codeAttribute, programClass, offset, instruction);
+            }
+
+            offset += instruction.length(offset);
+        }
+
+        if (codeAttributeEditor.isModified())
+        {
+            if (DEBUG)
+            {
+                System.out.println("SynchronizedClassReplacer: ["+clazz.getName()+"."+method.getName(clazz)+method.getDescriptor(clazz)+"]");
+            }
+
+            codeAttributeEditor.visitCodeAttribute(clazz, method, codeAttribute);
+        }
+    }
+
+
+    // Implementations for InstructionVisitor.
+
+    public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction)
+    {
+        classIndices[offset] = NONE;
+    }
+
+
+    public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
+    {
+        int classIndex = NONE;
+
+        if (constantInstruction.opcode == InstructionConstants.OP_NEW)
+        {
+            classIndex = classIndex(clazz.getClassName(constantInstruction.constantIndex));
+            if (classIndex >= 0)
+            {
+                hasAllocations = true;
+            }
+        }
+
+        classIndices[offset] = classIndex;
+    }
+
+
+    // Implementations for TransientInstructionVisitor.
+
+    public boolean acceptsTransientInstructions()
+    {
+        return true;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the index of the given synchronized class that has a known
+     * replacement, or NONE.
+     */
+    private int classIndex(String className)
+    {
+        for (int index = 0; index < CLASS_REPLACEMENTS.length; index++)
+        {
+            if (CLASS_REPLACEMENTS[index][0].equals(className))
+            {
+                return replacementClasses[index] != null ?
+                    index :
+                    NONE;
+            }
+        }
+
+        return NONE;
+    }
+
+
+    /**
+     * Discards the allocations whose instances are popped off the stack by
+     * the given instruction in an unsupported way. Returns whether any
+     * allocations have been discarded.
+     */
+    private boolean checkConsumer(ProgramClass programClass,
+                                  int          offset,
+                                  Instruction  instruction)
+    {
+        int popCount = instruction.stackPopCount(programClass);
+        if (popCount == 0 ||
+            isNeutralInstruction(instruction))
+        {
+            return false;
+        }
+
+        TracedStack stackBefore = partialEvaluator.getStackBefore(offset);
+
+        boolean discarded = false;
+
+        for (int index = 0; index < popCount; index++)
+        {
+            Value stackEntry = stackBefore.getTop(index);
+
+            int classIndex = classIndex(stackEntry);
+            if (classIndex == MIXED ||
+                classIndex >= 0 &&
+                (index != popCount - 1 ||
+                 replacementMethod(programClass, instruction, classIndex) == null))
+            {
+                discardAllocations(stackEntry);
+
+                discarded = true;
+            }
+        }
+
+        return discarded;
+    }
+
+
+    /**
+     * Replaces the given instruction, if it creates or invokes an instance
+     * that is replaced.
+     */
+    private void replaceInstruction(Clazz         clazz,
+                                    Method        method,
+                                    CodeAttribute codeAttribute,
+                                    ProgramClass  programClass,
+                                    int           offset,
+                                    Instruction   instruction)
+    {
+        switch (instruction.opcode)
+        {
+            case InstructionConstants.OP_NEW:
+            {
+                int classIndex = classIndices[offset];
+                if (classIndex >= 0)
+                {
+                    ConstantPoolEditor constantPoolEditor =
+                        new ConstantPoolEditor(programClass);
+
+                    codeAttributeEditor.replaceInstruction(offset,
+                        new ConstantInstruction(InstructionConstants.OP_NEW,
+                                                constantPoolEditor.addClassConstant(replacementClasses[classIndex])));
+
+                    if (extraAllocationVisitor != null)
+                    {
+                        instruction.accept(clazz, method, codeAttribute, offset, extraAllocationVisitor);
+                    }
+                }
+                break;
+            }
+            case InstructionConstants.OP_INVOKEVIRTUAL:
+            case InstructionConstants.OP_INVOKESPECIAL:
+            {
+                int classIndex =
+                    classIndex(partialEvaluator.getStackBefore(offset).getTop(instruction.stackPopCount(clazz) - 1));
+
+                if (classIndex >= 0)
+                {
+                    String[] replacement =
+                        replacementMethod(programClass, instruction, classIndex);
+
+                    Clazz  replacementClass  = replacementClasses[classIndex];
+                    Method replacementMethod =
+                        memberFinder.findMethod(replacementClass,
+                                                replacement[0],
+                                                replacement[1]);
+
+                    ConstantPoolEditor constantPoolEditor =
+                        new ConstantPoolEditor(programClass);
+
+                    Instruction replacementInstruction =
+                        new ConstantInstruction(instruction.opcode,
+                                                constantPoolEditor.addMethodrefConstant(replacementClass.getName(),
+                                                                                        replacement[0],
+                                                                                        replacement[1],
+                                                                                        replacementClass,
+                                                                                        replacementMethod));
+
+                    // Pop any return value that the original method didn't
+                    // have.
+                    RefConstant refConstant =
+                        (RefConstant)programClass.getConstant(((ConstantInstruction)instruction).constantIndex);
+
+                    int returnSize =
+                        ClassUtil.internalTypeSize(ClassUtil.internalMethodReturnType(replacement[1]));
+
+                    if (returnSize > 0 &&
+                        ClassUtil.internalTypeSize(ClassUtil.internalMethodReturnType(refConstant.getType(programClass))) == 0)
+                    {
+                        codeAttributeEditor.replaceInstruction(offset, new Instruction[]
+                        {
+                            replacementInstruction,
+                            new SimpleInstruction(returnSize == 2 ?
+                                                      InstructionConstants.OP_POP2 :
+                                                      InstructionConstants.OP_POP),
+                        });
+                    }
+                    else
+                    {
+                        codeAttributeEditor.replaceInstruction(offset, replacementInstruction);
+                    }
+                }
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Returns whether the given instruction only moves values around on the
+     * stack or into local variables, or compares them with null. Comparisons
+     * of two references aren't neutral, since only the consumer check of the
+     * top one would be applied.
+     */
+    private boolean isNeutralInstruction(Instruction instruction)
+    {
+        switch (instruction.canonicalOpcode())
+        {
+            case InstructionConstants.OP_POP:
+            case InstructionConstants.OP_POP2:
+            case InstructionConstants.OP_DUP:
+            case InstructionConstants.OP_DUP_X1:
+            case InstructionConstants.OP_DUP_X2:
+            case InstructionConstants.OP_DUP2:
+            case InstructionConstants.OP_DUP2_X1:
+            case InstructionConstants.OP_DUP2_X2:
+            case InstructionConstants.OP_SWAP:
+            case InstructionConstants.OP_ASTORE:
+            case InstructionConstants.OP_IFNULL:
+            case InstructionConstants.OP_IFNONNULL:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+
+    /**
+     * Returns the name and descriptor of the replacement method for the
+     * method that the given instruction invokes on an instance of the
+     * specified synchronized class, or null if it isn't supported.
+     */
+    private String[] replacementMethod(ProgramClass programClass,
+                                       Instruction  instruction,
+                                       int          classIndex)
+    {
+        if (instruction.opcode != InstructionConstants.OP_INVOKEVIRTUAL &&
+            instruction.opcode != InstructionConstants.OP_INVOKESPECIAL)
+        {
+            return null;
+        }
+
+        RefConstant refConstant =
+            (RefConstant)programClass.getConstant(((ConstantInstruction)instruction).constantIndex);
+
+        String className = CLASS_REPLACEMENTS[classIndex][0];
+        String name      = refConstant.getName(programClass);
+        String type      = refConstant.getType(programClass);
+
+        if (!refConstant.getClassName(programClass).equals(className) ||
+            (instruction.opcode == InstructionConstants.OP_INVOKESPECIAL) !=
+            name.equals(ClassConstants.METHOD_NAME_INIT))
+        {
+            return null;
+        }
+
+        String[] replacement = null;
+
+        if (classIndex == STRING_BUFFER_INDEX)
+        {
+            // All StringBuffer methods have StringBuilder equivalents.
+            String returnType = ClassUtil.internalMethodReturnType(type);
+
+            replacement = new String[]
+            {
+                name,
+                returnType.equals(ClassUtil.internalTypeFromClassName(className)) ?
+                    type.substring(0, type.length() - returnType.length()) +
+                    ClassUtil.internalTypeFromClassName(CLASS_REPLACEMENTS[classIndex][1]) :
+                    type
+            };
+        }
+        else
+        {
+            for (int index = 0; index < METHOD_REPLACEMENTS.length; index++)
+            {
+                String[] methodReplacement = METHOD_REPLACEMENTS[index];
+                if (methodReplacement[0].equals(className) &&
+                    methodReplacement[1].equals(name)      &&
+                    methodReplacement[2].equals(type))
+                {
+                    replacement = methodReplacement.length > 3 ?
+                        new String[] { methodReplacement[3], methodReplacement[4] } :
+                        new String[] { name, type };
+                    break;
+                }
+            }
+        }
+
+        // Make sure the replacement method exists.
+        return replacement != null &&
+               memberFinder.findMethod(replacementClasses[classIndex],
+                                       replacement[0],
+                                       replacement[1]) != null ?
+            replacement :
+            null;
+    }
+
+
+    /**
+     * Returns the index of the synchronized class whose remaining
+     * allocations have created the given value, NONE if the value doesn't
+     * come from any remaining allocations, or MIXED if it may also come from
+     * elsewhere.
+     */
+    private int classIndex(Value value)
+    {
+        if (value.computationalType() != Value.TYPE_REFERENCE)
+        {
+            return NONE;
+        }
+
+        Value traceValue = ((TracedReferenceValue)value.referenceValue()).getTraceValue();
+        if (traceValue == null)
+        {
+            return NONE;
+        }
+
+        InstructionOffsetValue instructionOffsetValue = traceValue.instructionOffsetValue();
+
+        int     classIndex = NONE;
+        boolean other      = false;
+
+        int count = instructionOffsetValue.instructionOffsetCount();
+        for (int index = 0; index < count; index++)
+        {
+            int offset = instructionOffsetValue.instructionOffset(index);
+
+            int offsetClassIndex =
+                instructionOffsetValue.isNewinstance(index)       ? classIndices[offset] :
+                instructionOffsetValue.isMethodReturnValue(index) ? receiverClassIndex(offset) :
+                                                                    NONE;
+            if (offsetClassIndex == NONE)
+            {
+                other = true;
+            }
+            else if (offsetClassIndex == MIXED)
+            {
+                return MIXED;
+            }
+            else if (offsetClassIndex >= 0)
+            {
+                if (classIndex >= 0 &&
+                    classIndex != offsetClassIndex)
+                {
+                    return MIXED;
+                }
+
+                classIndex = offsetClassIndex;
+            }
+        }
+
+        return classIndex == NONE ? (other ? NONE : PENDING) :
+               other              ? MIXED :
+                                    classIndex;
+    }
+
+
+    /**
+     * Returns the class index of the receiver of the invocation at the given
+     * offset, if it is a StringBuffer method that returns this receiver,
+     * like 'append', PENDING if the receiver is already being resolved, or
+     * NONE otherwise.
+     */
+    private int receiverClassIndex(int offset)
+    {
+        Instruction instruction = InstructionFactory.create(code, offset);
+        if (instruction.opcode != InstructionConstants.OP_INVOKEVIRTUAL)
+        {
+            return NONE;
+        }
+
+        RefConstant refConstant =
+            (RefConstant)referencingClass.getConstant(((ConstantInstruction)instruction).constantIndex);
+
+        String className  = refConstant.getClassName(referencingClass);
+        int    classIndex = classIndex(className);
+        if (classIndex < 0 ||
+            !ClassUtil.internalMethodReturnType(refConstant.getType(referencingClass)).equals(ClassUtil.internalTypeFromClassName(className)))
+        {
+            return NONE;
+        }
+
+        // Avoid resolving cycles in loops like 'sb = sb.append(...)'.
+        if (resolving[offset])
+        {
+            return PENDING;
+        }
+
+        resolving[offset] = true;
+
+        int receiverClassIndex =
+            classIndex(partialEvaluator.getStackBefore(offset).getTop(instruction.stackPopCount(referencingClass) - 1));
+
+        resolving[offset] = false;
+
+        return receiverClassIndex == PENDING ? NONE :
+                                               receiverClassIndex;
+    }
+
+
+    /**
+     * Discards all allocations that may have created the given value,
+     * directly or through invocations that return their receivers.
+     */
+    private void discardAllocations(Value value)
+    {
+        if (value.computationalType() != Value.TYPE_REFERENCE)
+        {
+            return;
+        }
+
+        Value traceValue = ((TracedReferenceValue)value.referenceValue()).getTraceValue();
+        if (traceValue == null)
+        {
+            return;
+        }
+
+        InstructionOffsetValue instructionOffsetValue = traceValue.instructionOffsetValue();
+
+        int count = instructionOffsetValue.instructionOffsetCount();
+        for (int index = 0; index < count; index++)
+        {
+            int offset = instructionOffsetValue.instructionOffset(index);
+
+            if (instructionOffsetValue.isNewinstance(index))
+            {
+                classIndices[offset] = NONE;
+            }
+            else if (instructionOffsetValue.isMethodReturnValue(index) &&
+                     !resolving[offset])
+            {
+                Instruction instruction = InstructionFactory.create(code, offset);
+                if (instruction.opcode == InstructionConstants.OP_INVOKEVIRTUAL)
+                {
+                    resolving[offset] = true;
+
+                    discardAllocations(partialEvaluator.getStackBefore(offset).getTop(instruction.stackPopCount(referencingClass) - 1));
+
+                    resolving[offset] = false;
+                }
+            }
+        }
+    }
+}
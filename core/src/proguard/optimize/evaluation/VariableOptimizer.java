@@ -26,6 +26,9 @@ import proguard.classfile.attribute.visitor.*;
 import proguard.classfile.editor.*;
 import proguard.classfile.util.*;
 import proguard.classfile.visitor.MemberVisitor;
+import proguard.util.ArrayUtil;
+
+import java.util.Arrays;
 
 /**
  * This AttributeVisitor optimizes variable allocation based on their the liveness,
@@ -45,9 +48,6 @@ implements   AttributeVisitor,
     private static       boolean DEBUG = true;
     //*/
 
-    private static final int MAX_VARIABLES_SIZE = 64;
-
-
     private final boolean       reuseThis;
     private final MemberVisitor extraVariableMemberVisitor;
 
@@ -57,6 +57,13 @@ implements   AttributeVisitor,
 
     private int[] variableMap = new int[ClassConstants.TYPICAL_VARIABLES_SIZE];
 
+    // The interference graph of the analyzed variables, as packed rows of
+    // bits, with wordCount long words for each variable.
+    private int    wordCount;
+    private long[] interference       = new long[ClassConstants.TYPICAL_VARIABLES_SIZE];
+    private long[] category2Variables = new long[1];
+    private long[] aliveVariables     = new long[1];
+
 
     /**
      * Creates a new VariableOptimizer.
@@ -118,7 +125,12 @@ implements   AttributeVisitor,
                                                   method.getAccessFlags());
 
         int variableSize = codeAttribute.u2maxLocals;
-        int codeLength   = codeAttribute.u4codeLength;
+
+        // We can only remap variables whose liveness has been analyzed.
+        int analyzedVariableSize = livenessAnalyzer.getAnalyzedVariablesSize();
+
+        // Compute which variables are ever alive at the same time.
+        initializeInterference(codeAttribute);
 
         boolean remapping = false;
 
@@ -129,17 +141,19 @@ implements   AttributeVisitor,
             variableMap[oldIndex] = oldIndex;
 
             // Only try remapping the variable if it's not a parameter.
-            if (oldIndex >= parameterSize &&
-                oldIndex < MAX_VARIABLES_SIZE)
+            // For now, exclude Category 2 variables.
+            if (oldIndex >= parameterSize        &&
+                oldIndex <  analyzedVariableSize &&
+                !isSet(category2Variables, 0, oldIndex))
             {
                 // Try to remap the variable to a variable with a smaller index.
                 for (int newIndex = startIndex; newIndex < oldIndex; newIndex++)
                 {
-                    if (areNonOverlapping(oldIndex, newIndex, codeLength))
+                    if (!isSet(interference, oldIndex, newIndex))
                     {
                         variableMap[oldIndex] = newIndex;
 
-                        updateLiveness(oldIndex, newIndex, codeLength);
+                        updateInterference(oldIndex, newIndex);
 
                         remapping = true;
 
@@ -258,56 +272,180 @@ implements   AttributeVisitor,
 
 
     /**
-     * Returns whether the given variables are never alive at the same time.
+     * Fills out the interference graph of the variables and the variables
+     * that ever take up two entries, based on the liveness analysis.
      */
-    private boolean areNonOverlapping(int variableIndex1,
-                                      int variableIndex2,
-                                      int codeLength)
+    private void initializeInterference(CodeAttribute codeAttribute)
     {
+        int variableSize = livenessAnalyzer.getAnalyzedVariablesSize();
+        int codeLength   = codeAttribute.u4codeLength;
+
+        wordCount = (variableSize + 63) >>> 6;
+
+        interference       = ArrayUtil.ensureArraySize(interference, variableSize * wordCount, 0L);
+        category2Variables = ArrayUtil.ensureArraySize(category2Variables, wordCount, 0L);
+
+        aliveVariables     = ArrayUtil.ensureArraySize(aliveVariables, wordCount, 0L);
+
         // Loop over all instructions.
         for (int offset = 0; offset < codeLength; offset++)
         {
-            if ((livenessAnalyzer.isAliveBefore(offset, variableIndex1) &&
-                 livenessAnalyzer.isAliveBefore(offset, variableIndex2)) ||
+            if (livenessAnalyzer.isTraced(offset))
+            {
+                // Variables that are alive before the instruction interfere,
+                // and so do variables that are alive after the instruction.
+                boolean sameBefore = true;
+                boolean sameAfter  = true;
 
-                (livenessAnalyzer.isAliveAfter(offset, variableIndex1) &&
-                 livenessAnalyzer.isAliveAfter(offset, variableIndex2)) ||
+                for (int wordIndex = 0; wordIndex < wordCount; wordIndex++)
+                {
+                    sameBefore &= livenessAnalyzer.getAliveBeforeBits(offset, wordIndex) == aliveVariables[wordIndex];
 
-                // For now, exclude Category 2 variables.
-                livenessAnalyzer.isCategory2(offset, variableIndex1))
-            {
-                return false;
+                    category2Variables[wordIndex] |= livenessAnalyzer.getCategory2Bits(offset, wordIndex);
+                }
+
+                // Skip the common case of unchanged liveness.
+                if (!sameBefore)
+                {
+                    for (int wordIndex = 0; wordIndex < wordCount; wordIndex++)
+                    {
+                        aliveVariables[wordIndex] = livenessAnalyzer.getAliveBeforeBits(offset, wordIndex);
+                    }
+
+                    addInterference();
+                }
+
+                for (int wordIndex = 0; wordIndex < wordCount; wordIndex++)
+                {
+                    sameAfter &= livenessAnalyzer.getAliveAfterBits(offset, wordIndex) == aliveVariables[wordIndex];
+                }
+
+                if (!sameAfter)
+                {
+                    for (int wordIndex = 0; wordIndex < wordCount; wordIndex++)
+                    {
+                        aliveVariables[wordIndex] = livenessAnalyzer.getAliveAfterBits(offset, wordIndex);
+                    }
+
+                    addInterference();
+                }
             }
         }
-
-        return true;
     }
 
 
     /**
-     * Updates the liveness resulting from mapping the given old variable on
-     * the given new variable.
+     * Marks all current alive variables as interfering with each other.
      */
-    private void updateLiveness(int oldVariableIndex,
-                                int newVariableIndex,
-                                int codeLength)
+    private void addInterference()
     {
-        // Loop over all instructions.
-        for (int offset = 0; offset < codeLength; offset++)
+        for (int variableIndex = nextSetBit(aliveVariables, 0, 0);
+             variableIndex >= 0;
+             variableIndex = nextSetBit(aliveVariables, 0, variableIndex + 1))
         {
-            // Update the liveness before the instruction.
-            if (livenessAnalyzer.isAliveBefore(offset, oldVariableIndex))
+            int rowOffset = variableIndex * wordCount;
+
+            for (int wordIndex = 0; wordIndex < wordCount; wordIndex++)
             {
-                livenessAnalyzer.setAliveBefore(offset, oldVariableIndex, false);
-                livenessAnalyzer.setAliveBefore(offset, newVariableIndex, true);
+                interference[rowOffset + wordIndex] |= aliveVariables[wordIndex];
             }
+        }
+    }
+
+
+    /**
+     * Updates the interference graph to reflect mapping the given old
+     * variable on the given new variable: the new variable takes over all
+     * interference of the old variable, which becomes unused.
+     */
+    private void updateInterference(int oldVariableIndex,
+                                    int newVariableIndex)
+    {
+        int oldRowOffset = oldVariableIndex * wordCount;
+        int newRowOffset = newVariableIndex * wordCount;
 
-            // Update the liveness after the instruction.
-            if (livenessAnalyzer.isAliveAfter(offset, oldVariableIndex))
+        // Is the old variable ever alive?
+        boolean oldAlive = isSet(interference, oldVariableIndex, oldVariableIndex);
+
+        // Move the row of the old variable to the row of the new variable.
+        set(interference, oldVariableIndex, oldVariableIndex, false);
+
+        for (int wordIndex = 0; wordIndex < wordCount; wordIndex++)
+        {
+            interference[newRowOffset + wordIndex] |= interference[oldRowOffset + wordIndex];
+        }
+
+        if (oldAlive)
+        {
+            set(interference, newVariableIndex, newVariableIndex, true);
+        }
+
+        // Move the column of the old variable to the column of the new
+        // variable.
+        for (int variableIndex = nextSetBit(interference, oldRowOffset, 0);
+             variableIndex >= 0;
+             variableIndex = nextSetBit(interference, oldRowOffset, variableIndex + 1))
+        {
+            set(interference, variableIndex, oldVariableIndex, false);
+            set(interference, variableIndex, newVariableIndex, true);
+        }
+
+        Arrays.fill(interference, oldRowOffset, oldRowOffset + wordCount, 0L);
+    }
+
+
+    /**
+     * Returns the index of the first set bit in the given packed bits,
+     * starting at the given offset and the given index, or -1.
+     */
+    private int nextSetBit(long[] bits, int bitsOffset, int index)
+    {
+        int wordIndex = index >>> 6;
+        if (wordIndex >= wordCount)
+        {
+            return -1;
+        }
+
+        long word = bits[bitsOffset + wordIndex] & (-1L << index);
+
+        while (word == 0L)
+        {
+            if (++wordIndex >= wordCount)
             {
-                livenessAnalyzer.setAliveAfter(offset, oldVariableIndex, false);
-                livenessAnalyzer.setAliveAfter(offset, newVariableIndex, true);
+                return -1;
             }
+
+            word = bits[bitsOffset + wordIndex];
+        }
+
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+
+    /**
+     * Returns whether the specified bit is set in the given packed rows
+     * of bits.
+     */
+    private boolean isSet(long[] bits, int row, int index)
+    {
+        return (bits[row * wordCount + (index >>> 6)] & (1L << index)) != 0L;
+    }
+
+
+    /**
+     * Sets or clears the specified bit in the given packed rows of bits.
+     */
+    private void set(long[] bits, int row, int index, boolean set)
+    {
+        int bitsIndex = row * wordCount + (index >>> 6);
+
+        if (set)
+        {
+            bits[bitsIndex] |= 1L << index;
+        }
+        else
+        {
+            bits[bitsIndex] &= ~(1L << index);
         }
     }
 
@@ -0,0 +1,138 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize.info;
+
+import proguard.classfile.*;
+import proguard.classfile.util.*;
+import proguard.classfile.visitor.MemberVisitor;
+import proguard.evaluation.value.*;
+
+/**
+ * This MemberVisitor assigns the given constant value or value range to the
+ * fields and to the return values of the methods that it visits. The
+ * evaluating optimization steps will then assume these values, without
+ * further analysis.
+ *
+ * @see proguard.optimize.evaluation.LoadingInvocationUnit
+ * @author Eric Lafortune
+ */
+public class AssumedValueMarker
+extends      SimplifiedVisitor
+implements   MemberVisitor
+{
+    private static final ValueFactory VALUE_FACTORY = new ParticularValueFactory();
+
+
+    private final Number[] values;
+
+
+    /**
+     * Creates a new AssumedValueMarker.
+     * @param values the constant value or value range to be assigned: a
+     *               single value or a minimum value and a maximum value,
+     *               included.
+     */
+    public AssumedValueMarker(Number[] values)
+    {
+        this.values = values;
+    }
+
+
+    // Implementations for MemberVisitor.
+
+    public void visitProgramField(ProgramClass programClass, ProgramField programField)
+    {
+        markAssumedValue(programClass, programField);
+    }
+
+
+    public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
+    {
+        markAssumedReturnValue(programClass, programMethod);
+    }
+
+
+    public void visitLibraryField(LibraryClass libraryClass, LibraryField libraryField)
+    {
+        markAssumedValue(libraryClass, libraryField);
+    }
+
+
+    public void visitLibraryMethod(LibraryClass libraryClass, LibraryMethod libraryMethod)
+    {
+        markAssumedReturnValue(libraryClass, libraryMethod);
+    }
+
+
+    // Small utility methods.
+
+    private void markAssumedValue(Clazz clazz, Field field)
+    {
+        FieldOptimizationInfo.getFieldOptimizationInfo(field).setAssumedValue(
+            assumedValue(field.getDescriptor(clazz)));
+    }
+
+
+    private void markAssumedReturnValue(Clazz clazz, Method method)
+    {
+        MethodOptimizationInfo.getMethodOptimizationInfo(method).setAssumedReturnValue(
+            assumedValue(ClassUtil.internalMethodReturnType(method.getDescriptor(clazz))));
+    }
+
+
+    /**
+     * Returns the assumed value for the given primitive type, or null if
+     * the values don't apply.
+     */
+    private Value assumedValue(String type)
+    {
+        boolean isRange = values.length > 1 &&
+                          values[0].intValue() != values[1].intValue();
+
+        switch (type.charAt(0))
+        {
+            case ClassConstants.TYPE_BOOLEAN:
+            case ClassConstants.TYPE_BYTE:
+            case ClassConstants.TYPE_CHAR:
+            case ClassConstants.TYPE_SHORT:
+            case ClassConstants.TYPE_INT:
+                return isRange ?
+                    new RangeIntegerValue(values[0].intValue(),
+                                          values[1].intValue()) :
+                    VALUE_FACTORY.createIntegerValue(values[0].intValue());
+
+            case ClassConstants.TYPE_LONG:
+                return isRange ? null :
+                    VALUE_FACTORY.createLongValue(values[0].longValue());
+
+            case ClassConstants.TYPE_FLOAT:
+                return isRange ? null :
+                    VALUE_FACTORY.createFloatValue(values[0].floatValue());
+
+            case ClassConstants.TYPE_DOUBLE:
+                return isRange ? null :
+                    VALUE_FACTORY.createDoubleValue(values[0].doubleValue());
+
+            default:
+                return null;
+        }
+    }
+}
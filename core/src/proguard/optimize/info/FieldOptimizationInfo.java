@@ -33,6 +33,9 @@ import proguard.evaluation.value.*;
 public class FieldOptimizationInfo
 extends      SimplifiedVisitor
 {
+    protected Value assumedValue;
+
+
     public boolean isKept()
     {
         return true;
@@ -63,9 +66,15 @@ extends      SimplifiedVisitor
     }
 
 
+    public void setAssumedValue(Value assumedValue)
+    {
+        this.assumedValue = assumedValue;
+    }
+
+
     public Value getValue()
     {
-        return null;
+        return assumedValue;
     }
 
 
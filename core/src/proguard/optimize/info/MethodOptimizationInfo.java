@@ -36,6 +36,7 @@ public class MethodOptimizationInfo
     protected boolean hasNoExternalSideEffects  = false;
     protected boolean hasNoEscapingParameters   = false;
     protected boolean hasNoExternalReturnValues = false;
+    protected Value   assumedReturnValue        = null;
 
 
     public boolean isKept()
@@ -272,9 +273,15 @@ public class MethodOptimizationInfo
     }
 
 
+    public void setAssumedReturnValue(Value assumedReturnValue)
+    {
+        this.assumedReturnValue = assumedReturnValue;
+    }
+
+
     public Value getReturnValue()
     {
-        return null;
+        return assumedReturnValue;
     }
 
 
@@ -66,6 +66,7 @@ implements   AttributeVisitor
         this.canBeMadePrivate = programFieldOptimizationInfo.canBeMadePrivate;
         this.referencedClass  = programFieldOptimizationInfo.referencedClass;
         this.value            = programFieldOptimizationInfo.value;
+        this.assumedValue     = programFieldOptimizationInfo.assumedValue;
     }
 
 
@@ -160,7 +161,10 @@ implements   AttributeVisitor
 
     public Value getValue()
     {
-        return value;
+        // An assumed value takes precedence over the collected values.
+        return assumedValue != null ?
+            assumedValue :
+            value;
     }
 
 
@@ -492,7 +492,10 @@ extends      MethodOptimizationInfo
 
     public Value getReturnValue()
     {
-        return returnValue;
+        // An assumed value takes precedence over the collected values.
+        return assumedReturnValue != null ?
+            assumedReturnValue :
+            returnValue;
     }
 
 
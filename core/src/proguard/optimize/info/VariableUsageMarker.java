@@ -24,7 +24,7 @@ import proguard.classfile.*;
 import proguard.classfile.attribute.*;
 import proguard.classfile.attribute.visitor.AttributeVisitor;
 import proguard.classfile.instruction.*;
-import proguard.classfile.instruction.visitor.InstructionVisitor;
+import proguard.classfile.instruction.visitor.TransientInstructionVisitor;
 import proguard.classfile.util.SimplifiedVisitor;
 
 import java.util.Arrays;
@@ -38,7 +38,7 @@ import java.util.Arrays;
 public class VariableUsageMarker
 extends      SimplifiedVisitor
 implements   AttributeVisitor,
-             InstructionVisitor
+             TransientInstructionVisitor
 {
     private boolean[] variableUsed = new boolean[ClassConstants.TYPICAL_VARIABLES_SIZE];
 
@@ -77,6 +77,14 @@ implements   AttributeVisitor,
     }
 
 
+    // Implementations for TransientInstructionVisitor.
+
+    public boolean acceptsTransientInstructions()
+    {
+        return true;
+    }
+
+
     // Implementations for InstructionVisitor.
 
     public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction) {}
@@ -73,6 +73,10 @@ implements   AttributeVisitor,
     private static final short SUBROUTINE_INVOCATION = 1 <<  9;
     private static final short SUBROUTINE_RETURNING  = 1 << 10;
 
+    // An additional mark that is only used in cached branch targets, for
+    // instructions that are explicitly marked as not part of a subroutine.
+    private static final short CACHED_NO_SUBROUTINE  = 1 << 11;
+
 
     private short[] instructionMarks      = new short[ClassConstants.TYPICAL_CODE_LENGTH + 1];
     private int[]   subroutineStarts      = new int[ClassConstants.TYPICAL_CODE_LENGTH];
@@ -330,6 +334,13 @@ implements   AttributeVisitor,
             instructionMarks[codeLength] = 0;
         }
 
+        // Can we reuse the branch targets of a previous visit, if the code
+        // hasn't changed since?
+        if (restoreBranchTargets(codeAttribute))
+        {
+            return;
+        }
+
 //        superInitializationOffset = NONE;
         containsSubroutines       = false;
 
@@ -402,6 +413,9 @@ implements   AttributeVisitor,
             }
         }
 
+        // Cache the branch targets for subsequent visits of the same code.
+        cacheBranchTargets(codeAttribute);
+
         if (DEBUG)
         {
             System.out.println();
@@ -611,6 +625,101 @@ implements   AttributeVisitor,
 
     // Small utility methods.
 
+    /**
+     * Restores the branch targets from the cache of the given code
+     * attribute, if they are still valid for its current code.
+     * @return whether the branch targets have been restored.
+     */
+    private boolean restoreBranchTargets(CodeAttribute codeAttribute)
+    {
+        Object analysisInfo = codeAttribute.analysisInfo;
+        if (!(analysisInfo instanceof CachedBranchTargets))
+        {
+            return false;
+        }
+
+        CachedBranchTargets cachedBranchTargets =
+            (CachedBranchTargets)analysisInfo;
+
+        if (!cachedBranchTargets.matches(codeAttribute))
+        {
+            return false;
+        }
+
+        int     codeLength  = codeAttribute.u4codeLength;
+        short[] cachedMarks = cachedBranchTargets.instructionMarks;
+
+        containsSubroutines = cachedBranchTargets.subroutineStarts != null;
+
+        if (containsSubroutines)
+        {
+            System.arraycopy(cachedMarks,                          0, instructionMarks, 0, codeLength + 1);
+            System.arraycopy(cachedBranchTargets.subroutineStarts, 0, subroutineStarts, 0, codeLength);
+            System.arraycopy(cachedBranchTargets.subroutineEnds,   0, subroutineEnds,   0, codeLength);
+        }
+        else
+        {
+            // The subroutine starts are UNKNOWN, except where the cached
+            // marks say NO_SUBROUTINE. The subroutine ends are all UNKNOWN.
+            for (int offset = 0; offset <= codeLength; offset++)
+            {
+                short marks = cachedMarks[offset];
+                if ((marks & CACHED_NO_SUBROUTINE) != 0)
+                {
+                    marks &= ~CACHED_NO_SUBROUTINE;
+
+                    subroutineStarts[offset] = NO_SUBROUTINE;
+                }
+
+                instructionMarks[offset] = marks;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Caches the current branch targets in the given code attribute.
+     */
+    private void cacheBranchTargets(CodeAttribute codeAttribute)
+    {
+        int codeLength = codeAttribute.u4codeLength;
+
+        short[] cachedMarks = new short[codeLength + 1];
+        System.arraycopy(instructionMarks, 0, cachedMarks, 0, codeLength + 1);
+
+        int[] cachedSubroutineStarts = null;
+        int[] cachedSubroutineEnds   = null;
+
+        if (containsSubroutines)
+        {
+            cachedSubroutineStarts = new int[codeLength];
+            cachedSubroutineEnds   = new int[codeLength];
+            System.arraycopy(subroutineStarts, 0, cachedSubroutineStarts, 0, codeLength);
+            System.arraycopy(subroutineEnds,   0, cachedSubroutineEnds,   0, codeLength);
+        }
+        else
+        {
+            // Without subroutines, the subroutine starts can only be
+            // UNKNOWN or NO_SUBROUTINE, so we can fold them into the marks.
+            for (int offset = 0; offset < codeLength; offset++)
+            {
+                if (subroutineStarts[offset] == NO_SUBROUTINE)
+                {
+                    cachedMarks[offset] |= CACHED_NO_SUBROUTINE;
+                }
+            }
+        }
+
+        codeAttribute.analysisInfo =
+            new CachedBranchTargets(codeAttribute,
+                                    cachedMarks,
+                                    cachedSubroutineStarts,
+                                    cachedSubroutineEnds);
+    }
+
+
     /**
      * Marks the branch targets and their subroutine starts at the given
      * offsets.
@@ -720,4 +829,50 @@ implements   AttributeVisitor,
             subroutineStarts[offset] = currentSubroutineStart;
         }
     }
+
+
+    /**
+     * This class contains the branch targets of a code attribute, along with
+     * the code array and exception table from which they were derived, so
+     * they can be validated cheaply before they are reused. Code editors
+     * clear the cache when they change the code.
+     */
+    private static class CachedBranchTargets
+    {
+        private final byte[]          code;
+        private final int             codeLength;
+        private final ExceptionInfo[] exceptionTable;
+        private final int             exceptionTableLength;
+        private final short[]         instructionMarks;
+        private final int[]           subroutineStarts;
+        private final int[]           subroutineEnds;
+
+
+        public CachedBranchTargets(CodeAttribute codeAttribute,
+                                   short[]       instructionMarks,
+                                   int[]         subroutineStarts,
+                                   int[]         subroutineEnds)
+        {
+            this.code                 = codeAttribute.code;
+            this.codeLength           = codeAttribute.u4codeLength;
+            this.exceptionTable       = codeAttribute.exceptionTable;
+            this.exceptionTableLength = codeAttribute.u2exceptionTableLength;
+            this.instructionMarks     = instructionMarks;
+            this.subroutineStarts     = subroutineStarts;
+            this.subroutineEnds       = subroutineEnds;
+        }
+
+
+        /**
+         * Returns whether the given code attribute still has the same code
+         * array and exception table, with the same lengths.
+         */
+        public boolean matches(CodeAttribute codeAttribute)
+        {
+            return code                 == codeAttribute.code                  &&
+                   codeLength           == codeAttribute.u4codeLength          &&
+                   exceptionTable       == codeAttribute.exceptionTable        &&
+                   exceptionTableLength == codeAttribute.u2exceptionTableLength;
+        }
+    }
 }
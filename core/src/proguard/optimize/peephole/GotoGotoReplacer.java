@@ -24,7 +24,7 @@ import proguard.classfile.*;
 import proguard.classfile.attribute.CodeAttribute;
 import proguard.classfile.editor.CodeAttributeEditor;
 import proguard.classfile.instruction.*;
-import proguard.classfile.instruction.visitor.InstructionVisitor;
+import proguard.classfile.instruction.visitor.*;
 import proguard.classfile.util.SimplifiedVisitor;
 
 /**
@@ -35,7 +35,7 @@ import proguard.classfile.util.SimplifiedVisitor;
  */
 public class GotoGotoReplacer
 extends      SimplifiedVisitor
-implements   InstructionVisitor
+implements   TransientInstructionVisitor
 {
     private final CodeAttributeEditor codeAttributeEditor;
     private final InstructionVisitor  extraInstructionVisitor;
@@ -67,6 +67,17 @@ implements   InstructionVisitor
     }
 
 
+    // Implementations for TransientInstructionVisitor.
+
+    public boolean acceptsTransientInstructions()
+    {
+        // The extra visitor gets the same instructions.
+        return extraInstructionVisitor == null ||
+               (extraInstructionVisitor instanceof TransientInstructionVisitor &&
+                ((TransientInstructionVisitor)extraInstructionVisitor).acceptsTransientInstructions());
+    }
+
+
     // Implementations for InstructionVisitor.
 
     public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction) {}
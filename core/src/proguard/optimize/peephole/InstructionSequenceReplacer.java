@@ -26,7 +26,7 @@ import proguard.classfile.constant.*;
 import proguard.classfile.constant.visitor.ConstantVisitor;
 import proguard.classfile.editor.*;
 import proguard.classfile.instruction.*;
-import proguard.classfile.instruction.visitor.InstructionVisitor;
+import proguard.classfile.instruction.visitor.*;
 import proguard.classfile.util.*;
 
 /**
@@ -67,7 +67,7 @@ import proguard.classfile.util.*;
  */
 public class InstructionSequenceReplacer
 extends      SimplifiedVisitor
-implements   InstructionVisitor,
+implements   TransientInstructionVisitor,
              ConstantVisitor
 {
     //*
@@ -241,6 +241,17 @@ implements   InstructionVisitor,
     }
 
 
+    // Implementations for TransientInstructionVisitor.
+
+    public boolean acceptsTransientInstructions()
+    {
+        // The extra visitor gets the same instructions.
+        return extraInstructionVisitor == null ||
+               (extraInstructionVisitor instanceof TransientInstructionVisitor &&
+                ((TransientInstructionVisitor)extraInstructionVisitor).acceptsTransientInstructions());
+    }
+
+
     // Implementations for InstructionVisitor.
 
     public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction)
@@ -52,6 +52,8 @@ implements   AttributeVisitor,
 {
     private static final int MAXIMUM_INLINED_CODE_LENGTH_JVM    = Integer.parseInt(System.getProperty("maximum.inlined.code.length",      "8"));
     private static final int MAXIMUM_INLINED_CODE_LENGTH_android= Integer.parseInt(System.getProperty("maximum.inlined.code.length",     "32"));
+    private static final int MAXIMUM_INLINED_CODE_LENGTH_HOT    = Integer.parseInt(System.getProperty("maximum.inlined.hot.code.length", "64"));
+    private static final int MAXIMUM_INLINED_CODE_LENGTH_COLD   = Integer.parseInt(System.getProperty("maximum.inlined.cold.code.length", "5"));
     private static final int MAXIMUM_RESULTING_CODE_LENGTH_JSE  = Integer.parseInt(System.getProperty("maximum.resulting.code.length", "7000"));
     private static final int MAXIMUM_RESULTING_CODE_LENGTH_JME  = Integer.parseInt(System.getProperty("maximum.resulting.code.length", "2000"));
 
@@ -70,6 +72,7 @@ implements   AttributeVisitor,
     private final boolean            allowAccessModification;
     private final boolean            inlineSingleInvocations;
     private final InstructionVisitor extraInlinedInvocationVisitor;
+    private final MethodProfile      methodProfile;
 
     private final CodeAttributeComposer codeAttributeComposer  = new CodeAttributeComposer();
     private final MemberVisitor         accessMethodMarker     = new OptimizationInfoMemberFilter(
@@ -148,12 +151,48 @@ implements   AttributeVisitor,
                          boolean            allowAccessModification,
                          boolean            inlineSingleInvocations,
                          InstructionVisitor extraInlinedInvocationVisitor)
+    {
+        this(microEdition,
+             android,
+             allowAccessModification,
+             inlineSingleInvocations,
+             extraInlinedInvocationVisitor,
+             null);
+    }
+
+
+    /**
+     * Creates a new MethodInliner.
+     * @param microEdition            indicates whether the resulting code is
+     *                                targeted at Java Micro Edition.
+     * @param android                 indicates whether the resulting code is
+     *                                targeted at the androidVM.
+     * @param allowAccessModification indicates whether the access modifiers of
+     *                                classes and class members can be changed
+     *                                in order to inline methods.
+     * @param inlineSingleInvocations indicates whether the single invocations
+     *                                should be inlined, or, alternatively,
+     *                                short methods.
+     * @param extraInlinedInvocationVisitor an optional extra visitor for all
+     *                                      inlined invocation instructions.
+     * @param methodProfile           an optional run-time profile. If
+     *                                specified, short methods are inlined
+     *                                more aggressively at hot call sites and
+     *                                less aggressively in cold methods.
+     */
+    public MethodInliner(boolean            microEdition,
+                         boolean            android,
+                         boolean            allowAccessModification,
+                         boolean            inlineSingleInvocations,
+                         InstructionVisitor extraInlinedInvocationVisitor,
+                         MethodProfile      methodProfile)
     {
         this.microEdition                  = microEdition;
         this.android                       = android;
         this.allowAccessModification       = allowAccessModification;
         this.inlineSingleInvocations       = inlineSingleInvocations;
         this.extraInlinedInvocationVisitor = extraInlinedInvocationVisitor;
+        this.methodProfile                 = methodProfile;
     }
 
 
@@ -239,10 +278,7 @@ implements   AttributeVisitor,
         // Only inline the method if it is invoked once or if it is short.
         else if ((inlineSingleInvocations ?
                       MethodInvocationMarker.getInvocationCount(method) == 1 :
-                      codeAttribute.u4codeLength <=
-                      (android?
-                           MAXIMUM_INLINED_CODE_LENGTH_android:
-                           MAXIMUM_INLINED_CODE_LENGTH_JVM)) &&
+                      codeAttribute.u4codeLength <= maximumInlinedCodeLength(method)) &&
                  estimatedResultingCodeLength + codeAttribute.u4codeLength <
                  (microEdition ?
                      MAXIMUM_RESULTING_CODE_LENGTH_JME :
@@ -291,6 +327,37 @@ implements   AttributeVisitor,
     }
 
 
+    /**
+     * Returns the maximum code length of the given short method, for
+     * inlining it in the current target method.
+     */
+    private int maximumInlinedCodeLength(Method method)
+    {
+        int maximumInlinedCodeLength = android ?
+            MAXIMUM_INLINED_CODE_LENGTH_android :
+            MAXIMUM_INLINED_CODE_LENGTH_JVM;
+
+        if (methodProfile != null)
+        {
+            // Allow larger methods at hot call sites, but keep cold methods
+            // compact. Leave methods that aren't profiled alone.
+            if (methodProfile.isHot(targetMethod) ||
+                methodProfile.isHotCallSite(targetMethod, method))
+            {
+                maximumInlinedCodeLength = Math.max(maximumInlinedCodeLength,
+                                                    MAXIMUM_INLINED_CODE_LENGTH_HOT);
+            }
+            else if (methodProfile.isProfiled(targetMethod))
+            {
+                maximumInlinedCodeLength = Math.min(maximumInlinedCodeLength,
+                                                    MAXIMUM_INLINED_CODE_LENGTH_COLD);
+            }
+        }
+
+        return maximumInlinedCodeLength;
+    }
+
+
     /**
      * Appends instructions to pop the parameters for the given method, storing
      * them in new local variables.
@@ -0,0 +1,494 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.util;
+
+import java.util.*;
+
+/**
+ * This class builds a nondeterministic finite automaton for a list of
+ * StringMatcher entries, and then converts it into a deterministic
+ * AutomatonMatcher, with the same first-match semantics as a ListMatcher.
+ * <p>
+ * The automaton has three kinds of states: character states, which move to
+ * a single next state on a character from a given set, split states, which
+ * move to any number of next states without consuming a character, and
+ * accepting states, which mark the end of a match for a given entry.
+ *
+ * @author Eric Lafortune
+ */
+class AutomatonBuilder
+{
+    private static final int MAXIMUM_DFA_STATE_COUNT = 1024;
+
+    private static final int TYPE_CHARACTER = 0;
+    private static final int TYPE_SPLIT     = 1;
+    private static final int TYPE_ACCEPT    = 2;
+
+    private static final char[] NO_CHARACTERS = new char[0];
+    private static final int[]  NO_STATES     = new int[0];
+
+
+    // The states of the nondeterministic automaton.
+    private final List states = new ArrayList();
+
+    // The matchers for which states have been created for the current entry.
+    private final Map matcherStates = new IdentityHashMap();
+
+    // The accepting state of the current entry.
+    private int acceptState = -1;
+
+
+    /**
+     * Starts the states of a new entry in the list. Subsequent accepting
+     * states will refer to the entry with the given index.
+     */
+    public void startEntry(int entryIndex)
+    {
+        matcherStates.clear();
+
+        acceptState = addState(new State(TYPE_ACCEPT, null, false, NO_STATES, entryIndex));
+    }
+
+
+    /**
+     * Adds the states for the given matcher, which may be null to indicate
+     * the end of the string. Returns the initial state, or -1 if the matcher
+     * can't be expressed as an automaton.
+     */
+    public int addMatcher(StringMatcher matcher)
+    {
+        if (matcher == null)
+        {
+            return acceptState;
+        }
+
+        // Reuse the states if we've already created them (for instance if
+        // an OrMatcher has different branches that share the same tail).
+        Integer state = (Integer)matcherStates.get(matcher);
+        if (state == null)
+        {
+            state = Integer.valueOf(matcher.addStates(this));
+            matcherStates.put(matcher, state);
+        }
+
+        return state.intValue();
+    }
+
+
+    /**
+     * Adds a state that moves to the given next state on any character of
+     * the given set, or, if negated, on any character outside of the set.
+     */
+    public int addCharacterState(char[] characters, boolean negated, int nextState)
+    {
+        return addState(new State(TYPE_CHARACTER,
+                                  characters,
+                                  negated,
+                                  new int[] { nextState },
+                                  -1));
+    }
+
+
+    /**
+     * Adds a state that can move to any of the given next states without
+     * consuming any characters.
+     */
+    public int addSplitState(int[] nextStates)
+    {
+        return addState(new State(TYPE_SPLIT, null, false, nextStates, -1));
+    }
+
+
+    /**
+     * Adds a state that repeatedly matches any character of the given set,
+     * or, if negated, any character outside of the set, and then moves on
+     * to the given next state.
+     */
+    public int addLoopState(char[] characters, boolean negated, int nextState)
+    {
+        int loopState = addSplitState(null);
+
+        int characterState = addCharacterState(characters, negated, loopState);
+
+        state(loopState).nextStates = new int[] { characterState, nextState };
+
+        return loopState;
+    }
+
+
+    /**
+     * Adds a state that never matches.
+     */
+    public int addRejectState()
+    {
+        return addSplitState(NO_STATES);
+    }
+
+
+    /**
+     * Creates a deterministic AutomatonMatcher from the states that have been
+     * added.
+     *
+     * @param initialStates the initial states of the entries.
+     * @param negated       for each entry, whether a match is negative.
+     * @param fallback      the result if no entries match at all.
+     * @param nextMatcher   an optional matcher that is invoked to confirm
+     *                      positive matches.
+     * @return the automaton matcher, or null if the deterministic automaton
+     *         would become too large.
+     */
+    public AutomatonMatcher createAutomatonMatcher(int[]         initialStates,
+                                                   boolean[]     negated,
+                                                   boolean       fallback,
+                                                   StringMatcher nextMatcher)
+    {
+        // Collect all characters that are mentioned explicitly. All other
+        // characters then behave the same way, as a single character class.
+        char[] alphabet   = alphabet();
+        int    classCount = alphabet.length + 1;
+
+        // Perform the classic subset construction.
+        List  dfaStateSets    = new ArrayList();
+        Map   dfaStateIndices = new HashMap();
+        int[] transitions     = new int[16 * classCount];
+
+        addDfaState(closure(initialStates), dfaStateSets, dfaStateIndices);
+
+        for (int dfaState = 0; dfaState < dfaStateSets.size(); dfaState++)
+        {
+            StateSet stateSet = (StateSet)dfaStateSets.get(dfaState);
+
+            if (transitions.length < (dfaState + 1) * classCount)
+            {
+                transitions = ArrayUtil.extendArray(transitions,
+                                                    2 * transitions.length);
+            }
+
+            for (int characterClass = 0; characterClass < classCount; characterClass++)
+            {
+                // The last character class represents all other characters.
+                boolean other     = characterClass == alphabet.length;
+                char    character = other ? 0 : alphabet[characterClass];
+
+                int nextDfaState =
+                    addDfaState(closure(move(stateSet, character, other)),
+                                dfaStateSets,
+                                dfaStateIndices);
+
+                if (nextDfaState >= MAXIMUM_DFA_STATE_COUNT)
+                {
+                    return null;
+                }
+
+                transitions[dfaState * classCount + characterClass] = nextDfaState;
+            }
+        }
+
+        // Compute the result and the absorption of each deterministic state.
+        int       dfaStateCount = dfaStateSets.size();
+        boolean[] results       = new boolean[dfaStateCount];
+        boolean[] absorbing     = new boolean[dfaStateCount];
+
+        for (int dfaState = 0; dfaState < dfaStateCount; dfaState++)
+        {
+            StateSet stateSet = (StateSet)dfaStateSets.get(dfaState);
+
+            results[dfaState]   = result(stateSet, negated, fallback);
+            absorbing[dfaState] = isAbsorbing(transitions, dfaState, classCount);
+        }
+
+        int[] compactTransitions = new int[dfaStateCount * classCount];
+        System.arraycopy(transitions, 0, compactTransitions, 0, compactTransitions.length);
+
+        return new AutomatonMatcher(alphabet,
+                                    compactTransitions,
+                                    results,
+                                    absorbing,
+                                    nextMatcher);
+    }
+
+
+    // Small utility methods.
+
+    private int addState(State state)
+    {
+        states.add(state);
+
+        return states.size() - 1;
+    }
+
+
+    private State state(int index)
+    {
+        return (State)states.get(index);
+    }
+
+
+    /**
+     * Returns the sorted characters that are mentioned in any of the
+     * character states.
+     */
+    private char[] alphabet()
+    {
+        SortedSet characters = new TreeSet();
+
+        for (int index = 0; index < states.size(); index++)
+        {
+            State state = state(index);
+            if (state.type == TYPE_CHARACTER)
+            {
+                for (int charIndex = 0; charIndex < state.characters.length; charIndex++)
+                {
+                    characters.add(Character.valueOf(state.characters[charIndex]));
+                }
+            }
+        }
+
+        char[] alphabet = new char[characters.size()];
+
+        int index = 0;
+        Iterator iterator = characters.iterator();
+        while (iterator.hasNext())
+        {
+            alphabet[index++] = ((Character)iterator.next()).charValue();
+        }
+
+        return alphabet;
+    }
+
+
+    /**
+     * Returns the set of character and accepting states that can be reached
+     * from the given states without consuming any characters.
+     */
+    private StateSet closure(int[] initialStates)
+    {
+        BitSet visited = new BitSet(states.size());
+        BitSet closure = new BitSet(states.size());
+
+        for (int index = 0; index < initialStates.length; index++)
+        {
+            addClosure(initialStates[index], visited, closure);
+        }
+
+        int[] closureStates = new int[closure.cardinality()];
+
+        int index = 0;
+        for (int state = closure.nextSetBit(0); state >= 0; state = closure.nextSetBit(state + 1))
+        {
+            closureStates[index++] = state;
+        }
+
+        return new StateSet(closureStates);
+    }
+
+
+    private void addClosure(int stateIndex, BitSet visited, BitSet closure)
+    {
+        if (!visited.get(stateIndex))
+        {
+            visited.set(stateIndex);
+
+            State state = state(stateIndex);
+            if (state.type == TYPE_SPLIT)
+            {
+                for (int index = 0; index < state.nextStates.length; index++)
+                {
+                    addClosure(state.nextStates[index], visited, closure);
+                }
+            }
+            else
+            {
+                closure.set(stateIndex);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the states that the given character states move to on the
+     * given character, or on any character outside of the alphabet.
+     */
+    private int[] move(StateSet stateSet, char character, boolean other)
+    {
+        int[] nextStates     = new int[stateSet.states.length];
+        int   nextStateCount = 0;
+
+        for (int index = 0; index < stateSet.states.length; index++)
+        {
+            State state = state(stateSet.states[index]);
+            if (state.type == TYPE_CHARACTER &&
+                state.accepts(character, other))
+            {
+                nextStates[nextStateCount++] = state.nextStates[0];
+            }
+        }
+
+        int[] result = new int[nextStateCount];
+        System.arraycopy(nextStates, 0, result, 0, nextStateCount);
+
+        return result;
+    }
+
+
+    /**
+     * Returns the index of the given deterministic state, adding it if it
+     * is new.
+     */
+    private int addDfaState(StateSet stateSet,
+                            List     dfaStateSets,
+                            Map      dfaStateIndices)
+    {
+        Integer dfaState = (Integer)dfaStateIndices.get(stateSet);
+        if (dfaState == null)
+        {
+            dfaState = Integer.valueOf(dfaStateSets.size());
+
+            dfaStateSets.add(stateSet);
+            dfaStateIndices.put(stateSet, dfaState);
+        }
+
+        return dfaState.intValue();
+    }
+
+
+    /**
+     * Returns the match result for the given set of states: the result for
+     * the first entry that accepts, or the fallback if no entry accepts.
+     */
+    private boolean result(StateSet stateSet, boolean[] negated, boolean fallback)
+    {
+        int firstEntryIndex = Integer.MAX_VALUE;
+
+        for (int index = 0; index < stateSet.states.length; index++)
+        {
+            State state = state(stateSet.states[index]);
+            if (state.type == TYPE_ACCEPT)
+            {
+                firstEntryIndex = Math.min(firstEntryIndex, state.entryIndex);
+            }
+        }
+
+        return firstEntryIndex == Integer.MAX_VALUE ?
+            fallback :
+            !negated[firstEntryIndex];
+    }
+
+
+    /**
+     * Returns whether the given deterministic state only moves to itself.
+     */
+    private boolean isAbsorbing(int[] transitions, int dfaState, int classCount)
+    {
+        for (int characterClass = 0; characterClass < classCount; characterClass++)
+        {
+            if (transitions[dfaState * classCount + characterClass] != dfaState)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * A state of the nondeterministic automaton.
+     */
+    private static class State
+    {
+        private final int     type;
+        private final char[]  characters;
+        private final boolean negated;
+        private       int[]   nextStates;
+        private final int     entryIndex;
+
+
+        public State(int     type,
+                     char[]  characters,
+                     boolean negated,
+                     int[]   nextStates,
+                     int     entryIndex)
+        {
+            this.type       = type;
+            this.characters = characters != null ? characters : NO_CHARACTERS;
+            this.negated    = negated;
+            this.nextStates = nextStates;
+            this.entryIndex = entryIndex;
+        }
+
+
+        /**
+         * Returns whether this character state accepts the given character,
+         * or any character outside of the alphabet.
+         */
+        public boolean accepts(char character, boolean other)
+        {
+            if (other)
+            {
+                return negated;
+            }
+
+            for (int index = 0; index < characters.length; index++)
+            {
+                if (characters[index] == character)
+                {
+                    return !negated;
+                }
+            }
+
+            return negated;
+        }
+    }
+
+
+    /**
+     * A sorted set of states of the nondeterministic automaton, which forms
+     * a single state of the deterministic automaton.
+     */
+    private static class StateSet
+    {
+        private final int[] states;
+        private final int   hashCode;
+
+
+        public StateSet(int[] states)
+        {
+            this.states   = states;
+            this.hashCode = Arrays.hashCode(states);
+        }
+
+
+        // Implementations for Object.
+
+        public boolean equals(Object object)
+        {
+            return object instanceof StateSet &&
+                   Arrays.equals(states, ((StateSet)object).states);
+        }
+
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.util;
+
+import java.util.Arrays;
+
+/**
+ * This StringMatcher tests whether strings match a deterministic finite
+ * automaton. It considers each character of a string exactly once, without
+ * any backtracking. The automaton is immutable, so the matcher can be shared
+ * between threads, unless it has a next matcher.
+ * <p>
+ * Instances are created by the CompiledListParser.
+ *
+ * @see CompiledListParser
+ * @author Eric Lafortune
+ */
+public class AutomatonMatcher extends StringMatcher
+{
+    private static final int ASCII_CHARACTER_COUNT = 128;
+
+
+    private final char[]        alphabet;
+    private final int[]         asciiCharacterClasses;
+    private final int           characterClassCount;
+    private final int[]         transitions;
+    private final boolean[]     results;
+    private final boolean[]     absorbing;
+    private final StringMatcher nextMatcher;
+
+
+    /**
+     * Creates a new AutomatonMatcher.
+     *
+     * @param alphabet    the sorted characters that have their own character
+     *                    classes. All other characters fall in the last
+     *                    character class.
+     * @param transitions the next state for each state and character class.
+     * @param results     the match result for each state.
+     * @param absorbing   for each state, whether it only moves to itself.
+     * @param nextMatcher an optional matcher that confirms positive matches,
+     *                    for instance to fill out variable string matchers.
+     */
+    AutomatonMatcher(char[]        alphabet,
+                     int[]         transitions,
+                     boolean[]     results,
+                     boolean[]     absorbing,
+                     StringMatcher nextMatcher)
+    {
+        this.alphabet            = alphabet;
+        this.characterClassCount = alphabet.length + 1;
+        this.transitions         = transitions;
+        this.results             = results;
+        this.absorbing           = absorbing;
+        this.nextMatcher         = nextMatcher;
+
+        // Precompute the character classes of the common characters.
+        asciiCharacterClasses = new int[ASCII_CHARACTER_COUNT];
+        for (char character = 0; character < ASCII_CHARACTER_COUNT; character++)
+        {
+            asciiCharacterClasses[character] = lookUpCharacterClass(character);
+        }
+    }
+
+
+    /**
+     * Returns the number of states of the automaton.
+     */
+    public int getStateCount()
+    {
+        return results.length;
+    }
+
+
+    // Implementations for StringMatcher.
+
+    @Override
+    protected boolean matches(String string, int beginOffset, int endOffset)
+    {
+        int state = 0;
+
+        for (int offset = beginOffset; offset < endOffset && !absorbing[state]; offset++)
+        {
+            state = transitions[state * characterClassCount +
+                                characterClass(string.charAt(offset))];
+        }
+
+        return results[state] &&
+               (nextMatcher == null ||
+                nextMatcher.matches(string, beginOffset, endOffset));
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the character class of the given character.
+     */
+    private int characterClass(char character)
+    {
+        return character < ASCII_CHARACTER_COUNT ?
+            asciiCharacterClasses[character] :
+            lookUpCharacterClass(character);
+    }
+
+
+    /**
+     * Looks up the character class of the given character in the alphabet.
+     */
+    private int lookUpCharacterClass(char character)
+    {
+        int index = Arrays.binarySearch(alphabet, character);
+
+        return index >= 0 ? index : alphabet.length;
+    }
+}
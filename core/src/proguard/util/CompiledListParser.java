@@ -0,0 +1,196 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2018 GuardSquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.util;
+
+import java.util.List;
+
+/**
+ * This StringParser can create StringMatcher instances for the same
+ * comma-separated lists of optionally negated regular expressions as the
+ * ListParser, but it compiles the entire list into a single deterministic
+ * automaton. The resulting AutomatonMatcher has the same first-match
+ * semantics, but it doesn't backtrack on wildcards.
+ * <p>
+ * If any of the entries can't be compiled, for instance because it refers
+ * to an earlier wildcard with '&lt;n&gt;', or if the automaton would become
+ * too large, the parser falls back to a plain ListMatcher.
+ * <p>
+ * If the entry parser fills out a list of variable string matchers, the
+ * automaton only serves as a fast filter: positive matches are confirmed by
+ * the plain matchers, so subsequent references to the wildcards still work.
+ *
+ * @see ListParser
+ * @author Eric Lafortune
+ */
+public class CompiledListParser implements StringParser
+{
+    private final StringParser stringParser;
+    private final List         variableStringMatchers;
+
+
+    /**
+     * Creates a new CompiledListParser that parses individual elements in the
+     * comma-separated list with the given StringParser.
+     */
+    public CompiledListParser(StringParser stringParser)
+    {
+        this(stringParser, null);
+    }
+
+
+    /**
+     * Creates a new CompiledListParser that parses individual elements in the
+     * comma-separated list with the given StringParser.
+     *
+     * @param stringParser           the parser for the individual elements.
+     * @param variableStringMatchers the optional mutable list of
+     *                               VariableStringMatcher instances that the
+     *                               given parser fills out, if any.
+     */
+    public CompiledListParser(StringParser stringParser,
+                              List         variableStringMatchers)
+    {
+        this.stringParser           = stringParser;
+        this.variableStringMatchers = variableStringMatchers;
+    }
+
+
+    // Implementations for StringParser.
+
+    public StringMatcher parse(String regularExpression)
+    {
+        return parse(ListUtil.commaSeparatedList(regularExpression));
+    }
+
+
+    /**
+     * Creates a StringMatcher for the given regular expression, which can
+     * be a list of optionally negated simple entries.
+     * <p>
+     * An empty list results in a StringMatcher that matches any string.
+     */
+    public StringMatcher parse(List regularExpressions)
+    {
+        int entryCount = regularExpressions.size();
+        if (entryCount == 0)
+        {
+            return new ConstantMatcher(true);
+        }
+
+        int variableStringMatcherCount = variableStringMatcherCount();
+
+        // Parse the entries backward, like the ListParser, so variable
+        // string matchers end up in the same order.
+        StringMatcher[] entryMatchers = new StringMatcher[entryCount];
+        boolean[]       negated       = new boolean[entryCount];
+
+        for (int index = entryCount - 1; index >= 0; index--)
+        {
+            String regularExpression = (String)regularExpressions.get(index);
+
+            negated[index]       = isNegated(regularExpression);
+            entryMatchers[index] = stringParser.parse(negated[index] ?
+                                                          regularExpression.substring(1) :
+                                                          regularExpression);
+        }
+
+        StringMatcher listMatcher = entryCount == 1 && !negated[0] ?
+            entryMatchers[0] :
+            new ListMatcher(entryMatchers, negated);
+
+        // Create the states of the automaton for all entries.
+        AutomatonBuilder builder = new AutomatonBuilder();
+
+        int[] initialStates = new int[entryCount];
+        for (int index = 0; index < entryCount; index++)
+        {
+            builder.startEntry(index);
+
+            initialStates[index] = builder.addMatcher(entryMatchers[index]);
+            if (initialStates[index] < 0)
+            {
+                // We can't compile this entry.
+                return listMatcher;
+            }
+        }
+
+        // Only confirm positive matches with the plain matchers if we need
+        // to fill out variable string matchers.
+        StringMatcher automatonMatcher =
+            builder.createAutomatonMatcher(initialStates,
+                                           negated,
+                                           negated[entryCount - 1],
+                                           variableStringMatcherCount() > variableStringMatcherCount ?
+                                               listMatcher :
+                                               null);
+
+        return automatonMatcher != null ?
+            automatonMatcher :
+            listMatcher;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the current number of variable string matchers.
+     */
+    private int variableStringMatcherCount()
+    {
+        return variableStringMatchers == null ? 0 :
+            variableStringMatchers.size();
+    }
+
+
+    /**
+     * Returns whether the given simple regular expression is negated.
+     */
+    private boolean isNegated(String regularExpression)
+    {
+        return regularExpression.length() > 0 &&
+               regularExpression.charAt(0) == '!';
+    }
+
+
+    /**
+     * A main method for testing name matching.
+     */
+    public static void main(String[] args)
+    {
+        try
+        {
+            System.out.println("Regular expression ["+args[0]+"]");
+            CompiledListParser parser  = new CompiledListParser(new NameParser());
+            StringMatcher      matcher = parser.parse(args[0]);
+            System.out.println("Matcher            ["+matcher.getClass().getName()+"]");
+            for (int index = 1; index < args.length; index++)
+            {
+                String string = args[index];
+                System.out.print("String             ["+string+"]");
+                System.out.println(" -> match = "+matcher.matches(args[index]));
+            }
+        }
+        catch (Exception ex)
+        {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -46,4 +46,13 @@ public class ConstantMatcher extends StringMatcher
     {
         return matches;
     }
+
+
+    @Override
+    int addStates(AutomatonBuilder builder)
+    {
+        return matches ?
+            builder.addLoopState(null, true, builder.addMatcher(null)) :
+            builder.addRejectState();
+    }
 }
\ No newline at end of file
@@ -34,4 +34,11 @@ public class EmptyStringMatcher extends StringMatcher
     {
         return beginOffset == endOffset;
     }
+
+
+    @Override
+    int addStates(AutomatonBuilder builder)
+    {
+        return builder.addMatcher(null);
+    }
 }
@@ -71,4 +71,25 @@ public class FixedStringMatcher extends StringMatcher
                                     beginOffset + fixedStringLength,
                                     endOffset));
     }
+
+
+    @Override
+    int addStates(AutomatonBuilder builder)
+    {
+        int state = builder.addMatcher(nextMatcher);
+        if (state < 0)
+        {
+            return -1;
+        }
+
+        // Add a state for each character, backward.
+        for (int index = fixedString.length() - 1; index >= 0; index--)
+        {
+            state = builder.addCharacterState(new char[] { fixedString.charAt(index) },
+                                              false,
+                                              state);
+        }
+
+        return state;
+    }
 }
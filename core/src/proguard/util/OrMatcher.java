@@ -50,4 +50,15 @@ public class OrMatcher extends StringMatcher
         return matcher1.matches(string, beginOffset, endOffset) ||
                matcher2.matches(string, beginOffset, endOffset);
     }
+
+
+    @Override
+    int addStates(AutomatonBuilder builder)
+    {
+        int state1 = builder.addMatcher(matcher1);
+        int state2 = builder.addMatcher(matcher2);
+
+        return state1 < 0 || state2 < 0 ? -1 :
+            builder.addSplitState(new int[] { state1, state2 });
+    }
 }
@@ -44,4 +44,11 @@ public class SettableMatcher extends StringMatcher
     {
         return matcher.matches(string, beginOffset, endOffset);
     }
+
+
+    @Override
+    int addStates(AutomatonBuilder builder)
+    {
+        return builder.addMatcher(matcher);
+    }
 }
@@ -50,4 +50,17 @@ public abstract class StringMatcher
     protected abstract boolean matches(String string,
                                        int    beginOffset,
                                        int    endOffset);
+
+
+    /**
+     * Adds the states of a nondeterministic finite automaton that matches
+     * the same strings to the given builder.
+     * @param builder the builder to which the states are added.
+     * @return the initial state, or -1 if this matcher can't be expressed
+     *         as an automaton.
+     */
+    int addStates(AutomatonBuilder builder)
+    {
+        return -1;
+    }
 }
@@ -168,6 +168,52 @@ public class VariableStringMatcher extends StringMatcher
     }
 
 
+    @Override
+    int addStates(AutomatonBuilder builder)
+    {
+        int nextState = builder.addMatcher(nextMatcher);
+        if (nextState < 0)
+        {
+            return -1;
+        }
+
+        // Any character is allowed, except for the disallowed characters, if
+        // there are no explicitly allowed characters.
+        char[]  characters = allowedCharacters != null ?
+            allowedCharacters :
+            disallowedCharacters;
+        boolean negated    = allowedCharacters == null;
+
+        int state;
+        if (maximumLength == Integer.MAX_VALUE)
+        {
+            // Add a loop for any number of optional characters.
+            state = builder.addLoopState(characters, negated, nextState);
+        }
+        else
+        {
+            // Add a sequence of optional characters, backward.
+            state = nextState;
+            for (int index = minimumLength; index < maximumLength; index++)
+            {
+                state = builder.addSplitState(new int[]
+                {
+                    nextState,
+                    builder.addCharacterState(characters, negated, state)
+                });
+            }
+        }
+
+        // Add a sequence of required characters, backward.
+        for (int index = 0; index < minimumLength; index++)
+        {
+            state = builder.addCharacterState(characters, negated, state);
+        }
+
+        return state;
+    }
+
+
     // Small utility methods.
 
     /**
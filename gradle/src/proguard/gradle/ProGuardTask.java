@@ -42,6 +42,21 @@ import java.util.*;
  */
 public class ProGuardTask extends DefaultTask
 {
+    // Keywords of the class member values.
+    private static final String RANGE_KEYWORD = "..";
+    private static final String FALSE_KEYWORD = "false";
+    private static final String TRUE_KEYWORD  = "true";
+
+    // The maximum number of library classes in the cache that is shared by
+    // all tasks in the same Gradle daemon, or 0 to disable the cache.
+    private static final int LIBRARY_CLASS_POOL_CACHE_SIZE =
+        Integer.getInteger("proguard.library.class.pool.cache.size", 200000).intValue();
+
+    private static final LibraryClassPoolCache libraryClassPoolCache =
+        LIBRARY_CLASS_POOL_CACHE_SIZE > 0 ?
+            new LibraryClassPoolCache(LIBRARY_CLASS_POOL_CACHE_SIZE) :
+            null;
+
     // Accumulated input and output, for the sake of Gradle's lazy file
     // resolution and lazy task execution.
     private final List          inJarFiles         = new ArrayList();
@@ -280,6 +295,30 @@ public class ProGuardTask extends DefaultTask
         configuration.lastModified = Long.MAX_VALUE;
     }
 
+    public void startupprofile(Object startupProfile)
+    throws ParseException
+    {
+        configuration.startupProfile = getProject().file(startupProfile);
+    }
+
+    public void startupjar(Object startupJar)
+    throws ParseException
+    {
+        configuration.startupJar = getProject().file(startupJar);
+    }
+
+    public void librarycache(Object libraryCache)
+    throws ParseException
+    {
+        configuration.libraryCache = getProject().file(libraryCache);
+    }
+
+    public void contenthashes(Object contentHashes)
+    throws ParseException
+    {
+        configuration.contentHashes = getProject().file(contentHashes);
+    }
+
     public void keep(String classSpecificationString)
     throws ParseException
     {
@@ -676,6 +715,24 @@ public class ProGuardTask extends DefaultTask
                                      classMembersClosure));
     }
 
+    public void assumevalues(String classSpecificationString)
+    throws ParseException
+    {
+        configuration.assumeValues =
+            extendClassSpecifications(configuration.assumeValues,
+            createClassSpecification(true, classSpecificationString));
+    }
+
+    public void assumevalues(Map     classSpecificationArgs,
+                             Closure classMembersClosure)
+    throws ParseException
+    {
+        configuration.assumeValues =
+            extendClassSpecifications(configuration.assumeValues,
+            createClassSpecification(classSpecificationArgs,
+                                     classMembersClosure));
+    }
+
     // Hack: support the keyword without parentheses in Groovy.
     public Object getallowaccessmodification()
     {
@@ -700,6 +757,24 @@ public class ProGuardTask extends DefaultTask
         configuration.mergeInterfacesAggressively = true;
     }
 
+    public void applyprofile(Object applyProfile)
+    throws ParseException
+    {
+        configuration.applyProfile = getProject().file(applyProfile);
+    }
+
+    // Hack: support the keyword without parentheses in Groovy.
+    public Object getencodeprimitivearrays()
+    {
+        encodeprimitivearrays();
+        return null;
+    }
+
+    public void encodeprimitivearrays()
+    {
+        configuration.encodePrimitiveArrays = true;
+    }
+
     // Hack: support the keyword without parentheses in Groovy.
     public Object getdontobfuscate()
     {
@@ -1082,6 +1157,44 @@ public class ProGuardTask extends DefaultTask
     }
 
 
+    // Hack: support the keyword without parentheses in Groovy.
+    public Object getprintperformance()
+    {
+        printperformance();
+        return null;
+    }
+
+    public void printperformance()
+    {
+        configuration.printPerformance = Configuration.STD_OUT;
+    }
+
+    public void printperformance(Object printPerformance)
+    throws ParseException
+    {
+        configuration.printPerformance = getProject().file(printPerformance);
+    }
+
+
+    // Hack: support the keyword without parentheses in Groovy.
+    public Object getprintmemory()
+    {
+        printmemory();
+        return null;
+    }
+
+    public void printmemory()
+    {
+        configuration.printMemory = Configuration.STD_OUT;
+    }
+
+    public void printmemory(Object printMemory)
+    throws ParseException
+    {
+        configuration.printMemory = getProject().file(printMemory);
+    }
+
+
     // Hack: support the keyword without parentheses in Groovy.
     public Object getaddconfigurationdebugging()
     {
@@ -1151,8 +1264,9 @@ public class ProGuardTask extends DefaultTask
         loggingManager.captureStandardOutput(LogLevel.INFO);
         loggingManager.captureStandardError(LogLevel.WARN);
 
-        // Run ProGuard with the collected configuration.
-        new ProGuard(getConfiguration()).execute();
+        // Run ProGuard with the collected configuration, reusing library
+        // classes from previous runs in the same daemon.
+        new ProGuard(getConfiguration(), libraryClassPoolCache).execute();
 
     }
 
@@ -1391,6 +1505,18 @@ public class ProGuardTask extends DefaultTask
      */
     private ClassSpecification createClassSpecification(String classSpecificationString)
     throws ParseException
+    {
+        return createClassSpecification(false, classSpecificationString);
+    }
+
+
+    /**
+     * Creates specifications of classes and class members, optionally with
+     * values, based on the given ProGuard-style class specification.
+     */
+    private ClassSpecification createClassSpecification(boolean allowValues,
+                                                        String  classSpecificationString)
+    throws ParseException
     {
         try
         {
@@ -1399,7 +1525,7 @@ public class ProGuardTask extends DefaultTask
 
             try
             {
-                return parser.parseClassSpecificationArguments();
+                return parser.parseClassSpecificationArguments(allowValues);
             }
             finally
             {
@@ -1534,6 +1660,7 @@ public class ProGuardTask extends DefaultTask
         String annotation        = (String)classSpecificationArgs.get("annotation");
         String name              = (String)classSpecificationArgs.get("name");
         String parameters        = (String)classSpecificationArgs.get("parameters");
+        String values            = (String)classSpecificationArgs.get("values");
 
         // Perform some basic conversions and checks on the attributes.
         if (annotation != null)
@@ -1577,11 +1704,51 @@ public class ProGuardTask extends DefaultTask
             type       != null ? ClassUtil.internalType(type)                            :
                                  null;
 
-        return new MemberSpecification(requiredMemberAccessFlags(true,  access),
-                                       requiredMemberAccessFlags(false, access),
-                                       annotation,
-                                       name,
-                                       descriptor);
+        return values != null ?
+            new MemberValueSpecification(requiredMemberAccessFlags(true,  access),
+                                         requiredMemberAccessFlags(false, access),
+                                         annotation,
+                                         name,
+                                         descriptor,
+                                         parseValues(values)) :
+            new MemberSpecification(requiredMemberAccessFlags(true,  access),
+                                    requiredMemberAccessFlags(false, access),
+                                    annotation,
+                                    name,
+                                    descriptor);
+    }
+
+
+    /**
+     * Parses the given value or value range, like "true", "42", or "21..100".
+     */
+    private Number[] parseValues(String values)
+    throws ParseException
+    {
+        try
+        {
+            int rangeIndex = values.indexOf(RANGE_KEYWORD);
+            if (rangeIndex >= 0)
+            {
+                return new Number[]
+                {
+                    Integer.valueOf(values.substring(0, rangeIndex)),
+                    Integer.valueOf(values.substring(rangeIndex + RANGE_KEYWORD.length()))
+                };
+            }
+
+            return new Number[]
+            {
+                values.equals(FALSE_KEYWORD) ? Integer.valueOf(0) :
+                values.equals(TRUE_KEYWORD)  ? Integer.valueOf(1) :
+                values.indexOf('.') >= 0     ? (Number)Double.valueOf(values) :
+                                               (Number)Long.valueOf(values)
+            };
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ParseException("Incorrect class member values ["+values+"]");
+        }
     }
 
 